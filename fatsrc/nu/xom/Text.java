@@ -104,6 +104,7 @@ public class Text extends Node {
      */
     public void setValue(String data) {
         _setValue(data);
+        markParentModified();
     }
 
     
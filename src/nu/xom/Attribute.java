@@ -37,7 +37,7 @@ package nu.xom;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.3.0
+ * @version 1.4.7
  * 
  */
 public class Attribute extends Node {
@@ -146,20 +146,29 @@ public class Attribute extends Node {
     public Attribute(
       String name, String URI, String value, Type type) {
 
-        prefix = "";
-        String localName = name;
-        int prefixPosition = name.indexOf(':');
-        if (prefixPosition > 0) {
-            prefix = name.substring(0, prefixPosition);   
-            localName = name.substring(prefixPosition + 1);
+        Verifier.Name checked = Verifier.getAttributeName(name);
+        if (checked != null) {
+            // An attribute has already been created with this name, 
+            // so there's no need to split it or check it again.
+            prefix = checked.prefix;
+            this.localName = checked.localName;
         }
-
-        try {
-            _setLocalName(localName);
-        }
-        catch (IllegalNameException ex) {
-            ex.setData(name);
-            throw ex;
+        else {
+            prefix = "";
+            String localName = name;
+            int prefixPosition = name.indexOf(':');
+            if (prefixPosition > 0) {
+                prefix = name.substring(0, prefixPosition);   
+                localName = name.substring(prefixPosition + 1);
+            }
+    
+            try {
+                _setLocalName(localName);
+            }
+            catch (IllegalNameException ex) {
+                ex.setData(name);
+                throw ex;
+            }
         }
         _setNamespace(prefix, URI);
         _setValue(value);
@@ -169,6 +178,9 @@ public class Attribute extends Node {
         else {
             _setType(type);
         }
+        if (checked == null) {
+            Verifier.putAttributeName(name, this.prefix, this.localName);
+        }
         
     }
 
@@ -331,6 +343,7 @@ public class Attribute extends Node {
      */
     public void setValue(String value) {
         _setValue(value);
+        markParentModified();
     }
 
     
@@ -377,6 +390,7 @@ public class Attribute extends Node {
         if (isXMLID()) {
             this.setType(Attribute.Type.ID);
         }
+        markParentModified();
         
     }   
     
@@ -465,6 +479,7 @@ public class Attribute extends Node {
         if (isXMLID()) {
             this.setType(Attribute.Type.ID);
         }
+        markParentModified();
 
     }
 
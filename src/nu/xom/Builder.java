@@ -34,6 +34,9 @@ import java.net.URISyntaxException;
 import java.net.URL;
 
 import javax.xml.parsers.FactoryConfigurationError;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
@@ -65,6 +68,11 @@ public class Builder {
     private XMLReader   parser;
     private NodeFactory factory;
     
+    private boolean ignoringBoundaryWhitespace = false;
+    private boolean ignoringComments = false;
+    private boolean ignoringProcessingInstructions = false;
+    private boolean ignoringInternalDTDSubset = false;
+    
     private static double xercesVersion = 2.6;
     
     static {  
@@ -1088,6 +1096,63 @@ public class Builder {
         
     }
     
+    
+    /**
+     * <p>
+     * Reads a document from a StAX <code>XMLStreamReader</code>.
+     * If the reader is positioned at the start of a document, 
+     * or on a comment, processing instruction, white space, or
+     * document type declaration in its prolog, the rest of the 
+     * document is read, and the reader is left at the 
+     * end of the document. If the reader is positioned at a 
+     * start-tag, that element becomes the root element of the 
+     * new document, and the reader is left at its end-tag. 
+     * Namespace declarations made on the element's ancestors are
+     * not copied unless the names in the element use them.
+     * The reader is not closed.
+     * </p>
+     * 
+     * <p>
+     * The reader's own configuration, not this builder's, decides
+     * whether the document is validated and how entities are 
+     * resolved. The builder's node factory is used. StAX does not 
+     * report the internal DTD subset, so the document type 
+     * declaration, if any, has none.
+     * </p>
+     * 
+     * @param reader the StAX reader from which the document is read
+     * 
+     * @return the parsed <code>Document</code>
+     * 
+     * @throws ParsingException if the reader reports an error or
+     *     the data it reports is not well-formed
+     */
+    public Document build(XMLStreamReader reader) throws ParsingException {
+        
+        try {
+            StAXDriver driver = new StAXDriver(reader, factory);
+            configure(driver.handler);
+            return driver.build();
+        }
+        catch (XMLStreamException ex) {
+            Location location = ex.getLocation();
+            if (location == null) {
+                throw new ParsingException(ex.getMessage(), ex);
+            }
+            throw new ParsingException(ex.getMessage(), 
+              location.getSystemId(), location.getLineNumber(), 
+              location.getColumnNumber(), ex);
+        }
+        catch (SAXException ex) {
+            throw new ParsingException(ex.getMessage(), ex);
+        }
+        catch (XMLException ex) {
+            throw new ParsingException(ex.getMessage(), ex);
+        }
+        
+    }
+    
+    
     // needed to work around a bug in Xerces and Crimson
     // for URLs with no trailing slashes (no path part) 
     // such as http://www.cafeconleche.org.
@@ -1148,6 +1213,7 @@ public class Builder {
       throws ParsingException, ValidityException, IOException {
 
         XOMHandler handler = (XOMHandler) parser.getContentHandler();
+        configure(handler);
         Document result = null;
         try {
             parser.parse(in);
@@ -1348,5 +1414,144 @@ public class Builder {
         return factory;
     }
 
+
+    /**
+     * <p>
+     * Specifies whether text nodes that contain nothing but white
+     * space are left out of the documents this builder builds. 
+     * This is useful for pretty-printed, data-oriented documents, 
+     * where such nodes are often half the nodes in the tree.
+     * White space inside an element whose <code>xml:space</code>
+     * attribute is <code>preserve</code>, or in a CDATA section 
+     * that begins a text node, is kept. White space next to other 
+     * text is always kept. White space between two elements in mixed 
+     * content is not, so don't use this for narrative documents. 
+     * The default is false.
+     * </p>
+     * 
+     * @param ignore true if white space only text should be 
+     *     left out
+     */
+    public void setIgnoringBoundaryWhitespace(boolean ignore) {
+        this.ignoringBoundaryWhitespace = ignore;
+    }
+
+
+    /**
+     * <p>
+     * Returns true if this builder leaves white space only text 
+     * out of the documents it builds.
+     * </p>
+     * 
+     * @return true if white space only text is left out
+     */
+    public boolean isIgnoringBoundaryWhitespace() {
+        return this.ignoringBoundaryWhitespace;
+    }
+
+
+    /**
+     * <p>
+     * Specifies whether comments are left out of the documents this
+     * builder builds, including comments in the internal DTD 
+     * subset. The text on either side of a comment that is left out
+     * becomes a single text node, just as if the comment had never 
+     * been there. The node factory is not called for comments that 
+     * are left out. The default is false.
+     * </p>
+     * 
+     * @param ignore true if comments should be left out
+     */
+    public void setIgnoringComments(boolean ignore) {
+        this.ignoringComments = ignore;
+    }
+
+
+    /**
+     * <p>
+     * Returns true if this builder leaves comments out of
+     * the documents it builds.
+     * </p>
+     * 
+     * @return true if comments are left out
+     */
+    public boolean isIgnoringComments() {
+        return this.ignoringComments;
+    }
+
+
+    /**
+     * <p>
+     * Specifies whether processing instructions are left out of the 
+     * documents this builder builds, including processing 
+     * instructions in the internal DTD subset. The text on either 
+     * side of a processing instruction that is left out becomes a 
+     * single text node. The node factory is not called for 
+     * processing instructions that are left out. 
+     * The default is false.
+     * </p>
+     * 
+     * @param ignore true if processing instructions should be 
+     *     left out
+     */
+    public void setIgnoringProcessingInstructions(boolean ignore) {
+        this.ignoringProcessingInstructions = ignore;
+    }
+
+
+    /**
+     * <p>
+     * Returns true if this builder leaves processing instructions 
+     * out of the documents it builds.
+     * </p>
+     * 
+     * @return true if processing instructions are left out
+     */
+    public boolean isIgnoringProcessingInstructions() {
+        return this.ignoringProcessingInstructions;
+    }
+
+
+    /**
+     * <p>
+     * Specifies whether the declarations in the internal DTD subset
+     * are recorded in the <code>DocType</code>. If they are not, 
+     * the document type declaration still has its root element 
+     * name, public ID, and system ID, but its internal DTD subset 
+     * is empty. The parser still reads and uses the DTD, so 
+     * default attribute values, attribute types, entities, and 
+     * validation are not affected. The default is false.
+     * </p>
+     * 
+     * @param ignore true if the internal DTD subset should not 
+     *     be recorded
+     */
+    public void setIgnoringInternalDTDSubset(boolean ignore) {
+        this.ignoringInternalDTDSubset = ignore;
+    }
+
+
+    /**
+     * <p>
+     * Returns true if this builder does not record the internal
+     * DTD subsets of the documents it builds.
+     * </p>
+     * 
+     * @return true if the internal DTD subset is not recorded
+     */
+    public boolean isIgnoringInternalDTDSubset() {
+        return this.ignoringInternalDTDSubset;
+    }
+    
+    
+    private void configure(XOMHandler handler) {
+        
+        handler.ignoringBoundaryWhitespace = ignoringBoundaryWhitespace;
+        handler.ignoringComments = ignoringComments;
+        handler.ignoringProcessingInstructions = ignoringProcessingInstructions;
+        handler.ignoringInternalDTDSubset = ignoringInternalDTDSubset;
+        
+    }
+
     
 }
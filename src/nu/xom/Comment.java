@@ -108,6 +108,7 @@ public class Comment extends Node {
      */
     public void setValue(String data) {
         _setValue(data);
+        markParentModified();
     }
 
 
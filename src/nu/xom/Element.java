@@ -45,7 +45,7 @@ import java.util.LinkedHashSet;
  * </ul>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.3.1
+ * @version 1.4.7
  *
  */
 public class Element extends ParentNode {
@@ -90,6 +90,16 @@ public class Element extends ParentNode {
      */
     public Element(String name, String uri) {
         
+        Verifier.Name checked = Verifier.getElementName(name);
+        if (checked != null) {
+            // An element has already been created with this name, 
+            // so there's no need to split it or check it again.
+            this.prefix = checked.prefix;
+            _setNamespaceURI(uri);
+            this.localName = checked.localName;
+            return;
+        }
+        
         // The shadowing is important here.
         // I don't want to set the prefix field just yet.
         String prefix = "";
@@ -111,6 +121,7 @@ public class Element extends ParentNode {
             ex.setData(name);
             throw ex;
         }
+        Verifier.putElementName(name, this.prefix, this.localName);
         
     }
 
@@ -468,6 +479,7 @@ public class Element extends ParentNode {
         
         add(attribute);
         attribute.setParent(this);
+        markModified();
         
     }
     
@@ -542,6 +554,7 @@ public class Element extends ParentNode {
         }        
         if (remove(attribute)) {
             attribute.setParent(null);
+            markModified();
             return attribute;
         }
         else {
@@ -822,6 +835,7 @@ public class Element extends ParentNode {
      */
     public void setLocalName(String localName) {       
         _setLocalName(localName);
+        markModified();
     }
 
 
@@ -847,6 +861,7 @@ public class Element extends ParentNode {
      */
     public void setNamespaceURI(String uri) {
         _setNamespaceURI(uri);
+        markModified();
     }
 
     
@@ -930,6 +945,7 @@ public class Element extends ParentNode {
      */
     public void setNamespacePrefix(String prefix) {
         _setNamespacePrefix(prefix);
+        markModified();
     }
 
 
@@ -1046,6 +1062,7 @@ public class Element extends ParentNode {
            throw new NullPointerException("Inserted null string");
        }
        super.fastInsertChild(new Text(text), position);
+       markModified();
        
     } 
 
@@ -1095,6 +1112,7 @@ public class Element extends ParentNode {
         }   
         this.children = null;
         this.childCount = 0;
+        markModified();
         
         return result;
         
@@ -1191,10 +1209,19 @@ public class Element extends ParentNode {
         
         if (namespaces == null) namespaces = new Namespaces();
         namespaces.put(prefix, uri);
+        markModified();
         
     }
 
     
+    // For trusted callers that have already checked the prefix and
+    // URI and know the declaration conflicts with nothing
+    void fastAddNamespaceDeclaration(String prefix, String uri) {
+        if (namespaces == null) namespaces = new Namespaces();
+        namespaces.put(prefix, uri);
+    }
+
+    
     /**
      * <p>
      * Removes the mapping of the specified prefix. This method only
@@ -1211,6 +1238,7 @@ public class Element extends ParentNode {
 
         if (namespaces != null) {
             namespaces.remove(prefix);
+            markModified();
         }
         
     }
@@ -0,0 +1,187 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>
+ *   A bitset of the BMP characters that must be escaped with
+ *   character references in one encoding. The table is computed
+ *   from the JDK's <code>CharsetEncoder</code> the first time an
+ *   encoding is used, and shared by every writer that uses that
+ *   encoding afterwards.
+ * </p>
+ *
+ * <p>
+ *   The bits are stored in pages of 256 characters. Pages in which
+ *   every character is escaped, or no character is, are shared, so
+ *   a single byte encoding needs only a few hundred bytes.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class EncodingTable {
+
+
+    private final static long[] NONE = new long[4];
+    private final static long[] ALL  = {-1L, -1L, -1L, -1L};
+
+    private final static Map<String, EncodingTable> tables
+      = new HashMap<String, EncodingTable>();
+
+    // Characters XOM escapes even though the JDK can encode them.
+    // These were added in later editions of the standards, and
+    // escaping them keeps the output readable by decoders that
+    // implement the earlier editions.
+    private final static Map<String, char[][]> overrides
+      = new HashMap<String, char[][]>();
+
+    static {
+        overrides.put("ISO-8859-3", new char[][] {{0x00A3, 0x00A3}});
+        overrides.put("ISO-8859-7", new char[][] {
+            {0x0080, 0x009F}, // C1 controls
+            {0x037A, 0x037A}, // GREEK YPOGEGRAMMENI
+            {0x20AC, 0x20AC}, // EURO SIGN
+            {0x20AF, 0x20AF}  // DRACHMA SIGN
+        });
+        overrides.put("ISO-8859-8", new char[][] {
+            {0x00AF, 0x00AF}, // MACRON; OVERLINE in ISO-8859-8:1988
+            {0x200E, 0x200F}  // LEFT-TO-RIGHT MARK, RIGHT-TO-LEFT MARK
+        });
+        // TIS-620 does not assign the C1 controls or 0xA0
+        char[][] thai = {{0x0080, 0x00A0}};
+        overrides.put("ISO-8859-11", thai);
+        overrides.put("TIS-620", thai);
+        overrides.put("TIS620", thai);
+    }
+
+    private final long[][] pages;
+
+
+    private EncodingTable(long[][] pages) {
+        this.pages = pages;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the table for the named encoding, computing it
+     *   if this is the first time the encoding has been used.
+     * </p>
+     *
+     * @param encoding the name of the encoding
+     *
+     * @return the characters that need escaping in this encoding
+     *
+     * @throws UnsupportedEncodingException if the JDK does not
+     *     support the encoding
+     */
+    static EncodingTable getInstance(String encoding)
+      throws UnsupportedEncodingException {
+
+        String key = encoding.toUpperCase(Locale.ENGLISH);
+        synchronized (tables) {
+            EncodingTable table = tables.get(key);
+            if (table == null) {
+                table = build(key);
+                tables.put(key, table);
+            }
+            return table;
+        }
+
+    }
+
+
+    private static EncodingTable build(String encoding)
+      throws UnsupportedEncodingException {
+
+        CharsetEncoder encoder;
+        try {
+            encoder = Charset.forName(encoding).newEncoder();
+        }
+        catch (RuntimeException ex) {
+            // IllegalCharsetNameException, UnsupportedCharsetException
+            throw new UnsupportedEncodingException(encoding);
+        }
+
+        long[] bits = new long[1024];
+        // assume everything has at least the ASCII characters
+        for (int c = 0x80; c <= 0xFFFF; c++) {
+            if ((c >= 0xD800 && c <= 0xDFFF) || !encoder.canEncode((char) c)) {
+                bits[c >>> 6] |= 1L << c;
+            }
+        }
+
+        char[][] ranges = overrides.get(encoding);
+        if (ranges != null) {
+            for (int i = 0; i < ranges.length; i++) {
+                for (int c = ranges[i][0]; c <= ranges[i][1]; c++) {
+                    bits[c >>> 6] |= 1L << c;
+                }
+            }
+        }
+        if (isJapanese(encoding)) {
+            // work around various bugs in Japanese encodings
+            bits[0xA5 >>> 6] |= 1L << 0xA5; // Yen symbol
+            bits[0x203E >>> 6] |= 1L << 0x203E; // Sun bugs in EUC-JP and SJIS
+        }
+
+        long[][] pages = new long[256][];
+        for (int page = 0; page < 256; page++) {
+            long[] words = new long[4];
+            System.arraycopy(bits, page * 4, words, 0, 4);
+            if (isEqual(words, NONE)) words = NONE;
+            else if (isEqual(words, ALL)) words = ALL;
+            pages[page] = words;
+        }
+        return new EncodingTable(pages);
+
+    }
+
+
+    private static boolean isJapanese(String encoding) {
+        return encoding.indexOf("EUC-JP") > -1
+          || encoding.startsWith("EUC_JP")
+          || encoding.equals("SHIFT_JIS")
+          || encoding.equals("SJIS")
+          || encoding.equals("ISO-2022-JP");
+    }
+
+
+    private static boolean isEqual(long[] a, long[] b) {
+        return a[0] == b[0] && a[1] == b[1] && a[2] == b[2] && a[3] == b[3];
+    }
+
+
+    boolean needsEscaping(char c) {
+        return (pages[c >>> 8][(c >>> 6) & 3] & (1L << c)) != 0;
+    }
+
+
+}
@@ -22,57 +22,53 @@ package nu.xom;
 
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
-import java.util.Locale;
 
 /**
  * <p>
  * <code>GenericWriter</code> figures out whether a 
- * character is or is not available in a particular encoding.
+ * character is or is not available in a particular encoding
+ * by looking it up in a table computed from the JDK's 
+ * <code>CharsetEncoder</code> for that encoding.
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.2.11
+ * @version 1.4.7
  * 
  */
 class GenericWriter extends TextWriter {
     
-    private final boolean               isJapanese;
-    private final CharsetEncoder        encoder;
+    private final EncodingTable table;
 
     
     GenericWriter(Writer out, String encoding) 
       throws UnsupportedEncodingException {
-        
+        this(out, encoding, encoding);
+    }
+
+    
+    /**
+     * <p>
+     * Creates a writer for an encoding that has the same
+     * character set as another encoding the JDK knows about,
+     * though possibly at different code points.
+     * </p>
+     * 
+     * @param out the <code>Writer</code> to write to
+     * @param encoding the encoding the writer uses
+     * @param characterSet an encoding that has the same
+     *     characters as <code>encoding</code>
+     */
+    GenericWriter(Writer out, String encoding, String characterSet) 
+      throws UnsupportedEncodingException {
         super(out, encoding);
-        encoding = encoding.toUpperCase(Locale.ENGLISH);
-        if (encoding.indexOf("EUC-JP") > -1
-          || encoding.startsWith("EUC_JP")
-          || encoding.equals("SHIFT_JIS")
-          || encoding.equals("SJIS")
-          || encoding.equals("ISO-2022-JP")) {
-            isJapanese = true;
-        }
-        else {
-           isJapanese = false; 
-        }
-        encoder = Charset.forName(encoding).newEncoder();
+        table = EncodingTable.getInstance(characterSet);
     }
 
     
     boolean needsEscaping(char c) {
-       
         // assume everything has at least the ASCII characters
         if (c <= 127) return false;
-        // work around various bugs in Japanese encodings
-        if (isJapanese) {
-            if (c == 0xA5) return true; // Yen symbol 
-            if (c == 0x203E) return true; // Sun bugs in EUC-JP and SJIS
-        }
-        
-        if (encoder.canEncode(c)) return false;
-        return true;
+        return table.needsEscaping(c);
     }
    
     
@@ -218,6 +218,12 @@ public abstract class Node {
     }
     
     
+    // called after this node's content changes
+    final void markParentModified() {
+        if (parent != null) parent.markModified();   
+    }
+    
+    
     /**
      * <p>
      * Removes this node from its parent so that it can be added 
@@ -55,8 +55,21 @@ package nu.xom;
  * object.
  * </p>
  * 
+ * <p>
+ * Most subclasses replace each node with at most one node.
+ * These can override the methods whose names end in 
+ * <code>Node</code>, such as <code>makeTextNode</code>, instead of 
+ * the methods that return a <code>Nodes</code> list. These return a 
+ * single node, or null to leave the node out of the tree, so
+ * building doesn't allocate a list for every node. Override one 
+ * method of each pair or the other, not both. The builder calls the 
+ * single node method unless a subclass overrides only the 
+ * method that returns a list. By default the methods that return  
+ * a list call the corresponding single node methods. 
+ * </p>
+ * 
  * @author Elliotte Rusty Harold
- * @version 1.3.1
+ * @version 1.4.7
  * 
  */
 public class NodeFactory {
@@ -172,7 +185,28 @@ public class NodeFactory {
      * 
      */
     public Nodes finishMakingElement(Element element) {
-        return new Nodes(element);
+        return nodes(finishMakingElementNode(element));
+    }
+
+
+    /**
+     * <p>
+     * Signals the end of an element, and returns the one node 
+     * to be added to the tree in its place. This is 
+     * <code>finishMakingElement</code> for subclasses that replace 
+     * each element with at most one node. The same restrictions 
+     * apply. By default this method returns <code>element</code>.
+     * If this method returns null, then the element (including all 
+     * its contents) is not included in the finished document.
+     * This method must not return null for the root element. 
+     * </p>
+     * 
+     * @param element the finished <code>Element</code>
+     * 
+     * @return the node to be added to the tree, or null
+     */
+    public Node finishMakingElementNode(Element element) {
+        return element;
     }
 
 
@@ -249,7 +283,31 @@ public class NodeFactory {
      */
     public Nodes makeAttribute(String name, String URI, 
       String value, Attribute.Type type) {
-        return new Nodes(new Attribute(name, URI, value, type));
+        return nodes(makeAttributeNode(name, URI, value, type));
+    }
+
+
+    /**
+     * <p>
+     * Returns a new attribute in the specified namespace 
+     * with the specified name and type. This is 
+     * <code>makeAttribute</code> for subclasses that replace each 
+     * attribute with at most one node. Subclasses may return  
+     * a child node instead, which is added to the current parent 
+     * element, or null to indicate the attribute should not 
+     * be created.
+     * </p>
+     * 
+     * @param name the prefixed name of the attribute
+     * @param URI the namespace URI
+     * @param value the attribute value
+     * @param type the attribute type
+     * 
+     * @return the node to be added to the tree, or null
+     */
+    public Node makeAttributeNode(String name, String URI, 
+      String value, Attribute.Type type) {
+        return new Attribute(name, URI, value, type);
     }
 
     
@@ -278,7 +336,25 @@ public class NodeFactory {
      * @return the nodes to be added to the tree
      */
     public Nodes makeComment(String data) {
-        return new Nodes(new Comment(data));   
+        return nodes(makeCommentNode(data));   
+    }
+
+
+    /**
+     * <p>
+     * Returns a new comment with the specified text. This is 
+     * <code>makeComment</code> for subclasses that replace each 
+     * comment with at most one node. Subclasses may return null 
+     * to indicate the comment should not be included in the 
+     * finished document.
+     * </p>
+     * 
+     * @param data the complete text content of the comment
+     * 
+     * @return the node to be added to the tree, or null
+     */
+    public Node makeCommentNode(String data) {
+        return new Comment(data);   
     }
 
     
@@ -313,7 +389,31 @@ public class NodeFactory {
      */
     public Nodes makeDocType(String rootElementName, 
       String publicID, String systemID) {
-        return new Nodes(new DocType(rootElementName, publicID, systemID));    
+        return nodes(makeDocTypeNode(rootElementName, publicID, systemID));    
+    }
+
+
+    /**
+     * <p>
+     * Returns a new <code>DocType</code> object with the specified 
+     * root element name, system ID, and public ID. This is 
+     * <code>makeDocType</code> for subclasses that replace the 
+     * document type declaration with at most one node. Subclasses 
+     * may return a comment or processing instruction instead, or null 
+     * to indicate the <code>DocType</code> should not be included 
+     * in the finished document.
+     * </p>
+     *  
+     * @param rootElementName the declared, qualified name 
+     *   for the root element
+     * @param publicID the public ID of the external DTD subset
+     * @param systemID the URL of the external DTD subset
+     * 
+     * @return the node to be added to the document, or null
+     */
+    public Node makeDocTypeNode(String rootElementName, 
+      String publicID, String systemID) {
+        return new DocType(rootElementName, publicID, systemID);    
     }
 
 
@@ -340,7 +440,25 @@ public class NodeFactory {
      * @return the nodes to be added to the tree
      */
     public Nodes makeText(String data) {
-        return new Nodes(new Text(data));  
+        return nodes(makeTextNode(data));  
+    }
+
+
+    /**
+     * <p>
+     * Returns a new text node with the specified content. This is 
+     * <code>makeText</code> for subclasses that replace each text 
+     * node with at most one node. Subclasses may return null to 
+     * indicate the text should not be included in the 
+     * finished document.
+     * </p> 
+     * 
+     * @param data the complete text content of the node
+     * 
+     * @return the node to be added to the tree, or null
+     */
+    public Node makeTextNode(String data) {
+        return new Text(data);  
     }
 
     
@@ -359,6 +477,11 @@ public class NodeFactory {
     } 
 
 
+    Node makeCDATASectionNode(String data) {
+        return makeTextNode(data);  
+    } 
+
+
     /**
      * <p>
      * Returns a new <code>Nodes</code> object containing a 
@@ -391,7 +514,61 @@ public class NodeFactory {
      */
     public Nodes makeProcessingInstruction(
       String target, String data) {
-        return new Nodes(new ProcessingInstruction(target, data)); 
+        return nodes(makeProcessingInstructionNode(target, data)); 
+    }
+
+
+    /**
+     * <p>
+     * Returns a new <code>ProcessingInstruction</code> object with
+     * the specified target and data. This is 
+     * <code>makeProcessingInstruction</code> for subclasses that 
+     * replace each processing instruction with at most one node. 
+     * The same restrictions apply. Subclasses may return null to 
+     * indicate the processing instruction should not be included in 
+     * the finished document.
+     * </p> 
+     * 
+     * @param target the target of the processing instruction
+     * @param data the data of the processing instruction
+     * 
+     * @return the node to be added to the tree, or null
+     */
+    public Node makeProcessingInstructionNode(
+      String target, String data) {
+        return new ProcessingInstruction(target, data); 
+    }
+
+
+    private static Nodes nodes(Node node) {
+        if (node == null) return new Nodes();
+        return new Nodes(node);
+    }
+
+
+    // True if the builder should call the named method that returns
+    // a Nodes list rather than its single node counterpart; that is,
+    // if a subclass overrides the first but not the second.
+    boolean usesNodes(String name, Class<?>... parameterTypes) {
+        
+        if (getClass() == NodeFactory.class) return false;
+        return isOverridden(name, parameterTypes) 
+          && !isOverridden(name + "Node", parameterTypes);
+        
+    }
+    
+    
+    private boolean isOverridden(String name, Class<?>[] parameterTypes) {
+        
+        try {
+            return getClass().getMethod(name, parameterTypes)
+              .getDeclaringClass() != NodeFactory.class;
+        }
+        catch (NoSuchMethodException ex) {
+            throw new RuntimeException("No method " + name 
+              + " in NodeFactory", ex);
+        }
+        
     }
 
     
@@ -25,7 +25,7 @@ import org.xml.sax.SAXException;
 
 /**
  * @author Elliotte Rusty Harold
- * @version 1.2.11
+ * @version 1.4.7
  *
  */
 class NonVerifyingHandler extends XOMHandler {
@@ -39,6 +39,7 @@ class NonVerifyingHandler extends XOMHandler {
       String qualifiedName, org.xml.sax.Attributes attributes) throws SAXException {
         
         flushText();
+        enterSpaceScope(attributes);
         Element element = Element.build(qualifiedName, namespaceURI, localName);
         if (parent == document) { // root
             document.setRootElement(element);
@@ -129,6 +130,7 @@ class NonVerifyingHandler extends XOMHandler {
         // we need to reset current to null, not to the parent
         current = (ParentNode) parents.remove(parents.size()-1);
         flushText();
+        exitSpaceScope();
         
         parent = current.getParent();
         
@@ -149,14 +151,16 @@ class NonVerifyingHandler extends XOMHandler {
         }
 
         if (textString != null) {
-            Text result;
-            if (!inCDATA) {
-                result = Text.build(textString);
-            }
-            else {
-                result = CDATASection.build(textString);
+            if (!isBoundaryWhitespace(textString)) {
+                Text result;
+                if (!inCDATA) {
+                    result = Text.build(textString);
+                }
+                else {
+                    result = CDATASection.build(textString);
+                }
+                parent.fastInsertChild(result, parent.getChildCount());
             }
-            parent.fastInsertChild(result, parent.getChildCount());
             textString = null;
         }
         inCDATA = false;
@@ -167,6 +171,8 @@ class NonVerifyingHandler extends XOMHandler {
     
     public void processingInstruction(String target, String data) throws SAXException {
 
+        // return before flushing so the text on either side is joined
+        if (ignoringProcessingInstructions) return;
         if (inDTD) {
             if (!inInternalSubset()) return;
         }
@@ -202,14 +208,18 @@ class NonVerifyingHandler extends XOMHandler {
         DocType doctype = DocType.build(rootName, publicID, systemID);
         document.fastInsertChild(doctype, position);
         position++;
-        internalDTDSubset = new StringBuilder(); 
-        this.doctype = doctype;
+        if (!ignoringInternalDTDSubset) {
+            internalDTDSubset = new StringBuilder(); 
+            this.doctype = doctype;
+        }
         
     }
     
     
     public void comment(char[] text, int start, int length) throws SAXException {
 
+        // return before flushing so the text on either side is joined
+        if (ignoringComments) return;
         if (inDTD) {
             if (!inInternalSubset()) return;
         }
@@ -0,0 +1,322 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ *   Remembers what an incremental <code>Serializer</code> wrote
+ *   for each element, so that elements which have not changed
+ *   since the last time they were written can be copied into the
+ *   output instead of being serialized again.
+ * </p>
+ *
+ * <p>
+ *   Each write of a document records only the characters it
+ *   actually serializes. Elements that are copied from an earlier
+ *   write are referenced rather than recorded again, so the cached
+ *   output of an element is a sequence of freshly recorded runs
+ *   and references to the cached output of its unchanged
+ *   descendants. The recording buffer is kept rather than copied
+ *   when the write finishes. The total memory is therefore about
+ *   one copy of the serialized document, in a buffer that can be 
+ *   up to twice as long as what it holds, plus whatever has changed
+ *   since.
+ * </p>
+ *
+ * <p>
+ *   The cached output of an element is only reused when it is
+ *   written in the same context it was recorded in: the same
+ *   in-scope namespace declarations, indentation level, and
+ *   <code>xml:space</code> state.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class OutputCache {
+
+
+    // Everything recorded by one write of a document. The
+    // characters are filled in when that write finishes. The 
+    // array is the writer's own recording buffer, not a copy, 
+    // so its end is usually unused.
+    private final static class Generation {
+        char[] chars;
+    }
+
+
+    // A namespace declaration written by the serializer, linked to
+    // the declarations that were already in scope
+    private final static class Frame {
+
+        final Frame  parent;
+        final String prefix;
+        final String uri;
+
+        Frame(Frame parent, String prefix, String uri) {
+            this.parent = parent;
+            this.prefix = prefix;
+            this.uri = uri;
+        }
+
+    }
+
+
+    // The output of one element
+    final static class Segment {
+
+        private OutputCache cache;
+        private int         epoch;
+
+        private Generation  generation;
+        private int         start;
+        private int         end;
+        // cached output of descendants inserted at the given
+        // offsets into the recorded characters
+        private int[]       spliceOffsets;
+        private Segment[]   splices;
+        private int         firstSplice;
+
+        // the context the element was written in
+        private Frame       frame;
+        private int         indentLength;
+        private boolean     preserveSpace;
+        private boolean     justBroke;
+
+        // the state of the TextWriter after the end-tag
+        private int         endColumn;
+        private boolean     endLastCharacterWasSpace;
+        private boolean     endSkipFollowingLinefeed;
+        private boolean     endJustBroke;
+
+    }
+
+
+    private final static Segment[] NO_SPLICES = new Segment[0];
+    private final static int[]     NO_OFFSETS = new int[0];
+
+    // incremented to invalidate everything cached so far
+    private int        epoch = 0;
+    private String     options = null;
+
+    // state of the write in progress
+    private Generation generation = null;
+    private UnsynchronizedBufferedWriter out;
+    private Frame      frame;
+    private int[]      spliceOffsets = new int[16];
+    private Segment[]  splices = new Segment[16];
+    private int        spliceCount = 0;
+
+
+    /**
+     * <p>
+     *   Prepares to write a document. Everything cached is discarded
+     *   if the serializer's options have changed since the last write.
+     * </p>
+     *
+     * @param options a string that identifies all the serializer
+     *     options that affect the output
+     * @param out the writer all output is written to
+     */
+    void startWrite(String options, UnsynchronizedBufferedWriter out) {
+
+        if (!options.equals(this.options)) {
+            this.options = options;
+            epoch++;
+        }
+        this.out = out;
+        this.generation = new Generation();
+        this.frame = null;
+        this.spliceCount = 0;
+        out.startRecording();
+
+    }
+
+
+    void endWrite() {
+
+        if (generation == null) return;
+        generation.chars = out.stopRecording();
+        generation = null;
+        out = null;
+        // don't hold on to the segments of the last document
+        for (int i = 0; i < spliceCount; i++) splices[i] = null;
+        spliceCount = 0;
+
+    }
+
+
+    boolean isActive() {
+        return generation != null;
+    }
+
+
+    void declare(String prefix, String uri) {
+        frame = new Frame(frame, prefix, uri);
+    }
+
+
+    /**
+     * <p>
+     *   Copies the cached output of the element into the output
+     *   if the element hasn't changed since it was last written
+     *   and the context is the same.
+     * </p>
+     *
+     * @return true if the element was written; false if it
+     *     needs to be serialized
+     */
+    boolean splice(Element element, TextWriter escaper)
+      throws IOException {
+
+        Segment segment = element.cachedOutput;
+        if (segment == null
+          || segment.cache != this
+          || segment.epoch != epoch
+          || segment.generation == generation
+          || segment.indentLength != escaper.getIndentLength()
+          || segment.preserveSpace != escaper.isPreserveSpace()
+          || segment.justBroke != escaper.justBroke
+          || !sameFrames(segment.frame, frame)) {
+            return false;
+        }
+
+        addSplice(out.getRecordLength(), segment);
+        write(segment);
+        escaper.column = segment.endColumn;
+        escaper.lastCharacterWasSpace = segment.endLastCharacterWasSpace;
+        escaper.skipFollowingLinefeed = segment.endSkipFollowingLinefeed;
+        escaper.justBroke = segment.endJustBroke;
+        return true;
+
+    }
+
+
+    private void write(Segment segment) throws IOException {
+
+        char[] chars = segment.generation.chars;
+        int position = segment.start;
+        for (int i = 0; i < segment.splices.length; i++) {
+            int offset = segment.spliceOffsets[i];
+            out.writeUnrecorded(chars, position, offset - position);
+            write(segment.splices[i]);
+            position = offset;
+        }
+        out.writeUnrecorded(chars, position, segment.end - position);
+
+    }
+
+
+    private void addSplice(int offset, Segment segment) {
+
+        if (spliceCount == splices.length) {
+            int[] newOffsets = new int[spliceCount * 2];
+            System.arraycopy(spliceOffsets, 0, newOffsets, 0, spliceCount);
+            spliceOffsets = newOffsets;
+            Segment[] newSplices = new Segment[spliceCount * 2];
+            System.arraycopy(splices, 0, newSplices, 0, spliceCount);
+            splices = newSplices;
+        }
+        spliceOffsets[spliceCount] = offset;
+        splices[spliceCount] = segment;
+        spliceCount++;
+
+    }
+
+
+    private static boolean sameFrames(Frame a, Frame b) {
+
+        while (a != b) {
+            if (a == null || b == null) return false;
+            if (!a.prefix.equals(b.prefix) || !a.uri.equals(b.uri)) {
+                return false;
+            }
+            a = a.parent;
+            b = b.parent;
+        }
+        return true;
+
+    }
+
+
+    /**
+     * <p>
+     *   Called before an element is serialized.
+     * </p>
+     *
+     * @return the segment that will hold the element's output
+     */
+    Segment begin(TextWriter escaper) {
+
+        Segment segment = new Segment();
+        segment.start = out.getRecordLength();
+        segment.firstSplice = spliceCount;
+        segment.frame = frame;
+        segment.indentLength = escaper.getIndentLength();
+        segment.preserveSpace = escaper.isPreserveSpace();
+        segment.justBroke = escaper.justBroke;
+        return segment;
+
+    }
+
+
+    /**
+     * <p>
+     *   Called after an element and all its descendants have been
+     *   serialized. From now until the element changes, its output
+     *   can be reused.
+     * </p>
+     */
+    void end(Element element, Segment segment, TextWriter escaper) {
+
+        int firstSplice = segment.firstSplice;
+        int count = spliceCount - firstSplice;
+        if (count == 0) {
+            segment.splices = NO_SPLICES;
+            segment.spliceOffsets = NO_OFFSETS;
+        }
+        else {
+            segment.splices = new Segment[count];
+            System.arraycopy(splices, firstSplice, segment.splices, 0, count);
+            segment.spliceOffsets = new int[count];
+            System.arraycopy(spliceOffsets, firstSplice, segment.spliceOffsets, 0, count);
+        }
+
+        segment.cache = this;
+        segment.epoch = epoch;
+        segment.generation = generation;
+        segment.end = out.getRecordLength();
+        segment.endColumn = escaper.column;
+        segment.endLastCharacterWasSpace = escaper.lastCharacterWasSpace;
+        segment.endSkipFollowingLinefeed = escaper.skipFollowingLinefeed;
+        segment.endJustBroke = escaper.justBroke;
+
+        // the element's own declarations go out of scope
+        frame = segment.frame;
+        element.cachedOutput = segment;
+
+    }
+
+
+}
@@ -48,6 +48,9 @@ public abstract class ParentNode extends Node {
     Node[] children; 
     int    childCount = 0;
     String actualBaseURI;
+    // The output of the last incremental Serializer to write this
+    // node, or null if the node may have changed since then
+    OutputCache.Segment cachedOutput;
 
     /**
      * <p>
@@ -112,6 +115,7 @@ public abstract class ParentNode extends Node {
     final void _insertChild(Node child, int position) {
         insertionAllowed(child, position);
         fastInsertChild(child, position);
+        markModified();
     }
 
 
@@ -270,11 +274,26 @@ public abstract class ParentNode extends Node {
         childCount--;
         children[childCount] = null;
         removed.setParent(null);
+        markModified();
                 
         return removed;  
         
     }
 
+
+    // Discards the cached output of this node and its ancestors.
+    // A node is only cached if all its descendants are, so the
+    // walk can stop at the first ancestor that isn't cached.
+    final void markModified() {
+        
+        ParentNode node = this;
+        while (node != null && node.cachedOutput != null) {
+            node.cachedOutput = null;
+            node = node.getParent();
+        }
+        
+    }
+
     
     void fillInBaseURI(Element removed) {
 
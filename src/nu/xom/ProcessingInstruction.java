@@ -115,6 +115,7 @@ public class ProcessingInstruction extends Node {
      */
     public void setTarget(String target) {
         _setTarget(target);
+        markParentModified();
     }  
 
     
@@ -154,6 +155,7 @@ public class ProcessingInstruction extends Node {
      */
     public void setValue(String data) {
         _setValue(data);
+        markParentModified();
     }
 
     
@@ -50,9 +50,13 @@ import org.xml.sax.helpers.NamespaceSupport;
  */
 public class Serializer {
 
-    private TextWriter escaper;
+    // package access so that StreamingSerializer can share
+    // the escaping engine and the namespace context
+    TextWriter escaper;
     private boolean preserveBaseURI = false;
-    private NamespaceSupport namespaces = new NamespaceSupport();
+    NamespaceSupport namespaces = new NamespaceSupport();
+    // null unless this serializer is incremental
+    private OutputCache cache = null;
 
     
     /**
@@ -240,22 +244,45 @@ public class Serializer {
      */
     public void write(Document doc) throws IOException {
         
+        // Cached output can't be reused when the column matters
+        // or when xml:base attributes depend on the ancestors
+        boolean incremental = cache != null 
+          && escaper.getMaxLength() == 0 && !preserveBaseURI;
+        if (incremental) {
+            String options = escaper.getEncoding() + '|'
+              + escaper.getIndent() + '|' + escaper.getLineSeparator() + '|'
+              + escaper.lineSeparatorSet + '|' + escaper.getNFC();
+            cache.startWrite(options, (UnsynchronizedBufferedWriter) escaper.out);
+        }
+        
+        try {
+            startDocument();
+            int childCount = doc.getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                writeChild(doc.getChild(i)); 
+                
+                // Might want to remove this line break in a 
+                // non-XML serializer where it's not guaranteed to be 
+                // OK to add extra line breaks in the prolog
+                escaper.breakLine();
+            }       
+            escaper.flush();
+        }
+        finally {
+            if (incremental) cache.endWrite();
+        }
+        
+    }
+
+
+    void startDocument() throws IOException {
+        
         escaper.reset();
         namespaces.reset();
         namespaces.declarePrefix("", "");
         // The OutputStreamWriter automatically inserts
         // the byte order mark if necessary.
         writeXMLDeclaration();
-        int childCount = doc.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            writeChild(doc.getChild(i)); 
-            
-            // Might want to remove this line break in a 
-            // non-XML serializer where it's not guaranteed to be 
-            // OK to add extra line breaks in the prolog
-            escaper.breakLine();
-        }       
-        escaper.flush();
         
     }
 
@@ -313,6 +340,12 @@ public class Serializer {
      */
     protected void write(Element element) throws IOException {
 
+        OutputCache.Segment segment = null;
+        if (cache != null && cache.isActive()) {
+            if (cache.splice(element, escaper)) return;
+            segment = cache.begin(escaper);
+        }
+        
         // workaround for case where only children are empty text nodes
         boolean hasRealChildren = false;
         int childCount = element.getChildCount();
@@ -338,15 +371,21 @@ public class Serializer {
                 // consecutive text nodes
                 if (escaper.getNFC() && child.isText()) {
                     Text t = (Text) child;
+                    StringBuilder merged = null;
                     while (i < childCount-1) { // not the last node
                         Node next = element.getChild(i+1);
                         if (next.isText()) {
-                            t = new Text(t.getValue() + next.getValue());
+                            if (merged == null) {
+                                merged = new StringBuilder(t.getValue());
+                            }
+                            merged.append(next.getValue());
                             i++;
                         }
                         else break;
                     }
-                    writeChild(t); 
+                    // the pieces were already verified
+                    if (merged != null) t = Text.build(merged.toString());
+                    writeChild(t);
                 }
                 else {
                     writeChild(child);
@@ -360,6 +399,8 @@ public class Serializer {
         else {
             writeEmptyElementTag(element);   
         }
+        
+        if (segment != null) cache.end(element, segment, escaper);
                 
     }
 
@@ -390,10 +431,19 @@ public class Serializer {
      *     encounters an I/O error
      */
     protected void writeEndTag(Element element) throws IOException {
+        writeEndTag(element, hasNonTextChildren(element));
+    }
+    
+    
+    // StreamingSerializer doesn't keep the children of the 
+    // elements it writes, so it tells us whether there were any
+    // non-text children instead
+    void writeEndTag(Element element, boolean hasNonTextChildren)
+      throws IOException {
         
         escaper.decrementIndent();
         if (escaper.getIndent() > 0 && !escaper.isPreserveSpace()) {
-            if (hasNonTextChildren(element)) {
+            if (hasNonTextChildren) {
                 escaper.breakLine();
             }
         }
@@ -647,6 +697,7 @@ public class Serializer {
       throws IOException {
         
         namespaces.declarePrefix(prefix, uri);
+        if (cache != null && cache.isActive()) cache.declare(prefix, uri);
         if ("".equals(prefix)) {
             escaper.writeUncheckedMarkup("xmlns"); 
         }
@@ -1220,6 +1271,62 @@ public class Serializer {
     }
     
     
+    /**
+     * <p>
+     *   Determines whether this serializer remembers what it wrote
+     *   for each element so that when it writes a document again,
+     *   elements that have not changed since are copied from the
+     *   previous output instead of being serialized again. 
+     *   Repeatedly saving a large document after changing a few
+     *   elements then costs little more than copying the
+     *   unchanged output. The default is false.
+     * </p>
+     * 
+     * <p>
+     *   Any change to an element, its attributes, namespaces, or 
+     *   descendants causes that element and its ancestors to be 
+     *   serialized again the next time. Unchanged elements are also 
+     *   serialized again if their in-scope namespaces, indentation,
+     *   or <code>xml:space</code> context differ from the last write,
+     *   or if any of this serializer's options have changed. 
+     *   Nothing is reused when a maximum line length is set or 
+     *   base URIs are preserved, since the output of an element 
+     *   then depends on more than its own content. 
+     * </p>
+     * 
+     * <p>
+     *   The cached output is held by the elements themselves, so it
+     *   costs about as much memory as one copy of the serialized
+     *   document. Each element only remembers the output of the most 
+     *   recent incremental serializer to write it. Subclasses that 
+     *   override the <code>write</code> methods to produce output 
+     *   that depends on anything other than an element's own content 
+     *   should not be incremental.
+     * </p>
+     * 
+     * @param incremental true if unchanged output is reused; 
+     *     false if every element is always serialized
+     */
+    public void setIncremental(boolean incremental) {
+        if (!incremental) cache = null;
+        else if (cache == null) cache = new OutputCache();
+    }
+
+    
+    /**
+     * <p>
+     *   Indicates whether this serializer reuses the output 
+     *   of elements that have not changed since it last
+     *   wrote them. The default is false.
+     * </p>
+     * 
+     * @return true if this serializer is incremental
+     */
+    public boolean getIncremental() {
+        return cache != null;
+    }
+    
+    
     /**
      * <p>
      *   Returns the name of the character encoding used by 
@@ -0,0 +1,377 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.LocatorImpl;
+
+/**
+ * <p>
+ * Pulls events from a StAX <code>XMLStreamReader</code> and pushes
+ * them into the same handlers <code>Builder</code> uses for SAX, 
+ * so a document built from StAX goes through exactly the same
+ * construction and checks as a parsed one.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class StAXDriver {
+
+    
+    private final XMLStreamReader reader;
+    final XOMHandler handler;
+    private final ReaderAttributes attributes;
+    
+    
+    StAXDriver(XMLStreamReader reader, NodeFactory factory) {
+        
+        this.reader = reader;
+        if ((factory == null 
+          || factory.getClass().getName().equals("nu.xom.NodeFactory"))
+          && knownGoodReader(reader)) {
+            if (factory == null) factory = new NodeFactory();
+            this.handler = new NonVerifyingHandler(factory);
+        }
+        else {
+            if (factory == null) factory = new NodeFactory();
+            this.handler = new XOMHandler(factory);
+        }
+        this.attributes = new ReaderAttributes(reader);
+        
+    }
+    
+    
+    // These readers check XML 1.0 well-formedness just as a SAX 
+    // parser would. XOM's own reader only reports what was already
+    // checked when the tree was built. XML 1.1 allows names and 
+    // characters that XML 1.0 doesn't, so 1.1 documents are 
+    // always verified.
+    private static boolean knownGoodReader(XMLStreamReader reader) {
+        
+        String readerName = reader.getClass().getName();
+        if (!readerName.equals(
+            "com.sun.org.apache.xerces.internal.impl.XMLStreamReaderImpl")
+          && !readerName.equals("nu.xom.converters.XOMStreamReader")) {
+            return false;
+        }
+        String version = reader.getVersion();
+        if (version != null && !version.equals("1.0")) return false;
+        try {
+            return Boolean.TRUE.equals(
+              reader.getProperty(XMLInputFactory.IS_NAMESPACE_AWARE));
+        }
+        catch (IllegalArgumentException ex) {
+            return false;
+        }
+        
+    }
+    
+    
+    Document build() throws XMLStreamException, SAXException {
+        
+        int event = reader.getEventType();
+        boolean fragment = event == XMLStreamConstants.START_ELEMENT;
+        if (!fragment && event != XMLStreamConstants.START_DOCUMENT
+          && !isProlog(event)) {
+            throw new XMLException(
+              "Reader is not at the start of a document or element");
+        }
+        
+        // The handlers only want the system ID from the locator.
+        // Nothing in a stream changes it, so it's read once.
+        LocatorImpl locator = new LocatorImpl();
+        Location location = reader.getLocation();
+        if (location != null) locator.setSystemId(location.getSystemId());
+        handler.setDocumentLocator(locator);
+        
+        try {
+            handler.startDocument();
+            int depth = 0;
+            while (true) {
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        attributes.reset();
+                        handler.startElement(getURI(reader.getNamespaceURI()), 
+                          reader.getLocalName(),
+                          getQualifiedName(reader.getPrefix(), reader.getLocalName()), 
+                          attributes);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        depth--;
+                        handler.endElement(getURI(reader.getNamespaceURI()), 
+                          reader.getLocalName(),
+                          getQualifiedName(reader.getPrefix(), reader.getLocalName()));
+                        if (fragment && depth == 0) {
+                            handler.endDocument();
+                            return handler.getDocument();
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.SPACE:
+                        // some readers report white space in the prolog
+                        if (depth > 0) {
+                            handler.characters(reader.getTextCharacters(), 
+                              reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.CDATA:
+                        handler.startCDATA();
+                        handler.characters(reader.getTextCharacters(), 
+                          reader.getTextStart(), reader.getTextLength());
+                        handler.endCDATA();
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        handler.comment(reader.getTextCharacters(), 
+                          reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        String data = reader.getPIData();
+                        handler.processingInstruction(reader.getPITarget(), 
+                          data == null ? "" : data);
+                        break;
+                    case XMLStreamConstants.DTD:
+                        startDTD(reader.getText());
+                        break;
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        handler.skippedEntity(reader.getLocalName());
+                        break;
+                    case XMLStreamConstants.END_DOCUMENT:
+                        handler.endDocument();
+                        return handler.getDocument();
+                    default:
+                        // nothing else appears in a document
+                }
+                event = reader.next();
+            }
+        }
+        finally {
+            handler.freeMemory();
+        }
+        
+    }
+    
+    
+    // Some readers, including the JDK 8 reader, never report 
+    // START_DOCUMENT when there's no XML declaration. An unread 
+    // reader then starts on the first event in the prolog.
+    private static boolean isProlog(int event) {
+        return event == XMLStreamConstants.PROCESSING_INSTRUCTION
+          || event == XMLStreamConstants.COMMENT
+          || event == XMLStreamConstants.SPACE
+          || event == XMLStreamConstants.DTD;
+    }
+    
+    
+    // StAX only reports the text of the document type declaration, 
+    // and not every reader includes the name and identifiers. This
+    // picks them out when they're there. The internal DTD subset
+    // is not kept.
+    private void startDTD(String declaration) throws SAXException {
+        
+        if (declaration == null || !declaration.startsWith("<!DOCTYPE")) {
+            return;
+        }
+        int[] position = {9};
+        String name = readToken(declaration, position);
+        if (name == null) return;
+        String publicID = null;
+        String systemID = null;
+        String keyword = readToken(declaration, position);
+        if ("PUBLIC".equals(keyword)) {
+            publicID = readLiteral(declaration, position);
+            systemID = readLiteral(declaration, position);
+        }
+        else if ("SYSTEM".equals(keyword)) {
+            systemID = readLiteral(declaration, position);
+        }
+        handler.startDTD(name, publicID, systemID);
+        handler.endDTD();
+        
+    }
+    
+    
+    private static int skipSpace(String s, int i) {
+        while (i < s.length() && " \t\r\n".indexOf(s.charAt(i)) >= 0) i++;
+        return i;
+    }
+    
+    
+    private static String readToken(String s, int[] position) {
+        
+        int start = skipSpace(s, position[0]);
+        int end = start;
+        while (end < s.length() && " \t\r\n[>".indexOf(s.charAt(end)) < 0) {
+            end++;
+        }
+        position[0] = end;
+        return end == start ? null : s.substring(start, end);
+        
+    }
+    
+    
+    private static String readLiteral(String s, int[] position) {
+        
+        int start = skipSpace(s, position[0]);
+        if (start >= s.length()) return null;
+        char quote = s.charAt(start);
+        if (quote != '"' && quote != '\'') return null;
+        int end = s.indexOf(quote, start + 1);
+        if (end < 0) return null;
+        position[0] = end + 1;
+        return s.substring(start + 1, end);
+        
+    }
+    
+    
+    private static String getURI(String uri) {
+        return uri == null ? "" : uri;
+    }
+    
+    
+    private static String getQualifiedName(String prefix, String localName) {
+        if (prefix == null || prefix.length() == 0) return localName;
+        return prefix + ":" + localName;
+    }
+    
+    
+    // The attributes and namespace declarations of the current 
+    // start-tag, presented the way a SAX parser with the 
+    // namespace-prefixes feature turned on would present them.
+    // The same object is reused for every element.
+    private static final class ReaderAttributes implements Attributes {
+        
+        private final XMLStreamReader reader;
+        private int attributeCount;
+        private int length;
+        
+        ReaderAttributes(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+        
+        void reset() {
+            attributeCount = reader.getAttributeCount();
+            length = attributeCount + reader.getNamespaceCount();
+        }
+        
+        public int getLength() {
+            return length;
+        }
+        
+        public String getURI(int index) {
+            if (index < 0 || index >= length) return null;
+            if (index >= attributeCount) {
+                return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+            }
+            return StAXDriver.getURI(reader.getAttributeNamespace(index));
+        }
+        
+        public String getLocalName(int index) {
+            
+            if (index < 0 || index >= length) return null;
+            if (index >= attributeCount) {
+                String prefix = reader.getNamespacePrefix(index - attributeCount);
+                return prefix == null || prefix.length() == 0 ? "xmlns" : prefix;
+            }
+            return reader.getAttributeLocalName(index);
+            
+        }
+        
+        public String getQName(int index) {
+            
+            if (index < 0 || index >= length) return null;
+            if (index >= attributeCount) {
+                String prefix = reader.getNamespacePrefix(index - attributeCount);
+                return prefix == null || prefix.length() == 0 
+                  ? "xmlns" : "xmlns:" + prefix;
+            }
+            return getQualifiedName(reader.getAttributePrefix(index), 
+              reader.getAttributeLocalName(index));
+            
+        }
+        
+        public String getType(int index) {
+            if (index < 0 || index >= length) return null;
+            if (index >= attributeCount) return "CDATA";
+            return reader.getAttributeType(index);
+        }
+        
+        public String getValue(int index) {
+            
+            if (index < 0 || index >= length) return null;
+            if (index >= attributeCount) {
+                return StAXDriver.getURI(
+                  reader.getNamespaceURI(index - attributeCount));
+            }
+            return reader.getAttributeValue(index);
+            
+        }
+        
+        public int getIndex(String uri, String localName) {
+            
+            for (int i = 0; i < length; i++) {
+                if (uri.equals(getURI(i)) && localName.equals(getLocalName(i))) {
+                    return i;
+                }
+            }
+            return -1;
+            
+        }
+        
+        public int getIndex(String qualifiedName) {
+            
+            for (int i = 0; i < length; i++) {
+                if (qualifiedName.equals(getQName(i))) return i;
+            }
+            return -1;
+            
+        }
+        
+        public String getType(String uri, String localName) {
+            return getType(getIndex(uri, localName));
+        }
+        
+        public String getType(String qualifiedName) {
+            return getType(getIndex(qualifiedName));
+        }
+        
+        public String getValue(String uri, String localName) {
+            return getValue(getIndex(uri, localName));
+        }
+        
+        public String getValue(String qualifiedName) {
+            return getValue(getIndex(qualifiedName));
+        }
+        
+    }
+    
+    
+}
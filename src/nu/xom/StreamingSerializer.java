@@ -0,0 +1,649 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * <p>
+ *   Writes a document onto an output stream one event at a time,
+ *   without first building the document in memory. Start-tags,
+ *   attributes, namespace declarations, text, and end-tags are
+ *   passed to the methods of this class in document order; and
+ *   existing <code>Node</code> objects, including entire element
+ *   subtrees, can be written in between them with
+ *   <code>writeNode</code>.
+ * </p>
+ *
+ * <p>
+ *   All output is written through a <code>Serializer</code>, so
+ *   the escaping, encoding, indenting, line breaking, and
+ *   normalization options of that serializer apply to streamed
+ *   content exactly as they apply to serialized trees. The memory
+ *   used is proportional to the depth of the open elements,
+ *   not the size of the document.
+ * </p>
+ *
+ * <p>
+ *   Names, namespace URIs, and character data are checked just as
+ *   they are when the corresponding nodes are constructed, and the
+ *   events must describe a single well-formed document. Calling a
+ *   method when it would produce malformed output, for instance
+ *   writing an attribute after the start-tag has been closed by
+ *   some content, throws an <code>XMLException</code>.
+ * </p>
+ *
+ * <p>
+ *   When normalization is enabled, each string passed to
+ *   <code>text</code> is normalized separately. Combining
+ *   characters that are split across consecutive calls are not
+ *   composed with the preceding text.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public class StreamingSerializer {
+
+    private final Serializer serializer;
+
+    // The open elements. Each holds its own attributes and
+    // namespace declarations, but never any children.
+    private Element[] elements = new Element[16];
+    private boolean[] nonTextChildren = new boolean[16];
+    private boolean[] preservingWhiteSpace = new boolean[16];
+    private int       depth = 0;
+
+    // true while the start-tag of the innermost open element
+    // can still receive attributes and namespace declarations
+    private boolean startTagOpen = false;
+    private boolean documentStarted = false;
+    private boolean rootWritten = false;
+    
+    // When indenting, Serializer drops white space text between 
+    // two non-text siblings but keeps it when it's an only child or 
+    // next to other text. Streamed white space waits here until 
+    // the next event shows which it is.
+    private String  pendingSpace = null;
+    private boolean previousText = false;
+
+
+    /**
+     * <p>
+     * Creates a new streaming serializer that uses
+     * the UTF-8 encoding.
+     * </p>
+     *
+     * @param out the output stream to write the document on
+     *
+     * @throws NullPointerException if <code>out</code> is null
+     */
+    public StreamingSerializer(OutputStream out) {
+        this(new Serializer(out));
+    }
+
+
+    /**
+     * <p>
+     * Creates a new streaming serializer that uses
+     * the specified encoding. The encodings are the same ones
+     * supported by <code>Serializer</code>.
+     * </p>
+     *
+     * @param out the output stream to write the document on
+     * @param encoding the character encoding for the serialization
+     *
+     * @throws NullPointerException if <code>out</code>
+     *     or <code>encoding</code> is null
+     * @throws UnsupportedEncodingException if the VM does not
+     *     support the requested encoding
+     */
+    public StreamingSerializer(OutputStream out, String encoding)
+      throws UnsupportedEncodingException {
+        this(new Serializer(out, encoding));
+    }
+
+
+    /**
+     * <p>
+     * Creates a new streaming serializer that writes through
+     * the specified <code>Serializer</code>. The serializer's
+     * options, such as indenting and maximum line length,
+     * should be set before the document is started.
+     * Subclasses of <code>Serializer</code> can customize the
+     * output of both streamed and tree-based content by
+     * overriding the protected <code>write</code> methods.
+     * </p>
+     *
+     * @param serializer the serializer that writes the output
+     *
+     * @throws NullPointerException if <code>serializer</code> is null
+     */
+    public StreamingSerializer(Serializer serializer) {
+
+        if (serializer == null) {
+            throw new NullPointerException("Null serializer");
+        }
+        this.serializer = serializer;
+
+    }
+
+
+    /**
+     * <p>
+     * Writes the XML declaration. This must be called before
+     * any other event.
+     * </p>
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws XMLException if the document has already been started
+     */
+    public void startDocument() throws IOException {
+
+        if (documentStarted) {
+            throw new XMLException("Document already started");
+        }
+        serializer.startDocument();
+        documentStarted = true;
+        rootWritten = false;
+        startTagOpen = false;
+        pendingSpace = null;
+        previousText = false;
+        depth = 0;
+
+    }
+
+
+    /**
+     * <p>
+     * Finishes the document and flushes the output. The root
+     * element must have been written and closed. After this
+     * method returns, <code>startDocument</code> can be called
+     * again to write another document onto the same stream.
+     * </p>
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws XMLException if there's no root element or
+     *      it has not been closed
+     */
+    public void endDocument() throws IOException {
+
+        checkDocumentStarted();
+        if (depth > 0) {
+            throw new XMLException("Unclosed element "
+              + elements[depth-1].getQualifiedName());
+        }
+        if (!rootWritten) {
+            throw new XMLException("Document has no root element");
+        }
+        serializer.flush();
+        documentStarted = false;
+
+    }
+
+
+    /**
+     * <p>
+     * Begins an element in no namespace. Its attributes and
+     * namespace declarations can be written immediately after this.
+     * </p>
+     *
+     * @param name the name of the element
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws IllegalNameException if <code>name</code>
+     *     is not a legal XML 1.0 non-colonized name
+     * @throws XMLException if the element would not be well-formed
+     *     at this point, for instance a second root element
+     */
+    public void startElement(String name) throws IOException {
+        startElement(name, "");
+    }
+
+
+    /**
+     * <p>
+     * Begins an element in a namespace. Its attributes and
+     * namespace declarations can be written immediately after this.
+     * </p>
+     *
+     * @param name the qualified name of the element
+     * @param uri the namespace URI of the element
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws IllegalNameException if <code>name</code>
+     *     is not a legal XML 1.0 name
+     * @throws NamespaceConflictException if <code>name</code>'s prefix
+     *     cannot be used with <code>uri</code>
+     * @throws MalformedURIException if <code>uri</code>
+     *     is not an RFC 3986 absolute URI reference
+     * @throws XMLException if the element would not be well-formed
+     *     at this point, for instance a second root element
+     */
+    public void startElement(String name, String uri)
+      throws IOException {
+
+        Element element = new Element(name, uri);
+        beforeChild(true);
+        if (depth == elements.length) grow();
+        elements[depth] = element;
+        nonTextChildren[depth] = false;
+        preservingWhiteSpace[depth] = serializer.escaper.isPreserveSpace();
+        depth++;
+        startTagOpen = true;
+
+    }
+
+
+    /**
+     * <p>
+     * Adds an attribute in no namespace
+     * to the most recently started element.
+     * </p>
+     *
+     * @param name the local name of the attribute
+     * @param value the value of the attribute
+     *
+     * @throws IllegalNameException if the name is not an NCName
+     * @throws IllegalDataException if the value contains characters
+     *     which are not legal in XML such as vertical tab or a null.
+     *     Characters such as " and &amp; are legal, but will be
+     *     escaped when the attribute is written.
+     * @throws XMLException if the start-tag has already been closed
+     */
+    public void attribute(String name, String value) {
+        addAttribute(new Attribute(name, value));
+    }
+
+
+    /**
+     * <p>
+     * Adds an attribute in a namespace
+     * to the most recently started element. A namespace
+     * declaration for the attribute's prefix is written
+     * if one is needed.
+     * </p>
+     *
+     * @param name the qualified name of the attribute
+     * @param uri the namespace URI of the attribute
+     * @param value the value of the attribute
+     *
+     * @throws IllegalNameException if the name is not a legal
+     *     XML 1.0 name
+     * @throws IllegalDataException if the value contains characters
+     *     which are not legal in XML
+     * @throws NamespaceConflictException if the attribute's prefix
+     *     is mapped to a different namespace URI in the same start-tag
+     * @throws MalformedURIException if <code>uri</code>
+     *     is not an RFC 3986 absolute URI reference
+     * @throws XMLException if the start-tag has already been closed
+     */
+    public void attribute(String name, String uri, String value) {
+        addAttribute(new Attribute(name, uri, value));
+    }
+
+
+    private void addAttribute(Attribute attribute) {
+        checkStartTagOpen("attribute");
+        elements[depth-1].addAttribute(attribute);
+    }
+
+
+    /**
+     * <p>
+     * Declares a namespace prefix on the most recently
+     * started element. The declaration is only written if the
+     * prefix is not already bound to the same URI in scope.
+     * </p>
+     *
+     * @param prefix the prefix to declare; the empty string for the
+     *     default namespace
+     * @param uri the namespace URI to bind the prefix to
+     *
+     * @throws IllegalNameException if <code>prefix</code> is not
+     *      a legal XML non-colonized name
+     * @throws NamespaceConflictException if <code>prefix</code> is
+     *      already bound to a different URI in the same start-tag
+     * @throws MalformedURIException if <code>uri</code>
+     *     is not an RFC 3986 absolute URI reference
+     * @throws XMLException if the start-tag has already been closed
+     */
+    public void namespace(String prefix, String uri) {
+        checkStartTagOpen("namespace declaration");
+        elements[depth-1].addNamespaceDeclaration(prefix, uri);
+    }
+
+
+    /**
+     * <p>
+     * Writes character data into the current element.
+     * Reserved characters are escaped as necessary.
+     * </p>
+     *
+     * @param data the text to write
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws IllegalCharacterDataException if <code>data</code>
+     *      contains characters that are not legal in XML
+     * @throws XMLException if there's no open element
+     */
+    public void text(String data) throws IOException {
+
+        Text text = new Text(data);
+        if (depth == 0) {
+            throw new XMLException("Cannot write text outside the root element");
+        }
+        closeStartTag();
+        writeText(text);
+
+    }
+
+
+    private void writeText(Text text) throws IOException {
+
+        if (serializer.getIndent() > 0 && !text.isCDATASection()
+          && "".equals(text.getValue().trim())) {
+            if (previousText) {
+                writePendingSpace();
+                serializer.writeEscaped(text.getValue());
+            }
+            else {
+                pendingSpace = text.getValue();
+                previousText = true;
+            }
+            return;
+        }
+        writePendingSpace();
+        serializer.write(text);
+        previousText = true;
+
+    }
+
+
+    private void writePendingSpace() throws IOException {
+
+        if (pendingSpace != null) {
+            serializer.writeEscaped(pendingSpace);
+            pendingSpace = null;
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Writes a comment.
+     * </p>
+     *
+     * @param data the content of the comment
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws IllegalDataException if <code>data</code>
+     *      contains a double hyphen, ends with a hyphen,
+     *      or contains characters that are not legal in XML
+     * @throws XMLException if the document has not been started
+     */
+    public void comment(String data) throws IOException {
+
+        Comment comment = new Comment(data);
+        beforeChild(false);
+        serializer.write(comment);
+        afterChild(false);
+
+    }
+
+
+    /**
+     * <p>
+     * Writes a processing instruction.
+     * </p>
+     *
+     * @param target the target of the processing instruction
+     * @param data the data of the processing instruction
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws IllegalTargetException if the target is not an NCName
+     *     or is the string "xml" in any case
+     * @throws IllegalDataException if the data contains "?&gt;"
+     *      or characters that are not legal in XML
+     * @throws XMLException if the document has not been started
+     */
+    public void processingInstruction(String target, String data)
+      throws IOException {
+
+        ProcessingInstruction instruction
+          = new ProcessingInstruction(target, data);
+        beforeChild(false);
+        serializer.write(instruction);
+        afterChild(false);
+
+    }
+
+
+    /**
+     * <p>
+     * Ends the most recently started element that is still open.
+     * If nothing has been written inside the element, an
+     * empty-element tag is used.
+     * </p>
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws XMLException if there's no open element
+     */
+    public void endElement() throws IOException {
+
+        if (depth == 0) {
+            throw new XMLException("No open element to end");
+        }
+        Element element = elements[depth-1];
+        // white space that is the only child is kept
+        if (!nonTextChildren[depth-1]) writePendingSpace();
+        pendingSpace = null;
+        previousText = false;
+        if (startTagOpen) {
+            startTagOpen = false;
+            serializer.writeEmptyElementTag(element);
+        }
+        else {
+            serializer.writeEndTag(element, nonTextChildren[depth-1]);
+            serializer.escaper.setPreserveSpace(preservingWhiteSpace[depth-1]);
+        }
+        elements[depth-1] = null;
+        depth--;
+        afterChild(true);
+
+    }
+
+
+    /**
+     * <p>
+     * Writes an existing node at the current position.
+     * Elements are written with all their descendants.
+     * Text, comments, processing instructions, and document type
+     * declarations are written as themselves. Attributes and
+     * namespaces are added to the most recently started element,
+     * whose start-tag must still be open. A document writes
+     * all its children, and is only allowed where a root element
+     * could be written. The node is not changed or detached
+     * from its parent.
+     * </p>
+     *
+     * @param node the node to write
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     * @throws NullPointerException if <code>node</code> is null
+     * @throws XMLException if the node cannot be written at this
+     *     point without producing a malformed document
+     */
+    public void writeNode(Node node) throws IOException {
+
+        if (node.isElement()) {
+            beforeChild(true);
+            serializer.write((Element) node);
+            afterChild(true);
+        }
+        else if (node.isText()) {
+            if (depth == 0) {
+                throw new XMLException("Cannot write text outside the root element");
+            }
+            closeStartTag();
+            writeText((Text) node);
+        }
+        else if (node.isAttribute()) {
+            addAttribute((Attribute) node.copy());
+        }
+        else if (node instanceof Namespace) {
+            Namespace namespace = (Namespace) node;
+            namespace(namespace.getPrefix(), namespace.getValue());
+        }
+        else if (node.isDocType()) {
+            if (depth > 0 || rootWritten) {
+                throw new XMLException(
+                  "Document type declaration must precede the root element");
+            }
+            beforeChild(false);
+            serializer.write((DocType) node);
+            afterChild(false);
+        }
+        else if (node.isDocument()) {
+            if (depth > 0 || rootWritten) {
+                throw new XMLException(
+                  "A document can only be written in place of the root element");
+            }
+            Document doc = (Document) node;
+            int childCount = doc.getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                writeNode(doc.getChild(i));
+            }
+        }
+        else { // comment or processing instruction
+            beforeChild(false);
+            serializer.writeChild(node);
+            afterChild(false);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Flushes the data onto the output stream.
+     * The start-tag of the current element is not closed
+     * until its content begins or it ends, so that
+     * attributes can still be added to it.
+     * </p>
+     *
+     * @throws IOException if the underlying output stream
+     *      encounters an I/O error
+     */
+    public void flush() throws IOException {
+        serializer.flush();
+    }
+
+
+    private void beforeChild(boolean isElement) throws IOException {
+
+        checkDocumentStarted();
+        if (depth == 0) {
+            if (isElement && rootWritten) {
+                throw new XMLException("Document already has a root element");
+            }
+        }
+        else {
+            closeStartTag();
+            nonTextChildren[depth-1] = true;
+        }
+        pendingSpace = null;
+        previousText = false;
+
+    }
+
+
+    private void afterChild(boolean isElement) throws IOException {
+
+        if (depth == 0) {
+            // mirror Serializer.write(Document), which breaks
+            // the line after every child of the document
+            serializer.escaper.breakLine();
+            if (isElement) rootWritten = true;
+        }
+
+    }
+
+
+    private void closeStartTag() throws IOException {
+
+        if (startTagOpen) {
+            startTagOpen = false;
+            serializer.writeStartTag(elements[depth-1]);
+        }
+
+    }
+
+
+    private void checkStartTagOpen(String what) {
+
+        if (!startTagOpen) {
+            throw new XMLException("Cannot write a " + what
+              + " after the start-tag has been closed");
+        }
+
+    }
+
+
+    private void checkDocumentStarted() {
+
+        if (!documentStarted) {
+            throw new XMLException("Document not started");
+        }
+
+    }
+
+
+    private void grow() {
+
+        int length = elements.length * 2;
+        Element[] newElements = new Element[length];
+        System.arraycopy(elements, 0, newElements, 0, depth);
+        elements = newElements;
+        boolean[] newNonText = new boolean[length];
+        System.arraycopy(nonTextChildren, 0, newNonText, 0, depth);
+        nonTextChildren = newNonText;
+        boolean[] newPreserving = new boolean[length];
+        System.arraycopy(preservingWhiteSpace, 0, newPreserving, 0, depth);
+        preservingWhiteSpace = newPreserving;
+
+    }
+
+
+}
@@ -115,6 +115,7 @@ public class Text extends Node {
      */
     public void setValue(String data) {
         _setValue(data);
+        markParentModified();
     }
 
     
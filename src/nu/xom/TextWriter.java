@@ -699,6 +699,11 @@ abstract class TextWriter {
     }
 
 
+    int getIndentLength() {
+        return indentString.length();   
+    }
+
+
     private int fakeIndents = 0;
     
     private final static String _128_SPACES="                                                                                                                                ";
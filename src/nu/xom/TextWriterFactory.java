@@ -26,7 +26,7 @@ import java.util.Locale;
 
 /**
  * @author Elliotte Rusty Harold
- * @version 1.2.11
+ * @version 1.4.7
  */
 class TextWriterFactory {
 
@@ -53,54 +53,14 @@ class TextWriterFactory {
         else if (encodingUpperCase.equals("ISO-8859-1")) {
             return new Latin1Writer(out, encoding); 
         }          
-        else if (encodingUpperCase.equals("ISO-8859-2")) {
-            return new Latin2Writer(out, encodingUpperCase); 
-        }           
-        else if (encodingUpperCase.equals("ISO-8859-3")) {
-            return new Latin3Writer(out, encodingUpperCase); 
-        }           
-        else if (encodingUpperCase.equals("ISO-8859-4")) {
-            return new Latin4Writer(out, encodingUpperCase); 
-        }           
-        else if (encodingUpperCase.equals("ISO-8859-5")) {
-            return new ISOCyrillicWriter(out, encodingUpperCase); 
-        }           
-        else if (encodingUpperCase.equals("ISO-8859-6")) {
-            return new ISOArabicWriter(out, encodingUpperCase); 
-        }           
-        else if (encodingUpperCase.equals("ISO-8859-7")) {
-            return new ISOGreekWriter(out, encodingUpperCase); 
-        }           
-        else if (encodingUpperCase.equals("ISO-8859-8")) {
-            return new ISOHebrewWriter(out, encodingUpperCase); 
-        }           
-        else if (encodingUpperCase.equals("ISO-8859-9")
-            || encodingUpperCase.equals("EBCDIC-CP-TR")
-            || encodingUpperCase.equals("CP1037")) {
-            return new Latin5Writer(out, encodingUpperCase); 
-        }           
+        // The other ISO-8859 encodings are handled by GenericWriter,
+        // except for the two the JDK doesn't support.
         else if (encoding.equals("ISO-8859-10")) {
             return new Latin6Writer(out, encoding); 
         }          
-        else if (encodingUpperCase.equals("ISO-8859-11")
-                || encodingUpperCase.equals("TIS-620")
-                || encodingUpperCase.equals("TIS620")) {
-            return new ISOThaiWriter(out, encodingUpperCase); 
-        }           
-        // There's no such thing as ISO-8859-12
-        // nor is there likely to be one in the future.        
-        else if (encodingUpperCase.equals("ISO-8859-13")) {
-            return new Latin7Writer(out, encodingUpperCase); 
-        }   
         else if (encoding.equals("ISO-8859-14")) {
             return new Latin8Writer(out, encoding); 
         }       
-        else if (encodingUpperCase.equals("ISO-8859-15")) {
-            return new Latin9Writer(out, encodingUpperCase); 
-        }          
-        else if (encoding.equals("ISO-8859-16")) {
-            return new Latin10Writer(out, encoding); 
-        }
         else if (encodingUpperCase.endsWith("ASCII")) {
             return new ASCIIWriter(out, encodingUpperCase); 
         }
@@ -115,13 +75,42 @@ class TextWriterFactory {
             // just at different code points.
             return new Latin1Writer(out, encodingUpperCase); 
         }     
+        else if (encodingUpperCase.equals("EBCDIC-CP-TR")
+            || encodingUpperCase.equals("CP1037")) {
+            return getGenericWriter(out, encodingUpperCase, "ISO-8859-9"); 
+        }           
+        // These used to have their own writers, which always
+        // declared the encoding in upper case.
+        else if (encodingUpperCase.equals("ISO-8859-2")
+          || encodingUpperCase.equals("ISO-8859-3")
+          || encodingUpperCase.equals("ISO-8859-4")
+          || encodingUpperCase.equals("ISO-8859-5")
+          || encodingUpperCase.equals("ISO-8859-6")
+          || encodingUpperCase.equals("ISO-8859-7")
+          || encodingUpperCase.equals("ISO-8859-8")
+          || encodingUpperCase.equals("ISO-8859-9")
+          || encodingUpperCase.equals("ISO-8859-11")
+          || encodingUpperCase.equals("ISO-8859-13")
+          || encodingUpperCase.equals("ISO-8859-15")
+          || encodingUpperCase.equals("TIS-620")
+          || encodingUpperCase.equals("TIS620")) {
+            return getGenericWriter(out, encodingUpperCase, encodingUpperCase); 
+        }           
         else {
-            try {
-                return new GenericWriter(out, encoding); 
-            }
-            catch (UnsupportedEncodingException ex) {
-                return new ASCIIWriter(out, encoding);
-            }
+            return getGenericWriter(out, encoding, encoding);
+        }
+        
+    }
+
+
+    private static TextWriter getGenericWriter(
+      Writer out, String encoding, String characterSet) {
+        
+        try {
+            return new GenericWriter(out, encoding, characterSet); 
+        }
+        catch (UnsupportedEncodingException ex) {
+            return new ASCIIWriter(out, encoding);
         }
         
     }
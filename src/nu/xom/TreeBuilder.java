@@ -0,0 +1,416 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom;
+
+/**
+ * <p>
+ *   Builds a document in memory one event at a time, for programs
+ *   that generate XML from data which is already known to be
+ *   well-formed, such as database rows or the contents of another
+ *   XML tree. Start-tags, attributes, namespace declarations, text,
+ *   and end-tags are passed to the methods of this class in document
+ *   order, just as they are passed to a
+ *   <code>StreamingSerializer</code>.
+ * </p>
+ *
+ * <p>
+ *   Nodes are attached the way <code>Builder</code> attaches the
+ *   nodes of a parsed document, without the cycle, parent, and
+ *   insertion checks of <code>appendChild</code>. The structure of
+ *   the events is always checked: there must be exactly one root
+ *   element, and attributes and text must go where they can.
+ *   By default names, namespaces, and character data are checked as
+ *   each node is created, just as they are by the public
+ *   constructors, and an attribute replaces any earlier attribute
+ *   with the same name, just as it does in
+ *   <code>addAttribute</code>. A builder created with verification
+ *   turned off skips all of that. The caller is then responsible
+ *   for passing only legal names and legal
+ *   character data, and for never repeating an attribute or a
+ *   conflicting namespace prefix on one element. A document built
+ *   from anything else is malformed, and may fail in unexpected ways
+ *   or serialize as malformed XML.
+ * </p>
+ *
+ * <p>
+ *   Adjacent calls to <code>text</code> produce adjacent text
+ *   nodes. Namespace URIs are checked to be absolute even when
+ *   verification is off, as they are when parsing.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public final class TreeBuilder {
+
+    private final boolean verify;
+    
+    private Document document;
+    // null before and after the root element
+    private Element  current;
+    private boolean  rootStarted;
+    private boolean  startTagOpen;
+    // where the next comment or processing instruction 
+    // before the root element goes
+    private int      prologPosition;
+
+    
+    /**
+     * <p>
+     * Creates a builder that checks each node as it's created.
+     * </p>
+     */
+    public TreeBuilder() {
+        this(true);
+    }
+
+    
+    /**
+     * <p>
+     * Creates a builder that checks each node as it's created
+     * only if <code>verify</code> is true.
+     * </p>
+     * 
+     * @param verify true if names, namespaces, and data should be 
+     *     checked; false if they are trusted
+     */
+    public TreeBuilder(boolean verify) {
+        this.verify = verify;
+        reset();
+    }
+
+
+    private void reset() {
+
+        document = new Document(Element.build("root", "", "root"));
+        current = null;
+        rootStarted = false;
+        startTagOpen = false;
+        prologPosition = 0;
+
+    }
+
+    
+    /**
+     * <p>
+     * Begins an element in no namespace. Its attributes and
+     * namespace declarations can be added immediately after this.
+     * </p>
+     *
+     * @param name the name of the element
+     *
+     * @throws IllegalNameException if verifying and <code>name</code>
+     *     is not a legal XML 1.0 non-colonized name
+     * @throws XMLException if the document already has 
+     *     a root element and it has been closed
+     */
+    public void startElement(String name) {
+        startElement(name, "");
+    }
+
+
+    /**
+     * <p>
+     * Begins an element in a namespace. Its attributes and
+     * namespace declarations can be added immediately after this.
+     * </p>
+     *
+     * @param name the qualified name of the element
+     * @param uri the namespace URI of the element
+     *
+     * @throws IllegalNameException if verifying and <code>name</code>  
+     *     is not a legal XML 1.0 name
+     * @throws NamespaceConflictException if verifying and 
+     *     <code>name</code>'s prefix cannot be used with <code>uri</code>
+     * @throws MalformedURIException if <code>uri</code>
+     *     is not an RFC 3986 absolute URI reference
+     * @throws XMLException if the document already has 
+     *     a root element and it has been closed
+     */
+    public void startElement(String name, String uri) {
+
+        Element element;
+        if (verify) element = new Element(name, uri);
+        else {
+            if (uri == null) uri = "";
+            element = Element.build(name, uri, localName(name));
+        }
+        if (current == null) {
+            if (rootStarted) {
+                throw new XMLException("Document already has a root element");
+            }
+            document.setRootElement(element);
+            rootStarted = true;
+        }
+        else {
+            current.fastInsertChild(element, current.getChildCount());
+        }
+        current = element;
+        startTagOpen = true;
+
+    }
+
+
+    /**
+     * <p>
+     * Adds an attribute in no namespace
+     * to the most recently started element.
+     * </p>
+     *
+     * @param name the local name of the attribute
+     * @param value the value of the attribute
+     *
+     * @throws IllegalNameException if verifying and the name is 
+     *     not an NCName
+     * @throws IllegalDataException if verifying and the value 
+     *     contains characters which are not legal in XML
+     * @throws XMLException if the start-tag has already been closed
+     */
+    public void attribute(String name, String value) {
+        attribute(name, "", value);
+    }
+
+
+    /**
+     * <p>
+     * Adds an attribute in a namespace
+     * to the most recently started element.
+     * </p>
+     *
+     * @param name the qualified name of the attribute
+     * @param uri the namespace URI of the attribute
+     * @param value the value of the attribute
+     *
+     * @throws IllegalNameException if verifying and the name is 
+     *     not a legal XML 1.0 name
+     * @throws IllegalDataException if verifying and the value 
+     *     contains characters which are not legal in XML
+     * @throws NamespaceConflictException if verifying and the 
+     *     attribute's prefix conflicts with the element's namespaces
+     * @throws MalformedURIException if <code>uri</code>
+     *     is not an RFC 3986 absolute URI reference
+     * @throws XMLException if the start-tag has already been closed
+     */
+    public void attribute(String name, String uri, String value) {
+
+        checkStartTagOpen("attribute");
+        if (verify) current.addAttribute(new Attribute(name, uri, value));
+        else {
+            if (uri == null) uri = "";
+            else if (uri.length() != 0) Verifier.checkAbsoluteURIReference(uri);
+            current.fastAddAttribute(Attribute.build(
+              name, uri, value, Attribute.Type.UNDECLARED, localName(name)));
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Declares a namespace prefix on the most recently
+     * started element. 
+     * </p>
+     *
+     * @param prefix the prefix to declare; the empty string for the
+     *     default namespace
+     * @param uri the namespace URI to bind the prefix to
+     *
+     * @throws IllegalNameException if verifying and 
+     *     <code>prefix</code> is not a legal XML non-colonized name
+     * @throws NamespaceConflictException if the mapping conflicts 
+     *     with the element's namespaces, or binds the xml or xmlns 
+     *     prefix wrongly
+     * @throws MalformedURIException if <code>uri</code> 
+     *     is not an RFC 3986 absolute URI reference
+     * @throws XMLException if the start-tag has already been closed
+     */
+    public void namespace(String prefix, String uri) {
+
+        checkStartTagOpen("namespace declaration");
+        if (prefix == null) prefix = "";
+        if (uri == null) uri = "";
+        // xml and xmlns are never stored, so they're always checked
+        if (verify || prefix.equals("xml") || prefix.equals("xmlns")) {
+            current.addNamespaceDeclaration(prefix, uri);
+        }
+        else {
+            if (uri.length() != 0) Verifier.checkAbsoluteURIReference(uri);
+            current.fastAddNamespaceDeclaration(prefix, uri);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Adds character data to the current element.
+     * </p>
+     *
+     * @param data the text to add
+     *
+     * @throws IllegalCharacterDataException if verifying and 
+     *     <code>data</code> contains characters that are not 
+     *     legal in XML
+     * @throws XMLException if there's no open element
+     */
+    public void text(String data) {
+
+        if (current == null) {
+            throw new XMLException("Cannot add text outside the root element");
+        }
+        startTagOpen = false;
+        if (data == null) data = "";
+        else if (verify) Verifier.checkPCDATA(data);
+        current.fastInsertChild(Text.build(data), current.getChildCount());
+
+    }
+
+
+    /**
+     * <p>
+     * Adds a comment to the current element,
+     * or to the document if there's no open element.
+     * </p>
+     *
+     * @param data the content of the comment
+     *
+     * @throws IllegalDataException if verifying and 
+     *      <code>data</code> contains a double hyphen, ends with 
+     *      a hyphen, or contains characters that are not legal in XML
+     */
+    public void comment(String data) {
+        if (verify) addChild(new Comment(data));
+        else addChild(Comment.build(data == null ? "" : data));
+    }
+
+
+    /**
+     * <p>
+     * Adds a processing instruction to the current element,
+     * or to the document if there's no open element.
+     * </p>
+     *
+     * @param target the target of the processing instruction
+     * @param data the data of the processing instruction
+     *
+     * @throws IllegalTargetException if verifying and the target 
+     *     is not an NCName or is the string "xml" in any case
+     * @throws IllegalDataException if verifying and the data 
+     *     contains "?&gt;" or characters that are not legal in XML
+     */
+    public void processingInstruction(String target, String data) {
+        if (verify) {
+            addChild(new ProcessingInstruction(target, data));
+        }
+        else {
+            addChild(ProcessingInstruction.build(
+              target, data == null ? "" : data));
+        }
+    }
+
+
+    private void addChild(Node child) {
+
+        startTagOpen = false;
+        if (current != null) {
+            current.fastInsertChild(child, current.getChildCount());
+        }
+        else if (rootStarted) {
+            document.fastInsertChild(child, document.getChildCount());
+        }
+        else {
+            document.fastInsertChild(child, prologPosition);
+            prologPosition++;
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Ends the most recently started element that is still open.
+     * </p>
+     *
+     * @throws XMLException if there's no open element
+     */
+    public void endElement() {
+
+        if (current == null) {
+            throw new XMLException("No open element to end");
+        }
+        startTagOpen = false;
+        ParentNode parent = current.getParent();
+        current = parent.isDocument() ? null : (Element) parent;
+
+    }
+
+
+    /**
+     * <p>
+     * Returns the finished document. The builder is then ready 
+     * to build another document, whether or not the document 
+     * was finished successfully.
+     * </p>
+     *
+     * @return the document built from the preceding events
+     *
+     * @throws XMLException if there's no root element or
+     *     it has not been closed
+     */
+    public Document endDocument() {
+
+        Document result = document;
+        try {
+            if (current != null) {
+                throw new XMLException("Unclosed element "
+                  + current.getQualifiedName());
+            }
+            if (!rootStarted) {
+                throw new XMLException("Document has no root element");
+            }
+        }
+        finally {
+            reset();
+        }
+        return result;
+
+    }
+
+    
+    private static String localName(String name) {
+        int colon = name.indexOf(':');
+        return colon < 0 ? name : name.substring(colon + 1);
+    }
+
+
+    private void checkStartTagOpen(String what) {
+
+        if (!startTagOpen) {
+            throw new XMLException("Cannot add a " + what
+              + " after the start-tag has been closed");
+        }
+
+    }
+
+
+
+}
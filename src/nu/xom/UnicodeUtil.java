@@ -20,77 +20,18 @@
 
 package nu.xom;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.Map;
-import java.util.HashMap;
 
 /**
  * @author Elliotte Rusty Harold
- * @version 1.3.1
+ * @version 1.4.7
  *
  */
 final class UnicodeUtil {
     
     
-    private static final int CANONICAL_COMBINING_CLASS_NOT_REORDERED = 0;
-    private static final int CANONICAL_COMBINING_CLASS_OVERLAY = 1;
-    private static final int CANONICAL_COMBINING_CLASS_NUKTA = 7;
-    private static final int CANONICAL_COMBINING_CLASS_KANA_VOICING = 8;
-    private final static int CANONICAL_COMBINING_CLASS_VIRAMA = 9;
-    private final static int CANONICAL_COMBINING_CLASS_10 = 10;
-    private final static int CANONICAL_COMBINING_CLASS_11 = 11;
-    private final static int CANONICAL_COMBINING_CLASS_12 = 12;
-    private final static int CANONICAL_COMBINING_CLASS_13 = 13;
-    private final static int CANONICAL_COMBINING_CLASS_14 = 14;
-    private final static int CANONICAL_COMBINING_CLASS_15 = 15;
-    private final static int CANONICAL_COMBINING_CLASS_16 = 16;
-    private final static int CANONICAL_COMBINING_CLASS_17 = 17;
-    private final static int CANONICAL_COMBINING_CLASS_18 = 18;
-    private final static int CANONICAL_COMBINING_CLASS_19 = 19;
-    private final static int CANONICAL_COMBINING_CLASS_20 = 20;
-    private final static int CANONICAL_COMBINING_CLASS_21 = 21;
-    private final static int CANONICAL_COMBINING_CLASS_22 = 22;
-    private final static int CANONICAL_COMBINING_CLASS_23 = 23;
-    private final static int CANONICAL_COMBINING_CLASS_24 = 24;
-    private final static int CANONICAL_COMBINING_CLASS_25 = 25;
-    private final static int CANONICAL_COMBINING_CLASS_26 = 26;
-    private final static int CANONICAL_COMBINING_CLASS_27 = 27;
-    private final static int CANONICAL_COMBINING_CLASS_28 = 28;
-    private final static int CANONICAL_COMBINING_CLASS_29 = 29;
-    private final static int CANONICAL_COMBINING_CLASS_30 = 30;
-    private final static int CANONICAL_COMBINING_CLASS_31 = 31;
-    private final static int CANONICAL_COMBINING_CLASS_32 = 32;
-    private final static int CANONICAL_COMBINING_CLASS_33 = 33;
-    private final static int CANONICAL_COMBINING_CLASS_34 = 34;
-    private final static int CANONICAL_COMBINING_CLASS_35 = 35;
-    private final static int CANONICAL_COMBINING_CLASS_36 = 36;
-    private final static int CANONICAL_COMBINING_CLASS_84 = 84;
-    private final static int CANONICAL_COMBINING_CLASS_91 = 91;
-    private final static int CANONICAL_COMBINING_CLASS_103 = 103;
-    private final static int CANONICAL_COMBINING_CLASS_107 = 107;
-    private final static int CANONICAL_COMBINING_CLASS_118 = 118;
-    private final static int CANONICAL_COMBINING_CLASS_122 = 122;
-    private final static int CANONICAL_COMBINING_CLASS_129 = 129;
-    private final static int CANONICAL_COMBINING_CLASS_130 = 130;
-    private final static int CANONICAL_COMBINING_CLASS_132 = 132;
-    private final static int CANONICAL_COMBINING_CLASS_ATTACHED_BELOW = 202;
-    private static final int CANONICAL_COMBINING_CLASS_214 = 214;
-    private static final int CANONICAL_COMBINING_CLASS_ATTACHED_ABOVE_RIGHT = 216;
-    private final static int CANONICAL_COMBINING_CLASS_BELOW_LEFT = 218;
-    private final static int CANONICAL_COMBINING_CLASS_BELOW = 220;
-    private final static int CANONICAL_COMBINING_CLASS_BELOW_RIGHT = 222;
-    private final static int CANONICAL_COMBINING_CLASS_LEFT = 224;
-    private final static int CANONICAL_COMBINING_CLASS_RIGHT = 226;
-    private final static int CANONICAL_COMBINING_CLASS_ABOVE_LEFT = 228;
-    private final static int CANONICAL_COMBINING_CLASS_ABOVE = 230;
-    private final static int CANONICAL_COMBINING_CLASS_ABOVE_RIGHT = 232;
-    private final static int CANONICAL_COMBINING_CLASS_DOUBLE_BELOW = 233;
-    private final static int CANONICAL_COMBINING_CLASS_DOUBLE_ABOVE = 234;
-    private final static int CANONICAL_COMBINING_CLASS_IOTA_SUBSCRIPT = 240;
-
-    
     private static boolean isHighSurrogate(char c) {
         return c >= HI_SURROGATE_START && c <= HI_SURROGATE_END;
     }
@@ -101,47 +42,130 @@ final class UnicodeUtil {
     private static int LOW_SURROGATE_START = 0xDC00;
     
     
-    private static Map<String, String> compositions;
+    // The canonical compositions, in an open addressing hash table 
+    // keyed by the starter in the high half and the character that
+    // combines with it in the low half. This is loaded the first 
+    // time it's needed.
+    private static class Compositions {
+        
+        static final long[] keys;
+        static final int[]  values;
+        static final int    mask;
+        
+        static {
+            byte[] data = loadResource("nu/xom/compositions.dat");
+            // two byte count, then three 3 byte code points for each 
+            // composition: the starter, the character that combines 
+            // with it, and the composed character
+            int count = ((data[0] & 0xFF) << 8) | (data[1] & 0xFF);
+            int capacity = 16;
+            while (capacity < count * 2) capacity <<= 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            for (int i = 0, offset = 2; i < count; i++, offset += 9) {
+                long key = compositionKey(
+                  readCodePoint(data, offset), readCodePoint(data, offset+3));
+                int slot = hash(key) & mask;
+                while (keys[slot] != 0 && keys[slot] != key) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = readCodePoint(data, offset+6);
+            }
+        }
+        
+        static int hash(long key) {
+            int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+        
+        // the second character of each composition
+        static int second(long key) {
+            return (int) key;
+        }
+        
+        private static int readCodePoint(byte[] data, int offset) {
+            return ((data[offset] & 0xFF) << 16) 
+              | ((data[offset+1] & 0xFF) << 8) | (data[offset+2] & 0xFF);
+        }
+        
+    }
+    
+    
+    private static long compositionKey(int starter, int c) {
+        return ((long) starter << 32) | c;
+    }
+    
+    
+    // Combining classes are looked up in two steps. The index maps 
+    // each block of 64 characters to the offset of that block's 
+    // classes, one byte per character. Blocks with the same classes
+    // share one copy, so the tables take about 11K. Characters past
+    // the end of the index all have class 0. This is loaded the 
+    // first time it's needed.
+    private static class CombiningClasses {
+        
+        static final int    BLOCK_SHIFT = 6;
+        static final int    BLOCK_MASK  = (1 << BLOCK_SHIFT) - 1;
+        
+        static final int[]  index;
+        static final byte[] classes;
+        // the first character past the end of the index
+        static final int    limit;
+        
+        static {
+            byte[] data = loadResource("nu/xom/combining.dat");
+            // two byte index length, two byte block count, 
+            // the index, and the blocks
+            int length = ((data[0] & 0xFF) << 8) | (data[1] & 0xFF);
+            int blocks = ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+            index = new int[length];
+            for (int i = 0; i < length; i++) {
+                index[i] = (data[4+i] & 0xFF) << BLOCK_SHIFT;
+            }
+            classes = new byte[blocks << BLOCK_SHIFT];
+            System.arraycopy(data, 4 + length, classes, 0, classes.length);
+            limit = length << BLOCK_SHIFT;
+        }
+        
+    }
+    
     
-    private static void loadCompositions() {
+    private static byte[] loadResource(String name) {
     
         ClassLoader loader = Verifier.class.getClassLoader();
-        if (loader != null) loadCompositions(loader);
+        byte[] data = null;
+        if (loader != null) data = loadResource(loader, name);
         // If that didn't work, try a different ClassLoader
-        if (compositions == null) {
+        if (data == null) {
             loader = Thread.currentThread().getContextClassLoader();
-            loadCompositions(loader);
+            data = loadResource(loader, name);
         }
-        if (compositions == null) { 
+        if (data == null) { 
             throw new RuntimeException("Broken XOM installation: "
-              + "could not load nu/xom/compositions.dat");
+              + "could not load " + name);
         }
+        return data;
         
     }
     
     
-    // XXX use a BiMap and make decompose much simpler?
-    private static void loadCompositions(ClassLoader loader) {
+    private static byte[] loadResource(ClassLoader loader, String name) {
         
-        DataInputStream in = null;
+        InputStream in = null;
         try {
-            InputStream source = loader.getResourceAsStream("nu/xom/compositions.dat");
-            in = new DataInputStream(source);
-            // ???? would it make sense to store a serialized HashMap instead????
-            compositions = new HashMap<String, String>();
-            try {
-                while (true) {
-                    String composed = in.readUTF();
-                    String decomposed = in.readUTF();
-                    compositions.put(decomposed, composed);
-                }
-            }
-            catch (java.io.EOFException ex) {
-                // finished
+            in = loader.getResourceAsStream(name);
+            if (in == null) return null;
+            ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+            byte[] buffer = new byte[4096];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
             }
+            return out.toByteArray();
         }
         catch (IOException ex) {
-            return;
+            return null;
         }
         finally {
             try {
@@ -161,334 +185,12 @@ final class UnicodeUtil {
 
 
     private static int getCombiningClass(int character) {
-        // ???? optimize with table lookup?
         
-        if (character <= 0x2ff) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x314) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x315) return CANONICAL_COMBINING_CLASS_ABOVE_RIGHT;
-        if (character <= 0x319) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x31a) return CANONICAL_COMBINING_CLASS_ABOVE_RIGHT;
-        if (character <= 0x31b) return CANONICAL_COMBINING_CLASS_ATTACHED_ABOVE_RIGHT;
-        if (character <= 0x320) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x322) return CANONICAL_COMBINING_CLASS_ATTACHED_BELOW;
-        if (character <= 0x326) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x328) return CANONICAL_COMBINING_CLASS_ATTACHED_BELOW;
-        if (character <= 0x333) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x338) return CANONICAL_COMBINING_CLASS_OVERLAY;
-        if (character <= 0x33c) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x344) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x345) return CANONICAL_COMBINING_CLASS_IOTA_SUBSCRIPT;
-        if (character <= 0x346) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x349) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x34c) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x34e) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x34f) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x352) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x356) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x357) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x358) return CANONICAL_COMBINING_CLASS_ABOVE_RIGHT;
-        if (character <= 0x35a) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x35b) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x35c) return CANONICAL_COMBINING_CLASS_DOUBLE_BELOW;
-        if (character <= 0x35e) return CANONICAL_COMBINING_CLASS_DOUBLE_ABOVE;
-        if (character <= 0x35f) return CANONICAL_COMBINING_CLASS_DOUBLE_BELOW;
-        if (character <= 0x361) return CANONICAL_COMBINING_CLASS_DOUBLE_ABOVE;
-        if (character <= 0x362) return CANONICAL_COMBINING_CLASS_DOUBLE_BELOW;
-        if (character <= 0x36f) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x482) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x487) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x590) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x591) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x595) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x596) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x599) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x59a) return CANONICAL_COMBINING_CLASS_BELOW_RIGHT;
-        if (character <= 0x59b) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x5a1) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x5a7) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x5a9) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x5aa) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x5ac) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x5ad) return CANONICAL_COMBINING_CLASS_BELOW_RIGHT;
-        if (character <= 0x5ae) return CANONICAL_COMBINING_CLASS_ABOVE_LEFT;
-        if (character <= 0x5af) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x5b0) return CANONICAL_COMBINING_CLASS_10;
-        if (character <= 0x5b1) return CANONICAL_COMBINING_CLASS_11;
-        if (character <= 0x5b2) return CANONICAL_COMBINING_CLASS_12;
-        if (character <= 0x5b3) return CANONICAL_COMBINING_CLASS_13;
-        if (character <= 0x5b4) return CANONICAL_COMBINING_CLASS_14;
-        if (character <= 0x5b5) return CANONICAL_COMBINING_CLASS_15;
-        if (character <= 0x5b6) return CANONICAL_COMBINING_CLASS_16;
-        if (character <= 0x5b7) return CANONICAL_COMBINING_CLASS_17;
-        if (character <= 0x5b8) return CANONICAL_COMBINING_CLASS_18;
-        if (character <= 0x5ba) return CANONICAL_COMBINING_CLASS_19;
-        if (character <= 0x5bb) return CANONICAL_COMBINING_CLASS_20;
-        if (character <= 0x5bc) return CANONICAL_COMBINING_CLASS_21;
-        if (character <= 0x5bd) return CANONICAL_COMBINING_CLASS_22;
-        if (character <= 0x5be) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x5bf) return CANONICAL_COMBINING_CLASS_23;
-        if (character <= 0x5c0) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x5c1) return CANONICAL_COMBINING_CLASS_24;
-        if (character <= 0x5c2) return CANONICAL_COMBINING_CLASS_25;
-        if (character <= 0x5c3) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x5c4) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x5c5) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x5c6) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x5c7) return CANONICAL_COMBINING_CLASS_18;
-        if (character <= 0x60f) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x617) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x618) return CANONICAL_COMBINING_CLASS_30;
-        if (character <= 0x619) return CANONICAL_COMBINING_CLASS_31;
-        if (character <= 0x61a) return CANONICAL_COMBINING_CLASS_32;
-        if (character <= 0x64a) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x64b) return CANONICAL_COMBINING_CLASS_27;
-        if (character <= 0x64c) return CANONICAL_COMBINING_CLASS_28;
-        if (character <= 0x64d) return CANONICAL_COMBINING_CLASS_29;
-        if (character <= 0x64e) return CANONICAL_COMBINING_CLASS_30;
-        if (character <= 0x64f) return CANONICAL_COMBINING_CLASS_31;
-        if (character <= 0x650) return CANONICAL_COMBINING_CLASS_32;
-        if (character <= 0x651) return CANONICAL_COMBINING_CLASS_33;
-        if (character <= 0x652) return CANONICAL_COMBINING_CLASS_34;
-        if (character <= 0x654) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x656) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x65b) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x65c) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x65e) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x66f) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x670) return CANONICAL_COMBINING_CLASS_35;
-        if (character <= 0x6d5) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x6dc) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x6de) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x6e2) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x6e3) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x6e4) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x6e6) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x6e8) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x6e9) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x6ea) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x6ec) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x6ed) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x710) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x711) return CANONICAL_COMBINING_CLASS_36;
-        if (character <= 0x72f) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x730) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x731) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x733) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x734) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x736) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x739) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x73a) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x73c) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x73d) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x73e) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x741) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x742) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x743) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x744) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x745) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x746) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x747) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x748) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x74a) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x7ea) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x7f1) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x7f2) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x7f3) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x93b) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x93c) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0x94c) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x94d) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0x950) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x951) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x952) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x954) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x9bb) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x9bc) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0x9cc) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x9cd) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xa3b) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xa3c) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0xa4c) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xa4d) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xabb) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xabc) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0xacc) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xacd) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xb3b) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xb3c) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0xb4c) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xb4d) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xbcc) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xbcd) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xc4c) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xc4d) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xc54) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xc55) return CANONICAL_COMBINING_CLASS_84;
-        if (character <= 0xc56) return CANONICAL_COMBINING_CLASS_91;
-        if (character <= 0xcbb) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xcbc) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0xccc) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xccd) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xd4c) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xd4d) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xdc9) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xdca) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xe37) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xe39) return CANONICAL_COMBINING_CLASS_103;
-        if (character <= 0xe3a) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xe47) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xe4b) return CANONICAL_COMBINING_CLASS_107;
-        if (character <= 0xeb7) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xeb9) return CANONICAL_COMBINING_CLASS_118;
-        if (character <= 0xec7) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xecb) return CANONICAL_COMBINING_CLASS_122;
-        if (character <= 0xf17) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf19) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0xf34) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf35) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0xf36) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf37) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0xf38) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf39) return CANONICAL_COMBINING_CLASS_ATTACHED_ABOVE_RIGHT;
-        if (character <= 0xf70) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf71) return CANONICAL_COMBINING_CLASS_129;
-        if (character <= 0xf72) return CANONICAL_COMBINING_CLASS_130;
-        if (character <= 0xf73) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf74) return CANONICAL_COMBINING_CLASS_132;
-        if (character <= 0xf79) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf7d) return CANONICAL_COMBINING_CLASS_130;
-        if (character <= 0xf7f) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf80) return CANONICAL_COMBINING_CLASS_130;
-        if (character <= 0xf81) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf83) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0xf84) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xf85) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xf87) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0xfc5) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xfc6) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1036) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1037) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0x1038) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x103a) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0x108c) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x108d) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x135e) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x135f) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1713) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1714) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0x1733) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1734) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0x17d1) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x17d2) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0x17dc) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x17dd) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x18a8) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x18a9) return CANONICAL_COMBINING_CLASS_ABOVE_LEFT;
-        if (character <= 0x1938) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1939) return CANONICAL_COMBINING_CLASS_BELOW_RIGHT;
-        if (character <= 0x193a) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x193b) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1a16) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1a17) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1a18) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1b33) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1b34) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0x1b43) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1b44) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0x1b6a) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1b6b) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1b6c) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1b73) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1ba9) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1baa) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0x1c36) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1c37) return CANONICAL_COMBINING_CLASS_NUKTA;
-        if (character <= 0x1dbf) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1dc1) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1dc2) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1dc9) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1dca) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1dcc) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1dcd) return CANONICAL_COMBINING_CLASS_DOUBLE_ABOVE;
-        if (character <= 0x1dce) return CANONICAL_COMBINING_CLASS_214;
-        if (character <= 0x1dcf) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1dd0) return CANONICAL_COMBINING_CLASS_ATTACHED_BELOW;
-        if (character <= 0x1de6) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1dfd) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1dfe) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1dff) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x20cf) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x20d1) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x20d3) return CANONICAL_COMBINING_CLASS_OVERLAY;
-        if (character <= 0x20d7) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x20da) return CANONICAL_COMBINING_CLASS_OVERLAY;
-        if (character <= 0x20dc) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x20e0) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x20e1) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x20e4) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x20e6) return CANONICAL_COMBINING_CLASS_OVERLAY;
-        if (character <= 0x20e7) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x20e8) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x20e9) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x20eb) return CANONICAL_COMBINING_CLASS_OVERLAY;
-        if (character <= 0x20ef) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x20f0) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x2ddf) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x2dff) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x3029) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x302a) return CANONICAL_COMBINING_CLASS_BELOW_LEFT;
-        if (character <= 0x302b) return CANONICAL_COMBINING_CLASS_ABOVE_LEFT;
-        if (character <= 0x302c) return CANONICAL_COMBINING_CLASS_ABOVE_RIGHT;
-        if (character <= 0x302d) return CANONICAL_COMBINING_CLASS_BELOW_RIGHT;
-        if (character <= 0x302f) return CANONICAL_COMBINING_CLASS_LEFT;
-        if (character <= 0x3098) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x309a) return CANONICAL_COMBINING_CLASS_KANA_VOICING;
-        if (character <= 0xa66e) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xa66f) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0xa67b) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xa67d) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0xa805) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xa806) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xa8c3) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xa8c4) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xa92a) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xa92d) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0xa952) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xa953) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0xfb1d) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xfb1e) return CANONICAL_COMBINING_CLASS_26;
-        if (character <= 0xfe1f) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0xfe26) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x101fc) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x101fd) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x10a0c) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x10a0d) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x10a0e) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x10a0f) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x10a37) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x10a38) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x10a39) return CANONICAL_COMBINING_CLASS_OVERLAY;
-        if (character <= 0x10a3a) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x10a3e) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x10a3f) return CANONICAL_COMBINING_CLASS_VIRAMA;
-        if (character <= 0x1d164) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1d166) return CANONICAL_COMBINING_CLASS_ATTACHED_ABOVE_RIGHT;
-        if (character <= 0x1d169) return CANONICAL_COMBINING_CLASS_OVERLAY;
-        if (character <= 0x1d16c) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1d16d) return CANONICAL_COMBINING_CLASS_RIGHT;
-        if (character <= 0x1d172) return CANONICAL_COMBINING_CLASS_ATTACHED_ABOVE_RIGHT;
-        if (character <= 0x1d17a) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1d182) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1d184) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1d189) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1d18b) return CANONICAL_COMBINING_CLASS_BELOW;
-        if (character <= 0x1d1a9) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1d1ad) return CANONICAL_COMBINING_CLASS_ABOVE;
-        if (character <= 0x1d241) return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
-        if (character <= 0x1d244) return CANONICAL_COMBINING_CLASS_ABOVE;
-  
+        if (character >= CombiningClasses.limit) return 0;
+        return CombiningClasses.classes[CombiningClasses.index[
+          character >> CombiningClasses.BLOCK_SHIFT] 
+          + (character & CombiningClasses.BLOCK_MASK)] & 0xFF;
         
-        return CANONICAL_COMBINING_CLASS_NOT_REORDERED;
     }
     
     
@@ -507,20 +209,6 @@ final class UnicodeUtil {
         
     }
 
-    private static String makeSurrogatePair(int codePoint) {
-
-    	StringBuilder s = new StringBuilder(2);
-        if (codePoint <= 0xFFFF) s.append((char) codePoint);
-        else {
-            char high = (char) (0xD800 - (0x10000 >> 10) + (codePoint >> 10));
-            char low = (char) (0xDC00 + (codePoint & 0x3FF));
-            s.append(high);
-            s.append(low);
-        }
-        return s.toString();
-        
-    }
-
     private static char getHighSurrogate(int codepoint) {
 
         char x = (char) codepoint;
@@ -552,64 +240,155 @@ final class UnicodeUtil {
             }
         } 
         
-        if (needsNormalizing) {
+        if (!needsNormalizing) return s;
+        
+        // Copy runs that are already normalized and only normalize
+        // the segments around characters that fail the quick check.
+        // Each segment runs from the last quick check starter before
+        // the character to the next quick check starter after it. 
+        // Nothing can compose with, or be reordered across, these 
+        // starters so the segments can be normalized independently.
+        StringBuilder result = null;
+        Normalizer normalizer = null;
+        int copied = 0;
+        int lastStarter = 0;
+        int lastClass = 0;
+        int i = 0;
+        while (i < length) {
+            char c = s.charAt(i);
+            if (NFCQuickCheck.isYes(c)) {
+                int combiningClass = getCombiningClass(c);
+                if (combiningClass == 0) {
+                    lastStarter = i;
+                    // A following combining mark might be reordered
+                    // with the end of this character's decomposition.
+                    lastClass = NFCQuickCheck.endsWithMark(c) ? 256 : 0;
+                    i++;
+                    continue;
+                }
+                else if (combiningClass >= lastClass) {
+                    lastClass = combiningClass;
+                    i++;
+                    continue;
+                }
+            }
             
-            // ???? unnecessarily invoking this in many cases
-            s = decomposeHangul(s);
-            UnicodeString ustring = new UnicodeString(s);
-            UnicodeString decomposed = ustring.decompose(); 
-            UnicodeString recomposed = decomposed.compose();
-            String result = recomposed.toString();
-            // ???? unnecessarily invoking this in many cases
-            result = composeHangul(result);
-            return result;
+            int end = i + 1;
+            while (end < length) {
+                char next = s.charAt(end);
+                if (NFCQuickCheck.isYes(next) && isStarter(next)) break;
+                end++;
+            }
+            if (result == null) {
+                result = new StringBuilder(length);
+                normalizer = new Normalizer();
+            }
+            result.append(s, copied, lastStarter);
+            normalizer.normalize(s, lastStarter, end, result);
+            copied = end;
+            lastStarter = end;
+            lastClass = 0;
+            i = end;
         }
         
-        return s;
+        if (result == null) return s;
+        result.append(s, copied, length);
+        return result.toString();
         
     }
 
-     
-    private static String decomposeHangul(String s) {
+    
+    private static String normalizeSegment(String s) {
+        
+        StringBuilder result = new StringBuilder(s.length());
+        new Normalizer().normalize(s, 0, s.length(), result);
+        return result.toString();
+        
+    }
 
-        int length = s.length();
-        StringBuilder sb = new StringBuilder(s.length());
-        for (int i = 0; i < length; i++) {
-            char c = s.charAt(i);
-            if (c >= FIRST_HANGUL_SYLLABLE && c <= LAST_HANGUL_SYLLABLE) {
-                sb.append(decomposeHangul(c));
+    
+    // The NFC quick check tables are built the first time they're
+    // needed from the same decomposition and composition data the
+    // normalizer uses, so the two can't disagree.
+    private static class NFCQuickCheck {
+        
+        // Characters that normalize to themselves and can't combine
+        // with a preceding character. A string made only of these, 
+        // with non-zero combining classes in order, is already 
+        // normalized.
+        private static final long[] yes = new long[1024];
+        
+        // Characters in yes whose decomposition ends with a 
+        // combining mark
+        private static final long[] endsWithMark = new long[1024];
+        
+        static {
+            
+            // Hangul medial vowels and trailing consonants
+            // combine with the preceding jamo or syllable,
+            // as do the second characters of canonical compositions.
+            long[] combines = new long[1024];
+            for (int c = 0x1161; c <= 0x1175; c++) set(combines, c);
+            for (int c = 0x11A7; c <= 0x11C3; c++) set(combines, c);
+            long[] keys = Compositions.keys;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) set(combines, Compositions.second(keys[i]));
             }
-            else {
-                sb.append(c);
+            
+            for (int c = 0; c <= 0xFFFF; c++) {
+                if (c >= 0xD800 && c <= 0xDFFF) continue;
+                if (get(combines, c)) continue;
+                String s = String.valueOf((char) c);
+                String decomposed = decompose(c);
+                if (decomposed.equals(s)) {
+                    set(yes, c);
+                    continue;
+                }
+                int first = decomposed.codePointAt(0);
+                if (first <= 0xFFFF && get(combines, first)) continue;
+                if (!isStarter(first)) continue;
+                if (!normalizeSegment(s).equals(s)) continue;
+                set(yes, c);
+                int last = decomposed.codePointBefore(decomposed.length());
+                if (!isStarter(last)) set(endsWithMark, c);
             }
+            
+        }
+        
+        private static void set(long[] table, int c) {
+            if (c <= 0xFFFF) table[c >>> 6] |= 1L << c;
+        }
+        
+        private static boolean get(long[] table, int c) {
+            return (table[c >>> 6] & (1L << c)) != 0;
+        }
+        
+        static boolean isYes(char c) {
+            return get(yes, c);
+        }
+        
+        static boolean endsWithMark(char c) {
+            return get(endsWithMark, c);
         }
-        return sb.toString();
         
     }
 
+     
+
     
     // return -1 if the character cannot be combined with the starter; 
     // otherwise return the composed character
     private static int composeCharacter(int starter, int c) {
         
-    	StringBuilder decomposed = new StringBuilder(4);
-        
-        if (starter > 0xFFFF) {
-            decomposed.append(getHighSurrogate(starter));
-            decomposed.append(getLowSurrogate(starter));
-        }
-        else decomposed.append((char) starter);
-        
-        if (c > 0xFFFF) {
-            decomposed.append(getHighSurrogate(c));
-            decomposed.append(getLowSurrogate(c));
+        long[] keys = Compositions.keys;
+        long key = compositionKey(starter, c);
+        int slot = Compositions.hash(key) & Compositions.mask;
+        while (true) {
+            long candidate = keys[slot];
+            if (candidate == key) return Compositions.values[slot];
+            if (candidate == 0) return -1;
+            slot = (slot + 1) & Compositions.mask;
         }
-        else decomposed.append((char) c);
-        
-        String recomposed = (String) compositions.get(decomposed.toString());
-        if (recomposed == null) return -1;
-        else if (recomposed.length() == 1) return recomposed.charAt(0);
-        else return combineSurrogatePair(recomposed.charAt(0), recomposed.charAt(1));
 
     }
 
@@ -4769,169 +4548,206 @@ final class UnicodeUtil {
     }   
     
     
-    private static String composeHangul(String source) {
-
-        final int firstLeadingConsonant = 0x1100;
-        final int firstMedialVowel = 0x1161;
-        final int firstTrailingConsonant = 0x11A7;
+ 
+    
+    // Identifies characters that are their own decomposition so
+    // the normalizer can skip looking them up
+    private static class Decompositions {
         
-        final int numberOfLeadingConsonants  = 19;
-        final int numberOfMedialVowels       = 21;
-        final int numberOfTrailingConsonants = 28;
+        static final long[] identity = new long[1024];
         
-        final int numberOfFinalPairs 
-          = numberOfMedialVowels * numberOfTrailingConsonants;
-        final int numberOfSyllables 
-          = numberOfLeadingConsonants * numberOfFinalPairs;
-        
-        final int length = source.length();
-        if (length == 0) return "";
-        StringBuilder result = new StringBuilder(length);
-        char previous = source.charAt(0); 
-        result.append(previous);
-
-        for (int i = 1; i < length; ++i) {
-            char c = source.charAt(i);
-
-            int leadingConsonant = previous - firstLeadingConsonant;
-            if (0 <= leadingConsonant && leadingConsonant < numberOfLeadingConsonants) {
-                int medialVowel = c - firstMedialVowel;
-                if (medialVowel >= 0 && medialVowel < numberOfMedialVowels) {
-                    previous = (char) (FIRST_HANGUL_SYLLABLE 
-                      + (leadingConsonant * numberOfMedialVowels + medialVowel) 
-                      * numberOfTrailingConsonants);
-                    result.setCharAt(result.length()-1, previous);
-                    continue; 
+        static {
+            for (int c = 0; c <= 0xFFFF; c++) {
+                if (c < 0x00C0) identity[c >>> 6] |= 1L << c;
+                else if (c >= FIRST_HANGUL_SYLLABLE && c <= LAST_HANGUL_SYLLABLE) {
+                    continue;
                 }
-            }
-
-            int syllable = previous - FIRST_HANGUL_SYLLABLE;
-            if (syllable >= 0 && syllable < numberOfSyllables 
-              && (syllable % numberOfTrailingConsonants) == 0) {
-                int trailingConsonant = c - firstTrailingConsonant;
-                if (trailingConsonant >= 0 && trailingConsonant <= numberOfTrailingConsonants) {
-                    previous += trailingConsonant;
-                    result.setCharAt(result.length()-1, previous);
-                    continue; 
+                else if (decompose(c).equals(String.valueOf((char) c))) {
+                    identity[c >>> 6] |= 1L << c;
                 }
             }
-
-            previous = c;
-            result.append(c);
         }
         
-        return result.toString();
+        static boolean isIdentity(int c) {
+            return c <= 0xFFFF && (identity[c >>> 6] & (1L << c)) != 0;
+        }
         
-    } 
- 
+    }
+    
     
-    private static class UnicodeString {
+    // Decomposes, reorders, and recomposes a segment of a string 
+    // using buffers that are reused for each segment
+    private static final class Normalizer {
         
-        private int[] data;
+        private int[] data = new int[32];
+        private int[] composed = new int[32];
         private int   size = 0; 
         
-        UnicodeString(String s) {
+        
+        void normalize(String s, int start, int end, StringBuilder out) {
             
-            int length = s.length();
-            data = new int[length];
-            int index = 0;
-            for (int i = 0; i < length; i++) {
+            size = 0;
+            for (int i = start; i < end; i++) {
                 char c = s.charAt(i);
                 int codePoint = c;
                 if (isHighSurrogate(c)) {
                     i++;
                     codePoint = combineSurrogatePair(c, s.charAt(i));
                 }
-                data[index] = codePoint;
-                index++;
+                if (Decompositions.isIdentity(codePoint)) {
+                    append(codePoint);
+                }
+                else if (codePoint >= FIRST_HANGUL_SYLLABLE 
+                  && codePoint <= LAST_HANGUL_SYLLABLE) {
+                    append(decomposeHangul(c));
+                }
+                else {
+                    append(decompose(codePoint));
+                }
+            }
+            
+            reorder();
+            int count = compose();
+            count = composeHangul(count);
+            for (int i = 0; i < count; i++) {
+                out.appendCodePoint(composed[i]);
             }
-            this.size = index;
             
         }
         
         
-        UnicodeString(int length) {
-            this.size = 0;
-            data = new int[length];
-        }
-        
-        
-        UnicodeString decompose() {
+        // put into canonical order
+        private void reorder() {
             
-            UnicodeString result = new UnicodeString(size);
-            for (int i = 0; i < size; i++) {
-                int c = data[i];
-                String d = UnicodeUtil.decompose(c);
-                result.append(d);
-            }    
-            
-            /* now put into canonical order */
-
-            for (int i = 0; i < result.size-1; i++) {
-                int first = result.data[i];
-                int second = result.data[i+1];
+            for (int i = 0; i < size-1; i++) {
+                int first = data[i];
+                int second = data[i+1];
                 int secondClass = getCombiningClass(second);
                 if (secondClass == 0) continue;
                 int firstClass = getCombiningClass(first);
                 if (firstClass > secondClass ) {
-                    result.data[i] = second;
-                    result.data[i+1] = first;
+                    data[i] = second;
+                    data[i+1] = first;
                     i -= 2;
                     if (i == -2) i = -1;
                 }
             }
             
-            return result;
-            
         }
         
         
-        UnicodeString compose() {
-        
-            if (compositions == null) loadCompositions();
+        // Composes data into composed and returns the number of 
+        // characters in composed.
+        private int compose() {
+            
+            if (composed.length < size) composed = new int[data.length];
+            int count = 0;
             
-            UnicodeString composed = new UnicodeString(size);
-    
             int lastStarter = -1;
             int lastStarterIndex = -1;
             int composedLastStarterIndex = -1;
             
             for (int i = 0; i < size; i++) {
                 int c = data[i];
-                if (lastStarter == -1 || isBlocked(lastStarterIndex, i)) {
-                    composed.append(c);
+                int composedChar = -1;
+                if (lastStarter != -1 && !isBlocked(lastStarterIndex, i)) {
+                    composedChar = composeCharacter(lastStarter, c);
+                }
+                if (composedChar == -1) {
+                    composed[count] = c;
+                    count++;
                     if (isStarter(c) ) {
                         lastStarter = c;
                         lastStarterIndex = i;
-                        composedLastStarterIndex = composed.size-1;
+                        composedLastStarterIndex = count-1;
                     }
                 }
-                else  {
-                    int composedChar = composeCharacter(lastStarter, c);
-                    if (composedChar == -1) {
-                        composed.append(c);
-                        if (isStarter(c) ) {
-                            lastStarter = c;
-                            lastStarterIndex = i;
-                            composedLastStarterIndex = composed.size-1;
-                        }
-                    }
-                    else {
-                        lastStarter = composedChar;
-                        // XXX dangerous side effects
-                        data[lastStarterIndex] = composedChar;
-                        data[i] = 0;
-                        composed.data[composedLastStarterIndex] = composedChar;
-                    }
+                else {
+                    lastStarter = composedChar;
+                    // characters that have been composed are zeroed
+                    // so they don't block later characters
+                    data[lastStarterIndex] = composedChar;
+                    data[i] = 0;
+                    composed[composedLastStarterIndex] = composedChar;
                 }
             }
             
-            return composed;
+            return count;
         
         }
+        
+        
+        private boolean isBlocked(int lastStarterIndex, int index) {
+          
+            int combiningClass = getCombiningClass(data[index]);
+            for (int i = lastStarterIndex+1; i < index; i++) {
+                if (data[i] !=0 && combiningClass == getCombiningClass(data[i])) {
+                    return true;
+                }
+            }
+            return false;
+            
+        }
+        
+        
+        // Composes Hangul jamo in place in composed and returns the 
+        // number of characters left.
+        private int composeHangul(int count) {
+
+            final int firstLeadingConsonant = 0x1100;
+            final int firstMedialVowel = 0x1161;
+            final int firstTrailingConsonant = 0x11A7;
+            
+            final int numberOfLeadingConsonants  = 19;
+            final int numberOfMedialVowels       = 21;
+            final int numberOfTrailingConsonants = 28;
+            
+            final int numberOfFinalPairs 
+              = numberOfMedialVowels * numberOfTrailingConsonants;
+            final int numberOfSyllables 
+              = numberOfLeadingConsonants * numberOfFinalPairs;
+            
+            if (count == 0) return 0;
+            int last = 0;
+            int previous = composed[0]; 
+
+            for (int i = 1; i < count; ++i) {
+                int c = composed[i];
+
+                int leadingConsonant = previous - firstLeadingConsonant;
+                if (0 <= leadingConsonant && leadingConsonant < numberOfLeadingConsonants) {
+                    int medialVowel = c - firstMedialVowel;
+                    if (medialVowel >= 0 && medialVowel < numberOfMedialVowels) {
+                        previous = FIRST_HANGUL_SYLLABLE 
+                          + (leadingConsonant * numberOfMedialVowels + medialVowel) 
+                          * numberOfTrailingConsonants;
+                        composed[last] = previous;
+                        continue; 
+                    }
+                }
+
+                int syllable = previous - FIRST_HANGUL_SYLLABLE;
+                if (syllable >= 0 && syllable < numberOfSyllables 
+                  && (syllable % numberOfTrailingConsonants) == 0) {
+                    int trailingConsonant = c - firstTrailingConsonant;
+                    if (trailingConsonant >= 0 && trailingConsonant <= numberOfTrailingConsonants) {
+                        previous += trailingConsonant;
+                        composed[last] = previous;
+                        continue; 
+                    }
+                }
+
+                previous = c;
+                last++;
+                composed[last] = c;
+            }
+            
+            return last + 1;
+            
+        } 
 
     
-        void append(String s) {
+        private void append(String s) {
             
             for (int i = 0; i < s.length(); i++) {
                 char c = s.charAt(i);
@@ -4947,48 +4763,20 @@ final class UnicodeUtil {
         }
         
         
-        void append(int c) {
+        private void append(int c) {
             
-            if (size < data.length-1) {
-                data[size] = c;
-                size++;
-            }
-            else {
-                int[] array = new int[data.length+10];
+            if (size == data.length) {
+                int[] array = new int[size * 2];
                 System.arraycopy(data, 0, array, 0, size);
                 data = array;
-                append(c);
             }
-            
-        }
-        
-        public String toString() {
-         
-        	StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < size; i++) {
-                int c = data[i];
-                if (c <= 0xFFFF) sb.append((char) c);
-                else {
-                    sb.append(makeSurrogatePair(c));
-                }
-            }
-            return sb.toString();
-            
-        }
-        
-        private boolean isBlocked(int lastStarterIndex, int index) {
-          
-            int combiningClass = getCombiningClass(data[index]);
-            for (int i = lastStarterIndex+1; i < index; i++) {
-                if (data[i] !=0 && combiningClass == getCombiningClass(data[i])) {
-                    return true;
-                }
-            }
-            return false;
+            data[size] = c;
+            size++;
             
         }
         
     }
     
     
+
 }
@@ -29,6 +29,13 @@ final class UnsynchronizedBufferedWriter extends Writer {
     private int    position = 0;
     private Writer out;
     
+    // While recording, everything written through the normal 
+    // methods is also copied here so that an incremental
+    // Serializer can reuse it the next time it writes the same
+    // unchanged elements.
+    private char[] record = null;
+    private int    recordLength = 0;
+    
     
     public UnsynchronizedBufferedWriter(Writer out) {
         this.out = out;
@@ -47,6 +54,11 @@ final class UnsynchronizedBufferedWriter extends Writer {
     
     public void write(String s, int offset, int length) throws IOException {
     
+        if (record != null) {
+            ensureRecordCapacity(length);
+            s.getChars(offset, offset + length, record, recordLength);
+            recordLength += length;
+        }
         while (length > 0) {
             int n = CAPACITY - position;
             if (length < n) n = length;
@@ -61,10 +73,67 @@ final class UnsynchronizedBufferedWriter extends Writer {
         
     
     public void write(int c) throws IOException {
+        if (record != null) {
+            ensureRecordCapacity(1);
+            record[recordLength++] = (char) c;
+        }
         if (position >= CAPACITY) flushInternal();
         buffer[position] = (char) c;
         position++;
     }
+    
+    
+    // writes previously recorded output without recording it again
+    void writeUnrecorded(char[] data, int offset, int length) 
+      throws IOException {
+    
+        while (length > 0) {
+            int n = CAPACITY - position;
+            if (length < n) n = length;
+            System.arraycopy(data, offset, buffer, position, n);
+            position += n;
+            offset += n;
+            length -= n;
+            if (position >= CAPACITY) flushInternal();
+        }
+        
+    }
+    
+    
+    void startRecording() {
+        record = new char[CAPACITY];
+        recordLength = 0;
+    }
+    
+    
+    // Returns the array holding everything recorded since recording
+    // started. It's handed over rather than copied, so it is usually
+    // longer than the recording.
+    char[] stopRecording() {
+        
+        char[] result = record;
+        record = null;
+        recordLength = 0;
+        return result;
+        
+    }
+    
+    
+    int getRecordLength() {
+        return recordLength;
+    }
+    
+    
+    private void ensureRecordCapacity(int length) {
+        
+        if (recordLength + length > record.length) {
+            int capacity = Math.max(record.length * 2, recordLength + length);
+            char[] data = new char[capacity];
+            System.arraycopy(record, 0, data, 0, recordLength);
+            record = data;
+        }
+        
+    }
 
     
     public void flush() throws IOException {
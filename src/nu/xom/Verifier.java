@@ -40,7 +40,7 @@ import org.xml.sax.XMLReader;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.2.11
+ * @version 1.4.7
  * 
  */
 final class Verifier {
@@ -179,31 +179,25 @@ final class Verifier {
         
         if (text == null) throw new IllegalCharacterDataException("Null text");
 
-        char[] data = text.toCharArray();
-        for (int i = 0, len = data.length; i < len; i++) {
-            int result = data[i];
-            if (result >= 0xD800 && result <= 0xDBFF) { 
-                try {
-                    int low = data[i+1];
-                    if (low < 0xDC00 || low > 0xDFFF) {
-                        IllegalCharacterDataException ex 
-                          = new IllegalCharacterDataException("Bad surrogate pair");
-                        ex.setData(text);
-                        throw ex;
-                    }
-                    i++; // increment past low surrogate
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = text.charAt(i);
+            // Everything from space up to the surrogates is allowed.
+            // That's nearly all text, and needs no table lookup.
+            if (c >= ' ' && c < 0xD800) continue;
+            if (c <= 0xDBFF && c >= 0xD800) { 
+                if (i + 1 == len) {
+                    throwIllegalCharacterDataException(text, "Bad Surrogate Pair");
                 }
-                catch (ArrayIndexOutOfBoundsException ex) {
-                    IllegalCharacterDataException ide 
-                      = new IllegalCharacterDataException("Bad Surrogate Pair", ex);
-                    ide.setData(text);
-                    throw ide;
+                int low = text.charAt(i+1);
+                if (low < 0xDC00 || low > 0xDFFF) {
+                    throwIllegalCharacterDataException(text, "Bad surrogate pair");
                 }
+                i++; // increment past low surrogate
                 // all properly matched surrogate pairs are legal in PCDATA
             }  // end if 
-            else if ((flags[result] & XML_CHARACTER) == 0) {
+            else if ((flags[c] & XML_CHARACTER) == 0) {
                 throwIllegalCharacterDataException(text, "0x" 
-                  + Integer.toHexString(result)
+                  + Integer.toHexString(c)
                   + " is not allowed in XML content");
             }
 
@@ -875,38 +869,216 @@ final class Verifier {
     
     // Since namespace URIs are commonly repeated, we can save a lot 
     // of redundant code by storing the ones we've seen before. 
-    private static URICache cache = new URICache(); 
-
-    private final static class URICache {
+    private final static VerifiedCache cache = new VerifiedCache(16, 1024); 
+
+    // A cache of strings that have already passed some check. 
+    // Each entry is either the string itself, or a Name whose 
+    // qualified name is the string.
+    // Every element and attribute in a namespace checks its URI 
+    // here, from however many threads are building documents, so 
+    // the cache takes no locks. It's a two-way set associative table
+    // indexed by hash code. Lookups only read it. Races between 
+    // writers can lose an entry, which only costs a recheck later. 
+    // Entries are immutable, so a reader never sees a partly 
+    // constructed one. The table doubles, up to a limit, whenever
+    // it has evicted as many entries as it has slots.
+    private final static class VerifiedCache {
      
-        private final static int LOAD = 6;
-        private String[] cache = new String[LOAD];
-        private int position = 0;
         
-        synchronized boolean contains(String s) {
+        // The counters are striped by thread, and padded so no two
+        // stripes share a cache line, so counting a hit doesn't make 
+        // every thread fight over one line. They aren't atomic. 
+        // Threads that share a stripe can occasionally lose a count.
+        private final static int STRIPES = 64;
+        private final static int PADDING = 8;
+        
+        private final int maximumSize;
+        private volatile Object[] entries;
+        private int evictions = 0;
+        private final long[] hits = new long[STRIPES * PADDING];
+        private final long[] misses = new long[STRIPES * PADDING];
+        
+        // sizes must be powers of two
+        VerifiedCache(int initialSize, int maximumSize) {
+            this.entries = new Object[initialSize];
+            this.maximumSize = maximumSize;
+        }
+        
+        boolean contains(String s) {
+            return get(s) != null;
+        }
+        
+        Object get(String s) {
             
-            for (int i = 0; i < LOAD; i++) {
-                // Here I'm assuming the namespace URIs are interned.
-                // This is commonly but not always true. This won't
-                // break if they haven't been. Using equals() instead 
-                // of == is faster when the namespace URIs haven't been
-                // interned but slower if they have.
-                if (s == cache[i]) {
-                    return true;
+            Object[] table = entries;
+            int hash = s.hashCode();
+            int index = index(hash, table.length);
+            Object entry = table[index];
+            if (!matches(entry, s, hash)) {
+                entry = table[index ^ 1];
+                if (!matches(entry, s, hash)) {
+                    misses[stripe()]++;
+                    return null;
                 }
             }
-            return false;
+            hits[stripe()]++;
+            return entry;
+            
+        }
+        
+        private static String getKey(Object entry) {
+            if (entry instanceof Name) return ((Name) entry).qualifiedName;
+            return (String) entry;
+        }
+        
+        // Namespace URIs and names are usually interned, and subsets 
+        // are usually the same constant, so identity is checked first. 
+        // Equal strings that aren't the same object still match.
+        private static boolean matches(Object entry, String s, int hash) {
             
+            if (entry == null) return false;
+            String key = getKey(entry);
+            return key == s || (key.hashCode() == hash && key.equals(s));
+            
+        }
+        
+        private static int index(int hash, int length) {
+            return (hash ^ (hash >>> 16)) & (length - 1);
+        }
+        
+        private static int stripe() {
+            return ((int) Thread.currentThread().getId() & (STRIPES - 1)) 
+              * PADDING;
         }
 
-        synchronized void put(String s) {
-            cache[position] = s;
-            position++;
-            if (position == LOAD) position = 0;
+        void put(Object entry) {
+            
+            Object[] table = entries;
+            int index = index(getKey(entry).hashCode(), table.length);
+            if (table[index] == null) table[index] = entry;
+            else if (table[index ^ 1] == null) table[index ^ 1] = entry;
+            else {
+                // Keep the most recent entry in the first way, and 
+                // push the older one into the second.
+                table[index ^ 1] = table[index];
+                table[index] = entry;
+                evictions++;
+                if (evictions >= table.length && table.length < maximumSize) {
+                    grow(table);
+                }
+            }
+            
+        }
+        
+        private void grow(Object[] table) {
+            
+            Object[] larger = new Object[table.length * 2];
+            for (int i = 0; i < table.length; i++) {
+                Object entry = table[i];
+                if (entry == null) continue;
+                int index = index(getKey(entry).hashCode(), larger.length);
+                if (larger[index] == null) larger[index] = entry;
+                else if (larger[index ^ 1] == null) larger[index ^ 1] = entry;
+            }
+            evictions = 0;
+            entries = larger;
+            
+        }
+        
+        int size() {
+            return entries.length;
+        }
+        
+        long getHitCount() {
+            return sum(hits);
+        }
+        
+        long getMissCount() {
+            return sum(misses);
+        }
+        
+        private static long sum(long[] counts) {
+            
+            long total = 0;
+            for (int i = 0; i < counts.length; i += PADDING) {
+                total += counts[i];
+            }
+            return total;
+            
+        }
+        
+    }
+    
+    
+    // A qualified name split into its prefix and local name. Once a
+    // name has been used successfully, every element or attribute 
+    // constructed with it shares the same prefix and local name 
+    // strings, and none of them check or split it again.
+    static final class Name {
+        
+        final String qualifiedName;
+        final String prefix;
+        final String localName;
+        
+        private Name(String qualifiedName, String prefix, String localName) {
+            this.qualifiedName = qualifiedName;
+            this.prefix = prefix;
+            this.localName = localName;
         }
         
     }
     
+    // Names are cached separately for elements and attributes 
+    // because the rules differ slightly. For instance, an element can
+    // be named xmlns but an attribute can't. Only names that were
+    // actually used to construct an element or attribute are cached.
+    private final static VerifiedCache elementNames = new VerifiedCache(32, 512); 
+    private final static VerifiedCache attributeNames = new VerifiedCache(32, 512); 
+    
+    
+    static Name getElementName(String qualifiedName) {
+        return (Name) elementNames.get(qualifiedName);
+    }
+    
+    
+    static void putElementName(String qualifiedName, 
+      String prefix, String localName) {
+        elementNames.put(new Name(qualifiedName, prefix, localName));
+    }
+    
+    
+    static Name getAttributeName(String qualifiedName) {
+        return (Name) attributeNames.get(qualifiedName);
+    }
+    
+    
+    static void putAttributeName(String qualifiedName, 
+      String prefix, String localName) {
+        attributeNames.put(new Name(qualifiedName, prefix, localName));
+    }
+    
+    
+    // Diagnostics for the namespace URI cache. The counts are
+    // approximate when several threads are verifying URIs.
+    static long getURICacheHitCount() {
+        return cache.getHitCount();
+    }
+    
+    
+    static long getURICacheMissCount() {
+        return cache.getMissCount();
+    }
+    
+    
+    static int getURICacheSize() {
+        return cache.size();
+    }
+    
+    
+    static long getSubsetCacheHitCount() {
+        return subsets.getHitCount();
+    }
+    
     
     /**
      * <p>
@@ -1345,14 +1517,15 @@ final class Verifier {
     }
 
     
-    // For use in checking internal DTD subsets 
-    private static XMLReader parser;
-
-    static synchronized void checkInternalDTDSubset(String subset) {
-
-        if (parser == null) {
+    // For use in checking internal DTD subsets. Parsers aren't 
+    // thread safe, so each thread gets its own.
+    private final static ThreadLocal<XMLReader> parsers 
+      = new ThreadLocal<XMLReader>() {
+        
+        protected XMLReader initialValue() {
+            
             final InputSource empty = new InputSource(new EmptyReader());
-            parser = Builder.findParser(false);
+            XMLReader parser = Builder.findParser(false);
             // parser = new org.apache.crimson.parser.XMLReaderImpl();
             // Now let's stop this parser from loading any external
             // entities the subset references
@@ -1363,8 +1536,20 @@ final class Verifier {
                 }   
             
             });
+            return parser;
+            
         }
         
+    };
+    
+    // Programs that generate documents tend to give all of them the
+    // same internal DTD subset, so there's no need to parse it again.
+    private final static VerifiedCache subsets = new VerifiedCache(16, 64); 
+
+    static void checkInternalDTDSubset(String subset) {
+
+        if (subsets.contains(subset)) return;
+        XMLReader parser = parsers.get();
         String doc = "<!DOCTYPE a [" + subset + "]><a/>";
         try {
             InputSource source = new InputSource(new StringReader(doc));
@@ -1373,6 +1558,7 @@ final class Verifier {
             // prevents that
             source.setSystemId("http://www.example.org/");
             parser.parse(source);
+            subsets.put(subset);
         }
         catch (SAXException ex) {
             IllegalDataException idex = new IllegalDataException(
@@ -57,9 +57,42 @@ class XOMHandler
     protected NodeFactory   factory;
               boolean       usingCrimson = false;
     
+    // false when the factory only overrides the older method that 
+    // returns Nodes, so it has to be called instead of the single 
+    // node method
+    private final boolean singleElement;
+    private final boolean singleAttribute;
+    private final boolean singleText;
+    private final boolean singleComment;
+    private final boolean singleProcessingInstruction;
+    private final boolean singleDocType;
+    
+    // Builder options that leave nodes out of the tree 
+    boolean ignoringBoundaryWhitespace = false;
+    boolean ignoringComments = false;
+    boolean ignoringProcessingInstructions = false;
+    boolean ignoringInternalDTDSubset = false;
+    
+    // The xml:space scopes of the open elements, only tracked
+    // when ignoring boundary white space
+    private boolean   preservingSpace;
+    private boolean[] spaceScopes = new boolean[16];
+    private int       spaceDepth;
+    
     
     XOMHandler(NodeFactory factory) {
+        
         this.factory = factory; 
+        singleElement = !factory.usesNodes("finishMakingElement", Element.class);
+        singleAttribute = !factory.usesNodes("makeAttribute", 
+          String.class, String.class, String.class, Attribute.Type.class);
+        singleText = !factory.usesNodes("makeText", String.class);
+        singleComment = !factory.usesNodes("makeComment", String.class);
+        singleProcessingInstruction = !factory.usesNodes(
+          "makeProcessingInstruction", String.class, String.class);
+        singleDocType = !factory.usesNodes("makeDocType", 
+          String.class, String.class, String.class);
+        
     }   
     
     
@@ -111,6 +144,8 @@ class XOMHandler
         }
         buffer = null;
         textString = null;
+        preservingSpace = false;
+        spaceDepth = 0;
         
     }
   
@@ -125,6 +160,7 @@ class XOMHandler
       String qualifiedName, org.xml.sax.Attributes attributes) throws SAXException {
 
         flushText();
+        enterSpaceScope(attributes);
         Element element;
         if (parent != document) {
             element = factory.startMakingElement(qualifiedName, namespaceURI);
@@ -175,12 +211,22 @@ class XOMHandler
                 else {
                     String namespace = attributes.getURI(i);
                     String value = attributes.getValue(i);
+                    Attribute.Type type 
+                      = convertStringToType(attributes.getType(i));
+                    if (singleAttribute) {
+                        Node node = factory.makeAttributeNode(
+                          qName, namespace, value, type);
+                        if (node == null) continue;
+                        if (node.isAttribute()) {
+                            factory.addAttribute(element, (Attribute) node);
+                        }
+                        else {
+                            factory.insertChild(element, node, 0);   
+                        }
+                        continue;
+                    }
                     Nodes nodes = factory.makeAttribute(
-                      qName, 
-                      namespace, 
-                      value, 
-                      convertStringToType(attributes.getType(i))
-                    );
+                      qName, namespace, value, type);
                     int numberChildren = 0;
                     for (int j=0; j < nodes.size(); j++) {
                         Node node = nodes.get(j);
@@ -233,10 +279,18 @@ class XOMHandler
         // we need to reset current to null, not to the parent
         current = (ParentNode) parents.remove(parents.size()-1);
         flushText();
+        exitSpaceScope();
         
         if (current != null) {
             parent = current.getParent();
-            Nodes result = factory.finishMakingElement((Element) current);
+            Nodes result;
+            if (singleElement) {
+                Node node = factory.finishMakingElementNode((Element) current);
+                // the usual case, where the element stays where it is
+                if (node == current) return;
+                result = node == null ? new Nodes() : new Nodes(node);
+            }
+            else result = factory.finishMakingElement((Element) current);
             
             // Optimization for default case where result only contains current
             if (result.size() != 1 || result.get(0) != current) {            
@@ -351,31 +405,117 @@ class XOMHandler
             buffer = null;
         }
         
-        if (textString != null) {
-            Nodes result;
-            if (!inCDATA) {
-                result = factory.makeText(textString);
+        if (textString != null && !isBoundaryWhitespace(textString)) {
+            if (singleText) {
+                Node node;
+                if (!inCDATA) node = factory.makeTextNode(textString);
+                else node = factory.makeCDATASectionNode(textString);
+                if (node != null) appendToParent(node);
             }
             else {
-                result = factory.makeCDATASection(textString);
-            }
-            for (int i=0; i < result.size(); i++) {
-                Node node = result.get(i);
-                if (node.isAttribute()) {
-                    ((Element) parent).addAttribute((Attribute) node);
+                Nodes result;
+                if (!inCDATA) {
+                    result = factory.makeText(textString);
                 }
                 else {
-                    parent.appendChild(node);   
+                    result = factory.makeCDATASection(textString);
+                }
+                for (int i=0; i < result.size(); i++) {
+                    appendToParent(result.get(i));
                 }
             }
-            textString = null;
         }
+        textString = null;
         inCDATA = false;
         finishedCDATA = false;
         
     }
   
     
+    // Text that's all white space outside any CDATA section or 
+    // xml:space="preserve" scope
+    protected boolean isBoundaryWhitespace(String text) {
+        
+        if (!ignoringBoundaryWhitespace || inCDATA || preservingSpace) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Verifier.isXMLSpaceCharacter(text.charAt(i))) return false;
+        }
+        return true;
+        
+    }
+    
+    
+    // Call after flushing the text before the start-tag
+    protected void enterSpaceScope(org.xml.sax.Attributes attributes) {
+        
+        if (!ignoringBoundaryWhitespace) return;
+        if (spaceDepth == spaceScopes.length) {
+            boolean[] newScopes = new boolean[spaceDepth * 2];
+            System.arraycopy(spaceScopes, 0, newScopes, 0, spaceDepth);
+            spaceScopes = newScopes;
+        }
+        spaceScopes[spaceDepth] = preservingSpace;
+        spaceDepth++;
+        if (attributes.getLength() > 0) {
+            String space = attributes.getValue(
+              "http://www.w3.org/XML/1998/namespace", "space");
+            if (space != null) preservingSpace = "preserve".equals(space);
+        }
+        
+    }
+    
+    
+    // Call after flushing the text before the end-tag
+    protected void exitSpaceScope() {
+        
+        if (!ignoringBoundaryWhitespace) return;
+        spaceDepth--;
+        preservingSpace = spaceScopes[spaceDepth];
+        
+    }
+    
+    
+    private void appendToParent(Node node) {
+        
+        if (node.isAttribute()) {
+            ((Element) parent).addAttribute((Attribute) node);
+        }
+        else {
+            parent.appendChild(node);   
+        }
+        
+    }
+    
+    
+    // Adds a node a factory made for a comment or 
+    // processing instruction
+    private void addMiscellaneous(Node node) {
+        
+        if (!inDTD) {
+            if (inProlog) {
+                parent.insertChild(node, position);
+                position++;
+            }
+            else appendToParent(node);
+        }
+        else {
+            if (node.isProcessingInstruction() || node.isComment()) {
+                internalDTDSubset.append("  ");            
+                internalDTDSubset.append(node.toXML());            
+                internalDTDSubset.append("\n");            
+            }
+            else {
+                throw new XMLException("Factory tried to put a " 
+                  + node.getClass().getName() 
+                  + " in the internal DTD subset");   
+            }
+        }
+        
+    }
+  
+    
     public void ignorableWhitespace(
       char[] text, int start, int length) throws SAXException {
         characters(text, start, length);
@@ -383,41 +523,23 @@ class XOMHandler
   
     
     public void processingInstruction(String target, String data) throws SAXException {
-              
+        
+        // return before flushing so the text on either side is joined
+        if (ignoringProcessingInstructions) return;
         if (inDTD) {
             if (!inInternalSubset()) return;
         }
         else {
             flushText();
         }
+        if (singleProcessingInstruction) {
+            Node node = factory.makeProcessingInstructionNode(target, data);
+            if (node != null) addMiscellaneous(node);
+            return;
+        }
         Nodes result = factory.makeProcessingInstruction(target, data);
-        
         for (int i = 0; i < result.size(); i++) {
-            Node node = result.get(i);
-            if (!inDTD) {
-                if (inProlog) {
-                    parent.insertChild(node, position);
-                    position++;
-                }
-                else {
-                    if (node.isAttribute()) {
-                        ((Element) parent).addAttribute((Attribute) node);
-                    }
-                    else parent.appendChild(node);
-                }
-            }
-            else {
-                if (node.isProcessingInstruction() || node.isComment()) {
-                    internalDTDSubset.append("  ");            
-                    internalDTDSubset.append(node.toXML());            
-                    internalDTDSubset.append("\n");            
-                }
-                else {
-                    throw new XMLException("Factory tried to put a " 
-                      + node.getClass().getName() 
-                      + " in the internal DTD subset");   
-                }
-            }            
+            addMiscellaneous(result.get(i));
         }
 
     }
@@ -443,16 +565,27 @@ class XOMHandler
       String systemID) throws SAXException {
       
         inDTD = true;
+        if (singleDocType) {
+            Node node = factory.makeDocTypeNode(rootName, publicID, systemID);
+            if (node != null) addToProlog(node);
+            return;
+        }
         Nodes result = factory.makeDocType(rootName, publicID, systemID);
         for (int i = 0; i < result.size(); i++) {
-            Node node = result.get(i);
-            document.insertChild(node, position);
-            position++;
-            if (node.isDocType()) {
-                DocType doctype = (DocType) node;
-                internalDTDSubset = new StringBuilder(); 
-                this.doctype = doctype;
-            }
+            addToProlog(result.get(i));
+        }
+        
+    }
+    
+    
+    private void addToProlog(Node node) {
+        
+        document.insertChild(node, position);
+        position++;
+        if (node.isDocType() && !ignoringInternalDTDSubset) {
+            DocType doctype = (DocType) node;
+            internalDTDSubset = new StringBuilder(); 
+            this.doctype = doctype;
         }
         
     }
@@ -501,6 +634,8 @@ class XOMHandler
     
     public void comment(char[] text, int start, int length) throws SAXException {
     
+        // return before flushing so the text on either side is joined
+        if (ignoringComments) return;
         if (inDTD) {
             if (!inInternalSubset()) return;
         }
@@ -508,34 +643,15 @@ class XOMHandler
             flushText();
         }
 
-        Nodes result = factory.makeComment(new String(text, start, length));
-        
+        String data = new String(text, start, length);
+        if (singleComment) {
+            Node node = factory.makeCommentNode(data);
+            if (node != null) addMiscellaneous(node);
+            return;
+        }
+        Nodes result = factory.makeComment(data);
         for (int i = 0; i < result.size(); i++) {
-            Node node = result.get(i);
-            if (!inDTD) {
-                if (inProlog) {
-                    parent.insertChild(node, position);
-                    position++;
-                }
-                else {
-                    if (node instanceof Attribute) {
-                        ((Element) parent).addAttribute((Attribute) node);
-                    }
-                    else parent.appendChild(node);
-                }
-            }
-            else {
-                if (node.isComment() || node.isProcessingInstruction()) {
-                    internalDTDSubset.append("  ");            
-                    internalDTDSubset.append(node.toXML());            
-                    internalDTDSubset.append("\n");            
-                }
-                else {
-                    throw new XMLException("Factory tried to put a " 
-                      + node.getClass().getName() 
-                      + " in the internal DTD subset");   
-                }
-            }            
+            addMiscellaneous(result.get(i));
         }
 
     }    
@@ -569,6 +685,9 @@ class XOMHandler
     // It is not intended for use anywhere in the document.
     protected boolean inInternalSubset() {
 
+        // When the internal subset isn't recorded, everything in 
+        // it is skipped just like the external subset.
+        if (ignoringInternalDTDSubset) return false;
         if (!usingCrimson) {
             return !inExternalSubset;
         }
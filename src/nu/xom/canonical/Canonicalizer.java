@@ -21,21 +21,24 @@
 package nu.xom.canonical;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
-import java.util.Map.Entry;
-
-import org.xml.sax.helpers.NamespaceSupport;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import nu.xom.Attribute;
 import nu.xom.Comment;
@@ -49,7 +52,6 @@ import nu.xom.ParentNode;
 import nu.xom.ProcessingInstruction;
 import nu.xom.Serializer;
 import nu.xom.Text;
-import nu.xom.XPathContext;
 
 /**
  * <p>
@@ -61,7 +63,7 @@ import nu.xom.XPathContext;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.3.1
+ * @version 1.4.7
  *
  */
 public class Canonicalizer {
@@ -241,13 +243,148 @@ public class Canonicalizer {
     }
 
 
+    /**
+     * <p>
+     * Creates a <code>Canonicalizer</code> that feeds the canonical
+     * form straight into a message digest using the specified
+     * algorithm. The output is never buffered in full, so large
+     * documents can be hashed in constant memory. Call
+     * <code>digest()</code> on the <code>MessageDigest</code> once
+     * everything to be hashed has been written.
+     * </p>
+     *
+     * @param digest the message digest the canonical form is
+     *     written into
+     * @param algorithm the URI for the canonicalization algorithm
+     *
+     * @throws CanonicalizationException if the algorithm is
+     *     not recognized
+     * @throws NullPointerException if the digest or the algorithm
+     *     is null
+     */
+    public Canonicalizer(MessageDigest digest, String algorithm) {
+        this(new MessageDigest[] {digest}, algorithm);
+    }
+
+
+    /**
+     * <p>
+     * Creates a <code>Canonicalizer</code> that feeds the canonical
+     * form into several message digests at once, for instance
+     * when the same reference must be hashed with more than one
+     * digest algorithm.
+     * </p>
+     *
+     * @param digests the message digests the canonical form is
+     *     written into
+     * @param algorithm the URI for the canonicalization algorithm
+     *
+     * @throws CanonicalizationException if the algorithm is
+     *     not recognized
+     * @throws NullPointerException if any digest or the algorithm
+     *     is null
+     */
+    public Canonicalizer(MessageDigest[] digests, String algorithm) {
+        this(new DigestingOutputStream(digests), algorithm);
+    }
+
+
+    // The xml: attributes of one element, linked to those of the
+    // nearest ancestor that has any
+    private static final class XMLAttributes {
+        
+        final Element       element;
+        final Attribute[]   attributes;
+        final XMLAttributes parent;
+        
+        XMLAttributes(Element element, Attribute[] attributes, XMLAttributes parent) {
+            this.element = element;
+            this.attributes = attributes;
+            this.parent = parent;
+        }
+        
+    }
+
+
+    // A stack of prefix bindings, innermost last. Unlike 
+    // NamespaceSupport, this doesn't copy any tables when an 
+    // element declares a namespace.
+    private static final class PrefixStack {
+        
+        private String[] prefixes = new String[16];
+        private String[] uris = new String[16];
+        private int size = 0;
+        private int[] marks = new int[16];
+        private int depth = 0;
+        
+        void clear() {
+            size = 0;
+            depth = 0;
+        }
+        
+        void push() {
+            if (depth == marks.length) {
+                int[] newMarks = new int[depth * 2];
+                System.arraycopy(marks, 0, newMarks, 0, depth);
+                marks = newMarks;
+            }
+            marks[depth++] = size;
+        }
+        
+        void pop() {
+            size = marks[--depth];
+        }
+        
+        void declare(String prefix, String uri) {
+            if (size == prefixes.length) {
+                String[] newPrefixes = new String[size * 2];
+                System.arraycopy(prefixes, 0, newPrefixes, 0, size);
+                prefixes = newPrefixes;
+                String[] newURIs = new String[size * 2];
+                System.arraycopy(uris, 0, newURIs, 0, size);
+                uris = newURIs;
+            }
+            prefixes[size] = prefix;
+            uris[size] = uri;
+            size++;
+        }
+        
+        // returns null if the prefix isn't bound
+        String getURI(String prefix) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (prefixes[i].equals(prefix)) return uris[i];
+            }
+            return null;
+        }
+        
+    }
+
+
     private class CanonicalXMLSerializer extends Serializer {
         
         // If nodes is null we're canonicalizing all nodes;
         // the entire document; this is somewhat easier than when
         // canonicalizing only a document subset embedded in nodes
         private Nodes nodes;
-        private NamespaceSupport inScope;
+        // the same nodes, for constant time membership tests
+        private Set<Node> selected;
+        // the position of each selected element in nodes
+        private Map<Node, Integer> positions;
+        // namespaces declared in the output
+        private PrefixStack rendered = new PrefixStack();
+        // For exclusive canonicalization, the prefixes that each
+        // open output element visibly utilizes
+        private PrefixStack used = new PrefixStack();
+        // scratch space for the start-tag being written
+        private String[] candidatePrefixes = new String[8];
+        private String[] candidateURIs = new String[8];
+        private int candidateCount;
+        private String[] declaredPrefixes = new String[8];
+        private String[] declaredURIs = new String[8];
+        private int declarationCount;
+        private Attribute[] sorted = new Attribute[8];
+        // xml: attributes of the ancestors of the element being written
+        private XMLAttributes inherited;
 
         /**
          * <p>
@@ -265,6 +402,27 @@ public class Canonicalizer {
             setLineSeparator("\n");
         }
 
+
+        void setNodes(Nodes nodes) {
+            
+            this.nodes = nodes;
+            this.inherited = null;
+            if (nodes == null) {
+                selected = null;
+                positions = null;
+                return;
+            }
+            int size = nodes.size();
+            selected = new HashSet<Node>(size * 2);
+            positions = new HashMap<Node, Integer>();
+            for (int i = 0; i < size; i++) {
+                Node node = nodes.get(i);
+                selected.add(node);
+                if (node instanceof Element) positions.put(node, i);
+            }
+            
+        }
+
         
         /**
          * <p>
@@ -279,11 +437,12 @@ public class Canonicalizer {
          */
          public final void write(Document doc) throws IOException {
             
-            inScope = new NamespaceSupport();
+            rendered.clear();
+            used.clear();
             int position = 0;        
             while (true) {
                 Node child = doc.getChild(position);
-                if (nodes == null || child instanceof Element || nodes.contains(child)) {
+                if (nodes == null || child instanceof Element || selected.contains(child)) {
                     writeChild(child); 
                     if (child instanceof ProcessingInstruction) breakLine();
                     else if (child instanceof Comment && withComments) {
@@ -296,7 +455,7 @@ public class Canonicalizer {
             
             for (int i = position; i < doc.getChildCount(); i++) {
                 Node child = doc.getChild(i);
-                if (nodes == null || child instanceof Element || nodes.contains(child)) {
+                if (nodes == null || child instanceof Element || selected.contains(child)) {
                     if (child instanceof ProcessingInstruction) breakLine();
                     else if (child instanceof Comment && withComments) {
                         breakLine();
@@ -391,32 +550,31 @@ public class Canonicalizer {
         protected void writeStartTag(Element element, boolean isEmpty) 
           throws IOException {
             
-            boolean writeElement = nodes == null || nodes.contains(element);
+            boolean writeElement = nodes == null || selected.contains(element);
             if (writeElement) {
-                inScope.pushContext();
+                rendered.push();
                 writeRaw("<");
                 writeRaw(element.getQualifiedName());
             }
             
-            SortedMap<String, String> map = new TreeMap<String, String>();
+            declarationCount = 0;
             if (nodes == null) {
                 ParentNode parent = element.getParent();
                 Element parentElement = null;
                 if (parent instanceof Element) {
                     parentElement = (Element) parent; 
                 } 
-                for (int i = 0; 
-                     i < element.getNamespaceDeclarationCount(); 
-                     i++) {
-                    String prefix = element.getNamespacePrefix(i);
-                    String uri = element.getNamespaceURI(prefix);
+                collectNamespaces(element);
+                for (int i = 0; i < candidateCount; i++) {
+                    String prefix = candidatePrefixes[i];
+                    String uri = candidateURIs[i];
                     
-                    if (uri.equals(inScope.getURI(prefix))) {
+                    if (uri.equals(getRenderedURI(prefix))) {
                         continue;
                     }
                     else if (exclusive) {
                         if (needToDeclareNamespace(element, prefix, uri)) {
-                            map.put(prefix, uri);
+                            declare(prefix, uri);
                         }
                     }
                     else if (uri.equals("")) {
@@ -425,15 +583,15 @@ public class Canonicalizer {
                         if ("".equals(parentElement.getNamespaceURI(""))) {
                             continue;
                         }
-                        map.put(prefix, uri);
+                        declare(prefix, uri);
                     }
                     else {
-                        map.put(prefix, uri);
+                        declare(prefix, uri);
                     }
                     
                 } 
                 
-                writeNamespaceDeclarations(map);
+                writeNamespaceDeclarations();
                 
             }
             else {
@@ -446,13 +604,13 @@ public class Canonicalizer {
                     // Here we have to check for the nearest default on parents in the
                     // output tree, not the input tree
                     while (parent instanceof Element 
-                      && !(nodes.contains(parent))) {
+                      && !(selected.contains(parent))) {
                         parent = parent.getParent();
                     }
                     if (parent instanceof Element) {
                         String uri = ((Element) parent).getNamespaceURI("");
                         if (! "".equals(uri)) {
-                            map.put("", "");
+                            declare("", "");
                         }
                     }
                 }
@@ -464,30 +622,38 @@ public class Canonicalizer {
                     String prefix = namespace.getPrefix();
                     String uri = namespace.getValue();
                     
-                    if (uri.equals(inScope.getURI(prefix))) {
+                    if (uri.equals(getRenderedURI(prefix))) {
                         continue;
                     }
                     else if (exclusive) {
                         if (needToDeclareNamespace(element, prefix, uri)) {
-                            map.put(prefix, uri);
+                            declare(prefix, uri);
                         }
                     }
                     else {
-                        map.put(prefix, uri);
+                        declare(prefix, uri);
                     }
                     
                 } 
                 
-                writeNamespaceDeclarations(map);
+                writeNamespaceDeclarations();
                 
             }
             
-            Attribute[] sorted = sortAttributes(element);        
-            for (int i = 0; i < sorted.length; i++) {
-                if (nodes == null || nodes.contains(sorted[i]) 
-                   || (sorted[i].getNamespaceURI().equals(Namespace.XML_NAMESPACE) && sorted[i].getParent() != element)
+            if (exclusive) {
+                used.push();
+                if (writeElement) useNamespaces(element);
+            }
+            
+            int count = sortAttributes(element);        
+            if (nodes != null && !exclusive) pushXMLAttributes(element);
+            for (int i = 0; i < count; i++) {
+                Attribute attribute = sorted[i];
+                sorted[i] = null;
+                if (nodes == null || selected.contains(attribute) 
+                   || (attribute.getNamespaceURI().equals(Namespace.XML_NAMESPACE) && attribute.getParent() != element)
                    ) {
-                    write(sorted[i]);
+                    write(attribute);
                 }
             }       
             
@@ -498,21 +664,126 @@ public class Canonicalizer {
         }
 
 
-        private void writeNamespaceDeclarations(SortedMap<String, String> map) throws IOException {
+        // Fills candidatePrefixes and candidateURIs with the 
+        // namespaces declared on the element, as 
+        // getNamespacePrefix(int) would list them, without
+        // building a set of prefixes for each index
+        private void collectNamespaces(Element element) {
+
+            candidateCount = 0;
+            String prefix = element.getNamespacePrefix();
+            boolean xmlElement = "xml".equals(prefix);
+            if (!xmlElement) {
+                addCandidate(prefix, element.getNamespaceURI());
+            }
+            int attributeCount = element.getAttributeCount();
+            for (int i = 0; i < attributeCount; i++) {
+                Attribute attribute = element.getAttribute(i);
+                String attributePrefix = attribute.getNamespacePrefix();
+                if (attributePrefix.length() != 0 && !"xml".equals(attributePrefix)) {
+                    addCandidate(attributePrefix, attribute.getNamespaceURI());
+                }
+            }
+            
+            // Only elements with additional namespace declarations
+            // need the slow path
+            int count = element.getNamespaceDeclarationCount();
+            if (xmlElement || count != candidateCount) {
+                candidateCount = 0;
+                for (int i = 0; i < count; i++) {
+                    String additional = element.getNamespacePrefix(i);
+                    addCandidate(additional, element.getNamespaceURI(additional));
+                }
+            }
+
+        }
+
+
+        private void addCandidate(String prefix, String uri) {
+
+            for (int i = 0; i < candidateCount; i++) {
+                if (candidatePrefixes[i].equals(prefix)) return;
+            }
+            if (candidateCount == candidatePrefixes.length) {
+                candidatePrefixes = grow(candidatePrefixes);
+                candidateURIs = grow(candidateURIs);
+            }
+            candidatePrefixes[candidateCount] = prefix;
+            candidateURIs[candidateCount] = uri;
+            candidateCount++;
+
+        }
+
+
+        // Adds a declaration to the start-tag being written,
+        // replacing any earlier declaration of the same prefix
+        private void declare(String prefix, String uri) {
+
+            for (int i = 0; i < declarationCount; i++) {
+                if (declaredPrefixes[i].equals(prefix)) {
+                    declaredURIs[i] = uri;
+                    return;
+                }
+            }
+            if (declarationCount == declaredPrefixes.length) {
+                declaredPrefixes = grow(declaredPrefixes);
+                declaredURIs = grow(declaredURIs);
+            }
+            // insertion sort; there are rarely more than a few
+            int j = declarationCount;
+            while (j > 0 && declaredPrefixes[j-1].compareTo(prefix) > 0) {
+                declaredPrefixes[j] = declaredPrefixes[j-1];
+                declaredURIs[j] = declaredURIs[j-1];
+                j--;
+            }
+            declaredPrefixes[j] = prefix;
+            declaredURIs[j] = uri;
+            declarationCount++;
+
+        }
+
+
+        private String[] grow(String[] array) {
+            String[] result = new String[array.length * 2];
+            System.arraycopy(array, 0, result, 0, array.length);
+            return result;
+        }
+
+
+        private void writeNamespaceDeclarations() throws IOException {
 
-            Iterator<Entry<String, String>> prefixes = map.entrySet().iterator();
-            while (prefixes.hasNext()) {
-                Entry<String, String> entry = (Entry<String, String>) prefixes.next();
-                String prefix = (String) entry.getKey();
-                String uri = (String) entry.getValue();
-                writeRaw(" ");
-                writeNamespaceDeclaration(prefix, uri);
-                inScope.declarePrefix(prefix, uri);
+            for (int i = 0; i < declarationCount; i++) {
+                String prefix = declaredPrefixes[i];
+                String uri = declaredURIs[i];
+                if ("".equals(prefix)) {
+                    writeRaw(" xmlns=\"");
+                }
+                else {
+                    writeRaw(" xmlns:");
+                    writeRaw(prefix);
+                    writeRaw("=\"");
+                }
+                writeRaw(escapeText(uri));
+                writeRaw("\"");
+                rendered.declare(prefix, uri);
             }
             
         }
 
 
+        // The URI a prefix is bound to in the output so far, with
+        // the same conventions as NamespaceSupport.getURI
+        private String getRenderedURI(String prefix) {
+            
+            if ("xml".equals(prefix)) return Namespace.XML_NAMESPACE;
+            String uri = rendered.getURI(prefix);
+            // an undeclared default namespace has no URI
+            if ("".equals(uri)) return null;
+            return uri;
+            
+        }
+
+
         private boolean needToDeclareNamespace(
           Element parent, String prefix, String uri) {
 
@@ -538,9 +809,10 @@ public class Canonicalizer {
             else {
                 for (int i = 0; i < element.getAttributeCount(); i++) {
                     Attribute attribute = element.getAttribute(i);
-                    if (nodes == null || nodes.contains(attribute)) {
+                    if (nodes == null || selected.contains(attribute)) {
+                        // unprefixed attributes are in no namespace
                         pfx = attribute.getNamespacePrefix();
-                        if (prefix.equals(pfx)) {
+                        if (pfx.length() != 0 && prefix.equals(pfx)) {
                             match = true;
                             break;
                         }
@@ -551,6 +823,25 @@ public class Canonicalizer {
         }
 
 
+        // Records the prefixes an output element uses, and the 
+        // URIs they have there, so that its descendants can 
+        // find the nearest output ancestor that uses a prefix
+        // without walking up the tree
+        private void useNamespaces(Element element) {
+
+            used.declare(element.getNamespacePrefix(), element.getNamespaceURI());
+            for (int i = 0; i < element.getAttributeCount(); i++) {
+                Attribute attribute = element.getAttribute(i);
+                String prefix = attribute.getNamespacePrefix();
+                // unprefixed attributes don't use the default namespace
+                if (prefix.length() != 0) {
+                    used.declare(prefix, element.getNamespaceURI(prefix));
+                }
+            }
+
+        }
+
+
         private boolean noOutputAncestorUsesPrefix(Element original, String prefix, String uri) {
 
             ParentNode parent = original.getParent();
@@ -558,37 +849,19 @@ public class Canonicalizer {
                 return false;
             }
             
-            while (parent != null && !(parent instanceof Document)) {
-                if (nodes == null || nodes.contains(parent)) {
-                    Element element = (Element) parent;
-                    String pfx = element.getNamespacePrefix();
-                    if (pfx.equals(prefix)) {
-                        String newURI = element.getNamespaceURI(prefix);
-                        return ! newURI.equals(uri);                        
-                    }
-                    
-                    for (int i = 0; i < element.getAttributeCount(); i++) {
-                        Attribute attribute = element.getAttribute(i);
-                        String current = attribute.getNamespacePrefix();
-                        if (current.equals(prefix)) {
-                            String newURI = element.getNamespaceURI(prefix);
-                            return ! newURI.equals(uri);
-                        }
-                    }
-                }
-                parent = parent.getParent();
-            }
-            return true;
+            String ancestorURI = used.getURI(prefix);
+            // no need to say xmlns="" if no output ancestor
+            // uses a default namespace
+            if (ancestorURI == null) return ! "".equals(uri);
+            return ! ancestorURI.equals(uri);
             
         }
 
 
-        // ???? move into Nodes?
         private int indexOf(Element element) {
-            for (int i = 0; i < nodes.size(); i++) {
-                if (nodes.get(i) == element) return i;
-            }
-            return -1;
+            Integer position = positions.get(element);
+            if (position == null) return -1;
+            return position.intValue();
         }
 
 
@@ -605,32 +878,59 @@ public class Canonicalizer {
         
         protected void writeEndTag(Element element) throws IOException {
             
-            if (nodes == null || nodes.contains(element)) {
+            if (nodes == null || selected.contains(element)) {
                 writeRaw("</");
                 writeRaw(element.getQualifiedName());
                 writeRaw(">");
-                inScope.popContext();
+                rendered.pop();
+            }
+            if (exclusive) used.pop();
+            if (inherited != null && inherited.element == element) {
+                inherited = inherited.parent;
             }
             
         }    
         
-        private final XPathContext xmlcontext = new XPathContext("xml", Namespace.XML_NAMESPACE);
+        // Pushes the element's xml: attributes onto the inherited 
+        // stack, where its descendants can find them without 
+        // searching their ancestors. 
+        private void pushXMLAttributes(Element element) {
+            
+            int count = element.getAttributeCount();
+            int xmlCount = 0;
+            for (int i = 0; i < count; i++) {
+                Attribute a = element.getAttribute(i);
+                if (Namespace.XML_NAMESPACE.equals(a.getNamespaceURI())) xmlCount++;
+            }
+            if (xmlCount == 0) return;
+            Attribute[] attributes = new Attribute[xmlCount];
+            xmlCount = 0;
+            for (int i = 0; i < count; i++) {
+                Attribute a = element.getAttribute(i);
+                if (Namespace.XML_NAMESPACE.equals(a.getNamespaceURI())) {
+                    attributes[xmlCount++] = a;
+                }
+            }
+            inherited = new XMLAttributes(element, attributes, inherited);
+            
+        }
+        
         
-        private Attribute[] sortAttributes(Element element) {
+        // Fills sorted with the attributes to write in canonical 
+        // order, and returns how many there are
+        private int sortAttributes(Element element) {
     
-            Map<String, Attribute> nearest = new TreeMap<String, Attribute>();
+            Map<String, Attribute> nearest = null;
+            // an attribute of the element replaced in the output
+            Attribute replaced = null;
             // add in any inherited xml: attributes
-            if (!exclusive && nodes != null && nodes.contains(element) 
-              && !nodes.contains(element.getParent())) {
-                // grab all xml: attributes
-                Nodes attributes = element.query("ancestor::*/@xml:*", xmlcontext);
-                if (attributes.size() != 0) {
-                    // It's important to count backwards here because
-                    // XPath returns all nodes in document order, which 
-                    // is top-down. To get the nearest we need to go 
-                    // bottom up instead.
-                    for (int i = attributes.size()-1; i >= 0; i--) {
-                        Attribute a = (Attribute) attributes.get(i);
+            if (!exclusive && nodes != null && selected.contains(element) 
+              && !selected.contains(element.getParent())) {
+                nearest = new TreeMap<String, Attribute>();
+                // The nearest ancestors come first in the stack
+                for (XMLAttributes frame = inherited; frame != null; frame = frame.parent) {
+                    for (int i = 0; i < frame.attributes.length; i++) {
+                        Attribute a = frame.attributes[i];
                         String name = a.getLocalName();
                         if (element.getAttribute(name, Namespace.XML_NAMESPACE) != null) {
                             // this element already has that attribute
@@ -640,8 +940,7 @@ public class Canonicalizer {
                         }
                         if (! nearest.containsKey(name)) {
                             if (!v11 || "lang".equals(name) || "space".equals(name)) {
-                                Element parent = (Element) a.getParent();
-                                if (! nodes.contains(parent)) {
+                                if (! selected.contains(frame.element)) {
                                     nearest.put(name, a);
                                 }
                                 else {
@@ -665,7 +964,7 @@ public class Canonicalizer {
                     String baseValue = "";
                     if (baseAttribute != null) {
                         baseValue = baseAttribute.getValue();
-                        element.removeAttribute(baseAttribute);
+                        replaced = baseAttribute;
                     }
                     if (!bases.isEmpty()) {
                       for (int i = 0; i < bases.size(); i++) {
@@ -679,21 +978,36 @@ public class Canonicalizer {
             }
 
             
+            // Don't modify the document; it may be shared with other threads
             int localCount = element.getAttributeCount();
-            Attribute[] result 
-              = new Attribute[localCount + nearest.size()];
+            int count = localCount;
+            if (nearest != null) count += nearest.size();
+            if (sorted.length < count) sorted = new Attribute[count];
+            count = 0;
             for (int i = 0; i < localCount; i++) {
-                result[i] = element.getAttribute(i); 
+                Attribute a = element.getAttribute(i);
+                if (a != replaced) insert(a, count++); 
             }
             
-            Iterator<Attribute> iterator = nearest.values().iterator();
-            for (int j = localCount; j < result.length; j++) {
-                result[j] = iterator.next();
+            if (nearest != null) {
+                Iterator<Attribute> iterator = nearest.values().iterator();
+                while (iterator.hasNext()) insert(iterator.next(), count++);
             }
             
-            Arrays.sort(result, comparator);       
+            return count;        
+            
+        }
+        
+        
+        // insertion sort; elements rarely have many attributes
+        private void insert(Attribute attribute, int count) {
             
-            return result;        
+            int j = count;
+            while (j > 0 && comparator.compare(sorted[j-1], attribute) > 0) {
+                sorted[j] = sorted[j-1];
+                j--;
+            }
+            sorted[j] = attribute;
             
         }
 
@@ -702,7 +1016,7 @@ public class Canonicalizer {
             ArrayList<String> bases = new ArrayList<String>();
             // TODO(elharo): rework this to not need this next variable
             ParentNode parent = element.getParent();
-            while (parent != null && parent instanceof Element && !nodes.contains(parent)) {
+            while (parent != null && parent instanceof Element && !selected.contains(parent)) {
                 Element parentElement = (Element) parent;
                 String base = parentElement.getAttributeValue("base", Namespace.XML_NAMESPACE);
                 if (base != null) bases.add(base);
@@ -716,8 +1030,22 @@ public class Canonicalizer {
         private String prepareAttributeValue(Attribute attribute) {
     
             String value = attribute.getValue();
-            StringBuilder result = new StringBuilder(value.length());
     
+            if (attribute.getType().equals(Attribute.Type.CDATA)
+              || attribute.getType().equals(Attribute.Type.UNDECLARED)) {
+                // most values don't need escaping at all
+                int length = value.length();
+                int first = 0;
+                while (first < length) {
+                    char c = value.charAt(first);
+                    if (c == '\t' || c == '\n' || c == '\r' 
+                      || c == '"' || c == '&' || c == '<') break;
+                    first++;
+                }
+                if (first == length) return value;
+            }
+            
+            StringBuilder result = new StringBuilder(value.length() + 16);
             if (attribute.getType().equals(Attribute.Type.CDATA)
               || attribute.getType().equals(Attribute.Type.UNDECLARED)) {
                 char[] data = value.toCharArray();
@@ -810,31 +1138,48 @@ public class Canonicalizer {
          */
         protected final void write(Text text) throws IOException {
             
-            if (nodes == null || nodes.contains(text)) {
-                String input = text.getValue();
-                StringBuilder result = new StringBuilder(input.length());
-                for (int i = 0; i < input.length(); i++) {
-                    char c = input.charAt(i);
-                    if (c == '\r') {
-                        result.append("&#xD;");
-                    }
-                    else if (c == '&') {
-                        result.append("&amp;");
-                    }
-                    else if (c == '<') {
-                        result.append("&lt;");
-                    }
-                    else if (c == '>') {
-                        result.append("&gt;");
-                    }
-                    else { 
-                        result.append(c);   
-                    }            
-                }
-                writeRaw(result.toString());
+            if (nodes == null || selected.contains(text)) {
+                writeRaw(escapeText(text.getValue()));
             }
             
         }   
+        
+        
+        private String escapeText(String input) {
+            
+            // most text doesn't need escaping at all
+            int length = input.length();
+            int first = 0;
+            while (first < length) {
+                char c = input.charAt(first);
+                if (c == '\r' || c == '&' || c == '<' || c == '>') break;
+                first++;
+            }
+            if (first == length) return input;
+            
+            StringBuilder result = new StringBuilder(length + 16);
+            result.append(input, 0, first);
+            for (int i = first; i < length; i++) {
+                char c = input.charAt(i);
+                if (c == '\r') {
+                    result.append("&#xD;");
+                }
+                else if (c == '&') {
+                    result.append("&amp;");
+                }
+                else if (c == '<') {
+                    result.append("&lt;");
+                }
+                else if (c == '>') {
+                    result.append("&gt;");
+                }
+                else { 
+                    result.append(c);   
+                }            
+            }
+            return result.toString();
+            
+        }
     
         
         /**
@@ -852,7 +1197,7 @@ public class Canonicalizer {
          */
         protected final void write(Comment comment) 
           throws IOException {
-            if (withComments && (nodes == null || nodes.contains(comment))) {
+            if (withComments && (nodes == null || selected.contains(comment))) {
                 super.write(comment);
             }
         }
@@ -860,7 +1205,7 @@ public class Canonicalizer {
         
         protected final void write(ProcessingInstruction pi) 
           throws IOException {
-            if (nodes == null || nodes.contains(pi)) {
+            if (nodes == null || selected.contains(pi)) {
                 super.write(pi);
             }
         }
@@ -958,16 +1303,16 @@ public class Canonicalizer {
                         }
                     }
                     // run through the namespaces and remove any that aren't visibly utilized
+                    Nodes utilized = new Nodes();
                     for (int i = 0; i < nodes.size(); i++) {
                         Node n = nodes.get(i);
                         if (n instanceof Namespace) {
                             String prefix = ((Namespace) n).getPrefix();
-                            if (! prefixes.contains((prefix))) {
-                                nodes.remove(i);
-                                i--;
-                            }
+                            if (! prefixes.contains((prefix))) continue;
                         }
+                        utilized.append(n);
                     }
+                    nodes = utilized;
                 }
                 write(nodes);
             }
@@ -976,7 +1321,7 @@ public class Canonicalizer {
             }
         }
         else {
-            serializer.nodes = null;
+            serializer.setNodes(null);
             serializer.write(node);
         }
         serializer.flush();
@@ -1029,13 +1374,171 @@ public class Canonicalizer {
                   "Canonicalization is not defined for detached nodes");
             }
             Nodes result = sort(documentSubset);
-            serializer.nodes = result;
+            serializer.setNodes(result);
             serializer.write(doc);        
             serializer.flush();
         } 
         
     }   
 
+
+    /**
+     * <p>
+     * Canonicalizes and digests several subtrees of one document
+     * concurrently, one task per subtree. Each node is canonicalized
+     * as by {@link #write(Node)}. This is useful for computing the
+     * digests of the references in a signature over the same
+     * document.
+     * </p>
+     *
+     * <p>
+     * Canonicalization does not modify the document, but the
+     * document must not be modified by any thread until this
+     * method returns.
+     * </p>
+     *
+     * @param references the subtrees to digest
+     * @param algorithm the URI for the canonicalization algorithm
+     * @param digestAlgorithm the name of the message digest
+     *     algorithm such as <code>"SHA-256"</code>
+     * @param executor the executor that runs the tasks
+     *
+     * @return the digest of each reference, in the same order as
+     *     the references
+     *
+     * @throws IOException if canonicalization fails or the current
+     *     thread is interrupted while waiting
+     * @throws NoSuchAlgorithmException if the digest algorithm
+     *     is not available
+     * @throws CanonicalizationException if the canonicalization
+     *     algorithm is not recognized or a reference is not part
+     *     of a document
+     */
+    public static byte[][] digest(Node[] references, String algorithm,
+      String digestAlgorithm, Executor executor)
+      throws IOException, NoSuchAlgorithmException {
+
+        DigestTask[] tasks = new DigestTask[references.length];
+        for (int i = 0; i < references.length; i++) {
+            if (references[i].getDocument() == null) {
+                throw new CanonicalizationException(
+                  "Canonicalization is not defined for detached nodes");
+            }
+            tasks[i] = new DigestTask(algorithm, digestAlgorithm);
+            tasks[i].node = references[i];
+        }
+        return run(tasks, executor);
+
+    }
+
+
+    /**
+     * <p>
+     * Canonicalizes and digests several document subsets of one
+     * document concurrently, one task per subset. Each subset is
+     * canonicalized as by {@link #write(Nodes)}.
+     * </p>
+     *
+     * <p>
+     * Canonicalization does not modify the document, but the
+     * document must not be modified by any thread until this
+     * method returns.
+     * </p>
+     *
+     * @param references the document subsets to digest
+     * @param algorithm the URI for the canonicalization algorithm
+     * @param digestAlgorithm the name of the message digest
+     *     algorithm such as <code>"SHA-256"</code>
+     * @param executor the executor that runs the tasks
+     *
+     * @return the digest of each reference, in the same order as
+     *     the references
+     *
+     * @throws IOException if canonicalization fails or the current
+     *     thread is interrupted while waiting
+     * @throws NoSuchAlgorithmException if the digest algorithm
+     *     is not available
+     * @throws CanonicalizationException if the canonicalization
+     *     algorithm is not recognized or a subset contains
+     *     nodes from more than one document or detached nodes
+     */
+    public static byte[][] digest(Nodes[] references, String algorithm,
+      String digestAlgorithm, Executor executor)
+      throws IOException, NoSuchAlgorithmException {
+
+        DigestTask[] tasks = new DigestTask[references.length];
+        for (int i = 0; i < references.length; i++) {
+            tasks[i] = new DigestTask(algorithm, digestAlgorithm);
+            tasks[i].subset = references[i];
+        }
+        return run(tasks, executor);
+
+    }
+
+
+    private static byte[][] run(DigestTask[] tasks, Executor executor)
+      throws IOException {
+
+        List<FutureTask<byte[]>> futures
+          = new ArrayList<FutureTask<byte[]>>(tasks.length);
+        for (int i = 0; i < tasks.length; i++) {
+            FutureTask<byte[]> future = new FutureTask<byte[]>(tasks[i]);
+            futures.add(future);
+            executor.execute(future);
+        }
+
+        byte[][] result = new byte[tasks.length][];
+        try {
+            for (int i = 0; i < tasks.length; i++) {
+                result[i] = futures.get(i).get();
+            }
+        }
+        catch (InterruptedException ex) {
+            for (int i = 0; i < tasks.length; i++) {
+                futures.get(i).cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+              "Interrupted while canonicalizing");
+        }
+        catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) throw (Error) cause;
+            IOException wrapper = new IOException(cause.getMessage());
+            wrapper.initCause(cause);
+            throw wrapper;
+        }
+        return result;
+
+    }
+
+
+    // Canonicalizes one reference into a fresh digest.
+    private static final class DigestTask implements Callable<byte[]> {
+
+        private final MessageDigest digest;
+        private final Canonicalizer canonicalizer;
+        private Node node;
+        private Nodes subset;
+
+        DigestTask(String algorithm, String digestAlgorithm)
+          throws NoSuchAlgorithmException {
+            this.digest = MessageDigest.getInstance(digestAlgorithm);
+            this.canonicalizer = new Canonicalizer(digest, algorithm);
+        }
+
+        public byte[] call() throws IOException {
+            if (node != null) canonicalizer.write(node);
+            else canonicalizer.write(subset);
+            return digest.digest();
+        }
+
+    }
+
     
     /**
      * <p>
@@ -1070,18 +1573,32 @@ public class Canonicalizer {
         Node root = in.get(0).getDocument();
         if (in.size() > 1) {
             Nodes out = new Nodes();
-            List<Node> list = new ArrayList<Node>(in.size());
-            List<Node> namespaces = new ArrayList<Node>();
+            Set<Node> set = new HashSet<Node>(in.size() * 2);
+            // namespace nodes by their elements, in the order given
+            Map<Node, List<Namespace>> namespaces 
+              = new HashMap<Node, List<Namespace>>();
             for (int i = 0; i < in.size(); i++) {
                 Node node = in.get(i);
-                list.add(node);
-                if (node instanceof Namespace) namespaces.add(node);
+                if (node instanceof Namespace) {
+                    Node parent = node.getParent();
+                    List<Namespace> list = namespaces.get(parent);
+                    if (list == null) {
+                        list = new ArrayList<Namespace>(4);
+                        namespaces.put(parent, list);
+                    }
+                    list.add((Namespace) node);
+                }
+                else {
+                    set.add(node);
+                }
             }
-            sort(list, namespaces, out, (ParentNode) root);
-            if (! list.isEmpty() ) {
+            sort(set, namespaces, out, (ParentNode) root);
+            if (! set.isEmpty() || ! namespaces.isEmpty()) {
                 // Are these just duplicates; or is there really a node
                 // from a different document?
-                Iterator<Node> iterator = list.iterator();
+                List<Node> rest = new ArrayList<Node>(set);
+                for (List<Namespace> list : namespaces.values()) rest.addAll(list);
+                Iterator<Node> iterator = rest.iterator();
                 while (iterator.hasNext()) {
                     Node next = iterator.next();
                     if (root != next.getDocument()) {
@@ -1110,15 +1627,12 @@ public class Canonicalizer {
     }
 
 
-    private static void sort(List<Node> in, List<Node> namespaces, Nodes out, ParentNode parent) {
+    private static void sort(Set<Node> in, Map<Node, List<Namespace>> namespaces, 
+      Nodes out, ParentNode parent) {
 
-        if (in.isEmpty()) return;
-        if (in.contains(parent)) {
+        if (in.isEmpty() && namespaces.isEmpty()) return;
+        if (in.remove(parent)) {
             out.append(parent);
-            in.remove(parent);
-            // I'm fairly sure this next line is unreachable, but just
-            // in case it isn't I'll leave this comment here.
-            // if (in.isEmpty()) return;
         }
         
         int childCount = parent.getChildCount();
@@ -1126,41 +1640,32 @@ public class Canonicalizer {
             Node child = parent.getChild(i);
             if (child instanceof Element) {
                 Element element = (Element) child;
-                if (in.contains(element)) {
+                if (in.remove(element)) {
                     out.append(element);
-                    in.remove(element);
                 }
                 // attach namespaces
                 if (!namespaces.isEmpty()) {
-                    Iterator<Node> iterator = in.iterator();
-                    while (iterator.hasNext()) {
-                        Object o = iterator.next();
-                        if (o instanceof Namespace) {
-                            Namespace n = (Namespace) o;
-                            if (element == n.getParent()) {
-                                out.append(n);
-                                iterator.remove();
-                            }
-                        }
+                    List<Namespace> list = namespaces.remove(element);
+                    if (list != null) {
+                        for (int n = 0; n < list.size(); n++) out.append(list.get(n));
                     }
                 }
                 
                 // attach attributes
-                for (int a = 0; a < element.getAttributeCount(); a++) {
-                    Attribute att = element.getAttribute(a);
-                    if (in.contains(att)) {
-                        out.append(att);
-                        in.remove(att);
-                        if (in.isEmpty()) return;
+                if (!in.isEmpty()) {
+                    for (int a = 0; a < element.getAttributeCount(); a++) {
+                        Attribute att = element.getAttribute(a);
+                        if (in.remove(att)) {
+                            out.append(att);
+                        }
                     }
                 }
                 sort(in, namespaces, out, element);
             }
             else {
-                if (in.contains(child)) {
+                if (in.remove(child)) {
                     out.append(child);
-                    in.remove(child);
-                    if (in.isEmpty()) return;
+                    if (in.isEmpty() && namespaces.isEmpty()) return;
                 }
             }
         }
@@ -0,0 +1,70 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.canonical;
+
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+
+/**
+ * <p>
+ *   An output stream that feeds every byte written to it into
+ *   one or more message digests, without keeping a copy.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class DigestingOutputStream extends OutputStream {
+
+
+    private final MessageDigest[] digests;
+
+
+    DigestingOutputStream(MessageDigest[] digests) {
+
+        this.digests = new MessageDigest[digests.length];
+        for (int i = 0; i < digests.length; i++) {
+            if (digests[i] == null) {
+                throw new NullPointerException("Null digest");
+            }
+            this.digests[i] = digests[i];
+        }
+
+    }
+
+
+    public void write(int b) {
+        for (int i = 0; i < digests.length; i++) {
+            digests[i].update((byte) b);
+        }
+    }
+
+
+    public void write(byte[] data, int offset, int length) {
+        for (int i = 0; i < digests.length; i++) {
+            digests[i].update(data, offset, length);
+        }
+    }
+
+
+}
@@ -0,0 +1,658 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.canonical;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.NamespaceSupport;
+
+import nu.xom.ParsingException;
+
+/**
+ * <p>
+ *   Writes the canonical form of a document as it is parsed,
+ *   without building a tree. A <code>StreamingCanonicalizer</code>
+ *   is a SAX <code>ContentHandler</code> and
+ *   <code>LexicalHandler</code> that can be attached to any
+ *   namespace aware <code>XMLReader</code>. Only the namespace
+ *   declarations in scope are kept in memory, so documents of any
+ *   size are canonicalized in memory proportional to their depth.
+ * </p>
+ *
+ * <p>
+ *   The output is the same as <code>Canonicalizer</code> produces
+ *   for the whole document. Canonical XML 1.1 differs from 1.0 only
+ *   for document subsets, so both produce the same output here.
+ * </p>
+ *
+ * <pre><code> StreamingCanonicalizer canonicalizer = new StreamingCanonicalizer(
+ *   out, Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION);
+ * canonicalizer.canonicalize(XMLReaderFactory.createXMLReader(),
+ *   new InputSource(in));
+ * </code></pre>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public class StreamingCanonicalizer implements ContentHandler, LexicalHandler {
+
+
+    private final Writer out;
+    private boolean withComments;
+    private boolean exclusive;
+    private List<String> inclusiveNamespacePrefixes = new ArrayList<String>();
+
+    // namespaces declared in the output
+    private NamespaceSupport rendered = new NamespaceSupport();
+    // namespaces declared in the input
+    private NamespaceSupport input = new NamespaceSupport();
+    // declarations reported since the last start-tag
+    private List<String> pending = new ArrayList<String>();
+
+    // For exclusive canonicalization, the namespaces each open
+    // element visibly utilizes, innermost last
+    private String[] usedPrefixes = new String[16];
+    private String[] usedURIs = new String[16];
+    private int      usedCount = 0;
+    private int[]    usedMarks = new int[16];
+
+    private int      depth = 0;
+    private boolean  seenRoot = false;
+    private boolean  inDTD = false;
+    private int[]    order = new int[8];
+
+
+    /**
+     * <p>
+     * Creates a <code>StreamingCanonicalizer</code> that writes the
+     * canonical form of each document onto an output stream using
+     * the specified algorithm. All the algorithms supported by
+     * <code>Canonicalizer</code> are supported.
+     * </p>
+     *
+     * @param out the output stream the document is written onto
+     * @param algorithm the URI for the canonicalization algorithm
+     *
+     * @throws CanonicalizationException if the algorithm is
+     *     not recognized
+     * @throws NullPointerException if the algorithm is null
+     */
+    public StreamingCanonicalizer(OutputStream out, String algorithm) {
+
+        if (algorithm == null) {
+            throw new NullPointerException("Null algorithm");
+        }
+        if (algorithm.equals(Canonicalizer.CANONICAL_XML)
+          || algorithm.equals(Canonicalizer.CANONICAL_XML_11)) {
+            this.withComments = false;
+            this.exclusive = false;
+        }
+        else if (algorithm.equals(Canonicalizer.CANONICAL_XML_WITH_COMMENTS)
+          || algorithm.equals(Canonicalizer.CANONICAL_XML_11_WITH_COMMENTS)) {
+            this.withComments = true;
+            this.exclusive = false;
+        }
+        else if (algorithm.equals(Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION)) {
+            this.withComments = false;
+            this.exclusive = true;
+        }
+        else if (algorithm.equals(
+          Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION_WITH_COMMENTS)) {
+            this.withComments = true;
+            this.exclusive = true;
+        }
+        else {
+            throw new CanonicalizationException(
+              "Unsupported canonicalization algorithm: " + algorithm);
+        }
+        try {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        }
+        catch (java.io.UnsupportedEncodingException ex) {
+            throw new RuntimeException(
+              "Broken VM: Does not recognize UTF-8 encoding", ex);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Creates a <code>StreamingCanonicalizer</code> that feeds the
+     * canonical form of each document straight into a message
+     * digest.
+     * </p>
+     *
+     * @param digest the message digest the canonical form is
+     *     written into
+     * @param algorithm the URI for the canonicalization algorithm
+     *
+     * @throws CanonicalizationException if the algorithm is
+     *     not recognized
+     * @throws NullPointerException if the digest or the algorithm
+     *     is null
+     */
+    public StreamingCanonicalizer(MessageDigest digest, String algorithm) {
+        this(new DigestingOutputStream(new MessageDigest[] {digest}), algorithm);
+    }
+
+
+    /**
+     * <p>
+     * Specifies the prefixes that will be output as specified in
+     * regular canonical XML, even when doing exclusive
+     * XML canonicalization.
+     * </p>
+     *
+     * @param inclusiveNamespacePrefixes a whitespace separated list
+     *     of namespace prefixes that will always be included in the
+     *     output, even in exclusive canonicalization
+     */
+    public final void setInclusiveNamespacePrefixList(String inclusiveNamespacePrefixes) {
+
+        this.inclusiveNamespacePrefixes.clear();
+        if (this.exclusive && inclusiveNamespacePrefixes != null) {
+            StringTokenizer tokenizer = new StringTokenizer(
+              inclusiveNamespacePrefixes, " \t\r\n", false);
+            while (tokenizer.hasMoreTokens()) {
+                this.inclusiveNamespacePrefixes.add(tokenizer.nextToken());
+            }
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Parses a document with the given reader and writes its
+     * canonical form. This installs this object as the reader's
+     * content handler and lexical handler.
+     * </p>
+     *
+     * @param parser the reader that parses the document
+     * @param in the document to canonicalize
+     *
+     * @throws ParsingException if the document is malformed
+     * @throws IOException if the document cannot be read or the
+     *     output cannot be written
+     */
+    public void canonicalize(XMLReader parser, InputSource in)
+      throws ParsingException, IOException {
+
+        try {
+            parser.setFeature("http://xml.org/sax/features/namespaces", true);
+            parser.setFeature(
+              "http://xml.org/sax/features/namespace-prefixes", true);
+            parser.setContentHandler(this);
+            try {
+                parser.setProperty(
+                  "http://xml.org/sax/properties/lexical-handler", this);
+            }
+            catch (SAXException ex) {
+                // This parser does not support lexical events.
+                // There won't be any comments in the output.
+            }
+            parser.parse(in);
+        }
+        catch (SAXParseException ex) {
+            throw new ParsingException(ex.getMessage(), ex.getSystemId(),
+              ex.getLineNumber(), ex.getColumnNumber(), ex);
+        }
+        catch (SAXException ex) {
+            if (ex.getException() instanceof IOException) {
+                throw (IOException) ex.getException();
+            }
+            throw new ParsingException(ex.getMessage(), in.getSystemId(), ex);
+        }
+
+    }
+
+
+    public void setDocumentLocator(Locator locator) {}
+
+
+    public void startDocument() {
+
+        rendered.reset();
+        input.reset();
+        pending.clear();
+        usedCount = 0;
+        depth = 0;
+        seenRoot = false;
+        inDTD = false;
+
+    }
+
+
+    public void endDocument() throws SAXException {
+
+        try {
+            out.flush();
+        }
+        catch (IOException ex) {
+            throw new SAXException(ex);
+        }
+
+    }
+
+
+    public void startPrefixMapping(String prefix, String uri) {
+        pending.add(prefix);
+        pending.add(uri);
+    }
+
+
+    public void endPrefixMapping(String prefix) {}
+
+
+    public void startElement(String namespaceURI, String localName,
+      String qualifiedName, Attributes attributes) throws SAXException {
+
+        String prefix = "";
+        int colon = qualifiedName.indexOf(':');
+        if (colon > 0) prefix = qualifiedName.substring(0, colon);
+
+        String parentDefault = input.getURI("");
+        if (parentDefault == null) parentDefault = "";
+        input.pushContext();
+        for (int i = 0; i < pending.size(); i += 2) {
+            input.declarePrefix(pending.get(i), pending.get(i+1));
+        }
+
+        int count = sortAttributes(attributes);
+        SortedMap<String, String> map = new TreeMap<String, String>();
+        if (!"xml".equals(prefix)) {
+            addNamespace(map, prefix, namespaceURI,
+              namespaceURI, prefix, attributes, count, parentDefault);
+        }
+        for (int i = 0; i < count; i++) {
+            String attributePrefix = getPrefix(attributes.getQName(order[i]));
+            if (attributePrefix.length() != 0 && !"xml".equals(attributePrefix)) {
+                addNamespace(map, attributePrefix, attributes.getURI(order[i]),
+                  namespaceURI, prefix, attributes, count, parentDefault);
+            }
+        }
+        for (int i = 0; i < pending.size(); i += 2) {
+            addNamespace(map, pending.get(i), pending.get(i+1),
+              namespaceURI, prefix, attributes, count, parentDefault);
+        }
+        pending.clear();
+
+        try {
+            out.write('<');
+            out.write(qualifiedName);
+            rendered.pushContext();
+            Iterator<Map.Entry<String, String>> declarations = map.entrySet().iterator();
+            while (declarations.hasNext()) {
+                Map.Entry<String, String> entry = declarations.next();
+                String declared = entry.getKey();
+                String uri = entry.getValue();
+                if ("".equals(declared)) out.write(" xmlns=\"");
+                else {
+                    out.write(" xmlns:");
+                    out.write(declared);
+                    out.write("=\"");
+                }
+                writeText(uri);
+                out.write('"');
+                rendered.declarePrefix(declared, uri);
+            }
+            for (int i = 0; i < count; i++) {
+                int index = order[i];
+                out.write(' ');
+                out.write(attributes.getQName(index));
+                out.write("=\"");
+                writeAttributeValue(attributes.getValue(index),
+                  "CDATA".equals(attributes.getType(index)));
+                out.write('"');
+            }
+            out.write('>');
+        }
+        catch (IOException ex) {
+            throw new SAXException(ex);
+        }
+
+        if (exclusive) {
+            usedMarks = grow(usedMarks, depth);
+            usedMarks[depth] = usedCount;
+            use(prefix, namespaceURI);
+            // unprefixed attributes are in no namespace, so they 
+            // don't use the default namespace
+            for (int i = 0; i < count; i++) {
+                String attributePrefix = getPrefix(attributes.getQName(order[i]));
+                if (attributePrefix.length() != 0) {
+                    use(attributePrefix, attributes.getURI(order[i]));
+                }
+            }
+        }
+        depth++;
+        seenRoot = true;
+
+    }
+
+
+    // Puts the declaration of one prefix the element uses or
+    // declares into the map if the algorithm outputs it
+    private void addNamespace(SortedMap<String, String> map,
+      String prefix, String uri, String elementURI, String elementPrefix,
+      Attributes attributes, int count, String parentDefault) {
+
+        if (uri.equals(rendered.getURI(prefix))) return;
+        if (exclusive) {
+            boolean utilized = prefix.equals(elementPrefix) && uri.equals(elementURI);
+            for (int i = 0; !utilized && i < count; i++) {
+                utilized = prefix.length() != 0 
+                  && prefix.equals(getPrefix(attributes.getQName(order[i])));
+            }
+            if (!utilized && !inclusiveNamespacePrefixes.contains(prefix)) return;
+            // the nearest output ancestor that uses the prefix
+            for (int i = usedCount - 1; i >= 0; i--) {
+                if (usedPrefixes[i].equals(prefix)) {
+                    if (usedURIs[i].equals(uri)) return;
+                    map.put(prefix, uri);
+                    return;
+                }
+            }
+            // no need to say xmlns="" when no output ancestor
+            // uses a default namespace
+            if ("".equals(uri)) return;
+            map.put(prefix, uri);
+        }
+        else if (uri.equals("")) {
+            // no need to say xmlns=""
+            if (depth == 0 || "".equals(parentDefault)) return;
+            map.put(prefix, uri);
+        }
+        else {
+            map.put(prefix, uri);
+        }
+
+    }
+
+
+    private void use(String prefix, String uri) {
+
+        if (usedCount == usedPrefixes.length) {
+            String[] newPrefixes = new String[usedCount * 2];
+            System.arraycopy(usedPrefixes, 0, newPrefixes, 0, usedCount);
+            usedPrefixes = newPrefixes;
+            String[] newURIs = new String[usedCount * 2];
+            System.arraycopy(usedURIs, 0, newURIs, 0, usedCount);
+            usedURIs = newURIs;
+        }
+        usedPrefixes[usedCount] = prefix;
+        usedURIs[usedCount] = uri;
+        usedCount++;
+
+    }
+
+
+    private static int[] grow(int[] array, int index) {
+
+        if (index < array.length) return array;
+        int[] result = new int[array.length * 2];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+
+    }
+
+
+    private static String getPrefix(String qualifiedName) {
+        int colon = qualifiedName.indexOf(':');
+        if (colon > 0) return qualifiedName.substring(0, colon);
+        return "";
+    }
+
+
+    // Fills order with the indexes of the attributes, other than
+    // namespace declarations, in canonical order; and returns
+    // how many there are
+    private int sortAttributes(Attributes attributes) {
+
+        int length = attributes.getLength();
+        order = grow(order, length);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            String qualifiedName = attributes.getQName(i);
+            if (qualifiedName.equals("xmlns")
+              || qualifiedName.startsWith("xmlns:")) {
+                continue;
+            }
+            // insertion sort; elements rarely have many attributes
+            int j = count;
+            while (j > 0 && compare(attributes, order[j-1], i) > 0) {
+                order[j] = order[j-1];
+                j--;
+            }
+            order[j] = i;
+            count++;
+        }
+        return count;
+
+    }
+
+
+    private static int compare(Attributes attributes, int a1, int a2) {
+
+        String namespace1 = attributes.getURI(a1);
+        String namespace2 = attributes.getURI(a2);
+        if (namespace1.equals(namespace2)) {
+            return attributes.getLocalName(a1).compareTo(attributes.getLocalName(a2));
+        }
+        else if (namespace1.equals("")) {
+            return -1;
+        }
+        else if (namespace2.equals("")) {
+            return 1;
+        }
+        else { // compare namespace URIs
+            return namespace1.compareTo(namespace2);
+        }
+
+    }
+
+
+    public void endElement(String namespaceURI, String localName,
+      String qualifiedName) throws SAXException {
+
+        depth--;
+        if (exclusive) usedCount = usedMarks[depth];
+        rendered.popContext();
+        input.popContext();
+        try {
+            out.write("</");
+            out.write(qualifiedName);
+            out.write('>');
+        }
+        catch (IOException ex) {
+            throw new SAXException(ex);
+        }
+
+    }
+
+
+    public void characters(char[] text, int start, int length)
+      throws SAXException {
+
+        try {
+            int end = start + length;
+            int run = start;
+            for (int i = start; i < end; i++) {
+                String escape;
+                switch (text[i]) {
+                    case '\r': escape = "&#xD;"; break;
+                    case '&': escape = "&amp;"; break;
+                    case '<': escape = "&lt;"; break;
+                    case '>': escape = "&gt;"; break;
+                    default: continue;
+                }
+                out.write(text, run, i - run);
+                out.write(escape);
+                run = i + 1;
+            }
+            out.write(text, run, end - run);
+        }
+        catch (IOException ex) {
+            throw new SAXException(ex);
+        }
+
+    }
+
+
+    public void ignorableWhitespace(char[] text, int start, int length)
+      throws SAXException {
+        characters(text, start, length);
+    }
+
+
+    private void writeText(String text) throws IOException {
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\r': out.write("&#xD;"); break;
+                case '&': out.write("&amp;"); break;
+                case '<': out.write("&lt;"); break;
+                case '>': out.write("&gt;"); break;
+                default: out.write(c);
+            }
+        }
+
+    }
+
+
+    // Attribute values of types other than CDATA have their spaces
+    // collapsed, as Canonicalizer does
+    private void writeAttributeValue(String value, boolean cdata)
+      throws IOException {
+
+        boolean seenFirstNonSpace = false;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (!cdata && c == ' ') {
+                if (i != length-1 && value.charAt(i+1) != ' ' && seenFirstNonSpace) {
+                    out.write(c);
+                }
+                continue;
+            }
+            seenFirstNonSpace = true;
+            switch (c) {
+                case '\t': out.write("&#x9;"); break;
+                case '\n': out.write("&#xA;"); break;
+                case '\r': out.write("&#xD;"); break;
+                case '"': out.write("&quot;"); break;
+                case '&': out.write("&amp;"); break;
+                case '<': out.write("&lt;"); break;
+                default: out.write(c);
+            }
+        }
+
+    }
+
+
+    public void processingInstruction(String target, String data)
+      throws SAXException {
+
+        if (inDTD) return;
+        try {
+            if (depth == 0 && seenRoot) out.write('\n');
+            out.write("<?");
+            out.write(target);
+            if (data != null && data.length() > 0) {
+                out.write(' ');
+                out.write(data);
+            }
+            out.write("?>");
+            if (!seenRoot) out.write('\n');
+        }
+        catch (IOException ex) {
+            throw new SAXException(ex);
+        }
+
+    }
+
+
+    public void skippedEntity(String name) {}
+
+
+    public void comment(char[] text, int start, int length)
+      throws SAXException {
+
+        if (inDTD || !withComments) return;
+        try {
+            if (depth == 0 && seenRoot) out.write('\n');
+            out.write("<!--");
+            out.write(text, start, length);
+            out.write("-->");
+            if (!seenRoot) out.write('\n');
+        }
+        catch (IOException ex) {
+            throw new SAXException(ex);
+        }
+
+    }
+
+
+    public void startDTD(String name, String publicID, String systemID) {
+        inDTD = true;
+    }
+
+
+    public void endDTD() {
+        inDTD = false;
+    }
+
+
+    public void startEntity(String name) {}
+
+
+    public void endEntity(String name) {}
+
+
+    public void startCDATA() {}
+
+
+    public void endCDATA() {}
+
+
+}
@@ -0,0 +1,235 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.Collections;
+
+import nu.xom.Attribute;
+import nu.xom.Element;
+import nu.xom.ParentNode;
+
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * <p>
+ * The read-only <code>org.w3c.dom.Attr</code> that wraps either a
+ * XOM <code>Attribute</code> or one of an element's namespace 
+ * declarations. In the second case the node is the element, 
+ * and the prefix and URI are fixed when the view is created.
+ * Values are not split into text children.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class AttrView extends NodeView implements org.w3c.dom.Attr {
+
+    
+    private static final NodeList NO_CHILDREN 
+      = new NodeListView(Collections.<org.w3c.dom.Node>emptyList());
+    
+    // null unless this is a namespace declaration
+    private final String prefix;
+    private final String uri;
+    
+    
+    AttrView(Attribute attribute, DocumentView owner) {
+        super(attribute, owner);
+        this.prefix = null;
+        this.uri = null;
+    }
+    
+    
+    AttrView(Element element, String prefix, String uri, 
+      DocumentView owner) {
+        super(element, owner);
+        this.prefix = prefix;
+        this.uri = uri;
+    }
+    
+    
+    private boolean isNamespace() {
+        return prefix != null;
+    }
+    
+    
+    Element getContextElement() {
+        if (isNamespace()) return (Element) node;
+        ParentNode parentNode = node.getParent();
+        return parentNode instanceof Element ? (Element) parentNode : null;
+    }
+    
+    
+    int getOrder() {
+        
+        Element element = getContextElement();
+        if (element == null) return 0;
+        if (isNamespace()) {
+            int count = element.getNamespaceDeclarationCount();
+            for (int i = 0; i < count; i++) {
+                if (prefix.equals(element.getNamespacePrefix(i))) {
+                    return i - Integer.MAX_VALUE / 2;
+                }
+            }
+            return -Integer.MAX_VALUE / 2;
+        }
+        int count = element.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            if (element.getAttribute(i) == node) return i - Integer.MAX_VALUE;
+        }
+        return -Integer.MAX_VALUE;
+        
+    }
+
+    
+    public String getNodeName() {
+        return getName();
+    }
+
+    
+    public short getNodeType() {
+        return ATTRIBUTE_NODE;
+    }
+    
+    
+    public String getNodeValue() {
+        return getValue();
+    }
+
+    
+    public org.w3c.dom.Node getParentNode() {
+        return null;
+    }
+
+    
+    public NodeList getChildNodes() {
+        return NO_CHILDREN;
+    }
+
+    
+    public org.w3c.dom.Node getFirstChild() {
+        return null;
+    }
+
+    
+    public org.w3c.dom.Node getLastChild() {
+        return null;
+    }
+
+    
+    public org.w3c.dom.Node getPreviousSibling() {
+        return null;
+    }
+
+    
+    public org.w3c.dom.Node getNextSibling() {
+        return null;
+    }
+
+    
+    public boolean hasChildNodes() {
+        return false;
+    }
+
+    
+    public String getNamespaceURI() {
+        if (isNamespace()) return DOMConverter.XMLNS_NAMESPACE;
+        String namespaceURI = ((Attribute) node).getNamespaceURI();
+        return namespaceURI.length() == 0 ? null : namespaceURI;
+    }
+
+    
+    public String getPrefix() {
+        if (isNamespace()) return prefix.length() == 0 ? null : "xmlns";
+        String attributePrefix = ((Attribute) node).getNamespacePrefix();
+        return attributePrefix.length() == 0 ? null : attributePrefix;
+    }
+
+    
+    public String getLocalName() {
+        if (isNamespace()) return prefix.length() == 0 ? "xmlns" : prefix;
+        return ((Attribute) node).getLocalName();
+    }
+
+    
+    public String getName() {
+        if (isNamespace()) {
+            return prefix.length() == 0 ? "xmlns" : "xmlns:" + prefix;
+        }
+        return ((Attribute) node).getQualifiedName();
+    }
+
+    
+    public boolean getSpecified() {
+        return true;
+    }
+
+    
+    public String getValue() {
+        return isNamespace() ? uri : node.getValue();
+    }
+
+    
+    public void setValue(String value) {
+        throw readOnly();
+    }
+
+    
+    public org.w3c.dom.Element getOwnerElement() {
+        if (isNamespace()) return (org.w3c.dom.Element) parent;
+        return (org.w3c.dom.Element) getParentView();
+    }
+
+    
+    public TypeInfo getSchemaTypeInfo() {
+        
+        if (isNamespace()) return NO_TYPE;
+        final Attribute.Type type = ((Attribute) node).getType();
+        if (type == Attribute.Type.UNDECLARED) return NO_TYPE;
+        return new TypeInfo() {
+            
+            public String getTypeName() {
+                return type.getName();
+            }
+            
+            public String getTypeNamespace() {
+                return "http://www.w3.org/TR/REC-xml";
+            }
+            
+            public boolean isDerivedFrom(String namespace, String name, 
+              int method) {
+                return false;
+            }
+            
+        };
+        
+    }
+
+    
+    public boolean isId() {
+        return !isNamespace() 
+          && ((Attribute) node).getType() == Attribute.Type.ID;
+    }
+
+    
+}
@@ -0,0 +1,98 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import nu.xom.Node;
+
+import org.w3c.dom.DOMException;
+
+/**
+ * <p>
+ * The read-only <code>org.w3c.dom.CharacterData</code> that
+ * text and comment views share.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+abstract class CharacterDataView extends NodeView 
+  implements org.w3c.dom.CharacterData {
+
+    
+    CharacterDataView(Node node, DocumentView owner) {
+        super(node, owner);
+    }
+    
+    
+    public String getNodeValue() {
+        return node.getValue();
+    }
+
+    
+    public String getData() {
+        return node.getValue();
+    }
+
+    
+    public int getLength() {
+        return node.getValue().length();
+    }
+
+    
+    public String substringData(int offset, int count) {
+        
+        String data = node.getValue();
+        if (offset < 0 || offset > data.length() || count < 0) {
+            throw new DOMException(DOMException.INDEX_SIZE_ERR, 
+              "No substring of length " + count + " at " + offset);
+        }
+        return data.substring(offset, Math.min(data.length(), offset + count));
+        
+    }
+
+    
+    public void setData(String data) {
+        throw readOnly();
+    }
+
+    
+    public void appendData(String arg) {
+        throw readOnly();
+    }
+
+    
+    public void insertData(int offset, String arg) {
+        throw readOnly();
+    }
+
+    
+    public void deleteData(int offset, int count) {
+        throw readOnly();
+    }
+
+    
+    public void replaceData(int offset, int count, String arg) {
+        throw readOnly();
+    }
+
+    
+}
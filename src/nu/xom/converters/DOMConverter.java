@@ -55,8 +55,13 @@ import org.w3c.dom.NodeList;
  * <code>Document</code>.
  * </p>
  * 
+ * <p>
+ * Code that only reads DOM can be handed a read-only view 
+ * of a XOM document instead of a copy.
+ * </p>
+ * 
  * @author Elliotte Rusty Harold
- * @version 1.2d1
+ * @version 1.4.7
  *
  */
 public class DOMConverter {
@@ -73,7 +78,7 @@ public class DOMConverter {
      * <code>http://www.w3.org/2000/xmlns/</code>.
      * </p>
      */
-    private final static String XMLNS_NAMESPACE 
+    final static String XMLNS_NAMESPACE 
       = "http://www.w3.org/2000/xmlns/";
 
     
@@ -461,6 +466,7 @@ public class DOMConverter {
         
         
         ParentNode parent = result;
+        boolean defaultFactory = isDefault(factory);
         boolean backtracking = false;
         while (true) {
             if (current.hasChildNodes() && !backtracking) {
@@ -489,6 +495,11 @@ public class DOMConverter {
                     if (current.hasChildNodes()) parent = child;
                 }
             }
+            else if (defaultFactory) {
+                // no Nodes wrapper; the constructors check exactly
+                // what the default factory's would
+                parent.appendChild(convertLeaf(current));
+            }
             else {
                 Nodes children = convert(current, factory);
                 for (int i = 0; i < children.size(); i++) {
@@ -503,13 +514,45 @@ public class DOMConverter {
     }    
     
     
+    // Nothing a DOM produces can skip verification. DOM checks names,
+    // but not namespace URIs, character data, comment contents,
+    // processing instruction targets, or attribute prefix conflicts.
+    // What a plain NodeFactory does save is the Nodes wrapper
+    // around every node and the virtual call that makes it.
+    private static boolean isDefault(NodeFactory factory) {
+        return factory.getClass().getName().equals("nu.xom.NodeFactory");
+    }
+    
+    
+    private static Node convertLeaf(org.w3c.dom.Node node) {
+        
+        switch (node.getNodeType()) {
+            case org.w3c.dom.Node.TEXT_NODE:
+            case org.w3c.dom.Node.CDATA_SECTION_NODE:
+                return convert((org.w3c.dom.Text) node);
+            case org.w3c.dom.Node.COMMENT_NODE:
+                return convert((org.w3c.dom.Comment) node);
+            case org.w3c.dom.Node.PROCESSING_INSTRUCTION_NODE:
+                return convert((org.w3c.dom.ProcessingInstruction) node);
+            default:   
+                throw new XMLException(
+                  "Unexpected DOM node type: " + node.getNodeType());
+        }
+        
+    }
+    
+    
     private static Element makeElement(org.w3c.dom.Element element, NodeFactory factory) {
         
         String namespaceURI = element.getNamespaceURI();
         String tagName = element.getTagName();
+        boolean defaultFactory = isDefault(factory);
         
         Element result;
-        if (element.getParentNode() == null 
+        if (defaultFactory) {
+            result = new Element(tagName, namespaceURI);
+        }
+        else if (element.getParentNode() == null 
           || element.getParentNode().getNodeType() == org.w3c.dom.Node.DOCUMENT_NODE) {
             result = factory.makeRootElement(tagName, namespaceURI);
         }
@@ -534,6 +577,10 @@ public class DOMConverter {
                     result.addNamespaceDeclaration(prefix, value); 
                 }
             }
+            else if (defaultFactory) {
+                result.addAttribute(
+                  new Attribute(name, uri, value, Attribute.Type.UNDECLARED));
+            }
             else {
                 Nodes nodes = factory.makeAttribute(name, uri, value, Attribute.Type.UNDECLARED);
                 for (int j = 0; j < nodes.size(); j++) {
@@ -602,6 +649,40 @@ public class DOMConverter {
         
     }
 
+
+    /**
+     * <p>
+     * Returns a read-only <code>org.w3c.dom.Document</code> backed 
+     * by a XOM <code>Document</code>. Nothing is copied. DOM nodes
+     * are created as they're reached, and each XOM node is always
+     * represented by the same DOM node within one view. Since the 
+     * view reads the XOM tree on every call, it reflects later 
+     * changes to the XOM document, except that node lists 
+     * and attribute maps are not live.
+     * </p>
+     * 
+     * <p>
+     * Methods that would change the tree throw a 
+     * <code>DOMException</code> with the code
+     * <code>NO_MODIFICATION_ALLOWED_ERR</code>. Methods that create 
+     * nodes or clone them throw a <code>DOMException</code> with the 
+     * code <code>NOT_SUPPORTED_ERR</code>. As in a parsed DOM, 
+     * namespace declarations are attributes, CDATA sections are 
+     * reported as text, and entities and notations are empty. 
+     * Like the XOM document, a view is not thread safe.
+     * </p>
+     * 
+     * @param document the XOM document to view
+     * 
+     * @return a DOM document that reads the XOM document
+     */
+    public static org.w3c.dom.Document view(Document document) {
+        if (document == null) {
+            throw new NullPointerException("Null document");
+        }
+        return new DocumentView(document);
+    }
+
     
     private static org.w3c.dom.Node convert(
       Node node, org.w3c.dom.Document document) {
@@ -0,0 +1,105 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.Collections;
+
+import nu.xom.DocType;
+
+import org.w3c.dom.NamedNodeMap;
+
+/**
+ * <p>
+ * The read-only <code>org.w3c.dom.DocumentType</code> that wraps
+ * a XOM <code>DocType</code>. XOM does not model entities or
+ * notations, so those maps are always empty.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class DocumentTypeView extends NodeView 
+  implements org.w3c.dom.DocumentType {
+
+    
+    private static final NamedNodeMap EMPTY 
+      = new NamedNodeMapView(Collections.<org.w3c.dom.Node>emptyList());
+    
+    
+    DocumentTypeView(DocType doctype, DocumentView owner) {
+        super(doctype, owner);
+    }
+
+    
+    public String getNodeName() {
+        return getName();
+    }
+
+    
+    public short getNodeType() {
+        return DOCUMENT_TYPE_NODE;
+    }
+    
+    
+    public boolean isEqualNode(org.w3c.dom.Node other) {
+        
+        if (!super.isEqualNode(other)) return false;
+        org.w3c.dom.DocumentType doctype = (org.w3c.dom.DocumentType) other;
+        return equal(getPublicId(), doctype.getPublicId())
+          && equal(getSystemId(), doctype.getSystemId())
+          && equal(getInternalSubset(), doctype.getInternalSubset());
+        
+    }
+
+    
+    public String getName() {
+        return ((DocType) node).getRootElementName();
+    }
+
+    
+    public NamedNodeMap getEntities() {
+        return EMPTY;
+    }
+
+    
+    public NamedNodeMap getNotations() {
+        return EMPTY;
+    }
+
+    
+    public String getPublicId() {
+        return ((DocType) node).getPublicID();
+    }
+
+    
+    public String getSystemId() {
+        return ((DocType) node).getSystemID();
+    }
+
+    
+    public String getInternalSubset() {
+        String subset = ((DocType) node).getInternalDTDSubset();
+        return subset.length() == 0 ? null : subset;
+    }
+
+    
+}
@@ -0,0 +1,440 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nu.xom.Attribute;
+import nu.xom.Comment;
+import nu.xom.DocType;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Node;
+import nu.xom.ProcessingInstruction;
+import nu.xom.Text;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.NodeList;
+
+/**
+ * <p>
+ * The read-only <code>org.w3c.dom.Document</code> that wraps a
+ * XOM <code>Document</code>, and finds the view of any node 
+ * from the views of its ancestors.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class DocumentView extends NodeView implements org.w3c.dom.Document {
+
+    
+    // roots of trees other than this document, which have
+    // no ancestor to keep their views
+    private Map<Node, NodeView> detached;
+    private boolean strictErrorChecking = true;
+    
+    
+    private static final DOMImplementation implementation 
+      = new DOMImplementation() {
+        
+        public boolean hasFeature(String feature, String version) {
+            return DocumentView.hasFeature(feature, version);
+        }
+        
+        public DocumentType createDocumentType(String qualifiedName, 
+          String publicId, String systemId) {
+            throw notSupported();
+        }
+        
+        public org.w3c.dom.Document createDocument(String namespaceURI,
+          String qualifiedName, DocumentType doctype) {
+            throw notSupported();
+        }
+        
+        public Object getFeature(String feature, String version) {
+            return hasFeature(feature, version) ? this : null;
+        }
+        
+    };
+    
+    
+    DocumentView(Document document) {
+        super(document, null);
+    }
+    
+    
+    static boolean hasFeature(String feature, String version) {
+        
+        if (feature == null) return false;
+        if (feature.startsWith("+")) feature = feature.substring(1);
+        if (!feature.equalsIgnoreCase("Core") 
+          && !feature.equalsIgnoreCase("XML")) {
+            return false;
+        }
+        return version == null || version.length() == 0 
+          || version.equals("1.0") || version.equals("2.0") 
+          || version.equals("3.0");
+        
+    }
+    
+    
+    NodeView create(Node node, NodeView parent) {
+        
+        NodeView view;
+        if (node instanceof Element) {
+            view = new ElementView((Element) node, this);
+        }
+        else if (node instanceof Text) {
+            view = new TextView((Text) node, this);
+        }
+        else if (node instanceof Attribute) {
+            view = new AttrView((Attribute) node, this);
+        }
+        else if (node instanceof Comment) {
+            view = new CommentView((Comment) node, this);
+        }
+        else if (node instanceof ProcessingInstruction) {
+            view = new ProcessingInstructionView(
+              (ProcessingInstruction) node, this);
+        }
+        else if (node instanceof DocType) {
+            view = new DocumentTypeView((DocType) node, this);
+        }
+        else { 
+            // a node moved here from another document
+            view = new DocumentView((Document) node);
+        }
+        view.parent = parent;
+        return view;
+        
+    }
+    
+    
+    // Navigation normally goes through the views of the parents, 
+    // but sometimes it has to start from a node. Then the path 
+    // from the nearest ancestor whose view is known is followed 
+    // back down.
+    NodeView wrap(Node node) {
+        
+        List<Node> path = new ArrayList<Node>();
+        Node top = node;
+        while (top != this.node && top.getParent() != null) {
+            path.add(top);
+            top = top.getParent();
+        }
+        
+        NodeView view = this;
+        if (top != this.node) {
+            if (detached == null) {
+                detached = new IdentityHashMap<Node, NodeView>();
+            }
+            view = detached.get(top);
+            if (view == null) {
+                view = create(top, null);
+                detached.put(top, view);
+            }
+        }
+        
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node next = path.get(i);
+            if (next instanceof Attribute) {
+                view = ((ElementView) view).getAttributeView((Attribute) next);
+            }
+            else {
+                view = view.getChildView(next.getParent().indexOf(next));
+            }
+        }
+        return view;
+        
+    }
+    
+    
+    // Elements in document order below, but not including, start
+    static NodeList getElementsByTagName(NodeView start, 
+      String namespaceURI, String name) {
+        
+        List<org.w3c.dom.Node> result = new ArrayList<org.w3c.dom.Node>();
+        List<NodeView> parents = new ArrayList<NodeView>();
+        NodeView parent = start;
+        int[] indexes = new int[16];
+        int top = 0;
+        indexes[0] = -1;
+        while (true) {
+            int index = ++indexes[top];
+            if (index >= parent.node.getChildCount()) {
+                if (top == 0) break;
+                top--;
+                parent = parents.remove(parents.size() - 1);
+                continue;
+            }
+            Node child = parent.node.getChild(index);
+            if (child instanceof Element) {
+                Element element = (Element) child;
+                NodeView view = parent.getChildView(index);
+                if (matches(element, namespaceURI, name)) result.add(view);
+                if (element.getChildCount() > 0) {
+                    parents.add(parent);
+                    parent = view;
+                    top++;
+                    if (top == indexes.length) {
+                        int[] temp = new int[top * 2];
+                        System.arraycopy(indexes, 0, temp, 0, top);
+                        indexes = temp;
+                    }
+                    indexes[top] = -1;
+                }
+            }
+        }
+        return new NodeListView(result);
+        
+    }
+    
+    
+    // The namespace URI "*" matches any namespace, and the name 
+    // "*" matches any name. A null namespace URI means the
+    // qualified name is matched instead of the local name.
+    private static boolean matches(Element element, 
+      String namespaceURI, String name) {
+        
+        if (namespaceURI == null) {
+            return "*".equals(name) || name.equals(element.getQualifiedName());
+        }
+        return ("*".equals(namespaceURI) 
+            || namespaceURI.equals(element.getNamespaceURI()))
+          && ("*".equals(name) || name.equals(element.getLocalName()));
+        
+    }
+    
+    
+    Element getContextElement() {
+        return ((Document) node).getRootElement();
+    }
+
+    
+    public String getNodeName() {
+        return "#document";
+    }
+
+    
+    public short getNodeType() {
+        return DOCUMENT_NODE;
+    }
+
+    
+    public org.w3c.dom.Document getOwnerDocument() {
+        return null;
+    }
+    
+    
+    public String getTextContent() {
+        return null;
+    }
+
+    
+    public DocumentType getDoctype() {
+        DocType doctype = ((Document) node).getDocType();
+        return doctype == null ? null : (DocumentType) wrap(doctype);
+    }
+
+    
+    public DOMImplementation getImplementation() {
+        return implementation;
+    }
+
+    
+    public org.w3c.dom.Element getDocumentElement() {
+        return (org.w3c.dom.Element) wrap(((Document) node).getRootElement());
+    }
+
+    
+    public NodeList getElementsByTagName(String tagname) {
+        return getElementsByTagName(this, null, tagname);
+    }
+
+    
+    public NodeList getElementsByTagNameNS(String namespaceURI,
+      String localName) {
+        if (namespaceURI == null) namespaceURI = "";
+        return getElementsByTagName(this, namespaceURI, localName);
+    }
+
+    
+    public org.w3c.dom.Element getElementById(String elementId) {
+        
+        NodeList elements = getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) ((NodeView) elements.item(i)).node;
+            for (int j = 0; j < element.getAttributeCount(); j++) {
+                Attribute attribute = element.getAttribute(j);
+                if (attribute.getType() == Attribute.Type.ID
+                  && attribute.getValue().equals(elementId)) {
+                    return (org.w3c.dom.Element) elements.item(i);
+                }
+            }
+        }
+        return null;
+        
+    }
+
+    
+    public String getInputEncoding() {
+        return null;
+    }
+
+    
+    public String getXmlEncoding() {
+        return null;
+    }
+
+    
+    public boolean getXmlStandalone() {
+        return false;
+    }
+
+    
+    public void setXmlStandalone(boolean xmlStandalone) {
+        throw readOnly();
+    }
+
+    
+    public String getXmlVersion() {
+        return "1.0";
+    }
+
+    
+    public void setXmlVersion(String xmlVersion) {
+        throw readOnly();
+    }
+
+    
+    public boolean getStrictErrorChecking() {
+        return strictErrorChecking;
+    }
+
+    
+    public void setStrictErrorChecking(boolean strictErrorChecking) {
+        this.strictErrorChecking = strictErrorChecking;
+    }
+
+    
+    public String getDocumentURI() {
+        return getBaseURI();
+    }
+
+    
+    public void setDocumentURI(String documentURI) {
+        throw readOnly();
+    }
+
+    
+    // XOM has nothing to configure
+    public DOMConfiguration getDomConfig() {
+        return null;
+    }
+
+    
+    public void normalizeDocument() {
+        throw readOnly();
+    }
+
+    
+    public org.w3c.dom.Element createElement(String tagName) {
+        throw notSupported();
+    }
+
+    
+    public DocumentFragment createDocumentFragment() {
+        throw notSupported();
+    }
+
+    
+    public org.w3c.dom.Text createTextNode(String data) {
+        throw notSupported();
+    }
+
+    
+    public org.w3c.dom.Comment createComment(String data) {
+        throw notSupported();
+    }
+
+    
+    public CDATASection createCDATASection(String data) {
+        throw notSupported();
+    }
+
+    
+    public org.w3c.dom.ProcessingInstruction createProcessingInstruction(
+      String target, String data) {
+        throw notSupported();
+    }
+
+    
+    public Attr createAttribute(String name) {
+        throw notSupported();
+    }
+
+    
+    public EntityReference createEntityReference(String name) {
+        throw notSupported();
+    }
+
+    
+    public org.w3c.dom.Node importNode(org.w3c.dom.Node importedNode,
+      boolean deep) {
+        throw notSupported();
+    }
+
+    
+    public org.w3c.dom.Element createElementNS(String namespaceURI,
+      String qualifiedName) {
+        throw notSupported();
+    }
+
+    
+    public Attr createAttributeNS(String namespaceURI, 
+      String qualifiedName) {
+        throw notSupported();
+    }
+
+    
+    public org.w3c.dom.Node adoptNode(org.w3c.dom.Node source) {
+        throw readOnly();
+    }
+
+    
+    public org.w3c.dom.Node renameNode(org.w3c.dom.Node n, 
+      String namespaceURI, String qualifiedName) {
+        throw readOnly();
+    }
+
+    
+}
@@ -0,0 +1,312 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nu.xom.Attribute;
+import nu.xom.Element;
+import nu.xom.ParentNode;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * <p>
+ * The read-only <code>org.w3c.dom.Element</code> that wraps a
+ * XOM <code>Element</code>. As in a parsed DOM, namespace 
+ * declarations appear among the attributes, following the
+ * same rules <code>DOMConverter</code> uses to decide which
+ * declarations to write.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class ElementView extends NodeView implements org.w3c.dom.Element {
+
+    
+    private ViewCache attributes;
+    // namespace declarations have no XOM node, so they're
+    // kept by prefix
+    private Map<String, AttrView> namespaces;
+    
+    
+    ElementView(Element element, DocumentView owner) {
+        super(element, owner);
+    }
+    
+    
+    Element getContextElement() {
+        return (Element) node;
+    }
+
+    
+    public String getNodeName() {
+        return ((Element) node).getQualifiedName();
+    }
+
+    
+    public short getNodeType() {
+        return ELEMENT_NODE;
+    }
+    
+    
+    public String getTextContent() {
+        return node.getValue();
+    }
+
+    
+    public String getNamespaceURI() {
+        String uri = ((Element) node).getNamespaceURI();
+        return uri.length() == 0 ? null : uri;
+    }
+
+    
+    public String getPrefix() {
+        String prefix = ((Element) node).getNamespacePrefix();
+        return prefix.length() == 0 ? null : prefix;
+    }
+
+    
+    public String getLocalName() {
+        return ((Element) node).getLocalName();
+    }
+
+    
+    public String getTagName() {
+        return ((Element) node).getQualifiedName();
+    }
+
+    
+    public NamedNodeMap getAttributes() {
+        return new NamedNodeMapView(getAttributeList());
+    }
+    
+    
+    public boolean hasAttributes() {
+        return !getAttributeList().isEmpty();
+    }
+    
+    
+    AttrView getAttributeView(int position) {
+        if (attributes == null) attributes = new ViewCache(this, true);
+        return (AttrView) attributes.get(position);
+    }
+    
+    
+    AttrView getAttributeView(Attribute attribute) {
+        
+        Element element = (Element) node;
+        int count = element.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            if (element.getAttribute(i) == attribute) {
+                return getAttributeView(i);
+            }
+        }
+        // not this element's attribute
+        return null;
+        
+    }
+    
+    
+    List<org.w3c.dom.Node> getAttributeList() {
+        
+        Element element = (Element) node;
+        List<org.w3c.dom.Node> result = new ArrayList<org.w3c.dom.Node>();
+        int attributeCount = element.getAttributeCount();
+        for (int i = 0; i < attributeCount; i++) {
+            result.add(getAttributeView(i));
+        }
+        
+        ParentNode parentNode = element.getParent();
+        int namespaceCount = element.getNamespaceDeclarationCount(); 
+        for (int i = 0; i < namespaceCount; i++) {
+            String prefix = element.getNamespacePrefix(i);
+            String uri = element.getNamespaceURI(prefix);
+            if (parentNode instanceof Element) {
+                if (uri.equals(((Element) parentNode).getNamespaceURI(prefix))) {
+                    continue; 
+                }
+            }
+            else if (uri.length() == 0) continue;
+            result.add(getNamespace(prefix, uri, i));
+        }
+        return result;
+        
+    }
+    
+    
+    private AttrView getNamespace(String prefix, String uri, int index) {
+        
+        if (namespaces == null) namespaces = new HashMap<String, AttrView>();
+        AttrView result = namespaces.get(prefix);
+        if (result == null || !uri.equals(result.getValue())) {
+            result = new AttrView((Element) node, prefix, uri, owner);
+            result.parent = this;
+            namespaces.put(prefix, result);
+        }
+        result.setIndex(index);
+        return result;
+        
+    }
+    
+    
+    private Attr findAttribute(String name) {
+        
+        if (!name.equals("xmlns") && !name.startsWith("xmlns:")) {
+            Element element = (Element) node;
+            int count = element.getAttributeCount();
+            for (int i = 0; i < count; i++) {
+                Attribute attribute = element.getAttribute(i);
+                if (name.equals(attribute.getQualifiedName())) {
+                    return getAttributeView(i);
+                }
+            }
+            return null;
+        }
+        return (Attr) new NamedNodeMapView(getAttributeList()).getNamedItem(name);
+        
+    }
+    
+    
+    private Attr findAttribute(String namespaceURI, String localName) {
+        
+        if (namespaceURI == null) namespaceURI = "";
+        if (!namespaceURI.equals(DOMConverter.XMLNS_NAMESPACE)) {
+            Attribute attribute 
+              = ((Element) node).getAttribute(localName, namespaceURI);
+            return attribute == null ? null : getAttributeView(attribute);
+        }
+        return (Attr) new NamedNodeMapView(getAttributeList())
+          .getNamedItemNS(namespaceURI, localName);
+        
+    }
+
+    
+    public String getAttribute(String name) {
+        Attr attribute = findAttribute(name);
+        return attribute == null ? "" : attribute.getValue();
+    }
+
+    
+    public Attr getAttributeNode(String name) {
+        return findAttribute(name);
+    }
+
+    
+    public boolean hasAttribute(String name) {
+        return findAttribute(name) != null;
+    }
+
+    
+    public String getAttributeNS(String namespaceURI, String localName) {
+        Attr attribute = findAttribute(namespaceURI, localName);
+        return attribute == null ? "" : attribute.getValue();
+    }
+
+    
+    public Attr getAttributeNodeNS(String namespaceURI, String localName) {
+        return findAttribute(namespaceURI, localName);
+    }
+
+    
+    public boolean hasAttributeNS(String namespaceURI, String localName) {
+        return findAttribute(namespaceURI, localName) != null;
+    }
+
+    
+    public NodeList getElementsByTagName(String name) {
+        return DocumentView.getElementsByTagName(this, null, name);
+    }
+
+    
+    public NodeList getElementsByTagNameNS(String namespaceURI,
+      String localName) {
+        if (namespaceURI == null) namespaceURI = "";
+        return DocumentView.getElementsByTagName(this, namespaceURI, localName);
+    }
+
+    
+    public TypeInfo getSchemaTypeInfo() {
+        return NO_TYPE;
+    }
+
+    
+    public void setAttribute(String name, String value) {
+        throw readOnly();
+    }
+
+    
+    public void removeAttribute(String name) {
+        throw readOnly();
+    }
+
+    
+    public Attr setAttributeNode(Attr attribute) {
+        throw readOnly();
+    }
+
+    
+    public Attr removeAttributeNode(Attr attribute) {
+        throw readOnly();
+    }
+
+    
+    public void setAttributeNS(String namespaceURI, String qualifiedName,
+      String value) {
+        throw readOnly();
+    }
+
+    
+    public void removeAttributeNS(String namespaceURI, String localName) {
+        throw readOnly();
+    }
+
+    
+    public Attr setAttributeNodeNS(Attr attribute) {
+        throw readOnly();
+    }
+
+    
+    public void setIdAttribute(String name, boolean isId) {
+        throw readOnly();
+    }
+
+    
+    public void setIdAttributeNS(String namespaceURI, String localName,
+      boolean isId) {
+        throw readOnly();
+    }
+
+    
+    public void setIdAttributeNode(Attr attribute, boolean isId) {
+        throw readOnly();
+    }
+
+    
+}
@@ -0,0 +1,108 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.List;
+
+import org.w3c.dom.NamedNodeMap;
+
+/**
+ * <p>
+ * A fixed, read-only <code>org.w3c.dom.NamedNodeMap</code> of
+ * attribute views. Unlike most DOM maps, it does not change when
+ * the tree does.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class NamedNodeMapView implements NamedNodeMap {
+
+    
+    private final List<org.w3c.dom.Node> nodes;
+    
+    
+    NamedNodeMapView(List<org.w3c.dom.Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    
+    public org.w3c.dom.Node getNamedItem(String name) {
+        
+        for (int i = 0; i < nodes.size(); i++) {
+            org.w3c.dom.Node node = nodes.get(i);
+            if (name.equals(node.getNodeName())) return node;
+        }
+        return null;
+        
+    }
+
+    
+    public org.w3c.dom.Node getNamedItemNS(String namespaceURI,
+      String localName) {
+        
+        if ("".equals(namespaceURI)) namespaceURI = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            org.w3c.dom.Node node = nodes.get(i);
+            if (NodeView.equal(namespaceURI, node.getNamespaceURI())
+              && localName.equals(node.getLocalName())) {
+                return node;
+            }
+        }
+        return null;
+        
+    }
+
+    
+    public org.w3c.dom.Node item(int index) {
+        if (index < 0 || index >= nodes.size()) return null;
+        return nodes.get(index);
+    }
+
+    
+    public int getLength() {
+        return nodes.size();
+    }
+
+    
+    public org.w3c.dom.Node setNamedItem(org.w3c.dom.Node arg) {
+        throw NodeView.readOnly();
+    }
+
+    
+    public org.w3c.dom.Node removeNamedItem(String name) {
+        throw NodeView.readOnly();
+    }
+
+    
+    public org.w3c.dom.Node setNamedItemNS(org.w3c.dom.Node arg) {
+        throw NodeView.readOnly();
+    }
+
+    
+    public org.w3c.dom.Node removeNamedItemNS(String namespaceURI,
+      String localName) {
+        throw NodeView.readOnly();
+    }
+
+    
+}
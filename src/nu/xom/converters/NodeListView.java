@@ -0,0 +1,59 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.List;
+
+import org.w3c.dom.NodeList;
+
+/**
+ * <p>
+ * A fixed <code>org.w3c.dom.NodeList</code>. Unlike most DOM lists,
+ * it does not change when the tree does.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class NodeListView implements NodeList {
+
+    
+    private final List<org.w3c.dom.Node> nodes;
+    
+    
+    NodeListView(List<org.w3c.dom.Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    
+    public org.w3c.dom.Node item(int index) {
+        if (index < 0 || index >= nodes.size()) return null;
+        return nodes.get(index);
+    }
+
+    
+    public int getLength() {
+        return nodes.size();
+    }
+
+    
+}
@@ -0,0 +1,523 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nu.xom.Element;
+import nu.xom.Node;
+import nu.xom.ParentNode;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+import org.w3c.dom.UserDataHandler;
+
+/**
+ * <p>
+ * The read-only <code>org.w3c.dom.Node</code> that wraps a XOM node.
+ * Views navigate the XOM tree on every call, so they always 
+ * reflect its current state. Each view is created the first time
+ * its node is reached, and is then kept by its parent's view.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+abstract class NodeView implements org.w3c.dom.Node {
+
+    
+    final Node node;
+    final DocumentView owner;
+    
+    // the view of the parent, or the owner element of an attribute,
+    // when this view was created; checked before it's used
+    NodeView parent;
+    private ViewCache children;
+    
+    // where this node was last seen in its parent, so that walking
+    // across siblings doesn't search the parent each time
+    private int index = -1;
+    private Map<String, Object> userData;
+    
+    
+    static final TypeInfo NO_TYPE = new TypeInfo() {
+        
+        public String getTypeName() {
+            return null;
+        }
+        
+        public String getTypeNamespace() {
+            return null;
+        }
+        
+        public boolean isDerivedFrom(String namespace, String name, 
+          int method) {
+            return false;
+        }
+        
+    };
+    
+    
+    NodeView(Node node, DocumentView owner) {
+        this.node = node;
+        // a document view owns itself
+        this.owner = owner == null ? (DocumentView) this : owner;
+    }
+    
+    
+    static DOMException readOnly() {
+        return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, 
+          "XOM views are read-only");
+    }
+    
+    
+    static DOMException notSupported() {
+        return new DOMException(DOMException.NOT_SUPPORTED_ERR, 
+          "Not supported by XOM views");
+    }
+    
+    
+    final void setIndex(int index) {
+        this.index = index;
+    }
+    
+    
+    final NodeView getChildView(int position) {
+        if (children == null) children = new ViewCache(this, false);
+        return children.get(position);
+    }
+    
+    
+    final NodeView getParentView() {
+        
+        ParentNode parentNode = node.getParent();
+        if (parentNode == null) return null;
+        if (parent == null || parent.node != parentNode) {
+            parent = owner.wrap(parentNode);
+        }
+        return parent;
+        
+    }
+    
+    
+    final int getIndex(ParentNode parentNode) {
+        
+        if (index < 0 || index >= parentNode.getChildCount() 
+          || parentNode.getChild(index) != node) {
+            index = parentNode.indexOf(node);
+        }
+        return index;
+        
+    }
+    
+    
+    // The element that namespace lookups start from
+    Element getContextElement() {
+        ParentNode parentNode = node.getParent();
+        return parentNode instanceof Element ? (Element) parentNode : null;
+    }
+    
+    
+    // Used to order attributes ahead of children. Attributes
+    // return negative numbers.
+    int getOrder() {
+        ParentNode parentNode = node.getParent();
+        return parentNode == null ? 0 : getIndex(parentNode);
+    }
+
+    
+    public String getNodeValue() {
+        return null;
+    }
+
+    
+    public void setNodeValue(String value) {
+        if (getNodeValue() != null) throw readOnly();
+    }
+
+    
+    public org.w3c.dom.Node getParentNode() {
+        return getParentView();
+    }
+
+    
+    public NodeList getChildNodes() {
+        return new ChildNodes();
+    }
+
+    
+    public org.w3c.dom.Node getFirstChild() {
+        return getChild(0);
+    }
+
+    
+    public org.w3c.dom.Node getLastChild() {
+        return getChild(node.getChildCount() - 1);
+    }
+    
+    
+    private org.w3c.dom.Node getChild(int position) {
+        
+        if (position < 0 || position >= node.getChildCount()) return null;
+        return getChildView(position);
+        
+    }
+
+    
+    public org.w3c.dom.Node getPreviousSibling() {
+        return getSibling(-1);
+    }
+
+    
+    public org.w3c.dom.Node getNextSibling() {
+        return getSibling(1);
+    }
+    
+    
+    private org.w3c.dom.Node getSibling(int offset) {
+        
+        ParentNode parentNode = node.getParent();
+        if (parentNode == null) return null;
+        int position = getIndex(parentNode) + offset;
+        if (position < 0 || position >= parentNode.getChildCount()) {
+            return null;
+        }
+        return getParentView().getChildView(position);
+        
+    }
+
+    
+    public NamedNodeMap getAttributes() {
+        return null;
+    }
+
+    
+    public org.w3c.dom.Document getOwnerDocument() {
+        return owner;
+    }
+
+    
+    public org.w3c.dom.Node insertBefore(org.w3c.dom.Node newChild, 
+      org.w3c.dom.Node refChild) {
+        throw readOnly();
+    }
+
+    
+    public org.w3c.dom.Node replaceChild(org.w3c.dom.Node newChild, 
+      org.w3c.dom.Node oldChild) {
+        throw readOnly();
+    }
+
+    
+    public org.w3c.dom.Node removeChild(org.w3c.dom.Node oldChild) {
+        throw readOnly();
+    }
+
+    
+    public org.w3c.dom.Node appendChild(org.w3c.dom.Node newChild) {
+        throw readOnly();
+    }
+
+    
+    public boolean hasChildNodes() {
+        return node.getChildCount() > 0;
+    }
+
+    
+    public org.w3c.dom.Node cloneNode(boolean deep) {
+        throw notSupported();
+    }
+
+    
+    public void normalize() {
+        throw readOnly();
+    }
+
+    
+    public boolean isSupported(String feature, String version) {
+        return DocumentView.hasFeature(feature, version);
+    }
+
+    
+    public String getNamespaceURI() {
+        return null;
+    }
+
+    
+    public String getPrefix() {
+        return null;
+    }
+
+    
+    public void setPrefix(String prefix) {
+        throw readOnly();
+    }
+
+    
+    public String getLocalName() {
+        return null;
+    }
+
+    
+    public boolean hasAttributes() {
+        return false;
+    }
+
+    
+    public String getBaseURI() {
+        String base = node.getBaseURI();
+        return "".equals(base) ? null : base;
+    }
+
+    
+    public short compareDocumentPosition(org.w3c.dom.Node other) {
+
+        if (other == this) return 0;
+        if (!(other instanceof NodeView) 
+          || ((NodeView) other).owner != owner) {
+            return disconnected(other);
+        }
+        
+        List<NodeView> ours = getAncestors(this);
+        List<NodeView> theirs = getAncestors((NodeView) other);
+        int i = ours.size() - 1;
+        int j = theirs.size() - 1;
+        if (ours.get(i) != theirs.get(j)) return disconnected(other);
+        while (i >= 0 && j >= 0 && ours.get(i) == theirs.get(j)) {
+            i--;
+            j--;
+        }
+        
+        if (i < 0) {
+            return DOCUMENT_POSITION_CONTAINED_BY | DOCUMENT_POSITION_FOLLOWING;
+        }
+        else if (j < 0) {
+            return DOCUMENT_POSITION_CONTAINS | DOCUMENT_POSITION_PRECEDING;
+        }
+        
+        NodeView ourBranch = ours.get(i);
+        NodeView theirBranch = theirs.get(j);
+        short result = ourBranch.getOrder() < theirBranch.getOrder() 
+          ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING;
+        if (ourBranch.getNodeType() == ATTRIBUTE_NODE 
+          && theirBranch.getNodeType() == ATTRIBUTE_NODE) {
+            result |= DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC;
+        }
+        return result;
+        
+    }
+    
+    
+    private short disconnected(org.w3c.dom.Node other) {
+        
+        // any order will do as long as it's consistent
+        short direction = System.identityHashCode(this) 
+          < System.identityHashCode(other) 
+          ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING;
+        return (short) (DOCUMENT_POSITION_DISCONNECTED 
+          | DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC | direction);
+        
+    }
+    
+    
+    // from the node itself up to its root, through the owner
+    // element of an attribute
+    private static List<NodeView> getAncestors(NodeView view) {
+        
+        List<NodeView> result = new ArrayList<NodeView>();
+        org.w3c.dom.Node current = view;
+        while (current != null) {
+            result.add((NodeView) current);
+            if (current.getNodeType() == ATTRIBUTE_NODE) {
+                current = ((org.w3c.dom.Attr) current).getOwnerElement();
+            }
+            else current = current.getParentNode();
+        }
+        return result;
+        
+    }
+
+    
+    public String getTextContent() {
+        return getNodeValue();
+    }
+
+    
+    public void setTextContent(String text) {
+        if (getTextContent() != null) throw readOnly();
+    }
+
+    
+    public boolean isSameNode(org.w3c.dom.Node other) {
+        return other == this;
+    }
+
+    
+    public String lookupPrefix(String namespaceURI) {
+        
+        if (namespaceURI == null || namespaceURI.length() == 0) {
+            return null;
+        }
+        Element start = getContextElement();
+        if (start == null) return null;
+        for (Element current = start; 
+          current != null; 
+          current = getParentElement(current)) {
+            int count = current.getNamespaceDeclarationCount();
+            for (int i = 0; i < count; i++) {
+                String prefix = current.getNamespacePrefix(i);
+                // a prefix declared further in may hide this one
+                if (prefix.length() > 0 
+                  && namespaceURI.equals(start.getNamespaceURI(prefix))) {
+                    return prefix;
+                }
+            }
+        }
+        return null;
+        
+    }
+    
+    
+    private static Element getParentElement(Element element) {
+        ParentNode parent = element.getParent();
+        return parent instanceof Element ? (Element) parent : null;
+    }
+
+    
+    public boolean isDefaultNamespace(String namespaceURI) {
+        
+        Element context = getContextElement();
+        if (context == null) return false;
+        if (namespaceURI == null) namespaceURI = "";
+        return namespaceURI.equals(context.getNamespaceURI(""));
+        
+    }
+
+    
+    public String lookupNamespaceURI(String prefix) {
+        
+        Element context = getContextElement();
+        if (context == null) return null;
+        String uri = context.getNamespaceURI(prefix == null ? "" : prefix);
+        return uri == null || uri.length() == 0 ? null : uri;
+        
+    }
+
+    
+    public boolean isEqualNode(org.w3c.dom.Node other) {
+        
+        if (other == this) return true;
+        if (other == null || other.getNodeType() != getNodeType()) {
+            return false;
+        }
+        if (!equal(getNodeName(), other.getNodeName())
+          || !equal(getLocalName(), other.getLocalName())
+          || !equal(getNamespaceURI(), other.getNamespaceURI())
+          || !equal(getPrefix(), other.getPrefix())
+          || !equal(getNodeValue(), other.getNodeValue())) {
+            return false;
+        }
+        
+        NamedNodeMap attributes = getAttributes();
+        NamedNodeMap otherAttributes = other.getAttributes();
+        if (attributes != null) {
+            int length = attributes.getLength();
+            if (otherAttributes == null 
+              || otherAttributes.getLength() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                org.w3c.dom.Node attribute = attributes.item(i);
+                org.w3c.dom.Node match = attribute.getLocalName() == null
+                  ? otherAttributes.getNamedItem(attribute.getNodeName())
+                  : otherAttributes.getNamedItemNS(
+                      attribute.getNamespaceURI(), attribute.getLocalName());
+                if (!attribute.isEqualNode(match)) return false;
+            }
+        }
+        
+        // attribute views don't split their values into text
+        // children, and the values have already been compared
+        if (getNodeType() == ATTRIBUTE_NODE) return true;
+        NodeList children = getChildNodes();
+        NodeList otherChildren = other.getChildNodes();
+        int length = children.getLength();
+        if (otherChildren.getLength() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (!children.item(i).isEqualNode(otherChildren.item(i))) {
+                return false;
+            }
+        }
+        return true;
+        
+    }
+    
+    
+    static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    
+    public Object getFeature(String feature, String version) {
+        return isSupported(feature, version) ? this : null;
+    }
+
+    
+    // Views are never cloned, imported, or renamed, so the
+    // handlers are never called.
+    public Object setUserData(String key, Object data, 
+      UserDataHandler handler) {
+        
+        if (userData == null) {
+            if (data == null) return null;
+            userData = new HashMap<String, Object>();
+        }
+        if (data == null) return userData.remove(key);
+        return userData.put(key, data);
+        
+    }
+
+    
+    public Object getUserData(String key) {
+        return userData == null ? null : userData.get(key);
+    }
+    
+    
+    private class ChildNodes implements NodeList {
+
+        public org.w3c.dom.Node item(int index) {
+            return getChild(index);
+        }
+
+        public int getLength() {
+            return node.getChildCount();
+        }
+        
+    }
+    
+    
+}
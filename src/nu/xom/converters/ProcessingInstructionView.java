@@ -0,0 +1,75 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import nu.xom.ProcessingInstruction;
+
+/**
+ * <p>
+ * The read-only <code>org.w3c.dom.ProcessingInstruction</code>
+ * that wraps a XOM <code>ProcessingInstruction</code>.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class ProcessingInstructionView extends NodeView 
+  implements org.w3c.dom.ProcessingInstruction {
+
+    
+    ProcessingInstructionView(ProcessingInstruction instruction, 
+      DocumentView owner) {
+        super(instruction, owner);
+    }
+
+    
+    public String getNodeName() {
+        return getTarget();
+    }
+
+    
+    public short getNodeType() {
+        return PROCESSING_INSTRUCTION_NODE;
+    }
+    
+    
+    public String getNodeValue() {
+        return node.getValue();
+    }
+
+    
+    public String getTarget() {
+        return ((ProcessingInstruction) node).getTarget();
+    }
+
+    
+    public String getData() {
+        return node.getValue();
+    }
+
+    
+    public void setData(String data) {
+        throw readOnly();
+    }
+
+    
+}
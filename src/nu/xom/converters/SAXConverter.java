@@ -44,15 +44,30 @@ import org.xml.sax.helpers.LocatorImpl;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.1b2 
+ * @version 1.4.7
  */
 public class SAXConverter {
 
     
     private ContentHandler contentHandler;
     private LexicalHandler lexicalHandler;
-    private LocatorImpl    locator;
+    private NodeLocator    locator;
     private boolean        stripBaseAttributes = true;
+    
+    // Scratch space reused for every event. SAX handlers may not 
+    // hold onto the character arrays or the attributes they're 
+    // passed, so each event can overwrite the last one's data.
+    private char[]         buffer = new char[128];
+    private final AttributesImpl attributes = new AttributesImpl();
+    
+    // The namespace mappings started by the elements currently
+    // being converted, innermost last.
+    private String[]       prefixes = new String[16];
+    private String[]       uris = new String[16];
+    private int            mappingCount = 0;
+    // The parent of the outermost element being converted, which
+    // supplies the namespaces in scope outside the converted nodes
+    private Element        context;
 
     
     /**
@@ -162,8 +177,9 @@ public class SAXConverter {
      */
     public void convert(Document doc) throws SAXException {
         
-        locator = new LocatorImpl();
+        locator = new NodeLocator();
         locator.setSystemId(doc.getBaseURI());
+        mappingCount = 0;
         contentHandler.setDocumentLocator(locator);
         contentHandler.startDocument();
         for (int i = 0; i < doc.getChildCount(); i++) {
@@ -181,8 +197,7 @@ public class SAXConverter {
         }
         else if (node instanceof Text) {
             String data = node.getValue();
-            contentHandler.characters(
-              data.toCharArray(), 0, data.length());
+            contentHandler.characters(toChars(data), 0, data.length());
         }
         else if (node instanceof ProcessingInstruction) {
             ProcessingInstruction instruction 
@@ -193,8 +208,7 @@ public class SAXConverter {
         }
         else if (node instanceof Comment && lexicalHandler != null) {
             String data = node.getValue();
-            lexicalHandler.comment(
-              data.toCharArray(), 0, data.length());            
+            lexicalHandler.comment(toChars(data), 0, data.length());            
         }
         else if (node instanceof DocType && lexicalHandler != null) {
             DocType type = (DocType) node;
@@ -207,56 +221,81 @@ public class SAXConverter {
     }
     
     
+    private char[] toChars(String data) {
+        
+        int length = data.length();
+        if (length > buffer.length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        data.getChars(0, length, buffer, 0);
+        return buffer;
+        
+    }
+    
+    
     /**
      * @param element the context in which the prefix is mapped
      * @param prefix the prefix to pass to statPrefixMapping
-     * @return true if and only if startPrefixMapping was called
      * @throws SAXException if the ContentHandler throws an exception
      */
-    private boolean convertNamespace(Element element, String prefix)
+    private void convertNamespace(Element element, String prefix)
       throws SAXException {
         
-        // XXX could store a stack of these in a namespaceSupport to avoid going up to the parent
         String uri = element.getNamespaceURI(prefix);
-        ParentNode parentNode = element.getParent();
-        Element parent = null;
-        if (parentNode instanceof Element) {
-            parent = (Element) parentNode;   
-        }
+        if (uri.equals(getInheritedNamespaceURI(prefix))) return;
         
-        if (parent != null && uri.equals(parent.getNamespaceURI(prefix))) {
-            return false; 
-        }
-        else if (parent == null && "".equals(uri)) {
-            // Do not fire startPrefixMapping event for no namespace
-            // on root element
-            return false;
+        if (mappingCount == prefixes.length) {
+            String[] newPrefixes = new String[mappingCount * 2];
+            System.arraycopy(prefixes, 0, newPrefixes, 0, mappingCount);
+            prefixes = newPrefixes;
+            String[] newURIs = new String[mappingCount * 2];
+            System.arraycopy(uris, 0, newURIs, 0, mappingCount);
+            uris = newURIs;
         }
+        prefixes[mappingCount] = prefix;
+        uris[mappingCount] = uri;
+        mappingCount++;
         contentHandler.startPrefixMapping(prefix, uri); 
-        return true; // i.e. converted
+        
+    }
+    
+    
+    // The URI the prefix is mapped to in the parent of the element 
+    // being converted. Mappings the converted ancestors started are
+    // on the stack. Everything else was inherited from outside, 
+    // so it's the same as it is for the outermost element's parent.
+    private String getInheritedNamespaceURI(String prefix) {
+        
+        for (int i = mappingCount - 1; i >= 0; i--) {
+            if (prefixes[i].equals(prefix)) return uris[i];
+        }
+        if (context != null) return context.getNamespaceURI(prefix);
+        // Do not fire startPrefixMapping event for no namespace
+        // on root element
+        return "".equals(prefix) ? "" : null;
         
     }
 
     
     private void convertElement(Element element) throws SAXException {
         
-        locator.setSystemId(element.getBaseURI());
+        locator.setNode(element);
         
         // start prefix mapping
+        int firstMapping = mappingCount;
+        if (firstMapping == 0) {
+            ParentNode parentNode = element.getParent();
+            context = parentNode instanceof Element 
+              ? (Element) parentNode : null;
+        }
         int namespaceCount = element.getNamespaceDeclarationCount();
-        String[] prefixes = new String[namespaceCount];
-        int prefixCount = 0;
         for (int i = 0; i < namespaceCount; i++) {
-            String prefix = element.getNamespacePrefix(i);
-            boolean converted = convertNamespace(element, prefix);
-            if (converted) {
-                prefixes[prefixCount] = prefix;
-                prefixCount++;
-            }
+            convertNamespace(element, element.getNamespacePrefix(i));
         }
         
         // prepare attributes
-        AttributesImpl saxAttributes = new AttributesImpl();
+        AttributesImpl saxAttributes = attributes;
+        saxAttributes.clear();
         int attributeCount = element.getAttributeCount();
         for (int i = 0; i < attributeCount; i++) {
             Attribute attribute = element.getAttribute(i);
@@ -276,40 +315,34 @@ public class SAXConverter {
               attribute.getValue());
         }
         
+        String namespaceURI = element.getNamespaceURI();
+        String localName = element.getLocalName();
+        String qualifiedName = element.getQualifiedName();
         contentHandler.startElement(
-          element.getNamespaceURI(),
-          element.getLocalName(), 
-          element.getQualifiedName(), 
-          saxAttributes);
+          namespaceURI, localName, qualifiedName, saxAttributes);
         int childCount = element.getChildCount();
         for (int i = 0; i < childCount; i++) {
             process(element.getChild(i));   
         }
-        contentHandler.endElement(element.getNamespaceURI(),
-          element.getLocalName(), element.getQualifiedName());
+        contentHandler.endElement(namespaceURI, localName, qualifiedName);
         
         // end prefix mappings
-        for (int i = 0; i < prefixCount; i++) {
+        int lastMapping = mappingCount;
+        mappingCount = firstMapping;
+        for (int i = firstMapping; i < lastMapping; i++) {
             contentHandler.endPrefixMapping(prefixes[i]);
         }
     
     }
     
     
-    private static String getSAXType(Attribute attribute) {
+    static String getSAXType(Attribute attribute) {
 
-        Attribute.Type type = attribute.getType();
-        if (type.equals(Attribute.Type.UNDECLARED))  return "CDATA";
-        if (type.equals(Attribute.Type.CDATA))       return "CDATA";
-        if (type.equals(Attribute.Type.ID))          return "ID";
-        if (type.equals(Attribute.Type.IDREF))       return "IDREF";
-        if (type.equals(Attribute.Type.IDREFS))      return "IDREFS";
-        if (type.equals(Attribute.Type.NMTOKEN))     return "NMTOKEN";
-        if (type.equals(Attribute.Type.NMTOKENS))    return "NMTOKENS";
-        if (type.equals(Attribute.Type.ENTITY))      return "ENTITY";
-        if (type.equals(Attribute.Type.ENTITIES))    return "ENTITIES";
-        if (type.equals(Attribute.Type.NOTATION))    return "NOTATION";
-        return "NMTOKEN"; // ENUMERATED
+        // The other types have the same names in SAX.
+        String type = attribute.getType().getName();
+        if (type.equals("UNDECLARED"))  return "CDATA";
+        if (type.equals("ENUMERATION")) return "NMTOKEN";
+        return type;
         
     }
 
@@ -334,7 +367,8 @@ public class SAXConverter {
             convert((Document) nodes.get(0));
         }
         else {
-            locator = new LocatorImpl();
+            locator = new NodeLocator();
+            mappingCount = 0;
             contentHandler.setDocumentLocator(locator);
             contentHandler.startDocument();
             for (int i = 0; i < nodes.size(); i++) {
@@ -346,4 +380,34 @@ public class SAXConverter {
     }
 
     
+    // Most handlers never ask for the system ID, and computing an 
+    // element's base URI is far more expensive than reporting the
+    // element. Therefore the base URI is only computed when asked 
+    // for, and then only once per element.
+    private static class NodeLocator extends LocatorImpl {
+        
+        private Node node;
+        
+        void setNode(Node node) {
+            this.node = node;
+        }
+        
+        public String getSystemId() {
+            
+            if (node != null) {
+                setSystemId(node.getBaseURI());
+                node = null;
+            }
+            return super.getSystemId();
+            
+        }
+        
+        public void setSystemId(String systemId) {
+            node = null;
+            super.setSystemId(systemId);
+        }
+        
+    }
+
+    
 }
@@ -0,0 +1,109 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import javax.xml.stream.XMLStreamReader;
+
+import nu.xom.Document;
+import nu.xom.Element;
+
+/**
+ * <p>
+ * Reads XOM trees through the StAX <code>XMLStreamReader</code>
+ * interface. The reader walks the tree in place, without 
+ * serializing or copying it, so it's a cheap way to hand a 
+ * XOM document to an API that consumes StAX, such as a
+ * <code>javax.xml.transform.stax.StAXSource</code>. To go the 
+ * other way and build a XOM document from any StAX reader, use
+ * <code>Builder.build(XMLStreamReader)</code>.
+ * </p>
+ * 
+ * <p>
+ * Events are reported for the document's or element's 
+ * current content. Text is reported as <code>CHARACTERS</code>
+ * events, one per text node. The document type declaration, if 
+ * any, is reported as a <code>DTD</code> event whose text is the
+ * complete declaration. Namespace declarations are reported on
+ * the element where each namespace first comes into scope. The
+ * tree should not be modified while a reader is walking it.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public final class StAXConverter {
+
+    
+    // prevent instantiation
+    private StAXConverter() {}
+    
+
+    /**
+     * <p>
+     * Returns a StAX reader positioned at the start of
+     * the document. 
+     * </p>
+     * 
+     * @param document the document to read
+     * 
+     * @return a reader that reports the events of the document
+     * 
+     * @throws NullPointerException if <code>document</code> is null
+     */
+    public static XMLStreamReader createXMLStreamReader(Document document) {
+        
+        if (document == null) {
+            throw new NullPointerException("Null document");
+        }
+        return new XOMStreamReader(document);
+        
+    }
+    
+
+    /**
+     * <p>
+     * Returns a StAX reader that reports a single element as if it
+     * were the root element of a document. The reader begins with
+     * a <code>START_DOCUMENT</code> event, and ends with an
+     * <code>END_DOCUMENT</code> event immediately after the 
+     * element's end-tag. The element's start-tag declares every 
+     * namespace in scope on the element, including those declared
+     * on its ancestors. 
+     * </p>
+     * 
+     * @param element the element to read
+     * 
+     * @return a reader that reports the events of the element
+     * 
+     * @throws NullPointerException if <code>element</code> is null
+     */
+    public static XMLStreamReader createXMLStreamReader(Element element) {
+        
+        if (element == null) {
+            throw new NullPointerException("Null element");
+        }
+        return new XOMStreamReader(element);
+        
+    }
+    
+    
+}
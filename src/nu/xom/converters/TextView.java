@@ -0,0 +1,90 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import nu.xom.Node;
+import nu.xom.ParentNode;
+import nu.xom.Text;
+
+/**
+ * <p>
+ * The read-only <code>org.w3c.dom.Text</code> that wraps a
+ * XOM <code>Text</code>. CDATA sections are reported as 
+ * ordinary text.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class TextView extends CharacterDataView implements org.w3c.dom.Text {
+
+    
+    TextView(Text text, DocumentView owner) {
+        super(text, owner);
+    }
+
+    
+    public String getNodeName() {
+        return "#text";
+    }
+
+    
+    public short getNodeType() {
+        return TEXT_NODE;
+    }
+
+    
+    public boolean isElementContentWhitespace() {
+        return false;
+    }
+
+    
+    public String getWholeText() {
+        
+        ParentNode parentNode = node.getParent();
+        if (parentNode == null) return node.getValue();
+        int first = parentNode.indexOf(node);
+        while (first > 0 && parentNode.getChild(first - 1) instanceof Text) {
+            first--;
+        }
+        StringBuilder result = new StringBuilder();
+        for (int i = first; i < parentNode.getChildCount(); i++) {
+            Node child = parentNode.getChild(i);
+            if (!(child instanceof Text)) break;
+            result.append(child.getValue());
+        }
+        return result.toString();
+        
+    }
+
+    
+    public org.w3c.dom.Text splitText(int offset) {
+        throw readOnly();
+    }
+
+    
+    public org.w3c.dom.Text replaceWholeText(String content) {
+        throw readOnly();
+    }
+
+    
+}
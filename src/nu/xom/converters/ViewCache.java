@@ -0,0 +1,111 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import nu.xom.Element;
+import nu.xom.Node;
+
+/**
+ * <p>
+ * The views of the children, or the attributes, of one node,
+ * indexed by position. A view found at the wrong position means 
+ * the XOM tree has changed. The cache is then rebuilt, keeping
+ * the views of the nodes that are still there, so a node keeps 
+ * its view as long as it keeps its parent.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class ViewCache {
+
+    
+    private static final NodeView[] EMPTY = new NodeView[0];
+    
+    private final NodeView parent;
+    private final boolean attributes;
+    private NodeView[] views = EMPTY;
+    
+    
+    ViewCache(NodeView parent, boolean attributes) {
+        this.parent = parent;
+        this.attributes = attributes;
+    }
+    
+    
+    NodeView get(int position) {
+        
+        Node node = getNode(position);
+        int count = getCount();
+        if (views.length != count) rebuild(count);
+        NodeView view = views[position];
+        if (view != null && view.node != node) {
+            rebuild(count);
+            view = views[position];
+        }
+        if (view == null) {
+            view = parent.owner.create(node, parent);
+            views[position] = view;
+        }
+        view.setIndex(position);
+        return view;
+        
+    }
+    
+    
+    private Node getNode(int position) {
+        if (attributes) return ((Element) parent.node).getAttribute(position);
+        return parent.node.getChild(position);
+    }
+    
+    
+    private int getCount() {
+        if (attributes) return ((Element) parent.node).getAttributeCount();
+        return parent.node.getChildCount();
+    }
+    
+    
+    private void rebuild(int count) {
+        
+        NodeView[] old = views;
+        views = new NodeView[count];
+        Map<Node, NodeView> reusable = null;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] != null) {
+                if (reusable == null) {
+                    reusable = new IdentityHashMap<Node, NodeView>();
+                }
+                reusable.put(old[i].node, old[i]);
+            }
+        }
+        if (reusable == null) return;
+        for (int i = 0; i < count; i++) {
+            views[i] = reusable.get(getNode(i));
+        }
+        
+    }
+    
+    
+}
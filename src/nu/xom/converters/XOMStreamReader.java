@@ -0,0 +1,782 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.converters;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import nu.xom.Attribute;
+import nu.xom.Comment;
+import nu.xom.DocType;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Node;
+import nu.xom.ParentNode;
+import nu.xom.ProcessingInstruction;
+
+/**
+ * <p>
+ * A StAX <code>XMLStreamReader</code> that walks an existing XOM 
+ * tree. Nothing is copied or serialized. Each event reads the 
+ * current node directly. Adjacent text nodes are reported as 
+ * separate <code>CHARACTERS</code> events. Namespace declarations
+ * are reported where they first come into scope, exactly as 
+ * <code>DOMConverter</code> would write them.
+ * </p>
+ * 
+ * <p>
+ * The tree must not be changed while the reader walks it.
+ * </p>
+ * 
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class XOMStreamReader implements XMLStreamReader {
+
+    
+    private final Document document;
+    // the element whose subtree is read, or null for a whole document
+    private final Element top;
+    private final String systemID;
+    
+    private ParentNode[] parents = new ParentNode[16];
+    private int[] indexes = new int[16];
+    private int depth = -1;
+    
+    private Node current;
+    private int event = START_DOCUMENT;
+    
+    // the namespace declarations of the current element, 
+    // computed when first asked for
+    private Element namespaceElement;
+    private final List<String> namespacePrefixes = new ArrayList<String>();
+    private final List<String> namespaceURIs = new ArrayList<String>();
+    
+    private char[] text;
+    
+    
+    XOMStreamReader(Document document) {
+        this.document = document;
+        this.top = null;
+        this.systemID = getSystemID(document);
+    }
+    
+    
+    XOMStreamReader(Element element) {
+        this.document = element.getDocument();
+        this.top = element;
+        this.systemID = getSystemID(element);
+    }
+    
+    
+    private static String getSystemID(Node node) {
+        String base = node.getBaseURI();
+        return base.length() == 0 ? null : base;
+    }
+
+    
+    public Object getProperty(String name) {
+        
+        if (name == null) {
+            throw new IllegalArgumentException("Null property name");
+        }
+        if (XMLInputFactory.IS_NAMESPACE_AWARE.equals(name)) {
+            return Boolean.TRUE;
+        }
+        return null;
+        
+    }
+
+    
+    public int next() {
+        
+        text = null;
+        switch (event) {
+            case START_DOCUMENT:
+                if (top != null) {
+                    current = top;
+                    event = START_ELEMENT;
+                }
+                else {
+                    push(document);
+                    moveTo(0);
+                }
+                break;
+            case START_ELEMENT:
+                Element element = (Element) current;
+                if (element.getChildCount() > 0) {
+                    push(element);
+                    moveTo(0);
+                }
+                else event = END_ELEMENT;
+                break;
+            case END_DOCUMENT:
+                throw new NoSuchElementException("No more events");
+            default:
+                if (current == top) {
+                    current = null;
+                    event = END_DOCUMENT;
+                }
+                else moveTo(indexes[depth] + 1);
+        }
+        return event;
+        
+    }
+    
+    
+    private void push(ParentNode parent) {
+        
+        depth++;
+        if (depth == parents.length) {
+            ParentNode[] newParents = new ParentNode[depth * 2];
+            System.arraycopy(parents, 0, newParents, 0, depth);
+            parents = newParents;
+            int[] newIndexes = new int[depth * 2];
+            System.arraycopy(indexes, 0, newIndexes, 0, depth);
+            indexes = newIndexes;
+        }
+        parents[depth] = parent;
+        
+    }
+    
+    
+    private void moveTo(int index) {
+        
+        ParentNode parent = parents[depth];
+        if (index < parent.getChildCount()) {
+            indexes[depth] = index;
+            current = parent.getChild(index);
+            event = getEventType(current);
+        }
+        else {
+            parents[depth] = null;
+            depth--;
+            if (parent instanceof Document) {
+                current = null;
+                event = END_DOCUMENT;
+            }
+            else {
+                current = parent;
+                event = END_ELEMENT;
+            }
+        }
+        
+    }
+    
+    
+    private static int getEventType(Node node) {
+        
+        if (node instanceof Element) return START_ELEMENT;
+        if (node instanceof Comment) return COMMENT;
+        if (node instanceof ProcessingInstruction) {
+            return PROCESSING_INSTRUCTION;
+        }
+        if (node instanceof DocType) return DTD;
+        return CHARACTERS;
+        
+    }
+    
+    
+    public void require(int type, String namespaceURI, String localName)
+      throws XMLStreamException {
+        
+        if (type != event) {
+            throw new XMLStreamException("Expected event " + type 
+              + " but current event is " + event, getLocation());
+        }
+        if (namespaceURI != null) {
+            if (!isElementEvent() || !namespaceURI.equals(
+              ((Element) current).getNamespaceURI())) {
+                throw new XMLStreamException("Expected namespace " 
+                  + namespaceURI, getLocation());
+            }
+        }
+        if (localName != null) {
+            if (!isElementEvent() || !localName.equals(getLocalName())) {
+                throw new XMLStreamException("Expected local name " 
+                  + localName, getLocation());
+            }
+        }
+        
+    }
+
+    
+    public String getElementText() throws XMLStreamException {
+        
+        if (event != START_ELEMENT) {
+            throw new XMLStreamException(
+              "Not positioned at a start-tag", getLocation());
+        }
+        StringBuilder result = new StringBuilder();
+        while (true) {
+            switch (next()) {
+                case CHARACTERS:
+                    result.append(current.getValue());
+                    break;
+                case COMMENT:
+                case PROCESSING_INSTRUCTION:
+                    break;
+                case END_ELEMENT:
+                    return result.toString();
+                default:
+                    throw new XMLStreamException(
+                      "Element text contains a child element", getLocation());
+            }
+        }
+        
+    }
+
+    
+    public int nextTag() throws XMLStreamException {
+        
+        while (true) {
+            int type = next();
+            switch (type) {
+                case START_ELEMENT:
+                case END_ELEMENT:
+                    return type;
+                case CHARACTERS:
+                    if (!isWhiteSpace()) {
+                        throw new XMLStreamException(
+                          "Non-white space text between tags", getLocation());
+                    }
+                    break;
+                case COMMENT:
+                case PROCESSING_INSTRUCTION:
+                    break;
+                default:
+                    throw new XMLStreamException(
+                      "Expected a start-tag or an end-tag", getLocation());
+            }
+        }
+        
+    }
+
+    
+    public boolean hasNext() {
+        return event != END_DOCUMENT;
+    }
+
+    
+    public void close() {
+        // nothing to release
+    }
+
+    
+    public String getNamespaceURI(String prefix) {
+        
+        if (prefix == null) {
+            throw new IllegalArgumentException("Null prefix");
+        }
+        if (prefix.equals(XMLConstants.XML_NS_PREFIX)) {
+            return XMLConstants.XML_NS_URI;
+        }
+        if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+            return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+        }
+        Element element = getContextElement();
+        if (element == null) return null;
+        String uri = element.getNamespaceURI(prefix);
+        if (uri == null || (uri.length() == 0 && prefix.length() != 0)) {
+            return null;
+        }
+        return uri;
+        
+    }
+    
+    
+    // Namespaces are in scope on start-tags, end-tags, and the
+    // content between them. 
+    private Element getContextElement() {
+        
+        if (isElementEvent()) return (Element) current;
+        for (int i = depth; i >= 0; i--) {
+            if (parents[i] instanceof Element) return (Element) parents[i];
+        }
+        return null;
+        
+    }
+
+    
+    public boolean isStartElement() {
+        return event == START_ELEMENT;
+    }
+
+    
+    public boolean isEndElement() {
+        return event == END_ELEMENT;
+    }
+
+    
+    public boolean isCharacters() {
+        return event == CHARACTERS;
+    }
+    
+    
+    private boolean isElementEvent() {
+        return event == START_ELEMENT || event == END_ELEMENT;
+    }
+
+    
+    public boolean isWhiteSpace() {
+        
+        if (event != CHARACTERS) return false;
+        String value = current.getValue();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != ' ' && c != '\n' && c != '\t' && c != '\r') return false;
+        }
+        return true;
+        
+    }
+    
+    
+    private Element getStartElement() {
+        
+        if (event != START_ELEMENT) {
+            throw new IllegalStateException("Not positioned at a start-tag");
+        }
+        return (Element) current;
+        
+    }
+    
+    
+    private Attribute getAttribute(int index) {
+        return getStartElement().getAttribute(index);
+    }
+
+    
+    public String getAttributeValue(String namespaceURI, String localName) {
+        
+        Element element = getStartElement();
+        if (namespaceURI != null) {
+            return element.getAttributeValue(localName, namespaceURI);
+        }
+        int count = element.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            Attribute attribute = element.getAttribute(i);
+            if (attribute.getLocalName().equals(localName)) {
+                return attribute.getValue();
+            }
+        }
+        return null;
+        
+    }
+
+    
+    public int getAttributeCount() {
+        return getStartElement().getAttributeCount();
+    }
+
+    
+    public QName getAttributeName(int index) {
+        
+        Attribute attribute = getAttribute(index);
+        return new QName(attribute.getNamespaceURI(), 
+          attribute.getLocalName(), attribute.getNamespacePrefix());
+        
+    }
+
+    
+    public String getAttributeNamespace(int index) {
+        
+        String uri = getAttribute(index).getNamespaceURI();
+        return uri.length() == 0 ? null : uri;
+        
+    }
+
+    
+    public String getAttributeLocalName(int index) {
+        return getAttribute(index).getLocalName();
+    }
+
+    
+    public String getAttributePrefix(int index) {
+        return getAttribute(index).getNamespacePrefix();
+    }
+
+    
+    public String getAttributeType(int index) {
+        return SAXConverter.getSAXType(getAttribute(index));
+    }
+
+    
+    public String getAttributeValue(int index) {
+        return getAttribute(index).getValue();
+    }
+
+    
+    public boolean isAttributeSpecified(int index) {
+        getAttribute(index);
+        return true;
+    }
+    
+    
+    private void loadNamespaces() {
+        
+        if (!isElementEvent()) {
+            throw new IllegalStateException(
+              "Not positioned at a start-tag or an end-tag");
+        }
+        Element element = (Element) current;
+        if (element == namespaceElement) return;
+        namespaceElement = element;
+        namespacePrefixes.clear();
+        namespaceURIs.clear();
+        
+        if (element == top) {
+            // everything in scope, since nothing outside the subtree
+            // is reported
+            for (Element e = element; e != null; e = getParentElement(e)) {
+                int count = e.getNamespaceDeclarationCount();
+                for (int i = 0; i < count; i++) {
+                    String prefix = e.getNamespacePrefix(i);
+                    if (namespacePrefixes.contains(prefix)) continue;
+                    String uri = element.getNamespaceURI(prefix);
+                    if (uri.length() == 0 && prefix.length() == 0) continue;
+                    namespacePrefixes.add(prefix);
+                    namespaceURIs.add(uri);
+                }
+            }
+            return;
+        }
+        
+        Element parent = getParentElement(element);
+        int count = element.getNamespaceDeclarationCount(); 
+        for (int i = 0; i < count; i++) {
+            String prefix = element.getNamespacePrefix(i);
+            String uri = element.getNamespaceURI(prefix);
+            if (parent != null) {
+                if (uri.equals(parent.getNamespaceURI(prefix))) continue; 
+            }
+            else if (uri.length() == 0) continue;
+            namespacePrefixes.add(prefix);
+            namespaceURIs.add(uri);
+        }
+        
+    }
+    
+    
+    private static Element getParentElement(Element element) {
+        
+        ParentNode parent = element.getParent();
+        if (parent instanceof Element) return (Element) parent;
+        return null;
+        
+    }
+
+    
+    public int getNamespaceCount() {
+        loadNamespaces();
+        return namespacePrefixes.size();
+    }
+
+    
+    public String getNamespacePrefix(int index) {
+        
+        loadNamespaces();
+        String prefix = namespacePrefixes.get(index);
+        return prefix.length() == 0 ? null : prefix;
+        
+    }
+
+    
+    public String getNamespaceURI(int index) {
+        loadNamespaces();
+        return namespaceURIs.get(index);
+    }
+
+    
+    public NamespaceContext getNamespaceContext() {
+        return new ElementNamespaceContext(getContextElement());
+    }
+
+    
+    public int getEventType() {
+        return event;
+    }
+
+    
+    public String getText() {
+        
+        if (event == DTD) return current.toXML();
+        checkText();
+        return current.getValue();
+        
+    }
+    
+    
+    private void checkText() {
+        
+        if (event != CHARACTERS && event != COMMENT) {
+            throw new IllegalStateException("No text at event " + event);
+        }
+        
+    }
+
+    
+    public char[] getTextCharacters() {
+        
+        checkText();
+        if (text == null) text = current.getValue().toCharArray();
+        return text;
+        
+    }
+
+    
+    public int getTextCharacters(int sourceStart, char[] target, 
+      int targetStart, int length) {
+        
+        checkText();
+        String value = current.getValue();
+        if (sourceStart < 0 || sourceStart > value.length()) {
+            throw new IndexOutOfBoundsException(
+              "Source start " + sourceStart);
+        }
+        int end = Math.min(value.length(), sourceStart + length);
+        value.getChars(sourceStart, end, target, targetStart);
+        return end - sourceStart;
+        
+    }
+
+    
+    public int getTextStart() {
+        checkText();
+        return 0;
+    }
+
+    
+    public int getTextLength() {
+        checkText();
+        return current.getValue().length();
+    }
+
+    
+    public String getEncoding() {
+        return null;
+    }
+
+    
+    public boolean hasText() {
+        return event == CHARACTERS || event == COMMENT || event == DTD;
+    }
+
+    
+    public Location getLocation() {
+        return new TreeLocation(systemID);
+    }
+
+    
+    public QName getName() {
+        
+        if (!isElementEvent()) {
+            throw new IllegalStateException(
+              "Not positioned at a start-tag or an end-tag");
+        }
+        Element element = (Element) current;
+        return new QName(element.getNamespaceURI(), 
+          element.getLocalName(), element.getNamespacePrefix());
+        
+    }
+
+    
+    public String getLocalName() {
+        
+        if (!isElementEvent()) {
+            throw new IllegalStateException(
+              "Not positioned at a start-tag or an end-tag");
+        }
+        return ((Element) current).getLocalName();
+        
+    }
+
+    
+    public boolean hasName() {
+        return isElementEvent();
+    }
+
+    
+    public String getNamespaceURI() {
+        
+        if (!isElementEvent()) return null;
+        String uri = ((Element) current).getNamespaceURI();
+        return uri.length() == 0 ? null : uri;
+        
+    }
+
+    
+    public String getPrefix() {
+        
+        if (!isElementEvent()) return null;
+        return ((Element) current).getNamespacePrefix();
+        
+    }
+
+    
+    public String getVersion() {
+        return null;
+    }
+
+    
+    public boolean isStandalone() {
+        return false;
+    }
+
+    
+    public boolean standaloneSet() {
+        return false;
+    }
+
+    
+    public String getCharacterEncodingScheme() {
+        return null;
+    }
+
+    
+    public String getPITarget() {
+        
+        if (event != PROCESSING_INSTRUCTION) return null;
+        return ((ProcessingInstruction) current).getTarget();
+        
+    }
+
+    
+    public String getPIData() {
+        
+        if (event != PROCESSING_INSTRUCTION) return null;
+        return current.getValue();
+        
+    }
+    
+    
+    private static final class ElementNamespaceContext 
+      implements NamespaceContext {
+        
+        private final Element element;
+        
+        ElementNamespaceContext(Element element) {
+            this.element = element;
+        }
+
+        public String getNamespaceURI(String prefix) {
+            
+            if (prefix == null) {
+                throw new IllegalArgumentException("Null prefix");
+            }
+            if (prefix.equals(XMLConstants.XML_NS_PREFIX)) {
+                return XMLConstants.XML_NS_URI;
+            }
+            if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+                return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+            }
+            if (element == null) return XMLConstants.NULL_NS_URI;
+            String uri = element.getNamespaceURI(prefix);
+            return uri == null ? XMLConstants.NULL_NS_URI : uri;
+            
+        }
+
+        public String getPrefix(String namespaceURI) {
+            Iterator<String> prefixes = getPrefixes(namespaceURI);
+            return prefixes.hasNext() ? prefixes.next() : null;
+        }
+
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            
+            if (namespaceURI == null) {
+                throw new IllegalArgumentException("Null namespace URI");
+            }
+            List<String> result = new ArrayList<String>();
+            if (namespaceURI.equals(XMLConstants.XML_NS_URI)) {
+                result.add(XMLConstants.XML_NS_PREFIX);
+            }
+            else if (namespaceURI.equals(XMLConstants.XMLNS_ATTRIBUTE_NS_URI)) {
+                result.add(XMLConstants.XMLNS_ATTRIBUTE);
+            }
+            else if (element == null) {
+                if (namespaceURI.length() == 0) result.add("");
+            }
+            else {
+                List<String> seen = new ArrayList<String>();
+                for (Element e = element; e != null; e = getParentElement(e)) {
+                    int count = e.getNamespaceDeclarationCount();
+                    for (int i = 0; i < count; i++) {
+                        String prefix = e.getNamespacePrefix(i);
+                        if (seen.contains(prefix)) continue;
+                        seen.add(prefix);
+                        if (namespaceURI.equals(element.getNamespaceURI(prefix))) {
+                            result.add(prefix);
+                        }
+                    }
+                }
+                if (namespaceURI.length() == 0 && !seen.contains("")) {
+                    result.add("");
+                }
+            }
+            return result.iterator();
+            
+        }
+        
+    }
+    
+    
+    private static final class TreeLocation implements Location {
+        
+        private final String systemID;
+        
+        TreeLocation(String systemID) {
+            this.systemID = systemID;
+        }
+
+        public int getLineNumber() {
+            return -1;
+        }
+
+        public int getColumnNumber() {
+            return -1;
+        }
+
+        public int getCharacterOffset() {
+            return -1;
+        }
+
+        public String getPublicId() {
+            return null;
+        }
+
+        public String getSystemId() {
+            return systemID;
+        }
+        
+    }
+    
+    
+}
@@ -26,7 +26,7 @@
  * <p>
  * <code>nu.xom.converters</code> contains
  * classes that convert XOM documents to other
- * models such as SAX and DOM.
+ * models such as SAX, DOM, and StAX.
  * </p>
  * 
  * @since 1.0
@@ -39,7 +39,7 @@ import nu.xom.ParsingException;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.3.0
+ * @version 1.4.7
  *
  */
 public class AttributeTest extends XOMTestCase {
@@ -746,5 +746,45 @@ public class AttributeTest extends XOMTestCase {
         assertEquals(1, copy.getAttributeCount());
         
     }
+
+
+    public void testElementNameNotNecessarilyAttributeName() {
+        
+        new Element("xmlns");
+        new Element("pre:xmlns", "http://www.example.org/");
+        try {
+            new Attribute("xmlns", "value");
+            fail("Allowed attribute named xmlns");
+        }
+        catch (IllegalNameException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            new Attribute("pre:xmlns", "http://www.example.org/", "value");
+            fail("Allowed attribute named xmlns");
+        }
+        catch (IllegalNameException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+    public void testRepeatedAttributeName() {
+        
+        Attribute first = new Attribute("pre:repeated", "http://www.example.org/", "1");
+        Attribute second = new Attribute("pre:repeated", "http://www.example.com/", "2");
+        assertSame(first.getLocalName(), second.getLocalName());
+        assertEquals("pre", second.getNamespacePrefix());
+        assertEquals("http://www.example.com/", second.getNamespaceURI());
+        try {
+            new Attribute("pre:repeated", "", "3");
+            fail("Allowed prefixed attribute in no namespace");
+        }
+        catch (NamespaceConflictException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
     
-}
\ No newline at end of file
+}
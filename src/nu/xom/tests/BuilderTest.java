@@ -44,6 +44,9 @@ import java.net.URLEncoder;
 
 import java.util.Arrays;
 import javax.xml.parsers.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.xerces.parsers.SAXParser;
 import org.xml.sax.Attributes;
@@ -68,6 +71,7 @@ import nu.xom.DocType;
 import nu.xom.Document;
 import nu.xom.Element;
 import nu.xom.Elements;
+import nu.xom.Node;
 import nu.xom.NodeFactory;
 import nu.xom.ParserBugException;
 import nu.xom.ParsingException;
@@ -3820,6 +3824,166 @@ public class BuilderTest extends XOMTestCase {
     }
 
 
+    public void testIgnoringOptionsOffByDefault() {
+        
+        Builder builder = new Builder();
+        assertFalse(builder.isIgnoringBoundaryWhitespace());
+        assertFalse(builder.isIgnoringComments());
+        assertFalse(builder.isIgnoringProcessingInstructions());
+        assertFalse(builder.isIgnoringInternalDTDSubset());
+        
+    }
+    
+    
+    private final static String prettyData = "<root>\n  <a>  </a>\n  "
+      + "<b> text </b>\n  <c xml:space='preserve'>\n    <d> </d>\n    "
+      + "<e xml:space='default'> </e>\n  </c>\n  "
+      + "<f><![CDATA[ ]]></f>\n</root>";
+    
+    
+    private static void checkBoundaryWhitespaceIgnored(Document doc) {
+        
+        Element root = doc.getRootElement();
+        assertEquals(4, root.getChildCount());
+        assertEquals(0, root.getFirstChildElement("a").getChildCount());
+        assertEquals(" text ", root.getFirstChildElement("b").getValue());
+        Element c = root.getFirstChildElement("c");
+        assertEquals(5, c.getChildCount());
+        assertEquals(" ", c.getFirstChildElement("d").getValue());
+        assertEquals(0, c.getFirstChildElement("e").getChildCount());
+        assertEquals(" ", root.getFirstChildElement("f").getValue());
+        
+    }
+    
+    
+    public void testIgnoringBoundaryWhitespace() 
+      throws ParsingException, IOException {
+        
+        Builder builder = new Builder();
+        assertEquals(9, builder.build(prettyData, null)
+          .getRootElement().getChildCount());
+        builder.setIgnoringBoundaryWhitespace(true);
+        assertTrue(builder.isIgnoringBoundaryWhitespace());
+        checkBoundaryWhitespaceIgnored(builder.build(prettyData, null));
+        // and again, to make sure the xml:space scopes are reset
+        checkBoundaryWhitespaceIgnored(builder.build(prettyData, null));
+        
+    }
+    
+    
+    public void testIgnoringBoundaryWhitespaceWithNodeFactory() 
+      throws ParsingException, IOException {
+        
+        Builder builder = new Builder(new NodeFactory() {});
+        builder.setIgnoringBoundaryWhitespace(true);
+        checkBoundaryWhitespaceIgnored(builder.build(prettyData, null));
+        
+    }
+    
+    
+    public void testIgnoringComments() 
+      throws ParsingException, IOException {
+        
+        String data = "<!DOCTYPE root [<!--internal--><!ELEMENT root ANY>]>"
+          + "<!--prolog--><root>1<!--comment-->8</root><!--epilog-->";
+        Builder builder = new Builder();
+        builder.setIgnoringComments(true);
+        assertTrue(builder.isIgnoringComments());
+        Document doc = builder.build(data, null);
+        assertEquals(2, doc.getChildCount());
+        Element root = doc.getRootElement();
+        assertEquals(1, root.getChildCount());
+        assertEquals("18", root.getValue());
+        String subset = doc.getDocType().getInternalDTDSubset();
+        assertEquals(-1, subset.indexOf("internal"));
+        assertTrue(subset.indexOf("<!ELEMENT root ANY>") >= 0);
+        
+        // and through a node factory, which isn't asked to make them
+        builder = new Builder(new NodeFactory() {
+            public Node makeCommentNode(String data) {
+                fail("Made an ignored comment");
+                return null;
+            }
+        });
+        builder.setIgnoringComments(true);
+        doc = builder.build(data, null);
+        assertEquals("18", doc.getRootElement().getValue());
+        assertEquals(1, doc.getRootElement().getChildCount());
+        
+    }
+    
+    
+    public void testIgnoringProcessingInstructions() 
+      throws ParsingException, IOException {
+        
+        String data = "<!DOCTYPE root [<?internal?><!ELEMENT root ANY>]>"
+          + "<?prolog?><root>1<?pi data?>8<!--comment--></root>";
+        Builder builder = new Builder();
+        builder.setIgnoringProcessingInstructions(true);
+        assertTrue(builder.isIgnoringProcessingInstructions());
+        Document doc = builder.build(data, null);
+        assertEquals(2, doc.getChildCount());
+        Element root = doc.getRootElement();
+        assertEquals(2, root.getChildCount());
+        assertEquals("18", root.getChild(0).getValue());
+        assertEquals(new Comment("comment"), root.getChild(1));
+        assertEquals(-1, doc.getDocType().getInternalDTDSubset().indexOf("internal"));
+        
+        builder = new Builder(new NodeFactory() {});
+        builder.setIgnoringProcessingInstructions(true);
+        doc = builder.build(data, null);
+        assertEquals(2, doc.getChildCount());
+        assertEquals("18", doc.getRootElement().getChild(0).getValue());
+        
+    }
+    
+    
+    public void testIgnoringInternalDTDSubset() 
+      throws ParsingException, IOException {
+        
+        String data = "<!DOCTYPE root [<!--internal--><!ELEMENT root ANY>"
+          + "<!ATTLIST root a CDATA 'default' id ID #IMPLIED>"
+          + "<!ENTITY e 'entity'>]><root id='p1'>&e;</root>";
+        Builder builder = new Builder();
+        builder.setIgnoringInternalDTDSubset(true);
+        assertTrue(builder.isIgnoringInternalDTDSubset());
+        Document doc = builder.build(data, null);
+        DocType doctype = doc.getDocType();
+        assertEquals("root", doctype.getRootElementName());
+        assertEquals("", doctype.getInternalDTDSubset());
+        // the parser still applies the DTD
+        Element root = doc.getRootElement();
+        assertEquals("default", root.getAttributeValue("a"));
+        assertEquals(Attribute.Type.ID, root.getAttribute("id").getType());
+        assertEquals("entity", root.getValue());
+        
+        builder = new Builder(new NodeFactory() {});
+        builder.setIgnoringInternalDTDSubset(true);
+        doc = builder.build(data, null);
+        assertEquals("", doc.getDocType().getInternalDTDSubset());
+        assertEquals("default", doc.getRootElement().getAttributeValue("a"));
+        
+    }
+    
+    
+    public void testIgnoringFromStAX() 
+      throws ParsingException, XMLStreamException {
+        
+        Builder builder = new Builder();
+        builder.setIgnoringBoundaryWhitespace(true);
+        builder.setIgnoringComments(true);
+        builder.setIgnoringProcessingInstructions(true);
+        XMLStreamReader reader = XMLInputFactory.newInstance()
+          .createXMLStreamReader(new StringReader(
+            "<root>\n  <a>1<!--c-->2<?pi?>3</a>\n</root>"));
+        Element root = builder.build(reader).getRootElement();
+        assertEquals(1, root.getChildCount());
+        assertEquals(1, root.getChild(0).getChildCount());
+        assertEquals("123", root.getValue());
+        
+    }
+
+    
     private static class InjectedAttributeDeclHandler implements DeclHandler {
 
         private DeclHandler handler;
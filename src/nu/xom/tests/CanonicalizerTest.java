@@ -30,6 +30,10 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import nu.xom.Attribute;
 import nu.xom.Builder;
@@ -378,6 +382,28 @@ public class CanonicalizerTest extends XOMTestCase {
         assertEquals(expected, s);
         
     }
+    
+    
+    public void testExclusiveUnprefixedAttributeDoesntUseDefaultNamespace() 
+      throws IOException {
+
+        Element root = new Element("p:r", "urn:p");
+        Element child = new Element("p:s", "urn:p");
+        child.addNamespaceDeclaration("", "urn:d");
+        child.addAttribute(new Attribute("a", "1"));
+        root.appendChild(child);
+        
+        String expected = "<p:r xmlns:p=\"urn:p\"><p:s a=\"1\"></p:s></p:r>";
+        Canonicalizer canonicalizer = new Canonicalizer(out,
+          Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION);
+        
+        canonicalizer.write(new Document(root));  
+        
+        out.close();
+        String s = new String(out.toByteArray(), "UTF8");
+        assertEquals(expected, s);
+        
+    }
 
   
     public void testWriteDefaultNamespace() throws IOException {
@@ -1225,6 +1251,166 @@ public class CanonicalizerTest extends XOMTestCase {
     }
     
     
+    public void testLargeDocumentSubsetInheritsXMLAttributes()
+      throws IOException {
+
+        Element root = new Element("root");
+        root.addAttribute(new Attribute("xml:lang", Namespace.XML_NAMESPACE, "en"));
+        Document doc = new Document(root);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            Element item = new Element("item");
+            if (i % 2 == 0) {
+                item.addAttribute(new Attribute("xml:space",
+                  Namespace.XML_NAMESPACE, "preserve"));
+            }
+            Element value = new Element("value");
+            value.appendChild(String.valueOf(i));
+            item.appendChild(value);
+            root.appendChild(item);
+            expected.append("<value xml:lang=\"en\"");
+            if (i % 2 == 0) expected.append(" xml:space=\"preserve\"");
+            expected.append('>').append(i).append("</value>");
+        }
+
+        try {
+            Canonicalizer serializer = new Canonicalizer(out, false);
+            serializer.write(doc.query("//value | //value/text()"));
+        }
+        finally {
+            out.close();
+        }
+
+        String actual = new String(out.toByteArray(), "UTF-8");
+        assertEquals(expected.toString(), actual);
+
+    }
+    
+    
+    public void testDigestMatchesCanonicalForm()
+      throws IOException, NoSuchAlgorithmException, ParsingException {
+
+        Document doc = builder.build("<a xmlns:p='http://www.example.org/' "
+          + "p:b='1' c='2'><!--x--><p:d>\u00E9 &amp; \u20AC</p:d></a>", null);
+        Canonicalizer canonicalizer = new Canonicalizer(out,
+          Canonicalizer.CANONICAL_XML);
+        canonicalizer.write(doc);
+        byte[] canonical = out.toByteArray();
+
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        canonicalizer = new Canonicalizer(new MessageDigest[] {sha1, sha256},
+          Canonicalizer.CANONICAL_XML);
+        canonicalizer.write(doc);
+        assertEquals(MessageDigest.getInstance("SHA-1").digest(canonical),
+          sha1.digest());
+        assertEquals(MessageDigest.getInstance("SHA-256").digest(canonical),
+          sha256.digest());
+
+    }
+
+
+    public void testConcurrentDigests()
+      throws IOException, NoSuchAlgorithmException {
+
+        Element root = new Element("root", "http://www.example.org/");
+        root.addAttribute(new Attribute("xml:lang", Namespace.XML_NAMESPACE, "en"));
+        Document doc = new Document(root);
+        Element[] references = new Element[20];
+        Nodes[] subsets = new Nodes[references.length];
+        for (int i = 0; i < references.length; i++) {
+            Element item = new Element("p:item", "http://www.example.com/");
+            item.addAttribute(new Attribute("id", String.valueOf(i)));
+            for (int j = 0; j < 100; j++) {
+                Element child = new Element("child");
+                child.appendChild(i + "." + j);
+                item.appendChild(child);
+            }
+            root.appendChild(item);
+            references[i] = item;
+            subsets[i] = item.query(".//. | .//@* | .//namespace::*");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[][] subtreeDigests = Canonicalizer.digest(references,
+              Canonicalizer.CANONICAL_XML, "SHA-256", executor);
+            byte[][] subsetDigests = Canonicalizer.digest(subsets,
+              Canonicalizer.CANONICAL_XML_11, "SHA-256", executor);
+            for (int i = 0; i < references.length; i++) {
+                MessageDigest expected = MessageDigest.getInstance("SHA-256");
+                new Canonicalizer(expected, Canonicalizer.CANONICAL_XML)
+                  .write(references[i]);
+                assertEquals(expected.digest(), subtreeDigests[i]);
+                new Canonicalizer(expected, Canonicalizer.CANONICAL_XML_11)
+                  .write(subsets[i]);
+                assertEquals(expected.digest(), subsetDigests[i]);
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+    }
+
+
+    public void testDigestDetachedReference()
+      throws IOException, NoSuchAlgorithmException {
+
+        Element[] references = {new Element("a")};
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Canonicalizer.digest(references,
+              Canonicalizer.CANONICAL_XML, "SHA-256", executor);
+            fail("Digested detached element");
+        }
+        catch (CanonicalizationException success) {
+            assertNotNull(success.getMessage());
+        }
+        finally {
+            executor.shutdown();
+        }
+
+    }
+
+
+    public void testCanonicalXML11DoesNotModifyDocument()
+      throws IOException, ParsingException {
+
+        Document doc = builder.build("<a xml:base='http://www.example.org/x/'>"
+          + "<b xml:base='y/'><c/></b></a>", null);
+        Element b = doc.getRootElement().getFirstChildElement("b");
+        Canonicalizer canonicalizer = new Canonicalizer(out,
+          Canonicalizer.CANONICAL_XML_11);
+        canonicalizer.write(doc.query("//b | //b/@*"));
+        assertEquals("<b xml:base=\"http://www.example.org/x/y/\"></b>",
+          new String(out.toByteArray(), "UTF-8"));
+        assertEquals("y/", b.getAttributeValue("base", Namespace.XML_NAMESPACE));
+
+    }
+
+
+    public void testExclusiveNamespaceHeavyDocument()
+      throws IOException, ParsingException {
+
+        Document doc = builder.build("<soap:Envelope xmlns:soap='urn:s' "
+          + "xmlns:wsse='urn:w' xmlns:x='urn:x'><soap:Body>"
+          + "<wsse:Sec x:a='&amp;&lt;&#9;' wsse:id='1'>"
+          + "<wsse:Tok xmlns:wsse='urn:w2'>a&amp;b&#13;</wsse:Tok><x:y/>"
+          + "</wsse:Sec></soap:Body></soap:Envelope>", null);
+        Canonicalizer canonicalizer = new Canonicalizer(out,
+          Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION);
+        canonicalizer.write(doc);
+        assertEquals("<soap:Envelope xmlns:soap=\"urn:s\"><soap:Body>"
+          + "<wsse:Sec xmlns:wsse=\"urn:w\" xmlns:x=\"urn:x\" "
+          + "wsse:id=\"1\" x:a=\"&amp;&lt;&#x9;\">"
+          + "<wsse:Tok xmlns:wsse=\"urn:w2\">a&amp;b&#xD;</wsse:Tok>"
+          + "<x:y></x:y></wsse:Sec></soap:Body></soap:Envelope>",
+          new String(out.toByteArray(), "UTF-8"));
+
+    }
+
+
     public void testRelativeNamespaceURIsForbidden() 
       throws ParsingException, IOException {
         
@@ -37,7 +37,9 @@ import nu.xom.DocType;
 import nu.xom.Document;
 import nu.xom.Element;
 import nu.xom.Elements;
+import nu.xom.IllegalDataException;
 import nu.xom.Namespace;
+import nu.xom.NamespaceConflictException;
 import nu.xom.Node;
 import nu.xom.NodeFactory;
 import nu.xom.Nodes;
@@ -672,6 +674,39 @@ public class DOMConverterTest extends XOMTestCase {
         
     }
     
+    public void testDOMCommentContentIsVerified() {
+
+        org.w3c.dom.Element root = domDocument.getDocumentElement();
+        root.appendChild(domDocument.createComment("a -- b"));
+        try {
+            DOMConverter.convert(domDocument);
+            fail("converted comment containing --");
+        }
+        catch (IllegalDataException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+    public void testDOMAttributePrefixConflictIsVerified() {
+
+        org.w3c.dom.Element root = domDocument.getDocumentElement();
+        org.w3c.dom.Element child = domDocument.createElementNS(
+          "http://www.example.org/", "pre:child");
+        child.setAttributeNS("http://www.example.com/", "pre:a", "value");
+        root.appendChild(child);
+        try {
+            DOMConverter.convert(domDocument);
+            fail("converted conflicting prefixes");
+        }
+        catch (NamespaceConflictException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
     public void testUseFactory() {
 
         Document xomDocOut = DOMConverter.convert(domDocument, new ANodeFactory());
@@ -0,0 +1,455 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.tests;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.ParsingException;
+import nu.xom.Text;
+import nu.xom.converters.DOMConverter;
+
+/**
+ * <p>
+ * Tests the read-only DOM view of XOM documents.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public class DOMViewTest extends XOMTestCase {
+
+    
+    private static final String data = "<?xml-stylesheet href='a.css'?>"
+      + "<!--before--><root xmlns='http://www.example.org/' "
+      + "xmlns:pre='http://www.example.com/' a='1' pre:b='2'>"
+      + "text<pre:child xml:id='c1'>inner<!--c--></pre:child>"
+      + "<child xmlns='' c='3'/><?pi data?>more</root><!--after-->";
+    
+    private Document doc;
+    private org.w3c.dom.Document view;
+
+    
+    public DOMViewTest(String name) {
+        super(name);
+    }
+
+    
+    protected void setUp() throws ParsingException, IOException {
+        doc = new Builder().build(data, "http://www.example.org/base.xml");
+        view = DOMConverter.view(doc);
+    }
+    
+    
+    private static org.w3c.dom.Document parse(String xml) 
+      throws SAXException, IOException, ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(
+          new InputSource(new StringReader(xml)));
+    }
+
+    
+    public void testEqualsParsedDOM() 
+      throws SAXException, IOException, ParserConfigurationException {
+        
+        org.w3c.dom.Document dom = parse(data);
+        assertTrue(view.isEqualNode(dom));
+        assertTrue(dom.isEqualNode(view));
+        
+    }
+    
+    
+    public void testNotEqual() 
+      throws SAXException, IOException, ParserConfigurationException {
+        
+        org.w3c.dom.Document dom = parse(data.replace("more", "less"));
+        assertFalse(view.isEqualNode(dom));
+        
+    }
+    
+    
+    public void testSameNodeEachTime() {
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        assertSame(root, view.getDocumentElement());
+        assertSame(root.getFirstChild(), root.getFirstChild());
+        assertSame(root, root.getFirstChild().getParentNode());
+        assertSame(view, root.getParentNode());
+        assertSame(view, root.getOwnerDocument());
+        assertNull(view.getOwnerDocument());
+        assertSame(root.getAttributeNode("a"), 
+          root.getAttributes().getNamedItem("a"));
+        
+    }
+    
+    
+    public void testSiblings() {
+        
+        Element root = doc.getRootElement();
+        org.w3c.dom.Node child = view.getDocumentElement().getFirstChild();
+        for (int i = 0; i < root.getChildCount(); i++) {
+            assertEquals(root.getChild(i).getValue(), child.getTextContent());
+            child = child.getNextSibling();
+        }
+        assertNull(child);
+        
+        child = view.getDocumentElement().getLastChild();
+        for (int i = root.getChildCount() - 1; i >= 0; i--) {
+            assertEquals(root.getChild(i).getValue(), child.getTextContent());
+            child = child.getPreviousSibling();
+        }
+        assertNull(child);
+        
+    }
+    
+    
+    public void testLongSiblingList() {
+        
+        Element root = new Element("root");
+        for (int i = 0; i < 10000; i++) {
+            root.appendChild(new Element("e" + i));
+        }
+        org.w3c.dom.Document dom = DOMConverter.view(new Document(root));
+        int count = 0;
+        org.w3c.dom.Node child = dom.getDocumentElement().getFirstChild();
+        while (child != null) {
+            assertEquals("e" + count, child.getNodeName());
+            count++;
+            child = child.getNextSibling();
+        }
+        assertEquals(10000, count);
+        
+    }
+    
+    
+    public void testSiblingsAfterInsertion() {
+        
+        Element root = doc.getRootElement();
+        org.w3c.dom.Element domRoot = view.getDocumentElement();
+        org.w3c.dom.Node first = domRoot.getFirstChild();
+        root.insertChild(new Element("new"), 0);
+        assertEquals("new", first.getPreviousSibling().getNodeName());
+        assertEquals("new", domRoot.getFirstChild().getNodeName());
+        assertSame(first, domRoot.getChildNodes().item(1));
+        assertSame(first, domRoot.getFirstChild().getNextSibling());
+        
+    }
+    
+    
+    public void testReflectsChanges() {
+        
+        Text text = (Text) doc.getRootElement().getChild(0);
+        org.w3c.dom.Node domText = view.getDocumentElement().getFirstChild();
+        text.setValue("changed");
+        assertEquals("changed", domText.getNodeValue());
+        
+    }
+    
+    
+    public void testNodeTypes() {
+        
+        assertEquals(org.w3c.dom.Node.DOCUMENT_NODE, view.getNodeType());
+        NodeList children = view.getChildNodes();
+        assertEquals(4, children.getLength());
+        assertEquals(org.w3c.dom.Node.PROCESSING_INSTRUCTION_NODE, 
+          children.item(0).getNodeType());
+        assertEquals(org.w3c.dom.Node.COMMENT_NODE, 
+          children.item(1).getNodeType());
+        assertEquals(org.w3c.dom.Node.ELEMENT_NODE, 
+          children.item(2).getNodeType());
+        assertEquals(org.w3c.dom.Node.COMMENT_NODE, 
+          children.item(3).getNodeType());
+        assertNull(children.item(4));
+        
+        org.w3c.dom.ProcessingInstruction pi 
+          = (org.w3c.dom.ProcessingInstruction) children.item(0);
+        assertEquals("xml-stylesheet", pi.getTarget());
+        assertEquals("href='a.css'", pi.getData());
+        assertEquals("#comment", children.item(1).getNodeName());
+        assertEquals("before", children.item(1).getNodeValue());
+        assertNull(view.getDoctype());
+        
+    }
+    
+    
+    public void testElement() {
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        assertEquals("root", root.getTagName());
+        assertEquals("root", root.getLocalName());
+        assertEquals("http://www.example.org/", root.getNamespaceURI());
+        assertNull(root.getPrefix());
+        assertEquals("textinnermore", root.getTextContent());
+        assertNull(view.getTextContent());
+        
+        org.w3c.dom.Element child 
+          = (org.w3c.dom.Element) root.getChildNodes().item(1);
+        assertEquals("pre:child", child.getTagName());
+        assertEquals("pre", child.getPrefix());
+        assertEquals("child", child.getLocalName());
+        assertEquals("http://www.example.com/", child.getNamespaceURI());
+        
+        org.w3c.dom.Element noNamespace 
+          = (org.w3c.dom.Element) root.getChildNodes().item(2);
+        assertNull(noNamespace.getNamespaceURI());
+        
+    }
+    
+    
+    public void testAttributes() {
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        assertEquals("1", root.getAttribute("a"));
+        assertEquals("2", root.getAttribute("pre:b"));
+        assertEquals("2", root.getAttributeNS("http://www.example.com/", "b"));
+        assertEquals("", root.getAttribute("b"));
+        assertTrue(root.hasAttribute("a"));
+        assertFalse(root.hasAttributeNS("http://www.example.com/", "a"));
+        assertTrue(root.hasAttributes());
+        
+        Attr a = root.getAttributeNode("a");
+        assertEquals("a", a.getName());
+        assertNull(a.getNamespaceURI());
+        assertSame(root, a.getOwnerElement());
+        assertNull(a.getParentNode());
+        assertNull(a.getNextSibling());
+        assertTrue(a.getSpecified());
+        assertFalse(a.isId());
+        
+        org.w3c.dom.Element child 
+          = (org.w3c.dom.Element) root.getChildNodes().item(1);
+        Attr id = child.getAttributeNodeNS(
+          "http://www.w3.org/XML/1998/namespace", "id");
+        assertTrue(id.isId());
+        assertEquals("ID", id.getSchemaTypeInfo().getTypeName());
+        assertSame(child, view.getElementById("c1"));
+        assertNull(view.getElementById("c2"));
+        
+    }
+    
+    
+    public void testNamespaceDeclarationsAreAttributes() {
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        NamedNodeMap attributes = root.getAttributes();
+        assertEquals(4, attributes.getLength());
+        assertEquals("http://www.example.org/", root.getAttribute("xmlns"));
+        Attr pre = (Attr) attributes.getNamedItemNS(
+          "http://www.w3.org/2000/xmlns/", "pre");
+        assertEquals("xmlns:pre", pre.getName());
+        assertEquals("xmlns", pre.getPrefix());
+        assertEquals("http://www.example.com/", pre.getValue());
+        assertSame(root, pre.getOwnerElement());
+        assertSame(pre, root.getAttributeNode("xmlns:pre"));
+        
+        // redeclared to no namespace
+        org.w3c.dom.Element noNamespace 
+          = (org.w3c.dom.Element) root.getChildNodes().item(2);
+        assertEquals("", noNamespace.getAttributeNS(
+          "http://www.w3.org/2000/xmlns/", "xmlns"));
+        assertTrue(noNamespace.hasAttribute("xmlns"));
+        
+        // declarations inherited from the parent are not repeated
+        org.w3c.dom.Element child 
+          = (org.w3c.dom.Element) root.getChildNodes().item(1);
+        assertFalse(child.hasAttribute("xmlns:pre"));
+        
+    }
+    
+    
+    public void testNamespaceLookup() {
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        org.w3c.dom.Node text = root.getFirstChild();
+        assertEquals("http://www.example.com/", text.lookupNamespaceURI("pre"));
+        assertEquals("http://www.example.org/", text.lookupNamespaceURI(null));
+        assertNull(text.lookupNamespaceURI("nope"));
+        assertEquals("pre", text.lookupPrefix("http://www.example.com/"));
+        assertNull(text.lookupPrefix("http://www.example.org/"));
+        assertTrue(text.isDefaultNamespace("http://www.example.org/"));
+        assertTrue(view.isDefaultNamespace("http://www.example.org/"));
+        
+        org.w3c.dom.Node noNamespace = root.getChildNodes().item(2);
+        assertNull(noNamespace.lookupNamespaceURI(null));
+        assertTrue(noNamespace.isDefaultNamespace(null));
+        
+    }
+    
+    
+    public void testGetElementsByTagName() {
+        
+        assertEquals(3, view.getElementsByTagName("*").getLength());
+        assertEquals(1, view.getElementsByTagName("child").getLength());
+        assertEquals(1, view.getElementsByTagName("pre:child").getLength());
+        assertEquals(2, view.getElementsByTagNameNS("*", "child").getLength());
+        assertEquals(1, view.getElementsByTagNameNS(
+          "http://www.example.com/", "child").getLength());
+        assertEquals(1, view.getElementsByTagNameNS(
+          null, "child").getLength());
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        NodeList children = root.getElementsByTagName("*");
+        assertEquals(2, children.getLength());
+        assertSame(root.getChildNodes().item(1), children.item(0));
+        
+    }
+    
+    
+    public void testDocumentPosition() {
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        org.w3c.dom.Node text = root.getFirstChild();
+        org.w3c.dom.Node last = root.getLastChild();
+        Attr a = root.getAttributeNode("a");
+        
+        assertEquals(0, root.compareDocumentPosition(root));
+        assertEquals(org.w3c.dom.Node.DOCUMENT_POSITION_FOLLOWING, 
+          text.compareDocumentPosition(last));
+        assertEquals(org.w3c.dom.Node.DOCUMENT_POSITION_PRECEDING, 
+          last.compareDocumentPosition(text));
+        assertEquals(org.w3c.dom.Node.DOCUMENT_POSITION_CONTAINED_BY
+          | org.w3c.dom.Node.DOCUMENT_POSITION_FOLLOWING, 
+          view.compareDocumentPosition(last));
+        assertEquals(org.w3c.dom.Node.DOCUMENT_POSITION_CONTAINS
+          | org.w3c.dom.Node.DOCUMENT_POSITION_PRECEDING, 
+          last.compareDocumentPosition(root));
+        assertEquals(org.w3c.dom.Node.DOCUMENT_POSITION_PRECEDING, 
+          text.compareDocumentPosition(a));
+        
+        org.w3c.dom.Document other = DOMConverter.view(doc);
+        assertTrue((root.compareDocumentPosition(other) 
+          & org.w3c.dom.Node.DOCUMENT_POSITION_DISCONNECTED) != 0);
+        
+    }
+    
+    
+    public void testReadOnly() {
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        try {
+            root.appendChild(root.getFirstChild());
+            fail("modified view");
+        }
+        catch (DOMException success) {
+            assertEquals(DOMException.NO_MODIFICATION_ALLOWED_ERR, 
+              success.code);
+        }
+        try {
+            root.setAttribute("a", "2");
+            fail("modified view");
+        }
+        catch (DOMException success) {
+            assertEquals(DOMException.NO_MODIFICATION_ALLOWED_ERR, 
+              success.code);
+        }
+        try {
+            view.createElement("e");
+            fail("created node");
+        }
+        catch (DOMException success) {
+            assertEquals(DOMException.NOT_SUPPORTED_ERR, success.code);
+        }
+        assertEquals("1", doc.getRootElement().getAttributeValue("a"));
+        
+    }
+    
+    
+    public void testDocType() throws ParsingException, IOException {
+        
+        Document doc = new Builder().build(
+          "<!DOCTYPE root [<!ATTLIST root id ID #IMPLIED>]>"
+          + "<root id='r'/>", null);
+        org.w3c.dom.Document view = DOMConverter.view(doc);
+        org.w3c.dom.DocumentType doctype = view.getDoctype();
+        assertEquals("root", doctype.getName());
+        assertNull(doctype.getSystemId());
+        assertNull(doctype.getPublicId());
+        assertEquals(0, doctype.getEntities().getLength());
+        assertSame(view, doctype.getParentNode());
+        assertSame(view.getDocumentElement(), view.getElementById("r"));
+        
+    }
+    
+    
+    public void testTransform() 
+      throws TransformerException, ParsingException, IOException {
+        
+        StringWriter out = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(
+          new DOMSource(view), new StreamResult(out));
+        Document result = new Builder().build(out.toString(), null);
+        assertEquals(doc, result);
+        
+    }
+    
+    
+    public void testBaseURI() {
+        assertEquals("http://www.example.org/base.xml", 
+          view.getDocumentElement().getBaseURI());
+        assertEquals("http://www.example.org/base.xml", view.getDocumentURI());
+    }
+    
+    
+    public void testUserData() {
+        
+        org.w3c.dom.Element root = view.getDocumentElement();
+        assertNull(root.setUserData("key", "value", null));
+        assertEquals("value", view.getDocumentElement().getUserData("key"));
+        assertEquals("value", root.setUserData("key", null, null));
+        assertNull(root.getUserData("key"));
+        
+    }
+    
+    
+    public void testNullDocument() {
+        
+        try {
+            DOMConverter.view(null);
+            fail("viewed null document");
+        }
+        catch (NullPointerException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+}
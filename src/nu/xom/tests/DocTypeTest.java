@@ -23,6 +23,8 @@ package nu.xom.tests;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLFilter;
@@ -45,7 +47,7 @@ import nu.xom.WellformednessException;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.2b3
+ * @version 1.4.7
  *
  */
 public class DocTypeTest extends XOMTestCase {
@@ -374,6 +376,87 @@ public class DocTypeTest extends XOMTestCase {
     }
 
     
+    public void testMalformedInternalDTDSubsetRejectedEveryTime() {
+        
+        for (int i = 0; i < 3; i++) {
+            DocType doctype = new DocType("root");
+            try {
+                doctype.setInternalDTDSubset("<!ELEMENT test (PCDATA>");
+                fail("Allowed malformed internal DTD subset");
+            }
+            catch (WellformednessException success) {
+                assertNotNull(success.getMessage());
+            }
+            assertEquals("", doctype.getInternalDTDSubset());
+        }
+        
+    }
+    
+    
+    // Note the subversion of access protection
+    public void testRepeatedInternalDTDSubsetNotReparsed() 
+      throws ClassNotFoundException, NoSuchMethodException,
+      IllegalAccessException, InvocationTargetException {
+        
+        String subset = "<!ELEMENT cached (#PCDATA)>";
+        Class<?> verifier = Class.forName("nu.xom.Verifier");
+        Method hitCount = verifier.getDeclaredMethod("getSubsetCacheHitCount");
+        hitCount.setAccessible(true);
+        
+        new DocType("cached").setInternalDTDSubset(subset);
+        long hits = ((Long) hitCount.invoke(null)).longValue();
+        DocType doctype = new DocType("cached");
+        // equal but not identical
+        doctype.setInternalDTDSubset(new String(subset));
+        assertEquals(subset, doctype.getInternalDTDSubset());
+        assertTrue(((Long) hitCount.invoke(null)).longValue() > hits);
+        
+    }
+    
+    
+    public void testSetInternalDTDSubsetFromSeveralThreads() 
+      throws InterruptedException {
+        
+        final String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 50; j++) {
+                            // a few distinct subsets per thread, so
+                            // some are parsed and some are cached
+                            String subset = "<!ELEMENT e" + index 
+                              + " (#PCDATA)><!ENTITY n '" + (j % 5) + "'>";
+                            new DocType("root").setInternalDTDSubset(subset);
+                            try {
+                                new DocType("root").setInternalDTDSubset(
+                                  subset + "<!ELEMENT");
+                                results[index] = "Allowed malformed subset";
+                                return;
+                            }
+                            catch (IllegalDataException success) {
+                                // continue
+                            }
+                        }
+                        results[index] = "OK";
+                    }
+                    catch (RuntimeException ex) {
+                        results[index] = ex.toString();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertEquals("OK", results[i]);
+        }
+        
+    }
+
+    
     public void testEmptyRootElementName() {
         
         try {
@@ -50,7 +50,7 @@ import nu.xom.Text;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.3.0
+ * @version 1.4.7
  *
  */
 public class ElementTest extends XOMTestCase {
@@ -1756,4 +1756,53 @@ public class ElementTest extends XOMTestCase {
     }
 
 
+    public void testRepeatedNameSharesStrings() {
+        
+        Element first = new Element("pre:repeated", "http://www.example.org/");
+        Element second = new Element("pre:repeated", "http://www.example.com/");
+        assertSame(first.getNamespacePrefix(), second.getNamespacePrefix());
+        assertSame(first.getLocalName(), second.getLocalName());
+        assertEquals("pre", second.getNamespacePrefix());
+        assertEquals("repeated", second.getLocalName());
+        assertEquals("http://www.example.com/", second.getNamespaceURI());
+        
+    }
+    
+    
+    public void testRepeatedNameStillChecksNamespace() {
+        
+        new Element("pre:checked", "http://www.example.org/");
+        try {
+            new Element("pre:checked");
+            fail("Allowed prefixed element in no namespace");
+        }
+        catch (NamespaceConflictException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            new Element("pre:checked", "not a URI");
+            fail("Allowed malformed namespace URI");
+        }
+        catch (MalformedURIException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+    public void testIllegalNameRejectedEveryTime() {
+        
+        for (int i = 0; i < 3; i++) {
+            try {
+                new Element("pre:bad:name", "http://www.example.org/");
+                fail("Allowed illegal name");
+            }
+            catch (IllegalNameException success) {
+                assertEquals("pre:bad:name", success.getData());
+            }
+        }
+        
+    }
+
+    
 }
@@ -182,6 +182,29 @@ public class EncodingTest extends XOMTestCase {
         checkAll("ISO-8859-9");
     }
 
+    // Characters added in later editions of these standards
+    // are still escaped.
+    public void testLaterAdditionsAreEscaped() throws IOException {
+        
+        Element root = new Element("root");
+        root.appendChild("\u20AC\u03A9");
+        Document doc = new Document(root);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serializer serializer = new Serializer(out, "ISO-8859-7");
+        serializer.write(doc);
+        String result = out.toString("ISO-8859-7");
+        assertTrue(result, result.indexOf("<root>&#x20AC;\u03A9</root>") > 0);
+        
+        root.removeChildren();
+        root.appendChild("\u200E\u05D0");
+        out = new ByteArrayOutputStream();
+        serializer = new Serializer(out, "ISO-8859-8");
+        serializer.write(doc);
+        result = out.toString("ISO-8859-8");
+        assertTrue(result, result.indexOf("<root>&#x200E;\u05D0</root>") > 0);
+        
+    }
+
     public void testUTF8() throws ParsingException, IOException {
         checkAll("UTF-8");
     }
@@ -46,7 +46,7 @@ import nu.xom.XMLException;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.1b2
+ * @version 1.4.7
  *
  */
 public class NodeFactoryTest extends XOMTestCase {
@@ -1141,4 +1141,163 @@ public class NodeFactoryTest extends XOMTestCase {
         
     }
 
+    
+    public void testSingleNodeFactoryDropsNodes() 
+      throws ParsingException, IOException {
+        
+        String data = "<!DOCTYPE root><?pi data?><root a='1' b='2'>"
+          + "1<!--comment-->2<?pi data?><skip>3</skip><keep/></root>";
+        Builder builder = new Builder(new NodeFactory() {
+            
+            public Node makeCommentNode(String data) {
+                return null;
+            }
+            
+            public Node makeProcessingInstructionNode(
+              String target, String data) {
+                return null;
+            }
+            
+            public Node makeDocTypeNode(String rootElementName, 
+              String publicID, String systemID) {
+                return null;
+            }
+            
+            public Node makeAttributeNode(String name, String URI, 
+              String value, Attribute.Type type) {
+                if (name.equals("a")) return null;
+                return super.makeAttributeNode(name, URI, value, type);
+            }
+            
+            public Node finishMakingElementNode(Element element) {
+                if (element.getLocalName().equals("skip")) return null;
+                return element;
+            }
+            
+        });
+        Document doc = builder.build(data, null);
+        assertEquals(1, doc.getChildCount());
+        Element root = doc.getRootElement();
+        assertEquals(1, root.getAttributeCount());
+        assertEquals("2", root.getAttributeValue("b"));
+        assertEquals(3, root.getChildCount());
+        assertEquals("1", root.getChild(0).getValue());
+        assertEquals("2", root.getChild(1).getValue());
+        assertEquals("keep", ((Element) root.getChild(2)).getLocalName());
+        
+    }
+ 
+    
+    public void testSingleNodeFactoryReplacesNodes() 
+      throws ParsingException, IOException {
+        
+        String data = "<root a='1'>text<!--comment--><?pi data?><child/></root>";
+        Builder builder = new Builder(new NodeFactory() {
+            
+            public Node makeTextNode(String data) {
+                return new Text(data.toUpperCase());
+            }
+            
+            public Node makeCommentNode(String data) {
+                return new Attribute("comment", data);
+            }
+            
+            public Node makeProcessingInstructionNode(
+              String target, String data) {
+                return new Element(target);
+            }
+            
+            public Node makeAttributeNode(String name, String URI, 
+              String value, Attribute.Type type) {
+                return new Text(value);
+            }
+            
+            public Node finishMakingElementNode(Element element) {
+                if (element.getLocalName().equals("child")) {
+                    return new Comment("child");
+                }
+                return element;
+            }
+            
+        });
+        Document doc = builder.build(data, null);
+        Element root = doc.getRootElement();
+        assertEquals("comment", root.getAttributeValue("comment"));
+        assertEquals(4, root.getChildCount());
+        assertEquals(new Text("1"), root.getChild(0));
+        assertEquals(new Text("TEXT"), root.getChild(1));
+        assertEquals(new Element("pi"), root.getChild(2));
+        assertEquals(new Comment("child"), root.getChild(3));
+        
+    }
+    
+    
+    public void testSingleNodeFactoryCantRemoveRootElement() 
+      throws IOException {
+        
+        Builder builder = new Builder(new NodeFactory() {
+            public Node finishMakingElementNode(Element element) {
+                return null;
+            }
+        });
+        try {
+            builder.build("<root/>", null);
+            fail("Removed root element");
+        }
+        catch (ParsingException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+    public void testNodesMethodStillOverridesSingleNodeMethod() 
+      throws ParsingException, IOException {
+        
+        // overrides only the older method, 
+        // so that's the one the builder calls
+        Builder builder = new Builder(new NodeFactory() {
+            public Nodes makeText(String data) {
+                return new Nodes(new Comment(data));
+            }
+        });
+        Document doc = builder.build("<root>text</root>", null);
+        assertEquals(new Comment("text"), doc.getRootElement().getChild(0));
+        
+        // overrides both, so the builder calls the single node method
+        builder = new Builder(new NodeFactory() {
+            public Nodes makeText(String data) {
+                return new Nodes(new Comment(data));
+            }
+            public Node makeTextNode(String data) {
+                return new ProcessingInstruction("pi", data);
+            }
+        });
+        doc = builder.build("<root>text</root>", null);
+        assertEquals(new ProcessingInstruction("pi", "text"), 
+          doc.getRootElement().getChild(0));
+        
+    }
+    
+    
+    public void testNodesMethodsCallSingleNodeMethods() {
+        
+        NodeFactory factory = new NodeFactory() {
+            public Node makeTextNode(String data) {
+                return null;
+            }
+            public Node makeCommentNode(String data) {
+                return new Text(data);
+            }
+        };
+        assertEquals(0, factory.makeText("text").size());
+        Nodes result = factory.makeComment("comment");
+        assertEquals(1, result.size());
+        assertEquals(new Text("comment"), result.get(0));
+        
+        Element element = new Element("a");
+        assertEquals(element, new NodeFactory().finishMakingElement(element).get(0));
+        
+    }
+
 }
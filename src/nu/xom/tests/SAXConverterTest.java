@@ -31,6 +31,7 @@ import nu.xom.Comment;
 import nu.xom.DocType;
 import nu.xom.Document;
 import nu.xom.Element;
+import nu.xom.Nodes;
 import nu.xom.ParsingException;
 import nu.xom.ProcessingInstruction;
 import nu.xom.converters.SAXConverter;
@@ -49,7 +50,7 @@ import org.xml.sax.helpers.DefaultHandler;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.1b4
+ * @version 1.4.7
  *
  */
 public class SAXConverterTest extends XOMTestCase {
@@ -463,6 +464,143 @@ public class SAXConverterTest extends XOMTestCase {
         }
         
     }
+
+    
+    public void testBufferReusedForText() 
+      throws ParsingException, IOException, SAXException {
+     
+        String data = "<root>a long text node<!--a long comment-->"
+          + "<a>short</a><!--c-->x</root>";
+        Document doc = builder.build(data, null);
+        EventRecorder handler = new EventRecorder();
+        SAXConverter converter = new SAXConverter(handler);
+        converter.setLexicalHandler(handler);
+        converter.convert(doc);
+        assertEquals("<root>[a long text node][!a long comment]"
+          + "<a>[short]</a>[!c][x]</root>", handler.toString());
+        
+    }
+    
+    
+    public void testNestedPrefixMappings() 
+      throws ParsingException, IOException, SAXException {
+     
+        String data = "<a:root xmlns:a='http://www.example.org/'>"
+          + "<a:b xmlns:a='http://www.example.com/'>"
+          + "<a:c xmlns:a='http://www.example.com/'/></a:b>"
+          + "<a:d/></a:root>";
+        Document doc = builder.build(data, null);
+        EventRecorder handler = new EventRecorder();
+        SAXConverter converter = new SAXConverter(handler);
+        converter.convert(doc);
+        assertEquals("{a=http://www.example.org/}<root>"
+          + "{a=http://www.example.com/}<b><c></c></b>{/a}<d></d></root>{/a}", 
+          handler.toString());
+        
+    }
+    
+    
+    public void testNoPrefixMappingsInheritedFromUnconvertedParent() 
+      throws ParsingException, IOException, SAXException {
+     
+        String data = "<root xmlns='http://www.example.org/' "
+          + "xmlns:a='http://www.example.com/'>"
+          + "<child><a:b xmlns:x='http://www.example.net/' x:att=''/>"
+          + "</child></root>";
+        Document doc = builder.build(data, null);
+        EventRecorder handler = new EventRecorder();
+        SAXConverter converter = new SAXConverter(handler);
+        converter.convert(new Nodes(doc.getRootElement().getChild(0)));
+        assertEquals("<child>{x=http://www.example.net/}<b></b>{/x}</child>", 
+          handler.toString());
+        
+    }
+    
+    
+    public void testSystemIDForEachElement() 
+      throws ParsingException, IOException, SAXException {
+     
+        String data = "<root><a xml:base='a/'>"
+          + "<b xml:base='http://www.example.com/b.xml'/>text</a>"
+          + "<c/></root>";
+        Document doc = builder.build(data, "http://www.example.org/");
+        EventRecorder handler = new EventRecorder();
+        handler.recordSystemIDs = true;
+        SAXConverter converter = new SAXConverter(handler);
+        converter.convert(doc);
+        assertEquals("<root@http://www.example.org/>"
+          + "<a@http://www.example.org/a/>"
+          + "<b@http://www.example.com/b.xml></b>"
+          + "[text@http://www.example.com/b.xml]</a>"
+          + "<c@http://www.example.org/></c></root>", 
+          handler.toString());
+        
+    }
+    
+    
+    private static class EventRecorder extends DefaultHandler 
+      implements LexicalHandler {
+        
+        private StringBuilder events = new StringBuilder();
+        private Locator locator;
+        boolean recordSystemIDs = false;
+        
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+        
+        private void recordSystemID() {
+            if (recordSystemIDs) {
+                events.append('@');
+                events.append(locator.getSystemId());
+            }
+        }
+        
+        public void startPrefixMapping(String prefix, String uri) {
+            events.append("{" + prefix + "=" + uri + "}");
+        }
+        
+        public void endPrefixMapping(String prefix) {
+            events.append("{/" + prefix + "}");
+        }
+        
+        public void startElement(String namespaceURI, String localName, 
+          String qualifiedName, Attributes attributes) {
+            events.append("<" + localName);
+            recordSystemID();
+            events.append('>');
+        }
+        
+        public void endElement(String namespaceURI, String localName, 
+          String qualifiedName) {
+            events.append("</" + localName + ">");
+        }
+        
+        public void characters(char[] text, int start, int length) {
+            events.append('[');
+            events.append(text, start, length);
+            recordSystemID();
+            events.append(']');
+        }
+        
+        public void comment(char[] text, int start, int length) {
+            events.append("[!");
+            events.append(text, start, length);
+            events.append(']');
+        }
+        
+        public void startDTD(String name, String publicID, String systemID) {}
+        public void endDTD() {}
+        public void startEntity(String name) {}
+        public void endEntity(String name) {}
+        public void startCDATA() {}
+        public void endCDATA() {}
+        
+        public String toString() {
+            return events.toString();
+        }
+        
+    }
  
     
 }
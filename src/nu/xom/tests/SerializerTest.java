@@ -119,6 +119,26 @@ public class SerializerTest extends XOMTestCase {
     }
     
     
+    public void testAstralCombiningCharactersReorderedWithNFC()
+      throws ParsingException, IOException {
+
+        // MUSICAL SYMBOL COMBINING AUGMENTATION DOT (class 226),
+        // MUSICAL SYMBOL COMBINING TREMOLO-1 (class 1)
+        String input = "<a>x&#x1D16D;&#x1D167;</a>";
+        String output = "<?xml version=\"1.0\" encoding=\"US-ASCII\"?>\r\n"
+          + "<a>x&#x1D167;&#x1D16D;</a>\r\n";
+
+        Document doc = parser.build(input, null);
+        Serializer serializer = new Serializer(out, "US-ASCII");
+        serializer.setUnicodeNormalizationFormC(true);
+        serializer.write(doc);
+        serializer.flush();
+        String result = out.toString("US-ASCII");
+        assertEquals(output, result);
+
+    }
+    
+    
     public void testNamespaceURIContainsAmpersand() 
       throws ParsingException, IOException {
 
@@ -1965,6 +1985,29 @@ public class SerializerTest extends XOMTestCase {
     }
 
     
+    public void testNFCInMostlyNormalizedText() throws IOException {
+
+        Element root = new Element("a");
+        // only the middle word isn't already normalized
+        root.appendChild("\u0393\u03B5\u03B9\u03AC \u00E7a"
+          + " fac\u0327ade\u0301 \u00E9t\u00E9 \uD800\uDC00\u00E8");
+        Document doc = new Document(root);
+        Serializer serializer = new Serializer(out);
+        serializer.setUnicodeNormalizationFormC(true);
+        serializer.write(doc);
+        serializer.flush();
+        out.close();
+        String result = new String(out.toByteArray(), "UTF-8");
+        assertEquals(
+          "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+          + "<a>\u0393\u03B5\u03B9\u03AC \u00E7a fa\u00E7ad\u00E9"
+          + " \u00E9t\u00E9 \uD800\uDC00\u00E8</a>\r\n",
+          result
+        );
+
+    }
+
+
     public void testNoNFCByDefault() throws IOException {
         
         Element root = new Element("c\u0327");
@@ -2269,10 +2312,28 @@ public class SerializerTest extends XOMTestCase {
         
         Serializer serializer = new Serializer(System.out, "ISO-8859-1");
         assertEquals("ISO-8859-1", serializer.getEncoding());
-        
+
     }
 
-    
+
+    public void testLowerCaseISO8859EncodingDeclaredInUpperCase()
+      throws IOException {
+
+        String[] encodings = {"iso-8859-2", "iso-8859-15", "tis-620"};
+        String[] declared  = {"ISO-8859-2", "ISO-8859-15", "TIS-620"};
+        for (int i = 0; i < encodings.length; i++) {
+            out.reset();
+            Serializer serializer = new Serializer(out, encodings[i]);
+            serializer.write(new Document(new Element("root")));
+            serializer.flush();
+            String expected = "<?xml version=\"1.0\" encoding=\""
+              + declared[i] + "\"?>\r\n<root/>\r\n";
+            assertEquals(expected, out.toString("US-ASCII"));
+        }
+
+    }
+
+
     public void testGetPreserveBaseURI() 
       throws UnsupportedEncodingException {
         
@@ -2859,4 +2920,258 @@ public class SerializerTest extends XOMTestCase {
         
     }
 
+    
+    private static class CountingSerializer extends Serializer {
+
+        int elements = 0;
+        int texts = 0;
+        
+        CountingSerializer(OutputStream out) {
+            super(out);
+        }
+        
+        protected void write(Element element) throws IOException {
+            super.write(element);
+        }
+        
+        protected void writeStartTag(Element element) throws IOException {
+            elements++;
+            super.writeStartTag(element);
+        }
+        
+        protected void writeEmptyElementTag(Element element) 
+          throws IOException {
+            elements++;
+            super.writeEmptyElementTag(element);
+        }
+        
+        protected void write(Text text) throws IOException {
+            texts++;
+            super.write(text);
+        }
+        
+    }
+    
+    
+    private static Document makeIncrementalTestDocument() {
+        
+        Element root = new Element("pre:root", "http://www.example.org/");
+        root.addNamespaceDeclaration("xlink", "http://www.w3.org/1999/xlink");
+        for (int i = 0; i < 10; i++) {
+            Element section = new Element("section");
+            section.addAttribute(new Attribute("n", String.valueOf(i)));
+            root.appendChild(section);
+            for (int j = 0; j < 10; j++) {
+                Element item = new Element("pre:item", "http://www.example.org/");
+                item.appendChild("item " + i + "." + j + " & <stuff>");
+                section.appendChild(item);
+            }
+        }
+        return new Document(root);
+        
+    }
+    
+    
+    private static String serialize(Document doc, int indent) 
+      throws IOException {
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serializer serializer = new Serializer(out);
+        serializer.setIndent(indent);
+        serializer.write(doc);
+        return out.toString("UTF-8");
+        
+    }
+    
+    
+    public void testIncrementalIsOffByDefault() {
+        Serializer serializer = new Serializer(out);
+        assertFalse(serializer.getIncremental());
+        serializer.setIncremental(true);
+        assertTrue(serializer.getIncremental());
+        serializer.setIncremental(false);
+        assertFalse(serializer.getIncremental());
+    }
+    
+    
+    public void testIncrementalReusesUnchangedElements() 
+      throws IOException {
+        
+        Document doc = makeIncrementalTestDocument();
+        CountingSerializer serializer = new CountingSerializer(out);
+        serializer.setIncremental(true);
+        serializer.write(doc);
+        String first = out.toString("UTF-8");
+        assertEquals(serialize(doc, 0), first);
+        assertEquals(111, serializer.elements);
+        
+        // nothing changed; only the root element is copied
+        out.reset();
+        serializer.elements = 0;
+        serializer.texts = 0;
+        serializer.write(doc);
+        assertEquals(first, out.toString("UTF-8"));
+        assertEquals(0, serializer.elements);
+        assertEquals(0, serializer.texts);
+        
+        // change one text node
+        Element section = (Element) doc.getRootElement().getChild(3);
+        Text text = (Text) section.getChild(4).getChild(0);
+        text.setValue("changed");
+        out.reset();
+        serializer.elements = 0;
+        serializer.texts = 0;
+        serializer.write(doc);
+        assertEquals(serialize(doc, 0), out.toString("UTF-8"));
+        assertEquals(3, serializer.elements);
+        assertEquals(1, serializer.texts);
+        
+    }
+    
+    
+    public void testIncrementalSeesAllChanges() 
+      throws IOException {
+        
+        Document doc = makeIncrementalTestDocument();
+        Serializer serializer = new Serializer(out);
+        serializer.setIncremental(true);
+        serializer.write(doc);
+        Element root = doc.getRootElement();
+        
+        Element section = (Element) root.getChild(1);
+        section.addAttribute(new Attribute("changed", "yes"));
+        assertIncrementalOutput(serializer, doc);
+        
+        ((Element) root.getChild(2)).getAttribute(0).setValue("two");
+        assertIncrementalOutput(serializer, doc);
+        
+        ((Element) root.getChild(3)).getChild(0).detach();
+        assertIncrementalOutput(serializer, doc);
+        
+        ((Element) root.getChild(4)).getChild(2).getChild(0).detach();
+        assertIncrementalOutput(serializer, doc);
+        
+        ((Element) root.getChild(5)).appendChild(new Comment("comment"));
+        assertIncrementalOutput(serializer, doc);
+        
+        ((Element) root.getChild(6)).setLocalName("part");
+        assertIncrementalOutput(serializer, doc);
+        
+        ((Element) root.getChild(7).getChild(1)).setNamespacePrefix("other");
+        assertIncrementalOutput(serializer, doc);
+        
+        Element moved = (Element) root.getChild(8);
+        moved.detach();
+        root.insertChild(moved, 0);
+        assertIncrementalOutput(serializer, doc);
+        
+        ((Element) root.getChild(9)).appendChild(" more text");
+        assertIncrementalOutput(serializer, doc);
+        
+        root.removeChildren();
+        assertIncrementalOutput(serializer, doc);
+        
+    }
+    
+    
+    public void testIncrementalNamespaceContextChange() 
+      throws IOException {
+        
+        Document doc = makeIncrementalTestDocument();
+        Serializer serializer = new Serializer(out);
+        serializer.setIncremental(true);
+        serializer.write(doc);
+        
+        // the items no longer need to declare the pre prefix
+        // now that the section does
+        Element root = doc.getRootElement();
+        Element section = (Element) root.getChild(2);
+        section.addNamespaceDeclaration("pre", "http://www.example.org/");
+        assertIncrementalOutput(serializer, doc);
+        
+        // The items depend on the root's declaration 
+        root.setNamespaceURI("http://www.example.com/");
+        assertIncrementalOutput(serializer, doc);
+        
+        // an unchanged element moved into a different context
+        Element item = (Element) root.getChild(5).getChild(0);
+        item.detach();
+        Element wrapper = new Element("wrapper");
+        wrapper.addNamespaceDeclaration("pre", "http://www.example.org/");
+        wrapper.appendChild(item);
+        root.appendChild(wrapper);
+        assertIncrementalOutput(serializer, doc);
+        
+    }
+    
+    
+    public void testIncrementalWithIndenting() 
+      throws IOException, ParsingException {
+        
+        Document doc = parser.build("<root><a><b>text</b><c xml:space='preserve'>"
+          + "<d> x </d></c></a><e/></root>", null);
+        Serializer serializer = new Serializer(out);
+        serializer.setIndent(2);
+        serializer.setIncremental(true);
+        serializer.write(doc);
+        assertEquals(serialize(doc, 2), out.toString("UTF-8"));
+        
+        // the same element at a different indentation level
+        Element a = doc.getRootElement().getFirstChildElement("a");
+        a.detach();
+        Element wrapper = new Element("wrapper");
+        wrapper.appendChild(a);
+        doc.getRootElement().appendChild(wrapper);
+        out.reset();
+        serializer.write(doc);
+        assertEquals(serialize(doc, 2), out.toString("UTF-8"));
+        
+        // changing options discards the cache
+        serializer.setIndent(4);
+        out.reset();
+        serializer.write(doc);
+        assertEquals(serialize(doc, 4), out.toString("UTF-8"));
+        
+    }
+    
+    
+    public void testTwoIncrementalSerializers() 
+      throws IOException {
+        
+        Document doc = makeIncrementalTestDocument();
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+        Serializer serializer1 = new Serializer(out1);
+        serializer1.setIncremental(true);
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+        Serializer serializer2 = new Serializer(out2, "ISO-8859-1");
+        serializer2.setIncremental(true);
+        
+        serializer1.write(doc);
+        serializer2.write(doc);
+        ((Element) doc.getRootElement().getChild(1)).appendChild("\u00E9\u03A9");
+        out1.reset();
+        serializer1.write(doc);
+        assertEquals(serialize(doc, 0), out1.toString("UTF-8"));
+        serializer2.write(doc);
+        out2.reset();
+        serializer2.write(doc);
+        assertTrue(out2.toString("ISO-8859-1").indexOf("\u00E9&#x3A9;") > 0);
+        
+    }
+    
+    
+    private void assertIncrementalOutput(Serializer serializer, Document doc) 
+      throws IOException {
+        
+        out.reset();
+        serializer.write(doc);
+        assertEquals(serialize(doc, 0), out.toString("UTF-8"));
+        // again with nothing changed
+        out.reset();
+        serializer.write(doc);
+        assertEquals(serialize(doc, 0), out.toString("UTF-8"));
+        
+    }
+    
+
 }
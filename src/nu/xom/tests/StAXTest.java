@@ -0,0 +1,353 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.tests;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.transform.stream.StreamResult;
+
+import nu.xom.Builder;
+import nu.xom.Comment;
+import nu.xom.DocType;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.NodeFactory;
+import nu.xom.Nodes;
+import nu.xom.ParsingException;
+import nu.xom.converters.StAXConverter;
+
+/**
+ * <p>
+ * Tests building documents from StAX readers, and reading XOM
+ * documents through StAX.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public class StAXTest extends XOMTestCase {
+
+    
+    private static final String data = "<?xml-stylesheet href='a.css'?>"
+      + "<!--before--><root xmlns='http://www.example.org/' "
+      + "xmlns:pre='http://www.example.com/' a='1' pre:b='2'>"
+      + "text<pre:child xml:lang='en'>inner<!--c--><![CDATA[<x>]]></pre:child>"
+      + "<child xmlns='' c='3'/><?pi data?>more &amp; \u00e9</root><!--after-->";
+    
+    private Document doc;
+    private Builder builder = new Builder();
+
+    
+    public StAXTest(String name) {
+        super(name);
+    }
+
+    
+    protected void setUp() throws ParsingException, IOException {
+        doc = builder.build(data, null);
+    }
+    
+    
+    private static XMLStreamReader read(String xml) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory.createXMLStreamReader(new StringReader(xml));
+    }
+
+    
+    public void testBuildFromStAX() throws XMLStreamException, ParsingException {
+        
+        XMLStreamReader reader = read(data);
+        Document result = builder.build(reader);
+        assertEquals(doc, result);
+        assertEquals(XMLStreamConstants.END_DOCUMENT, reader.getEventType());
+        
+    }
+    
+    
+    public void testBuildFromReaderInProlog() 
+      throws XMLStreamException, ParsingException {
+        
+        // The JDK 8 reader starts here when there's no XML 
+        // declaration. Later readers start at START_DOCUMENT.
+        XMLStreamReader reader = read(data);
+        if (reader.getEventType() == XMLStreamConstants.START_DOCUMENT) {
+            reader.next();
+        }
+        assertEquals(XMLStreamConstants.PROCESSING_INSTRUCTION, 
+          reader.getEventType());
+        Document result = builder.build(reader);
+        assertEquals(doc, result);
+        
+    }
+    
+    
+    public void testBuildFragmentFromStAX() 
+      throws XMLStreamException, ParsingException {
+        
+        XMLStreamReader reader = read(data);
+        while (!(reader.isStartElement() 
+          && reader.getLocalName().equals("child"))) {
+            reader.next();
+        }
+        Document result = builder.build(reader);
+        Element root = result.getRootElement();
+        assertEquals("pre:child", root.getQualifiedName());
+        assertEquals("http://www.example.com/", root.getNamespaceURI());
+        assertEquals("en", root.getAttributeValue(
+          "lang", "http://www.w3.org/XML/1998/namespace"));
+        assertEquals("inner<x>", root.getValue());
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.getEventType());
+        assertEquals("child", reader.getLocalName());
+        reader.next();
+        assertEquals("child", reader.getLocalName());
+        assertEquals("3", reader.getAttributeValue(null, "c"));
+        
+    }
+    
+    
+    public void testMalformedStAX() throws XMLStreamException {
+        
+        try {
+            builder.build(read("<root>&#0;</root>"));
+            fail("Built malformed document");
+        }
+        catch (ParsingException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+    public void testXML11CharacterReference() throws XMLStreamException {
+        
+        try {
+            builder.build(read("<?xml version='1.1'?><a>&#1;</a>"));
+            fail("Built document with a C0 control character");
+        }
+        catch (ParsingException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+    public void testXML11Document() 
+      throws XMLStreamException, ParsingException {
+        
+        Document result = builder.build(
+          read("<?xml version='1.1'?><a>text</a>"));
+        assertEquals("text", result.getValue());
+        
+    }
+    
+    
+    public void testReaderInWrongState() throws XMLStreamException {
+        
+        XMLStreamReader reader = read("<root>text</root>");
+        reader.next();
+        reader.next();
+        try {
+            builder.build(reader);
+            fail("Built from text");
+        }
+        catch (ParsingException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+    public void testFactoryUsedForStAX() 
+      throws XMLStreamException, ParsingException {
+        
+        Builder commentless = new Builder(new NodeFactory() {
+            public Nodes makeComment(String data) {
+                return new Nodes();
+            }
+        });
+        Document result = commentless.build(read(data));
+        assertEquals(0, result.query("//comment()").size());
+        assertEquals(doc.getValue(), result.getValue());
+        
+    }
+
+    
+    public void testRoundTrip() throws ParsingException {
+        
+        doc.insertChild(new DocType("root", "http://www.example.org/root.dtd"), 0);
+        Document result = builder.build(StAXConverter.createXMLStreamReader(doc));
+        assertEquals(doc, result);
+        
+    }
+
+    
+    public void testRoundTripNamespaces() throws ParsingException {
+        
+        Element root = new Element("pre:root", "http://www.example.org/");
+        root.addNamespaceDeclaration("extra", "http://www.example.com/");
+        Element child = new Element("child");
+        child.addAttribute(new nu.xom.Attribute("pre:a", 
+          "http://www.example.org/", "value"));
+        root.appendChild(child);
+        child.appendChild(new Element("pre:grandchild", "http://www.example.net/"));
+        Document original = new Document(root);
+        Document result = builder.build(
+          StAXConverter.createXMLStreamReader(original));
+        assertEquals(original, result);
+        
+    }
+
+    
+    public void testElementReader() throws ParsingException {
+        
+        Element child = doc.getRootElement().getChildElements().get(0);
+        XMLStreamReader reader = StAXConverter.createXMLStreamReader(child);
+        Element result = builder.build(reader).getRootElement();
+        assertEquals(child.getQualifiedName(), result.getQualifiedName());
+        assertEquals(child.getNamespaceURI(), result.getNamespaceURI());
+        assertEquals(child.getAttribute(0), result.getAttribute(0));
+        assertEquals(child.getChildCount(), result.getChildCount());
+        for (int i = 0; i < child.getChildCount(); i++) {
+            assertEquals(child.getChild(i), result.getChild(i));
+        }
+        assertEquals("http://www.example.org/", result.getNamespaceURI(""));
+        assertEquals(XMLStreamConstants.END_DOCUMENT, reader.getEventType());
+        
+    }
+
+    
+    public void testEvents() throws XMLStreamException {
+        
+        XMLStreamReader reader = StAXConverter.createXMLStreamReader(doc);
+        assertEquals(XMLStreamConstants.START_DOCUMENT, reader.getEventType());
+        assertEquals(XMLStreamConstants.PROCESSING_INSTRUCTION, reader.next());
+        assertEquals("xml-stylesheet", reader.getPITarget());
+        assertEquals("href='a.css'", reader.getPIData());
+        assertEquals(XMLStreamConstants.COMMENT, reader.next());
+        assertEquals("before", reader.getText());
+        assertEquals(XMLStreamConstants.START_ELEMENT, reader.next());
+        assertEquals("root", reader.getLocalName());
+        assertEquals("", reader.getPrefix());
+        assertEquals("http://www.example.org/", reader.getNamespaceURI());
+        assertEquals(2, reader.getNamespaceCount());
+        assertEquals(2, reader.getAttributeCount());
+        assertEquals("1", reader.getAttributeValue(null, "a"));
+        assertEquals("2", reader.getAttributeValue("http://www.example.com/", "b"));
+        assertEquals("CDATA", reader.getAttributeType(0));
+        assertEquals("http://www.example.com/", 
+          reader.getNamespaceContext().getNamespaceURI("pre"));
+        assertEquals(XMLStreamConstants.CHARACTERS, reader.next());
+        assertEquals("text", new String(reader.getTextCharacters(), 
+          reader.getTextStart(), reader.getTextLength()));
+        assertEquals(XMLStreamConstants.START_ELEMENT, reader.next());
+        assertEquals("pre", reader.getPrefix());
+        assertEquals(0, reader.getNamespaceCount());
+        assertEquals("inner<x>", reader.getElementText());
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.getEventType());
+        assertEquals(XMLStreamConstants.START_ELEMENT, reader.next());
+        assertNull(reader.getNamespaceURI());
+        assertEquals(1, reader.getNamespaceCount());
+        assertNull(reader.getNamespacePrefix(0));
+        assertEquals("", reader.getNamespaceURI(0));
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.next());
+        
+        int event = reader.next();
+        while (event != XMLStreamConstants.END_DOCUMENT) event = reader.next();
+        assertFalse(reader.hasNext());
+        
+    }
+
+    
+    public void testNextTag() throws XMLStreamException {
+        
+        XMLStreamReader reader = StAXConverter.createXMLStreamReader(
+          new Document(new Element("root")));
+        assertEquals(XMLStreamConstants.START_ELEMENT, reader.nextTag());
+        reader.require(XMLStreamConstants.START_ELEMENT, "", "root");
+        try {
+            reader.require(XMLStreamConstants.START_ELEMENT, "", "other");
+            fail("Wrong name passed");
+        }
+        catch (XMLStreamException success) {
+            assertNotNull(success.getMessage());
+        }
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.nextTag());
+        
+    }
+
+    
+    public void testIdentityTransform() 
+      throws TransformerException, ParsingException, IOException {
+        
+        TransformerFactory factory = TransformerFactory.newInstance();
+        // Saxon 6 doesn't read StAX sources
+        try {
+            if (!factory.getFeature(StAXSource.FEATURE)) return;
+        }
+        catch (IllegalArgumentException ex) {
+            return;
+        }
+        // The JDK's StAX source drops comments, so leave them out.
+        // Some processors also drop the processing instructions 
+        // in the prolog, so only the root elements are compared.
+        doc = builder.build(data.replaceAll("<!--[a-z]*-->", ""), null);
+        StringWriter out = new StringWriter();
+        factory.newTransformer().transform(
+          new StAXSource(StAXConverter.createXMLStreamReader(doc)), 
+          new StreamResult(out));
+        assertEquals(doc.getRootElement(), 
+          builder.build(out.toString(), null).getRootElement());
+        
+    }
+
+    
+    public void testNullArguments() throws ParsingException {
+        
+        try {
+            StAXConverter.createXMLStreamReader((Document) null);
+            fail("Accepted null document");
+        }
+        catch (NullPointerException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            StAXConverter.createXMLStreamReader((Element) null);
+            fail("Accepted null element");
+        }
+        catch (NullPointerException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
+}
@@ -0,0 +1,297 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.ParsingException;
+import nu.xom.canonical.CanonicalizationException;
+import nu.xom.canonical.Canonicalizer;
+import nu.xom.canonical.StreamingCanonicalizer;
+
+/**
+ * <p>
+ * Tests that <code>StreamingCanonicalizer</code> produces the
+ * same output as <code>Canonicalizer</code>.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public class StreamingCanonicalizerTest extends XOMTestCase {
+
+
+    private final static String[] algorithms = {
+        Canonicalizer.CANONICAL_XML,
+        Canonicalizer.CANONICAL_XML_WITH_COMMENTS,
+        Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION,
+        Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION_WITH_COMMENTS,
+        Canonicalizer.CANONICAL_XML_11,
+        Canonicalizer.CANONICAL_XML_11_WITH_COMMENTS
+    };
+
+    private File input;
+    private ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private XMLReader parser;
+
+
+    public StreamingCanonicalizerTest(String name) {
+        super(name);
+    }
+
+
+    protected void setUp() throws SAXException {
+        input = new File(new File("data", "canonical"), "input");
+        parser = XMLReaderFactory.createXMLReader(
+          "org.apache.xerces.parsers.SAXParser");
+    }
+
+
+    private String canonicalize(String data, String algorithm)
+      throws ParsingException, IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StreamingCanonicalizer(out, algorithm).canonicalize(
+          parser, new InputSource(new StringReader(data)));
+        return new String(out.toByteArray(), "UTF-8");
+
+    }
+
+
+    private String canonicalizeTree(String data, String algorithm)
+      throws ParsingException, IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document doc = new Builder().build(data, null);
+        new Canonicalizer(out, algorithm).write(doc);
+        return new String(out.toByteArray(), "UTF-8");
+
+    }
+
+
+    public void testTestSuiteFiles() throws ParsingException, IOException {
+
+        String[] inputs = input.list(new FilenameFilter() {
+            public boolean accept(File directory, String name) {
+                return name.endsWith(".xml");
+            }
+        });
+        for (int i = 0; i < inputs.length; i++) {
+            File file = new File(input, inputs[i]);
+            Document doc = new Builder().build(file);
+            for (int j = 0; j < algorithms.length; j++) {
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                new Canonicalizer(expected, algorithms[j]).write(doc);
+                out.reset();
+                new StreamingCanonicalizer(out, algorithms[j]).canonicalize(
+                  parser, new InputSource(file.toURI().toString()));
+                assertEquals(inputs[i] + " " + algorithms[j],
+                  new String(expected.toByteArray(), "UTF-8"),
+                  new String(out.toByteArray(), "UTF-8"));
+            }
+        }
+
+    }
+
+
+    public void testNamespaces() throws ParsingException, IOException {
+
+        String data = "<a:root xmlns:a='http://www.example.org/a' "
+          + "xmlns:b='http://www.example.org/b' xmlns='http://www.example.org/'>"
+          + "<child xmlns:a='http://www.example.org/a' b:att='1'>"
+          + "<a:grandchild xmlns=''/></child>"
+          + "<b:child xmlns:b='http://www.example.com/b'/></a:root>";
+        for (int i = 0; i < algorithms.length; i++) {
+            assertEquals(canonicalizeTree(data, algorithms[i]),
+              canonicalize(data, algorithms[i]));
+        }
+        assertEquals("<a:root xmlns:a=\"http://www.example.org/a\">"
+          + "<child xmlns=\"http://www.example.org/\" "
+          + "xmlns:b=\"http://www.example.org/b\" b:att=\"1\">"
+          + "<a:grandchild></a:grandchild></child>"
+          + "<b:child xmlns:b=\"http://www.example.com/b\"></b:child></a:root>",
+          canonicalize(data, Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION));
+
+    }
+
+
+    public void testExclusiveDefaultNamespaceDeclarations()
+      throws ParsingException, IOException {
+
+        String[] documents = {
+          "<p:r xmlns:p='urn:p'><p:s xmlns='' a='1'/></p:r>",
+          "<p:r xmlns:p='urn:p' xmlns='urn:d'><p:s a='1'/></p:r>",
+          "<p:r xmlns:p='urn:p' xmlns='urn:d' a='1'><s xmlns=''/></p:r>",
+          "<r xmlns='urn:d'><p:s xmlns:p='urn:p'><t xmlns='' a='1'/></p:s></r>",
+          "<r xmlns='urn:d'><s xmlns='' a='1'><t xmlns='urn:e'/></s></r>",
+          "<r xmlns=''><p:s xmlns:p='urn:p' xmlns='urn:d'><t xmlns=''/></p:s></r>"
+        };
+        String[] exclusive = {
+          Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION,
+          Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION_WITH_COMMENTS
+        };
+        for (int i = 0; i < documents.length; i++) {
+            for (int j = 0; j < exclusive.length; j++) {
+                assertEquals(documents[i],
+                  canonicalizeTree(documents[i], exclusive[j]),
+                  canonicalize(documents[i], exclusive[j]));
+            }
+        }
+        assertEquals("<p:r xmlns:p=\"urn:p\"><p:s a=\"1\"></p:s></p:r>",
+          canonicalize(documents[0], Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION));
+        assertEquals("<r xmlns=\"urn:d\"><p:s xmlns:p=\"urn:p\">"
+          + "<t xmlns=\"\" a=\"1\"></t></p:s></r>",
+          canonicalize(documents[3], Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION));
+
+    }
+
+
+    public void testInclusiveNamespacePrefixList()
+      throws ParsingException, IOException {
+
+        String data = "<root xmlns:a='http://www.example.org/a' "
+          + "xmlns:b='http://www.example.org/b'><child/></root>";
+        Document doc = new Builder().build(data, null);
+        Canonicalizer canonicalizer = new Canonicalizer(out,
+          Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION);
+        canonicalizer.setInclusiveNamespacePrefixList("b");
+        canonicalizer.write(doc);
+        String expected = new String(out.toByteArray(), "UTF-8");
+
+        out.reset();
+        StreamingCanonicalizer streamer = new StreamingCanonicalizer(out,
+          Canonicalizer.EXCLUSIVE_XML_CANONICALIZATION);
+        streamer.setInclusiveNamespacePrefixList("b");
+        streamer.canonicalize(parser, new InputSource(new StringReader(data)));
+        assertEquals(expected, new String(out.toByteArray(), "UTF-8"));
+        assertEquals("<root xmlns:b=\"http://www.example.org/b\">"
+          + "<child></child></root>", expected);
+
+    }
+
+
+    public void testDTDAndEntities() throws ParsingException, IOException {
+
+        String data = "<!DOCTYPE root [\n"
+          + "<!ENTITY e '<x a=\"&#9;\">&amp;</x>'>\n"
+          + "<!ATTLIST root t NMTOKENS #IMPLIED d CDATA 'default'>\n"
+          + "<!-- in the DTD --><?pi in the DTD?>\n"
+          + "]>\n<!--before--><root t=' x   y '>&e;<![CDATA[<&>]]>\r\n"
+          + "&#13;</root><?after?>";
+        for (int i = 0; i < algorithms.length; i++) {
+            assertEquals(canonicalizeTree(data, algorithms[i]),
+              canonicalize(data, algorithms[i]));
+        }
+        assertEquals("<!--before-->\n<root d=\"default\" t=\"x y\">"
+          + "<x a=\" \">&amp;</x>&lt;&amp;&gt;\n&#xD;</root>\n<?after?>",
+          canonicalize(data, Canonicalizer.CANONICAL_XML_WITH_COMMENTS));
+
+    }
+
+
+    public void testDigest()
+      throws ParsingException, IOException, NoSuchAlgorithmException {
+
+        String data = "<root xmlns='http://www.example.org/'>\u00E9\u20AC</root>";
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        new StreamingCanonicalizer(digest, Canonicalizer.CANONICAL_XML)
+          .canonicalize(parser, new InputSource(new StringReader(data)));
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(
+          canonicalizeTree(data, Canonicalizer.CANONICAL_XML).getBytes("UTF-8"));
+        byte[] actual = digest.digest();
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i]);
+        }
+
+    }
+
+
+    public void testMalformedDocument() throws IOException {
+
+        parser.setErrorHandler(new DefaultHandler());
+        try {
+            canonicalize("<root><a></root>", Canonicalizer.CANONICAL_XML);
+            fail("Canonicalized malformed document");
+        }
+        catch (ParsingException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testUnsupportedAlgorithm() {
+
+        try {
+            new StreamingCanonicalizer(out, "http://www.example.org/");
+            fail("Allowed unsupported algorithm");
+        }
+        catch (CanonicalizationException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testNullAlgorithm() {
+
+        try {
+            new StreamingCanonicalizer(out, (String) null);
+            fail("Allowed null algorithm");
+        }
+        catch (NullPointerException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testReuse() throws ParsingException, IOException {
+
+        StreamingCanonicalizer canonicalizer = new StreamingCanonicalizer(out,
+          Canonicalizer.CANONICAL_XML);
+        canonicalizer.canonicalize(parser,
+          new InputSource(new StringReader("<a xmlns='http://www.example.org/'/>")));
+        canonicalizer.canonicalize(parser,
+          new InputSource(new StringReader("<a xmlns='http://www.example.org/'/>")));
+        String expected = "<a xmlns=\"http://www.example.org/\"></a>";
+        assertEquals(expected + expected, new String(out.toByteArray(), "UTF-8"));
+
+    }
+
+
+}
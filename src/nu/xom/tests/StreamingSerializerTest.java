@@ -0,0 +1,427 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import nu.xom.Attribute;
+import nu.xom.Builder;
+import nu.xom.Comment;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.IllegalNameException;
+import nu.xom.NamespaceConflictException;
+import nu.xom.ParsingException;
+import nu.xom.Serializer;
+import nu.xom.StreamingSerializer;
+import nu.xom.Text;
+import nu.xom.XMLException;
+
+/**
+ * <p>
+ * Tests for <code>StreamingSerializer</code>.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public class StreamingSerializerTest extends XOMTestCase {
+
+
+    private ByteArrayOutputStream out;
+    private StreamingSerializer writer;
+
+
+    public StreamingSerializerTest(String name) {
+        super(name);
+    }
+
+
+    protected void setUp() {
+       out = new ByteArrayOutputStream();
+       writer = new StreamingSerializer(out);
+    }
+
+
+    private String result() throws IOException {
+        return out.toString("UTF-8");
+    }
+
+
+    public void testSimpleDocument() throws IOException {
+
+        writer.startDocument();
+        writer.startElement("root");
+        writer.attribute("id", "a&b");
+        writer.text("1 < 2");
+        writer.endElement();
+        writer.endDocument();
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+          + "<root id=\"a&amp;b\">1 &lt; 2</root>\r\n", result());
+
+    }
+
+
+    public void testEmptyElementTag() throws IOException {
+
+        writer.startDocument();
+        writer.startElement("root");
+        writer.startElement("empty");
+        writer.endElement();
+        writer.endElement();
+        writer.endDocument();
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+          + "<root><empty/></root>\r\n", result());
+
+    }
+
+
+    public void testNamespacesDeclaredOnlyOnce() throws IOException {
+
+        writer.startDocument();
+        writer.startElement("pre:root", "http://www.example.org/");
+        writer.startElement("pre:child", "http://www.example.org/");
+        writer.attribute("xlink:href", "http://www.w3.org/1999/xlink", "#a");
+        writer.endElement();
+        writer.endElement();
+        writer.endDocument();
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+          + "<pre:root xmlns:pre=\"http://www.example.org/\">"
+          + "<pre:child xlink:href=\"#a\" "
+          + "xmlns:xlink=\"http://www.w3.org/1999/xlink\"/>"
+          + "</pre:root>\r\n", result());
+
+    }
+
+
+    public void testAdditionalNamespaceDeclaration() throws IOException {
+
+        writer.startDocument();
+        writer.startElement("root");
+        writer.namespace("pre", "http://www.example.org/");
+        writer.startElement("pre:child", "http://www.example.org/");
+        writer.endElement();
+        writer.endElement();
+        writer.endDocument();
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+          + "<root xmlns:pre=\"http://www.example.org/\">"
+          + "<pre:child/></root>\r\n", result());
+
+    }
+
+
+    public void testConflictingNamespaceDeclaration() throws IOException {
+
+        writer.startDocument();
+        writer.startElement("pre:root", "http://www.example.org/");
+        try {
+            writer.namespace("pre", "http://www.example.com/");
+            fail("Allowed conflicting prefix");
+        }
+        catch (NamespaceConflictException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testIllegalElementName() throws IOException {
+
+        writer.startDocument();
+        try {
+            writer.startElement("1root");
+            fail("Allowed illegal name");
+        }
+        catch (IllegalNameException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testAttributeAfterContent() throws IOException {
+
+        writer.startDocument();
+        writer.startElement("root");
+        writer.text("data");
+        try {
+            writer.attribute("name", "value");
+            fail("Wrote attribute after content");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testTwoRootElements() throws IOException {
+
+        writer.startDocument();
+        writer.startElement("root");
+        writer.endElement();
+        try {
+            writer.startElement("root");
+            fail("Wrote two root elements");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testTextOutsideRootElement() throws IOException {
+
+        writer.startDocument();
+        try {
+            writer.text("data");
+            fail("Wrote text in prolog");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testEndDocumentWithOpenElement() throws IOException {
+
+        writer.startDocument();
+        writer.startElement("root");
+        try {
+            writer.endDocument();
+            fail("Ended document with unclosed element");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testEndElementWithoutStart() throws IOException {
+
+        writer.startDocument();
+        try {
+            writer.endElement();
+            fail("Ended nonexistent element");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testEventBeforeStartDocument() throws IOException {
+
+        try {
+            writer.startElement("root");
+            fail("Wrote element before starting document");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testWriteNodeMatchesSerializer()
+      throws IOException, ParsingException {
+
+        String data = "<root xmlns:pre='http://www.example.org/'>"
+          + "<pre:a b='c'>text<!--comment--><?pi data?></pre:a>"
+          + "<d xml:space='preserve'> <e/> </d></root>";
+        Document doc = new Builder().build(data, null);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Serializer serializer = new Serializer(expected);
+        serializer.setIndent(2);
+        serializer.write(doc);
+
+        Serializer streamer = new Serializer(out);
+        streamer.setIndent(2);
+        writer = new StreamingSerializer(streamer);
+        writer.startDocument();
+        writer.writeNode(doc.getRootElement());
+        writer.endDocument();
+
+        assertEquals(expected.toString("UTF-8"), result());
+
+    }
+
+
+    public void testMixStreamedAndTreeContent()
+      throws IOException, ParsingException {
+
+        Element subtree = new Element("pre:item", "http://www.example.org/");
+        subtree.addAttribute(new Attribute("n", "1"));
+        subtree.appendChild("value");
+
+        writer.startDocument();
+        writer.writeNode(new Comment("report"));
+        writer.startElement("pre:report", "http://www.example.org/");
+        writer.writeNode(new Attribute("date", "today"));
+        writer.writeNode(subtree);
+        writer.writeNode(new Text(" & more"));
+        writer.startElement("pre:item", "http://www.example.org/");
+        writer.endElement();
+        writer.endElement();
+        writer.endDocument();
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+          + "<!--report-->\r\n"
+          + "<pre:report date=\"today\" xmlns:pre=\"http://www.example.org/\">"
+          + "<pre:item n=\"1\">value</pre:item> &amp; more<pre:item/>"
+          + "</pre:report>\r\n", result());
+
+        // the subtree is unchanged
+        assertEquals("pre:report", new Builder().build(result(), null)
+          .getRootElement().getQualifiedName());
+        assertNull(subtree.getParent());
+
+    }
+
+
+    public void testIndentingStreamedContent() throws IOException {
+
+        Serializer serializer = new Serializer(out);
+        serializer.setIndent(2);
+        writer = new StreamingSerializer(serializer);
+        writer.startDocument();
+        writer.startElement("root");
+        writer.startElement("a");
+        writer.text("   ");
+        writer.startElement("b");
+        writer.text("data");
+        writer.endElement();
+        writer.endElement();
+        writer.endElement();
+        writer.endDocument();
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+          + "<root>\r\n  <a>\r\n    <b>data</b>\r\n  </a>\r\n</root>\r\n",
+          result());
+
+    }
+
+
+    public void testIndentingKeepsWhiteSpaceThatIsNotBoundary() 
+      throws IOException {
+
+        Serializer serializer = new Serializer(out);
+        serializer.setIndent(2);
+        writer = new StreamingSerializer(serializer);
+        writer.startDocument();
+        writer.startElement("root");
+        writer.startElement("a");
+        writer.text(" ");
+        writer.endElement();
+        writer.startElement("b");
+        writer.text("x");
+        writer.text(" ");
+        writer.endElement();
+        writer.text(" ");
+        writer.endElement();
+        writer.endDocument();
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+          + "<root>\r\n  <a> </a>\r\n  <b>x </b>\r\n</root>\r\n",
+          result());
+
+    }
+
+
+    public void testStreamedOutputMatchesTree()
+      throws IOException, ParsingException {
+
+        Element root = new Element("root");
+        Document doc = new Document(root);
+        writer.startDocument();
+        writer.startElement("root");
+        for (int i = 0; i < 100; i++) {
+            Element row = new Element("row");
+            row.addAttribute(new Attribute("n", String.valueOf(i)));
+            row.appendChild("é́ " + i);
+            root.appendChild(row);
+            writer.startElement("row");
+            writer.attribute("n", String.valueOf(i));
+            writer.text("é́ " + i);
+            writer.endElement();
+        }
+        writer.endElement();
+        writer.endDocument();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new Serializer(expected).write(doc);
+        assertEquals(expected.toString("UTF-8"), result());
+
+    }
+
+
+    public void testEncoding() throws IOException {
+
+        writer = new StreamingSerializer(out, "US-ASCII");
+        writer.startDocument();
+        writer.startElement("root");
+        writer.attribute("a", "é");
+        writer.text("Ω");
+        writer.endElement();
+        writer.endDocument();
+        assertEquals("<?xml version=\"1.0\" encoding=\"US-ASCII\"?>\r\n"
+          + "<root a=\"&#xE9;\">&#x3A9;</root>\r\n", out.toString("US-ASCII"));
+
+    }
+
+
+    public void testNullSerializer() {
+
+        try {
+            new StreamingSerializer((Serializer) null);
+            fail("Allowed null serializer");
+        }
+        catch (NullPointerException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testDeepNesting() throws IOException, ParsingException {
+
+        writer.startDocument();
+        for (int i = 0; i < 1000; i++) {
+            writer.startElement("e");
+        }
+        for (int i = 0; i < 1000; i++) {
+            writer.endElement();
+        }
+        writer.endDocument();
+        Document doc = new Builder().build(result(), null);
+        assertEquals("e", doc.getRootElement().getQualifiedName());
+
+    }
+
+
+}
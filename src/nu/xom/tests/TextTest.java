@@ -31,7 +31,7 @@ import nu.xom.Text;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.3.1
+ * @version 1.4.7
  *
  */
 public class TextTest extends XOMTestCase {
@@ -242,6 +242,31 @@ public class TextTest extends XOMTestCase {
     }
     
     
+    public void testBoundariesOfLegalRanges() {
+        
+        String legal = "\t\n\r \u007F\u0080\uD7FF\uE000\uFFFD";
+        assertEquals(legal, new Text(legal).getValue());
+        
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) sb.append("text ");
+        String prefix = sb.toString();
+        String[] illegal = {"\u001F", "\u0000", "\u000B", "\uD800", "\uDBFF", 
+          "\uDC00", "\uDFFF", "\uD800 "};
+        for (int i = 0; i < illegal.length; i++) {
+            String data = prefix + illegal[i];
+            try {
+                new Text(data);
+                fail("allowed " + Integer.toHexString(illegal[i].charAt(0)));
+            }
+            catch (IllegalCharacterDataException success) {
+                assertEquals(data, success.getData());
+                assertNotNull(success.getMessage());
+            }
+        }
+        
+    }
+    
+    
     public void testEndOfBMP() {
         
         try {
@@ -0,0 +1,450 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.tests;
+
+import java.io.IOException;
+
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.IllegalCharacterDataException;
+import nu.xom.IllegalDataException;
+import nu.xom.IllegalNameException;
+import nu.xom.IllegalTargetException;
+import nu.xom.MalformedURIException;
+import nu.xom.NamespaceConflictException;
+import nu.xom.ParsingException;
+import nu.xom.TreeBuilder;
+import nu.xom.XMLException;
+
+/**
+ * <p>
+ * Tests for <code>TreeBuilder</code>.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public class TreeBuilderTest extends XOMTestCase {
+
+
+    private TreeBuilder builder;
+
+
+    public TreeBuilderTest(String name) {
+        super(name);
+    }
+
+
+    protected void setUp() {
+        builder = new TreeBuilder();
+    }
+
+
+    private static Document parse(String xml) 
+      throws ParsingException, IOException {
+        return new Builder().build(xml, null);
+    }
+
+
+    public void testBuildsSameTreeAsParser() 
+      throws ParsingException, IOException {
+
+        builder.comment(" prolog ");
+        builder.processingInstruction("target", "data");
+        builder.startElement("pre:root", "http://www.example.org/");
+        builder.namespace("other", "http://www.example.com/");
+        builder.attribute("a", "1");
+        builder.attribute("pre:b", "http://www.example.org/", "2");
+        builder.text("some ");
+        builder.startElement("child");
+        builder.attribute("xml:id", 
+          "http://www.w3.org/XML/1998/namespace", " p1 ");
+        builder.text("text");
+        builder.endElement();
+        builder.startElement("empty", "http://www.example.net/");
+        builder.endElement();
+        builder.comment("inner");
+        builder.endElement();
+        builder.processingInstruction("epilog", "");
+        Document doc = builder.endDocument();
+
+        Document expected = parse(
+          "<!-- prolog --><?target data?>"
+          + "<pre:root xmlns:pre='http://www.example.org/' "
+          + "xmlns:other='http://www.example.com/' a='1' pre:b='2'>"
+          + "some <child xml:id='p1'>text</child>"
+          + "<empty xmlns='http://www.example.net/'/><!--inner--></pre:root>"
+          + "<?epilog?>");
+        assertEquals(expected, doc);
+        assertEquals("http://www.example.com/", 
+          doc.getRootElement().getNamespaceURI("other"));
+        assertNotNull(doc.getRootElement().getFirstChildElement("child")
+          .getAttribute("id", "http://www.w3.org/XML/1998/namespace"));
+
+    }
+
+
+    public void testTreeIsFullyConnected() {
+
+        builder.startElement("root");
+        builder.startElement("child");
+        builder.text("data");
+        builder.endElement();
+        builder.endElement();
+        Document doc = builder.endDocument();
+        
+        Element root = doc.getRootElement();
+        assertEquals(doc, root.getParent());
+        Element child = (Element) root.getChild(0);
+        assertEquals(root, child.getParent());
+        assertEquals(child, child.getChild(0).getParent());
+        assertEquals(doc, child.getDocument());
+        // and the tree can be modified afterwards
+        child.appendChild(" more");
+        child.detach();
+        assertEquals(0, root.getChildCount());
+
+    }
+
+
+    public void testBuilderIsReusable() {
+
+        builder.startElement("first");
+        builder.endElement();
+        Document first = builder.endDocument();
+        builder.startElement("second");
+        builder.endElement();
+        Document second = builder.endDocument();
+        assertEquals("first", first.getRootElement().getLocalName());
+        assertEquals("second", second.getRootElement().getLocalName());
+        assertNotSame(first, second);
+
+    }
+
+
+    public void testNoRootElement() {
+
+        builder.comment("data");
+        try {
+            builder.endDocument();
+            fail("Built document without a root element");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testUnclosedElement() {
+
+        builder.startElement("root");
+        try {
+            builder.endDocument();
+            fail("Built document with an open element");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+        // the failed document is discarded
+        builder.startElement("root");
+        builder.endElement();
+        builder.endDocument();
+
+    }
+
+
+    public void testTwoRootElements() {
+
+        builder.startElement("root");
+        builder.endElement();
+        try {
+            builder.startElement("root");
+            fail("Allowed two root elements");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testTextOutsideRootElement() {
+
+        try {
+            builder.text("data");
+            fail("Allowed text in prolog");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testAttributeAfterContent() {
+
+        builder.startElement("root");
+        builder.text("data");
+        try {
+            builder.attribute("name", "value");
+            fail("Allowed attribute after content");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            builder.namespace("pre", "http://www.example.org/");
+            fail("Allowed namespace declaration after content");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testEndWithoutStart() {
+
+        try {
+            builder.endElement();
+            fail("Ended element that was never started");
+        }
+        catch (XMLException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testVerifiesElementNames() {
+
+        builder.startElement("root");
+        try {
+            builder.startElement("1bad");
+            fail("Allowed illegal element name");
+        }
+        catch (IllegalNameException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            builder.startElement("pre:child");
+            fail("Allowed prefixed element in no namespace");
+        }
+        catch (NamespaceConflictException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testVerifiesAttributes() {
+
+        builder.startElement("root");
+        try {
+            builder.attribute("xmlns", "value");
+            fail("Allowed attribute named xmlns");
+        }
+        catch (IllegalNameException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            builder.attribute("name", "\u0000");
+            fail("Allowed null in attribute value");
+        }
+        catch (IllegalDataException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testLaterAttributeReplacesEarlier() {
+
+        builder.startElement("root");
+        builder.attribute("name", "1");
+        builder.attribute("name", "2");
+        builder.endElement();
+        Element root = builder.endDocument().getRootElement();
+        assertEquals(1, root.getAttributeCount());
+        assertEquals("2", root.getAttributeValue("name"));
+
+    }
+
+
+    public void testVerifiesNamespaceConflicts() {
+
+        builder.startElement("pre:root", "http://www.example.org/");
+        try {
+            builder.attribute("pre:name", "http://www.example.com/", "value");
+            fail("Allowed conflicting prefixes");
+        }
+        catch (NamespaceConflictException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            builder.namespace("pre", "http://www.example.com/");
+            fail("Allowed conflicting namespace declaration");
+        }
+        catch (NamespaceConflictException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testVerifiesText() {
+
+        builder.startElement("root");
+        try {
+            builder.text("\uD800");
+            fail("Allowed unpaired surrogate");
+        }
+        catch (IllegalCharacterDataException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testVerifiesCommentsAndProcessingInstructions() {
+
+        try {
+            builder.comment("bad--comment");
+            fail("Allowed double hyphen in comment");
+        }
+        catch (IllegalDataException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            builder.processingInstruction("xml", "data");
+            fail("Allowed processing instruction target xml");
+        }
+        catch (IllegalTargetException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testXMLPrefixAlwaysChecked() {
+
+        builder = new TreeBuilder(false);
+        builder.startElement("root");
+        builder.namespace("xml", "http://www.w3.org/XML/1998/namespace");
+        builder.endElement();
+        assertEquals(new Element("root").getNamespaceDeclarationCount(), 
+          builder.endDocument().getRootElement().getNamespaceDeclarationCount());
+        builder.startElement("root");
+        try {
+            builder.namespace("xml", "http://www.example.org/");
+            fail("Bound xml prefix to wrong namespace");
+        }
+        catch (NamespaceConflictException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testRelativeNamespaceURIAlwaysRejected() {
+
+        builder = new TreeBuilder(false);
+        try {
+            builder.startElement("pre:root", "relative");
+            fail("Allowed relative namespace URI");
+        }
+        catch (MalformedURIException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testRelativeAttributeNamespaceURIAlwaysRejected() {
+
+        builder = new TreeBuilder(false);
+        builder.startElement("root");
+        try {
+            builder.attribute("p:a", "relative", "value");
+            fail("Allowed relative namespace URI");
+        }
+        catch (MalformedURIException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testRelativeNamespaceDeclarationAlwaysRejected() {
+
+        builder = new TreeBuilder(false);
+        builder.startElement("root");
+        try {
+            builder.namespace("q", "also-relative");
+            fail("Allowed relative namespace URI");
+        }
+        catch (MalformedURIException success) {
+            assertNotNull(success.getMessage());
+        }
+
+    }
+
+
+    public void testTrustedBuilderSkipsVerification() {
+
+        builder = new TreeBuilder(false);
+        builder.startElement("root");
+        builder.namespace("pre", "http://www.example.org/");
+        builder.text("\u0001");
+        builder.endElement();
+        Document doc = builder.endDocument();
+        assertEquals("\u0001", doc.getValue());
+        assertEquals("http://www.example.org/", 
+          doc.getRootElement().getNamespaceURI("pre"));
+
+    }
+
+
+    public void testTrustedBuilderBuildsSameTree() 
+      throws ParsingException, IOException {
+
+        builder = new TreeBuilder(false);
+        builder.startElement("pre:root", "http://www.example.org/");
+        builder.attribute("pre:a", "http://www.example.org/", "1");
+        builder.attribute("xml:id", 
+          "http://www.w3.org/XML/1998/namespace", " p1 ");
+        builder.startElement("child", "http://www.example.com/");
+        builder.text("text");
+        builder.endElement();
+        builder.endElement();
+        Document expected = parse(
+          "<pre:root xmlns:pre='http://www.example.org/' pre:a='1' "
+          + "xml:id='p1'><child xmlns='http://www.example.com/'>text"
+          + "</child></pre:root>");
+        assertEquals(expected, builder.endDocument());
+
+    }
+
+
+}
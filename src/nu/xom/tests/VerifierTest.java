@@ -34,6 +34,8 @@ import nu.xom.Text;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 /**
  * <p>
@@ -41,7 +43,7 @@ import java.io.IOException;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.4.0
+ * @version 1.4.7
  *
  */
 public class VerifierTest extends XOMTestCase {
@@ -1060,5 +1062,91 @@ public class VerifierTest extends XOMTestCase {
         
     }
 
+    // Note the subversion of access protection
+    private static long getURICacheCount(String name) 
+      throws ClassNotFoundException, NoSuchMethodException,
+      IllegalAccessException, InvocationTargetException {
+        
+        Class<?> verifier = Class.forName("nu.xom.Verifier");
+        Method method = verifier.getDeclaredMethod(name);
+        method.setAccessible(true);
+        return ((Number) method.invoke(null)).longValue();
+        
+    }
+    
+    
+    public void testURICacheHoldsManyNamespaces() 
+      throws ClassNotFoundException, NoSuchMethodException,
+      IllegalAccessException, InvocationTargetException {
+        
+        String[] uris = new String[40];
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = "http://www.example.org/cache/" + i;
+        }
+        // enough passes to grow the cache past its initial size
+        for (int pass = 0; pass < 10; pass++) {
+            for (int i = 0; i < uris.length; i++) {
+                new Element("pre:name", uris[i]);
+            }
+        }
+        assertTrue(getURICacheCount("getURICacheSize") >= 64);
+        
+        long hits = getURICacheCount("getURICacheHitCount");
+        long misses = getURICacheCount("getURICacheMissCount");
+        for (int i = 0; i < uris.length; i++) {
+            // equal strings hit the cache even when they aren't
+            // the same object
+            new Element("pre:name", new String(uris[i]));
+        }
+        assertTrue(getURICacheCount("getURICacheHitCount") - hits 
+          >= uris.length / 2);
+        assertTrue(getURICacheCount("getURICacheMissCount") - misses 
+          < uris.length / 2);
+        
+    }
+    
+    
+    public void testURICacheFromSeveralThreads() 
+      throws InterruptedException {
+        
+        final String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 2000; j++) {
+                            String uri = "http://www.example.org/" + (j % 50);
+                            Element element = new Element("pre:name", uri);
+                            if (!uri.equals(element.getNamespaceURI())) {
+                                results[index] = element.getNamespaceURI();
+                                return;
+                            }
+                            try {
+                                new Element("pre:name", "http://[" + j);
+                                results[index] = "Allowed malformed URI";
+                                return;
+                            }
+                            catch (MalformedURIException success) {
+                                // continue
+                            }
+                        }
+                        results[index] = "OK";
+                    }
+                    catch (RuntimeException ex) {
+                        results[index] = ex.toString();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertEquals("OK", results[i]);
+        }
+        
+    }
+
 
 }
@@ -36,6 +36,8 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
@@ -58,9 +60,11 @@ import nu.xom.xinclude.BadEncodingAttributeException;
 import nu.xom.xinclude.BadHTTPHeaderException;
 import nu.xom.xinclude.BadHrefAttributeException;
 import nu.xom.xinclude.BadParseAttributeException;
+import nu.xom.xinclude.IncludeCache;
 import nu.xom.xinclude.InclusionLoopException;
 import nu.xom.xinclude.NoIncludeLocationException;
 import nu.xom.xinclude.XIncludeException;
+import nu.xom.xinclude.XIncludeFactory;
 import nu.xom.xinclude.XIncluder;
 
 /**
@@ -93,6 +97,7 @@ public class XIncludeTest extends XOMTestCase {
     private PrintStream systemErr = System.err;
     private HttpServer localTestServer;
     private String localServerBase;
+    private volatile int requestCount;
     
     
     protected void setUp() throws IOException {
@@ -130,6 +135,30 @@ public class XIncludeTest extends XOMTestCase {
                 sendResponse(exchange, body, contentType);
             }
         });
+        localTestServer.createContext("/tests/counted.xml", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount++;
+                sendResponse(exchange, "<counted><item>x</item></counted>",
+                  "application/xml; charset=utf-8");
+            }
+        });
+        localTestServer.createContext("/tests/nested.xml", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount++;
+                sendResponse(exchange, "<nested xmlns:xi='" 
+                  + XIncluder.XINCLUDE_NS + "' xml:lang='fr'>"
+                  + "<xi:include href='counted.xml'/>"
+                  + "<xi:include href='counted.txt' parse='text'/>"
+                  + "</nested>",
+                  "application/xml; charset=utf-8");
+            }
+        });
+        localTestServer.createContext("/tests/counted.txt", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount++;
+                sendResponse(exchange, "data\n", "text/plain; charset=utf-8");
+            }
+        });
         createInputFixtureContext("/data/xinclude/input/acceptfrench.xml",
           "acceptfrench.xml");
         createInputFixtureContext("/data/xinclude/input/acceptenglish.xml",
@@ -2434,6 +2463,197 @@ public class XIncludeTest extends XOMTestCase {
     }
     
     
+    public void testIncludeCacheLoadsEachResourceOnce() 
+      throws ParsingException, IOException, XIncludeException {
+      
+        Document doc = builder.build("<root xmlns:xi='" 
+          + XIncluder.XINCLUDE_NS + "'>"
+          + "<xi:include href='counted.xml'/>"
+          + "<xi:include href='counted.txt' parse='text'/>"
+          + "<xi:include href='counted.xml'/>"
+          + "<xi:include href='counted.xml' xpointer='element(/1/1)'/>"
+          + "<xi:include href='counted.txt' parse='text'/>"
+          + "</root>", localServerBase + "/tests/");
+        Document expectedResult = XIncluder.resolve(doc);
+        assertEquals(5, requestCount);
+        
+        requestCount = 0;
+        IncludeCache cache = new IncludeCache(1024);
+        Document result = XIncluder.resolve(doc, builder, cache);
+        assertEquals(expectedResult, result);
+        assertEquals(2, requestCount);
+        assertEquals(2, cache.getMissCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getEntryCount());
+        
+        // the cached document was not modified by the inclusions
+        result = XIncluder.resolve(doc, builder, cache);
+        assertEquals(expectedResult, result);
+        assertEquals(2, requestCount);
+        assertEquals(8, cache.getHitCount());
+        
+    }
+    
+    
+    public void testIncludeCacheEvictsLeastRecentlyUsed() 
+      throws ParsingException, IOException, XIncludeException {
+      
+        Document doc = builder.build("<root xmlns:xi='" 
+          + XIncluder.XINCLUDE_NS + "'>"
+          + "<xi:include href='counted.txt' parse='text'/>"
+          + "<xi:include href='counted.txt' parse='text' encoding='US-ASCII'/>"
+          + "<xi:include href='counted.txt' parse='text'/>"
+          + "<xi:include href='counted.xml'/>"
+          + "</root>", localServerBase + "/tests/");
+        IncludeCache cache = new IncludeCache(8);
+        Document result = XIncluder.resolve(doc, builder, cache);
+        assertEquals("data\ndata\ndata\nx", result.getValue());
+        assertEquals(4, requestCount);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(5, cache.getSize());
+        
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+        
+    }
+    
+    
+    public void testConcurrentFetchingMatchesSequentialResolution() 
+      throws ParsingException, IOException, XIncludeException {
+      
+        Document doc = builder.build("<root xmlns:xi='" 
+          + XIncluder.XINCLUDE_NS + "' xml:lang='en'>"
+          + "<xi:include href='nested.xml'/>"
+          + "<xi:include href='counted.xml'/>"
+          + "<xi:include href='nested.xml' xpointer='element(/1/1)'/>"
+          + "<xi:include href='counted.txt' parse='text'/>"
+          + "<xi:include href='missing.xml'><xi:fallback>"
+          + "<xi:include href='counted.txt' parse='text' encoding='US-ASCII'/>"
+          + "</xi:fallback></xi:include>"
+          + "</root>", localServerBase + "/tests/");
+        Document expectedResult = XIncluder.resolve(doc);
+        
+        requestCount = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Document result = XIncluder.resolve(doc, builder, null, executor);
+            assertEquals(expectedResult, result);
+        }
+        finally {
+            executor.shutdown();
+        }
+        // resources used only by the fallback are not fetched ahead
+        assertEquals(4, requestCount);
+        
+    }
+    
+    
+    public void testConcurrentFetchingDetectsInclusionLoops() 
+      throws ParsingException, IOException, XIncludeException {
+      
+        File input = new File(inputDir, "circle1.xml");
+        Document doc = builder.build(input);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            XIncluder.resolve(doc, builder, null, executor);
+            fail("allowed circular reference");
+        }
+        catch (InclusionLoopException success) {
+            assertNotNull(success.getMessage());   
+        }
+        finally {
+            executor.shutdown();
+        }
+        
+    }
+    
+    
+    public void testXIncludeFactory() 
+      throws ParsingException, IOException {
+      
+        Builder includer = new Builder(new XIncludeFactory());
+        Document result = includer.build(new File(inputDir, "tobintop.xml"));
+        Document expected = builder.build(
+          new File(outputDir, "tobintop.xml")
+        );
+        assertEquals(expected, result);
+        
+        // refers to content that follows the include element
+        result = includer.build(new File(inputDir, "onlyxpointer.xml"));
+        expected = builder.build(
+          new File(outputDir, "onlyxpointer.xml")
+        );
+        assertEquals(expected, result);
+                
+    }
+    
+    
+    public void testXIncludeFactoryStreamsIncludedContent() 
+      throws ParsingException, IOException {
+      
+        final int[] items = new int[1];
+        NodeFactory streamer = new NodeFactory() {
+            public Nodes finishMakingElement(Element element) {
+                if (element.getLocalName().equals("item")) {
+                    items[0]++;
+                    return new Nodes();
+                }
+                return super.finishMakingElement(element);
+            }
+        };
+        Builder includer = new Builder(new XIncludeFactory(streamer));
+        Document result = includer.build("<root xmlns:xi='" 
+          + XIncluder.XINCLUDE_NS + "'><item/>"
+          + "<xi:include href='counted.xml'/><item/>"
+          + "<xi:include href='nested.xml'/>"
+          + "</root>", localServerBase + "/tests/");
+        assertEquals(4, items[0]);
+        assertEquals(0, result.query("//item").size());
+        assertEquals(2, result.query("//counted").size());
+        assertEquals(1, result.query("/root/nested").size());
+        assertEquals("data\n", result.getValue());
+                
+    }
+    
+    
+    public void testXIncludeFactoryReportsMissingResource() 
+      throws IOException {
+      
+        Builder includer = new Builder(new XIncludeFactory());
+        try {
+            includer.build("<root xmlns:xi='" + XIncluder.XINCLUDE_NS 
+              + "'><xi:include href='nonexistent.xml'/></root>", 
+              inputDir.toURI().toString());
+            fail("Included missing resource");
+        }
+        catch (ParsingException success) {
+            Throwable cause = success.getCause();
+            while (cause != null && !(cause instanceof IOException)) {
+                cause = cause.getCause();
+            }
+            assertNotNull(cause);
+        }
+                
+    }
+    
+    
+    public void testNegativeIncludeCacheSize() {
+     
+        try {
+            new IncludeCache(-1);
+            fail("Allowed negative cache size");
+        }
+        catch (IllegalArgumentException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+    
+    
     public void testBadHTTPHeaderExceptionConstructor() {
      
         String message = "test";
@@ -76,10 +76,15 @@ public class XOMTests {
         // result.addTest(new TestSuite(EBCDICTest.class));
         result.addTest(new TestSuite(RoundTripTest.class));
         result.addTest(new TestSuite(DOMConverterTest.class));
+        result.addTest(new TestSuite(DOMViewTest.class));
+        result.addTest(new TestSuite(StAXTest.class));
         result.addTest(new TestSuite(InfoTest.class));
         result.addTest(new TestSuite(SerializerTest.class));
+        result.addTest(new TestSuite(StreamingSerializerTest.class));
         result.addTest(new TestSuite(CanonicalizerTest.class));
+        result.addTest(new TestSuite(StreamingCanonicalizerTest.class));
         result.addTest(new TestSuite(BuilderTest.class));
+        result.addTest(new TestSuite(TreeBuilderTest.class));
         result.addTest(new TestSuite(XIncludeTest.class));
         result.addTest(new TestSuite(SAXConverterTest.class));
         result.addTest(new TestSuite(BaseURITest.class));
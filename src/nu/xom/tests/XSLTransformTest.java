@@ -42,6 +42,7 @@ import nu.xom.ProcessingInstruction;
 import nu.xom.Serializer;
 import nu.xom.Text;
 import nu.xom.XMLException;
+import nu.xom.xslt.StylesheetCache;
 import nu.xom.xslt.XSLException;
 import nu.xom.xslt.XSLTransform;
 
@@ -322,6 +323,329 @@ public class XSLTransformTest extends XOMTestCase {
         
     }
 
+
+    public void testParametersChangedBetweenTransforms() 
+      throws ParsingException, IOException, XSLException {
+        
+        File doc = new File(inputDir, "8-1.xml");
+        File stylesheet = new File(inputDir, "paramtest.xsl");
+        Builder builder = new Builder();
+        Document input = builder.build(doc);
+        XSLTransform xform = new XSLTransform(builder.build(stylesheet));
+        assertEquals("<root>1</root>", xform.transform(input).get(0).toXML());
+        xform.setParameter("test", new Double(2));
+        assertEquals("<root>2</root>", xform.transform(input).get(0).toXML());
+        assertEquals("<root>2</root>", xform.transform(input).get(0).toXML());
+        xform.setParameter("test", "3");
+        assertEquals("<root>3</root>", xform.transform(input).get(0).toXML());
+        xform.setParameter("test", null);
+        assertEquals("<root>1</root>", xform.transform(input).get(0).toXML());
+        
+    }
+
+    
+    public void testTransformToSerializer() 
+      throws ParsingException, IOException, XSLException {
+        
+        File doc = new File(inputDir, "8-1.xml");
+        File stylesheet = new File(inputDir, "8-8.xsl");
+        Builder builder = new Builder();
+        Document input = builder.build(doc);
+        XSLTransform xform = new XSLTransform(builder.build(stylesheet));
+        
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Serializer serializer = new Serializer(expected, "ISO-8859-1");
+        serializer.setIndent(2);
+        serializer.write(XSLTransform.toDocument(xform.transform(input)));
+        
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        serializer = new Serializer(actual, "ISO-8859-1");
+        serializer.setIndent(2);
+        xform.transform(input, serializer);
+        assertEquals(expected.toString("ISO-8859-1"), 
+          actual.toString("ISO-8859-1"));
+        
+    }
+
+    
+    public void testTransformToSerializerMatchesTree() 
+      throws ParsingException, IOException, XSLException {
+        
+        String stylesheet = "<xsl:stylesheet version='1.0' "
+          + "xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>"
+          + "<xsl:template match='/'><xsl:comment>a--b-</xsl:comment>"
+          + "<p:root xmlns:p='http://www.example.com/'>"
+          + "<xsl:processing-instruction name='pi'>x?&gt;y"
+          + "</xsl:processing-instruction>"
+          + "<q xml:space='preserve'> <r/> </q>"
+          + "<e xmlns=''><f xmlns='http://www.example.org/' a='&quot;'>"
+          + "t &amp; &lt; ]]&gt; \u00E9\u4E00</f></e></p:root>"
+          + "</xsl:template></xsl:stylesheet>";
+        Builder builder = new Builder();
+        XSLTransform xform = new XSLTransform(builder.build(stylesheet, null));
+        Document input = new Document(new Element("root"));
+        
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Serializer serializer = new Serializer(expected, "US-ASCII");
+        serializer.write(XSLTransform.toDocument(xform.transform(input)));
+        
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        xform.transform(input, new Serializer(actual, "US-ASCII"));
+        assertEquals(expected.toString("US-ASCII"), 
+          actual.toString("US-ASCII"));
+        
+    }
+
+    
+    public void testTransformToOutputStreamUsesOutputElement() 
+      throws ParsingException, IOException, XSLException {
+        
+        String stylesheet = "<xsl:stylesheet version='1.0' "
+          + "xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>"
+          + "<xsl:output encoding='ISO-8859-1' indent='yes'/>"
+          + "<xsl:template match='/'><root><a>\u00E9</a></root>"
+          + "</xsl:template></xsl:stylesheet>";
+        Builder builder = new Builder();
+        XSLTransform xform = new XSLTransform(builder.build(stylesheet, null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        xform.transform(new Document(new Element("root")), out);
+        assertEquals("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\r\n"
+          + "<root>\r\n  <a>\u00E9</a>\r\n</root>\r\n", 
+          out.toString("ISO-8859-1"));
+        
+    }
+
+    
+    public void testTransformToOutputStreamDefaultsToUTF8() 
+      throws ParsingException, IOException, XSLException {
+        
+        File doc = new File(inputDir, "8-1.xml");
+        File stylesheet = new File(inputDir, "8-8.xsl");
+        Builder builder = new Builder();
+        Document input = builder.build(doc);
+        XSLTransform xform = new XSLTransform(builder.build(stylesheet));
+        
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new Serializer(expected).write(
+          XSLTransform.toDocument(xform.transform(input)));
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        xform.transform(input, actual);
+        assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+        
+    }
+
+    
+    public void testTransformToSerializerWithoutRootElement() 
+      throws ParsingException, IOException {
+        
+        File doc = new File(inputDir, "8-1.xml");
+        File stylesheet = new File(inputDir, "singlestring.xsl");
+        Builder builder = new Builder();
+        try {
+            XSLTransform xform = new XSLTransform(builder.build(stylesheet));
+            xform.transform(builder.build(doc), new ByteArrayOutputStream());
+            fail("Serialized text outside the root element");
+        }
+        catch (XSLException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+
+    
+    public void testTransformToSerializerReportsIOException() 
+      throws ParsingException, IOException, XSLException {
+        
+        File stylesheet = new File(inputDir, "identity.xsl");
+        Builder builder = new Builder();
+        XSLTransform xform = new XSLTransform(builder.build(stylesheet));
+        Element root = new Element("root");
+        for (int i = 0; i < 10000; i++) {
+            root.appendChild(new Element("data"));
+        }
+        final IOException failure = new IOException("disk full");
+        OutputStream out = new OutputStream() {
+            public void write(int b) throws IOException {
+                throw failure;
+            }
+        };
+        try {
+            // fails when the serializer's buffer fills up, 
+            // in the middle of the transformation
+            xform.transform(new Document(root), new Serializer(out));
+            fail("Didn't report IOException");
+        }
+        catch (IOException success) {
+            assertSame(failure, success);
+        }
+        
+    }
+
+    
+    public void testStylesheetCacheCompilesEachStylesheetOnce() 
+      throws ParsingException, IOException, XSLException {
+        
+        File doc = new File(inputDir, "8-1.xml");
+        File stylesheet = new File(inputDir, "paramtest.xsl");
+        Builder builder = new Builder();
+        Document input = builder.build(doc);
+        Document stylesheetDoc = builder.build(stylesheet);
+        StylesheetCache cache = new StylesheetCache();
+        
+        XSLTransform first = cache.getTransform(stylesheetDoc);
+        XSLTransform second = cache.getTransform(stylesheetDoc);
+        assertNotSame(first, second);
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(first.toString(), second.toString());
+        
+        // transforms share the compiled stylesheet, not the parameters
+        first.setParameter("test", new Double(2));
+        assertEquals("<root>2</root>", first.transform(input).get(0).toXML());
+        assertEquals("<root>1</root>", second.transform(input).get(0).toXML());
+        assertEquals("<root>2</root>", first.transform(input).get(0).toXML());
+        
+        cache.getTransform(builder.build(stylesheet));
+        assertEquals(2, cache.getEntryCount());
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals("<root>1</root>", second.transform(input).get(0).toXML());
+        
+    }
+
+    
+    public void testStylesheetCacheByURL() 
+      throws ParsingException, IOException, XSLException {
+        
+        File doc = new File(inputDir, "8-1.xml");
+        String url = new File(inputDir, "8-8.xsl").toURI().toString();
+        Builder builder = new Builder();
+        StylesheetCache cache = new StylesheetCache();
+        XSLTransform xform = cache.getTransform(url);
+        Nodes output = xform.transform(builder.build(doc));
+        assertEquals(1, output.size());
+        Document result = new Document((Element) (output.get(0)));
+        Document expected = builder.build("data/xslt/output/8-8.xml");
+        assertEquals(expected, result);
+        
+        assertEquals(xform.toString(), cache.getTransform(url).toString());
+        assertEquals(1, cache.getEntryCount());
+        
+    }
+
+    
+    public void testStylesheetCacheWithMissingURL() {
+        
+        String url = new File(inputDir, "nosuchfile.xsl").toURI().toString();
+        StylesheetCache cache = new StylesheetCache();
+        try {
+            cache.getTransform(url);
+            fail("Compiled missing stylesheet");
+        }
+        catch (XSLException success) {
+            assertNotNull(success.getMessage());
+        }
+        assertEquals(0, cache.getEntryCount());
+        
+    }
+
+    
+    public void testStylesheetCacheWithNullStylesheet() 
+      throws XSLException {
+        
+        StylesheetCache cache = new StylesheetCache();
+        try {
+            cache.getTransform((Document) null);
+            fail("Allowed null stylesheet");
+        }
+        catch (NullPointerException success) {
+            assertNotNull(success.getMessage());
+        }
+        try {
+            cache.getTransform((String) null);
+            fail("Allowed null URL");
+        }
+        catch (NullPointerException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    }
+
+    
+    public void testTransformFromSeveralThreads() 
+      throws ParsingException, IOException, XSLException, 
+      InterruptedException {
+        
+        File doc = new File(inputDir, "8-1.xml");
+        File stylesheet = new File(inputDir, "8-8.xsl");
+        Builder builder = new Builder();
+        final Document input = builder.build(doc);
+        final XSLTransform xform = new XSLTransform(builder.build(stylesheet));
+        final String expected = xform.transform(input).get(0).toXML();
+        
+        final String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        String result = null;
+                        for (int j = 0; j < 20; j++) {
+                            result = xform.transform(input).get(0).toXML();
+                            if (!expected.equals(result)) break;
+                        }
+                        results[index] = result;
+                    }
+                    catch (XSLException ex) {
+                        results[index] = ex.toString();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertEquals(expected, results[i]);
+        }
+        
+    }
+
+    
+    public void testTransformFromNodeFactory() 
+      throws ParsingException, IOException, XSLException {
+        
+        File doc = new File(inputDir, "8-1.xml");
+        File stylesheet = new File(inputDir, "paramtest.xsl");
+        Builder builder = new Builder();
+        final Document input = builder.build(doc);
+        final StylesheetCache cache = new StylesheetCache();
+        final Document stylesheetDoc = builder.build(stylesheet);
+        
+        // transforms with the same stylesheet while the outer 
+        // transform is still using its transformer
+        NodeFactory factory = new NodeFactory() {
+            public Nodes makeText(String data) {
+                try {
+                    XSLTransform inner = cache.getTransform(stylesheetDoc);
+                    inner.setParameter("test", "inner");
+                    String result = inner.transform(input).get(0).getValue();
+                    return super.makeText(data + result);
+                }
+                catch (XSLException ex) {
+                    throw new XMLException(ex.getMessage(), ex);
+                }
+            }
+        };
+        
+        XSLTransform outer = cache.getTransform(stylesheetDoc, factory);
+        outer.setParameter("test", "outer");
+        Nodes output = outer.transform(input);
+        assertEquals("<root>outerinner</root>", output.get(0).toXML());
+        output = outer.transform(input);
+        assertEquals("<root>outerinner</root>", output.get(0).toXML());
+        
+    }
+
     
     public void testTransformWithCFilter() 
       throws ParsingException, IOException, XSLException {
@@ -765,6 +1089,27 @@ public class XSLTransformTest extends XOMTestCase {
     } 
     
     
+    public void testRelativeNamespaceURIIsVerified() 
+      throws ParsingException, IOException, XSLException {
+        
+        String data = "<xsl:stylesheet version='1.0' "
+          + "xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>"
+          + "<xsl:template match='/'>"
+          + "<xsl:element name='a' namespace='relative'/>"
+          + "</xsl:template></xsl:stylesheet>";
+        Document stylesheet = new Builder().build(data, null);
+        XSLTransform xform = new XSLTransform(stylesheet);
+        try {
+            xform.transform(new Document(new Element("root")));
+            fail("created element in relative namespace");
+        }
+        catch (XSLException success) {
+            assertNotNull(success.getMessage());
+        }
+        
+    } 
+    
+    
     public void testIllegalTransform() 
       throws XSLException, ParsingException, IOException {
         
@@ -0,0 +1,330 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.xinclude;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import nu.xom.Document;
+
+/**
+ * <p>
+ *   A cache of the resources loaded by <code>XIncluder</code>.
+ *   Documents included with <code>parse="xml"</code> are stored
+ *   as parsed, before their own <code>include</code> elements are
+ *   resolved, and each inclusion works on a fresh copy.
+ *   Resources included with <code>parse="text"</code> are stored
+ *   as decoded strings. A resource included many times, whether
+ *   from one document or many, is fetched and parsed only once.
+ * </p>
+ *
+ * <p>
+ *   Resources are keyed by absolute URL together with the
+ *   <code>accept</code> and <code>accept-language</code>
+ *   attributes of the including element, and for text, the
+ *   <code>encoding</code> attribute. Resources that could not be
+ *   loaded are not cached. When the total size of the cached
+ *   resources exceeds the maximum, the least recently used
+ *   resources are evicted. The size of a document is the number of
+ *   bytes it was parsed from, and the size of a text resource is
+ *   its number of characters.
+ * </p>
+ *
+ * <p>
+ *   A cache may be shared by several threads, and by several calls
+ *   to <code>XIncluder</code>. However, documents are cached as
+ *   built by the builder that first loaded them, so a cache should
+ *   only be shared by builders that build the same trees. The cache
+ *   does not notice when a resource changes. Call
+ *   <code>clear</code> to reload everything.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public final class IncludeCache {
+
+
+    private final long maximumSize;
+    private final LinkedHashMap<Key, Entry> entries
+      = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+
+    /**
+     * <p>
+     *   Creates an empty cache that holds at most
+     *   <code>maximumSize</code> bytes of documents and characters
+     *   of text.
+     * </p>
+     *
+     * @param maximumSize the largest total size of the cached
+     *     resources
+     *
+     * @throws IllegalArgumentException if <code>maximumSize</code>
+     *     is negative
+     */
+    public IncludeCache(long maximumSize) {
+
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException(
+              "Negative cache size: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+
+    }
+
+
+    /**
+     * <p>
+     *   Returns the largest total size of the resources this
+     *   cache holds.
+     * </p>
+     *
+     * @return the maximum size of this cache
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the total size of the resources currently
+     *   in this cache.
+     * </p>
+     *
+     * @return the current size of this cache
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of resources currently in this cache.
+     * </p>
+     *
+     * @return the number of cached resources
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of inclusions that were satisfied
+     *   from this cache.
+     * </p>
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of inclusions that had to load
+     *   their resource.
+     * </p>
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of resources removed from this cache
+     *   to keep it within its maximum size.
+     * </p>
+     *
+     * @return the number of evicted resources
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+
+    /**
+     * <p>
+     *   Removes all resources from this cache. The statistics
+     *   are not reset.
+     * </p>
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+
+    Document getDocument(String url, String accept, String language) {
+
+        Entry entry = get(new Key(url, null, accept, language));
+        if (entry == null) return null;
+        // Copying only reads the cached document, but lock it anyway
+        // in case some node computes and stores a value lazily.
+        synchronized (entry.document) {
+            return new Document(entry.document);
+        }
+
+    }
+
+
+    // Returns the cached document itself without counting a hit.
+    // Callers must lock the document while reading it, and must not
+    // modify it.
+    Document peekDocument(String url, String accept, String language) {
+
+        Entry entry = peek(new Key(url, null, accept, language));
+        return entry == null ? null : entry.document;
+
+    }
+
+
+    boolean containsText(String url, String encoding,
+      String accept, String language) {
+        return peek(new Key(url, encoding, accept, language)) != null;
+    }
+
+
+    void putDocument(String url, String accept, String language,
+      Document doc, long docSize) {
+        put(new Key(url, null, accept, language), new Entry(doc, null, docSize));
+    }
+
+
+    String getText(String url, String encoding,
+      String accept, String language) {
+
+        Entry entry = get(new Key(url, encoding, accept, language));
+        return entry == null ? null : entry.text;
+
+    }
+
+
+    void putText(String url, String encoding,
+      String accept, String language, String text) {
+        put(new Key(url, encoding, accept, language),
+          new Entry(null, text, text.length()));
+    }
+
+
+    private synchronized Entry get(Key key) {
+
+        Entry entry = entries.get(key);
+        if (entry == null) misses++;
+        else hits++;
+        return entry;
+
+    }
+
+
+    private synchronized Entry peek(Key key) {
+        return entries.get(key);
+    }
+
+
+    private synchronized void put(Key key, Entry entry) {
+
+        if (entry.size > maximumSize) return;
+        Entry old = entries.put(key, entry);
+        if (old != null) size -= old.size;
+        size += entry.size;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maximumSize) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.size;
+            evictions++;
+        }
+
+    }
+
+
+    private static final class Entry {
+
+        final Document document;
+        final String text;
+        final long size;
+
+        Entry(Document document, String text, long size) {
+            this.document = document;
+            this.text = text;
+            this.size = size;
+        }
+
+    }
+
+
+    // The encoding is null for parse="xml" resources, and the
+    // headers are null when the attributes are absent.
+    private static final class Key {
+
+        private final String url;
+        private final String encoding;
+        private final String accept;
+        private final String language;
+        private final int hash;
+
+        Key(String url, String encoding, String accept, String language) {
+            this.url = url;
+            this.encoding = encoding;
+            this.accept = accept;
+            this.language = language;
+            int h = url.hashCode();
+            h = 31 * h + (encoding == null ? 0 : encoding.hashCode());
+            h = 31 * h + (accept == null ? 0 : accept.hashCode());
+            h = 31 * h + (language == null ? 0 : language.hashCode());
+            this.hash = h;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return url.equals(other.url)
+              && equal(encoding, other.encoding)
+              && equal(accept, other.accept)
+              && equal(language, other.language);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+    }
+
+
+}
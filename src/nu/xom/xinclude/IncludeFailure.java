@@ -0,0 +1,67 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.xinclude;
+
+import java.io.IOException;
+
+import nu.xom.ParsingException;
+import nu.xom.XMLException;
+
+/**
+ * <p>
+ * Carries an exception thrown while resolving an include element
+ * out of a <code>NodeFactory</code> callback, which can only throw
+ * runtime exceptions. The builder reports it as the cause of a
+ * <code>ParsingException</code>.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ */
+final class IncludeFailure extends XMLException {
+
+
+    private static final long serialVersionUID = 2911872450761573185L;
+
+    private final Exception failure;
+
+
+    IncludeFailure(Exception failure) {
+        super(failure.getMessage(), failure);
+        this.failure = failure;
+    }
+
+
+    // Rethrows the original exception. The builder that built an
+    // included document wraps this exception in a ParsingException,
+    // and the original has to be thrown again so that the including
+    // element's fallback is processed exactly as it would have been
+    // without the factory.
+    void rethrow() throws IOException, ParsingException {
+        if (failure instanceof IOException) throw (IOException) failure;
+        if (failure instanceof ParsingException) {
+            throw (ParsingException) failure;
+        }
+        throw (RuntimeException) failure;
+    }
+
+
+}
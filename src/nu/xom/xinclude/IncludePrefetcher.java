@@ -0,0 +1,260 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.xinclude;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Elements;
+
+/**
+ * <p>
+ *   Loads every resource a document includes, directly or
+ *   indirectly, into an <code>IncludeCache</code> before the
+ *   document is resolved. Resources are fetched concurrently on an
+ *   executor. Documents are parsed on the calling thread as they
+ *   arrive, since neither builders nor node factories are thread
+ *   safe, and the resources they include are requested in turn.
+ * </p>
+ *
+ * <p>
+ *   Nothing here decides what is included. Resources that cannot
+ *   be loaded or parsed are simply left out of the cache, and the
+ *   usual sequential resolution loads them again and reports the
+ *   error or processes the fallback.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class IncludePrefetcher {
+
+
+    private final Builder builder;
+    private final IncludeCache cache;
+    private final CompletionService<Resource> service;
+    private final Set<String> requested = new HashSet<String>();
+    private final List<Future<Resource>> futures
+      = new ArrayList<Future<Resource>>();
+    private int pending = 0;
+
+
+    IncludePrefetcher(Builder builder, IncludeCache cache,
+      Executor executor) {
+        this.builder = builder;
+        this.cache = cache;
+        this.service = new ExecutorCompletionService<Resource>(executor);
+    }
+
+
+    void prefetch(Document doc) throws InterruptedIOException {
+
+        try {
+            collect(doc.getRootElement());
+            while (pending > 0) {
+                Future<Resource> future = service.take();
+                pending--;
+                try {
+                    Resource resource = future.get();
+                    if (resource.data != null) parse(resource);
+                }
+                catch (ExecutionException ex) {
+                    // loaded again and reported during resolution
+                }
+            }
+        }
+        catch (InterruptedException ex) {
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+              "Interrupted while loading included resources");
+        }
+
+    }
+
+
+    private void parse(Resource resource) {
+
+        Document doc;
+        try {
+            doc = builder.build(
+              new ByteArrayInputStream(resource.data), resource.url);
+        }
+        catch (Exception ex) {
+            // parsed again and reported during resolution
+            return;
+        }
+        cache.putDocument(resource.url, resource.accept,
+          resource.language, doc, resource.data.length);
+        synchronized (doc) {
+            collect(doc.getRootElement());
+        }
+
+    }
+
+
+    private void collect(Element element) {
+
+        if (XIncluder.isIncludeElement(element)) {
+            // include elements can only contain fallbacks, which are
+            // loaded if and when they're needed
+            request(element);
+            return;
+        }
+        Elements children = element.getChildElements();
+        for (int i = 0; i < children.size(); i++) {
+            collect(children.get(i));
+        }
+
+    }
+
+
+    private void request(Element include) {
+
+        String href = include.getAttributeValue("href");
+        if (href == null || href.length() == 0 || href.indexOf('#') >= 0) {
+            return;
+        }
+        String parse = include.getAttributeValue("parse");
+        if (parse == null) parse = "xml";
+        boolean text = parse.equals("text");
+        if (!text && !parse.equals("xml")) return;
+        String encoding = null;
+        if (text) {
+            encoding = include.getAttributeValue("encoding");
+            if (encoding == null || encoding.length() == 0) {
+                encoding = "UTF-8";
+            }
+        }
+        String accept = include.getAttributeValue("accept");
+        String language = include.getAttributeValue("accept-language");
+
+        URL url;
+        try {
+            XIncluder.checkHeader(accept);
+            XIncluder.checkHeader(language);
+            url = resolve(include, href);
+        }
+        catch (Exception ex) {
+            // reported during resolution
+            return;
+        }
+        String base = url.toExternalForm();
+
+        // An absent header and a header whose value is "null" share
+        // a key. The second one is simply loaded during resolution.
+        String key = parse + '\n' + encoding + '\n' + accept 
+          + '\n' + language + '\n' + base;
+        if (!requested.add(key)) return;
+
+        if (text) {
+            if (cache.containsText(base, encoding, accept, language)) return;
+        }
+        else {
+            Document cached = cache.peekDocument(base, accept, language);
+            if (cached != null) {
+                synchronized (cached) {
+                    collect(cached.getRootElement());
+                }
+                return;
+            }
+        }
+        futures.add(service.submit(
+          new Resource(url, base, encoding, accept, language)));
+        pending++;
+
+    }
+
+
+    // the same resolution XIncluder performs, minus the error reporting
+    private static URL resolve(Element include, String href)
+      throws MalformedURLException, BadHrefAttributeException {
+
+        URL baseURL = null;
+        try {
+            baseURL = new URL(include.getBaseURI());
+        }
+        catch (MalformedURLException ex) {
+           // don't use base
+        }
+        if (baseURL != null) return XIncluder.absolutize(baseURL, href);
+        XIncluder.testURISyntax(href);
+        return new URL(href);
+
+    }
+
+
+    // Fetches one resource on the executor. Text is decoded and
+    // cached right away. XML is returned as bytes for the calling
+    // thread to parse.
+    private final class Resource implements Callable<Resource> {
+
+        private final URL source;
+        final String url;
+        final String encoding;
+        final String accept;
+        final String language;
+        byte[] data;
+
+        Resource(URL source, String url, String encoding,
+          String accept, String language) {
+            this.source = source;
+            this.url = url;
+            this.encoding = encoding;
+            this.accept = accept;
+            this.language = language;
+        }
+
+        public Resource call() throws IOException, XIncludeException {
+            if (encoding == null) {
+                data = XIncluder.fetch(source, accept, language);
+            }
+            else {
+                String text = XIncluder.loadText(
+                  source, encoding, accept, language);
+                cache.putText(url, encoding, accept, language, text);
+            }
+            return this;
+        }
+
+    }
+
+
+}
@@ -0,0 +1,345 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.xinclude;
+
+import java.util.ArrayList;
+
+import nu.xom.Attribute;
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Elements;
+import nu.xom.NodeFactory;
+import nu.xom.Nodes;
+
+/**
+ * <p>
+ * A <code>NodeFactory</code> that resolves <code>xinclude:include</code>
+ * elements while the document is being built. Each include element
+ * is replaced by its referenced content as soon as its end-tag is
+ * read, so the document is never held twice the way it is by
+ * {@link XIncluder#resolve(Document)}. Resolution follows the same
+ * rules as <code>XIncluder</code>, including fallbacks, inclusion
+ * loop detection, and <code>xml:base</code> and <code>xml:lang</code>
+ * fixup.
+ * </p>
+ * 
+ * <p>
+ * Everything else is passed to the wrapped factory, so an 
+ * <code>XIncludeFactory</code> can be stacked on top of a streaming
+ * factory. Included documents are built with the wrapped factory too
+ * (though it is not told when each included document starts and 
+ * finishes) so included content is streamed the same way. Include
+ * elements in an included document are resolved after that
+ * document is built, exactly as by <code>XIncluder</code>.
+ * The content of include elements is made with the default 
+ * <code>NodeFactory</code> methods instead, because it is only part 
+ * of the document if a fallback is used.
+ * </p>
+ * 
+ * <p>
+ * Include elements without an <code>href</code> attribute point
+ * into the document being built, so they, and include elements
+ * with such an element in their fallback, are resolved when the
+ * whole document has been built. They can only point to content
+ * the wrapped factory kept. Included documents are parsed by a
+ * <code>Builder</code> with the default parser.
+ * If an include element cannot be resolved, the builder throws 
+ * a <code>ParsingException</code>. The <code>XIncludeException</code>, 
+ * <code>IOException</code>, or other exception that 
+ * <code>XIncluder</code> would have thrown is in its chain of causes.
+ * </p>
+ * 
+ * <p>
+ * Like most node factories, an <code>XIncludeFactory</code> can 
+ * build only one document at a time.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public class XIncludeFactory extends NodeFactory {
+
+    
+    private final NodeFactory factory;
+    private final IncludeCache cache;
+    private final boolean included;
+    private ArrayList<String> baseURLs = new ArrayList<String>();
+    private Document document;
+    private Builder builder;
+    private ArrayList<Element> deferred = new ArrayList<Element>();
+    // the number of open elements inside an include element,
+    // including the include element itself
+    private int depth = 0;
+    
+    
+    /**
+     * <p>
+     * Creates a factory that resolves include elements and builds 
+     * everything else with the default <code>NodeFactory</code> 
+     * methods.
+     * </p>
+     */
+    public XIncludeFactory() {
+        this(new NodeFactory(), null);
+    }
+
+    
+    /**
+     * <p>
+     * Creates a factory that resolves include elements and passes 
+     * everything else to another factory.
+     * </p>
+     * 
+     * @param factory the factory that builds the rest of the document
+     *     and the included documents
+     * 
+     * @throws NullPointerException if <code>factory</code> is null
+     */
+    public XIncludeFactory(NodeFactory factory) {
+        this(factory, null);
+    }
+
+    
+    /**
+     * <p>
+     * Creates a factory that resolves include elements, loads 
+     * included resources through a cache, and passes everything 
+     * else to another factory.
+     * </p>
+     * 
+     * @param factory the factory that builds the rest of the document
+     *     and the included documents
+     * @param cache the cache of previously loaded resources, 
+     *     or null to load every resource when it is included
+     * 
+     * @throws NullPointerException if <code>factory</code> is null
+     */
+    public XIncludeFactory(NodeFactory factory, IncludeCache cache) {
+        this(factory, cache, false);
+    }
+    
+    
+    // Included documents are built by a factory that keeps their
+    // include elements for XIncluder to resolve.
+    private XIncludeFactory(NodeFactory factory, IncludeCache cache, 
+      boolean included) {
+        
+        if (factory == null) {
+            throw new NullPointerException("Null node factory");
+        }
+        this.factory = factory;
+        this.cache = cache;
+        this.included = included;
+        
+    }
+
+    
+    public Document startMakingDocument() {
+        
+        depth = 0;
+        baseURLs.clear();
+        deferred.clear();
+        if (included) document = super.startMakingDocument();
+        else document = factory.startMakingDocument();
+        return document;
+        
+    }
+
+    
+    public void finishMakingDocument(Document document) {
+        
+        if (!deferred.isEmpty()) {
+            baseURLs.add(XIncluder.getLoopBase(document));
+            try {
+                for (int i = 0; i < deferred.size(); i++) {
+                    Element include = deferred.get(i);
+                    // unless the wrapped factory threw it away
+                    if (include.getDocument() == document) {
+                        XIncluder.resolve(
+                          include, getBuilder(), baseURLs, null, cache);
+                    }
+                }
+            }
+            catch (IncludeFailure ex) {
+                throw ex;
+            }
+            catch (Exception ex) {
+                throw new IncludeFailure(ex);
+            }
+            finally {
+                baseURLs.remove(baseURLs.size() - 1);
+                deferred.clear();
+            }
+        }
+        if (!included) factory.finishMakingDocument(document);
+        
+    }
+
+    
+    public Element makeRootElement(String name, String namespace) {
+        
+        if (isInclude(name, namespace)) {
+            depth++;
+            return super.startMakingElement(name, namespace);
+        }
+        return factory.makeRootElement(name, namespace);
+        
+    }
+
+    
+    public Element startMakingElement(String name, String namespace) {
+        
+        if (depth > 0 || isInclude(name, namespace)) {
+            depth++;
+            return super.startMakingElement(name, namespace);
+        }
+        return factory.startMakingElement(name, namespace);
+        
+    }
+    
+    
+    private static boolean isInclude(String name, String namespace) {
+        return XIncluder.XINCLUDE_NS.equals(namespace)
+          && name.substring(name.indexOf(':') + 1).equals("include");
+    }
+
+    
+    public Nodes finishMakingElement(Element element) {
+        
+        if (depth > 1) {
+            depth--;
+            return super.finishMakingElement(element);
+        }
+        else if (depth == 1) {
+            depth--;
+            if (included) return super.finishMakingElement(element);
+            if (pointsIntoDocument(element)) {
+                deferred.add(element);
+                return super.finishMakingElement(element);
+            }
+            return resolve(element);
+        }
+        else if (XIncluder.XINCLUDE_NS.equals(element.getNamespaceURI())
+          && element.getLocalName().equals("fallback")) {
+            throw new IncludeFailure(new MisplacedFallbackException(
+              "Fallback element outside include element", 
+              document.getBaseURI()));
+        }
+        return factory.finishMakingElement(element);
+        
+    }
+
+    
+    // true if this include element, or one in its fallback, has no
+    // href and thus refers to the document being built
+    private static boolean pointsIntoDocument(Element element) {
+        
+        if (XIncluder.isIncludeElement(element)) {
+            String href = element.getAttributeValue("href");
+            if (href == null || href.length() == 0) return true;
+        }
+        Elements children = element.getChildElements();
+        for (int i = 0; i < children.size(); i++) {
+            if (pointsIntoDocument(children.get(i))) return true;
+        }
+        return false;
+        
+    }
+
+    
+    private Nodes resolve(Element include) {
+        
+        baseURLs.add(XIncluder.getLoopBase(document));
+        try {
+            return XIncluder.getReplacements(
+              include, getBuilder(), baseURLs, document, cache);
+        }
+        catch (IncludeFailure ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            throw new IncludeFailure(ex);
+        }
+        finally {
+            baseURLs.remove(baseURLs.size() - 1);
+        }
+        
+    }
+
+    
+    private Builder getBuilder() {
+        
+        if (builder == null) {
+            builder = new Builder(
+              new XIncludeFactory(factory, cache, true));
+        }
+        return builder;
+        
+    }
+
+    
+    public Nodes makeAttribute(String name, String URI, 
+      String value, Attribute.Type type) {
+        
+        if (depth > 0) return super.makeAttribute(name, URI, value, type);
+        return factory.makeAttribute(name, URI, value, type);
+        
+    }
+
+    
+    public Nodes makeComment(String data) {
+        
+        if (depth > 0) return super.makeComment(data);
+        return factory.makeComment(data);
+        
+    }
+
+    
+    public Nodes makeDocType(String rootElementName, 
+      String publicID, String systemID) {
+        
+        if (included) {
+            return super.makeDocType(rootElementName, publicID, systemID);
+        }
+        return factory.makeDocType(rootElementName, publicID, systemID);
+        
+    }
+
+    
+    public Nodes makeText(String data) {
+        
+        if (depth > 0) return super.makeText(data);
+        return factory.makeText(data);
+        
+    }
+
+    
+    public Nodes makeProcessingInstruction(String target, String data) {
+        
+        if (depth > 0) return super.makeProcessingInstruction(target, data);
+        return factory.makeProcessingInstruction(target, data);
+        
+    }
+    
+    
+}
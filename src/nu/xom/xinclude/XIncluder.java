@@ -22,6 +22,8 @@ package nu.xom.xinclude;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -32,6 +34,7 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.util.Locale;
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 import nu.xom.Attribute;
 import nu.xom.Builder;
@@ -61,7 +64,7 @@ import nu.xom.Text;
  * </p>
  * 
  * @author Elliotte Rusty Harold
- * @version 1.3.9
+ * @version 1.4.7
  *
  */
 public class XIncluder {
@@ -175,12 +178,66 @@ public class XIncluder {
      *      result in a malformed document
      */
      public static Document resolve(Document in, Builder builder)  
+       throws BadParseAttributeException, InclusionLoopException, 
+             IOException, NoIncludeLocationException, ParsingException, 
+             UnsupportedEncodingException, XIncludeException {        
+         
+        return resolve(in, builder, null);
+        
+    }
+
+    /**
+     * <p>
+     * Returns a copy of the document in which all 
+     * <code>xinclude:include</code> elements have been  
+     * replaced by their referenced content as loaded by the builder
+     * or found in the cache.
+     * The original <code>Document</code> object is not modified.
+     * Resolution is recursive; that is, include elements
+     * in the included documents are themselves resolved.
+     * The document returned contains no <code>include</code> elements.
+     * </p>
+     * 
+     * @param in the document in which include elements
+     *     should be resolved
+     * @param builder the builder used to build the
+     *     nodes included from other documents
+     * @param cache the cache of previously loaded resources, 
+     *     or null to load every resource when it is included
+     * 
+     * @return copy of the document in which
+     *     all <code>xinclude:include</code> elements
+     *     have been replaced by their referenced content
+     * 
+     * @throws BadParseAttributeException if an <code>include</code>  
+     *     element has a <code>parse</code> attribute with any value 
+     *     other than <code>text</code> or <code>parse</code>
+     * @throws InclusionLoopException if the document 
+     *     contains an XInclude element that attempts to include 
+     *     a document in which this element is directly or indirectly 
+     *     included.
+     * @throws IOException if an included document could not be loaded,
+     *     and no fallback was available
+     * @throws NoIncludeLocationException if an <code>xinclude:include</code> 
+     *      element does not have an href attribute.
+     * @throws ParsingException if an included XML document 
+     *     was malformed
+     * @throws UnsupportedEncodingException if an included document 
+     *     used an encoding this parser does not support, and no
+     *     fallback was available
+     * @throws XIncludeException if the document violates the
+     *     syntax rules of XInclude
+     * @throws XMLException if resolving an include element would 
+     *      result in a malformed document
+     */
+     public static Document resolve(Document in, Builder builder, 
+       IncludeCache cache)  
        throws BadParseAttributeException, InclusionLoopException, 
              IOException, NoIncludeLocationException, ParsingException, 
              UnsupportedEncodingException, XIncludeException {        
          
         Document copy = new Document(in);
-        resolveInPlace(copy, builder);
+        resolveInPlace(copy, builder, cache);
         return copy;   
         
     }
@@ -278,250 +335,291 @@ public class XIncluder {
      *     result in a malformed document
      */
     public static void resolveInPlace(Document in, Builder builder) 
+      throws BadParseAttributeException, InclusionLoopException,  
+             IOException, NoIncludeLocationException, ParsingException, 
+             UnsupportedEncodingException, XIncludeException {
+        
+        resolveInPlace(in, builder, null);
+        
+    }
+
+    /**
+     * <p>
+     * Modifies a document by replacing all 
+     * <code>xinclude:include</code> elements with their referenced 
+     * content as loaded by the builder or found in the cache. 
+     * Resolution is recursive; that is, <code>include</code> elements 
+     * in the included documents are themselves resolved. The resolved 
+     * document contains no <code>xinclude:include</code> elements.
+     * </p>
+     * 
+     * <p>
+     * If the inclusion fails for any reason &mdash; XInclude syntax
+     * error, missing resource with no fallback, etc. &mdash; the 
+     * document may be left in a partially resolved state.
+     * </p>
+     * 
+     * @param in the document in which include elements
+     *     should be resolved
+     * @param builder the builder used to build the
+     *     nodes included from other documents
+     * @param cache the cache of previously loaded resources, 
+     *     or null to load every resource when it is included
+     * 
+     * @throws BadParseAttributeException if an <code>include</code>  
+     *     element has a <code>parse</code> attribute
+     *     with any value other than <code>text</code> 
+     *     or <code>parse</code>
+     * @throws InclusionLoopException if this element 
+     *     contains an XInclude element that attempts to include a  
+     *     document in which this element is directly or indirectly 
+     *     included
+     * @throws IOException if an included document could not be loaded,
+     *     and no fallback was available
+     * @throws NoIncludeLocationException if an <code>xinclude:include</code>
+     *     element does not have an <code>href</code> attribute.
+     * @throws ParsingException if an included XML document
+     *    was malformed
+     * @throws UnsupportedEncodingException if an included document 
+     *     used an encoding this parser does not support, and no 
+     *     fallback was available
+     * @throws XIncludeException if the document violates the
+     *     syntax rules of XInclude
+     * @throws XMLException if resolving an include element would 
+     *     result in a malformed document
+     */
+    public static void resolveInPlace(Document in, Builder builder, 
+      IncludeCache cache) 
       throws BadParseAttributeException, InclusionLoopException,  
              IOException, NoIncludeLocationException, ParsingException, 
              UnsupportedEncodingException, XIncludeException {
         
         ArrayList<String> stack = new ArrayList<String>();
-        resolveInPlace(in, builder, stack);
+        resolveInPlace(in, builder, stack, cache);
+        
+    }
+
+    /**
+     * <p>
+     * Returns a copy of the document in which all 
+     * <code>xinclude:include</code> elements have been  
+     * replaced by their referenced content. Before anything is
+     * replaced, every resource the document includes, directly or
+     * indirectly, is fetched concurrently on the executor. Documents
+     * are parsed by the builder on the calling thread as they
+     * arrive, and the resources they include are fetched in turn.
+     * The include elements are then resolved in document order 
+     * exactly as by {@link #resolve(Document, Builder, IncludeCache)}, 
+     * using the fetched resources.
+     * The original <code>Document</code> object is not modified.
+     * </p>
+     * 
+     * <p>
+     * Resources are fetched into the cache. If the cache is null, 
+     * a cache that holds everything is used for this call only.
+     * If the cache is too small to hold all the resources, 
+     * the evicted ones are fetched again when they're included.
+     * Resources referenced only from fallbacks are fetched only if 
+     * the fallback is used.
+     * </p>
+     * 
+     * @param in the document in which include elements
+     *     should be resolved
+     * @param builder the builder used to build the
+     *     nodes included from other documents
+     * @param cache the cache the resources are fetched into, or null
+     * @param executor the executor that fetches the resources
+     * 
+     * @return copy of the document in which
+     *     all <code>xinclude:include</code> elements
+     *     have been replaced by their referenced content
+     * 
+     * @throws BadParseAttributeException if an <code>include</code>  
+     *     element has a <code>parse</code> attribute with any value 
+     *     other than <code>text</code> or <code>parse</code>
+     * @throws InclusionLoopException if the document 
+     *     contains an XInclude element that attempts to include 
+     *     a document in which this element is directly or indirectly 
+     *     included.
+     * @throws IOException if an included document could not be loaded,
+     *     and no fallback was available, or the current thread
+     *     was interrupted while waiting for the resources
+     * @throws NoIncludeLocationException if an <code>xinclude:include</code> 
+     *      element does not have an href attribute.
+     * @throws ParsingException if an included XML document 
+     *     was malformed
+     * @throws UnsupportedEncodingException if an included document 
+     *     used an encoding this parser does not support, and no
+     *     fallback was available
+     * @throws XIncludeException if the document violates the
+     *     syntax rules of XInclude
+     * @throws XMLException if resolving an include element would 
+     *      result in a malformed document
+     */
+     public static Document resolve(Document in, Builder builder, 
+       IncludeCache cache, Executor executor)  
+       throws BadParseAttributeException, InclusionLoopException, 
+             IOException, NoIncludeLocationException, ParsingException, 
+             UnsupportedEncodingException, XIncludeException {        
+         
+        Document copy = new Document(in);
+        resolveInPlace(copy, builder, cache, executor);
+        return copy;   
+        
+    }
+
+    /**
+     * <p>
+     * Modifies a document by replacing all 
+     * <code>xinclude:include</code> elements with their referenced 
+     * content. Before anything is replaced, every resource the 
+     * document includes, directly or indirectly, is fetched 
+     * concurrently on the executor, as described for
+     * {@link #resolve(Document, Builder, IncludeCache, Executor)}.
+     * The include elements are then resolved in document order 
+     * exactly as by 
+     * {@link #resolveInPlace(Document, Builder, IncludeCache)}.
+     * </p>
+     * 
+     * <p>
+     * If the inclusion fails for any reason &mdash; XInclude syntax
+     * error, missing resource with no fallback, etc. &mdash; the 
+     * document may be left in a partially resolved state.
+     * </p>
+     * 
+     * @param in the document in which include elements
+     *     should be resolved
+     * @param builder the builder used to build the
+     *     nodes included from other documents
+     * @param cache the cache the resources are fetched into, or null
+     * @param executor the executor that fetches the resources
+     * 
+     * @throws BadParseAttributeException if an <code>include</code>  
+     *     element has a <code>parse</code> attribute
+     *     with any value other than <code>text</code> 
+     *     or <code>parse</code>
+     * @throws InclusionLoopException if this element 
+     *     contains an XInclude element that attempts to include a  
+     *     document in which this element is directly or indirectly 
+     *     included
+     * @throws IOException if an included document could not be loaded,
+     *     and no fallback was available, or the current thread
+     *     was interrupted while waiting for the resources
+     * @throws NoIncludeLocationException if an <code>xinclude:include</code>
+     *     element does not have an <code>href</code> attribute.
+     * @throws ParsingException if an included XML document
+     *    was malformed
+     * @throws UnsupportedEncodingException if an included document 
+     *     used an encoding this parser does not support, and no 
+     *     fallback was available
+     * @throws XIncludeException if the document violates the
+     *     syntax rules of XInclude
+     * @throws XMLException if resolving an include element would 
+     *     result in a malformed document
+     */
+    public static void resolveInPlace(Document in, Builder builder, 
+      IncludeCache cache, Executor executor) 
+      throws BadParseAttributeException, InclusionLoopException,  
+             IOException, NoIncludeLocationException, ParsingException, 
+             UnsupportedEncodingException, XIncludeException {
+        
+        if (cache == null) cache = new IncludeCache(Long.MAX_VALUE);
+        new IncludePrefetcher(builder, cache, executor).prefetch(in);
+        resolveInPlace(in, builder, cache);
         
     }
 
     
     private static void resolveInPlace(
-      Document in, Builder builder, ArrayList<String> baseURLs) 
+      Document in, Builder builder, ArrayList<String> baseURLs, 
+      IncludeCache cache) 
       throws IOException, ParsingException, XIncludeException {
         
+        baseURLs.add(getLoopBase(in));   
+        Element root = in.getRootElement();
+        resolve(root, builder, baseURLs, cache);
+        baseURLs.remove(baseURLs.size()-1);
+        
+    }
+
+    
+    // the base URI pushed onto the stack used to detect inclusion loops
+    static String getLoopBase(Document in) {
+        
         String base = in.getBaseURI();
         // workaround a bug in Sun VMs
         if (base != null && base.startsWith("file:///")) {
             base = "file:/" + base.substring(8);
         }
-        
-        baseURLs.add(base);   
-        Element root = in.getRootElement();
-        resolve(root, builder, baseURLs);
-        baseURLs.remove(baseURLs.size()-1);
+        return base;
         
     }
 
     
     private static void resolve(
-      Element element, Builder builder, ArrayList<String> baseURLs)
+      Element element, Builder builder, ArrayList<String> baseURLs,
+      IncludeCache cache)
       throws IOException, ParsingException, XIncludeException {
         
-        resolve(element, builder, baseURLs, null);
+        resolve(element, builder, baseURLs, null, cache);
         
     }
     
     
-    private static void resolve(
-      Element element, Builder builder, ArrayList<String> baseURLs, Document originalDoc)
+    static void resolve(
+      Element element, Builder builder, ArrayList<String> baseURLs, 
+      Document originalDoc, IncludeCache cache)
       throws IOException, ParsingException, XIncludeException {
         
         if (isIncludeElement(element)) {
-            verifyIncludeElement(element);
-            
-            String parse = element.getAttributeValue("parse");
-            if (parse == null) parse = "xml";
-            String xpointer = element.getAttributeValue("xpointer");
-            String encoding = element.getAttributeValue("encoding");
-            String href = element.getAttributeValue("href");
-            // empty string href is same as no href attribute
-            if ("".equals(href)) href = null;
-            
             ParentNode parent = element.getParent();
-            String base = element.getBaseURI();
-            URL baseURL = null;
-            try {
-                baseURL = new URL(base);     
-            }
-            catch (MalformedURLException ex) {
-               // don't use base   
-            }
-            URL url = null;
-            try {
-                // xml:base attributes added to maintain the 
-                // base URI should not have fragment IDs
-
-                if (baseURL != null && href != null) {
-                    url = absolutize(baseURL, href);
-                }
-                else if (href != null) {
-                    try {
-                        testURISyntax(href);
-                        url = new URL(href); 
-                    }
-                    catch (MalformedURIException ex) {
-                        if (baseURL == null) {
-                            throw new BadHrefAttributeException(
-                              "Could not resolve relative URI " + href
-                              + " because the xi:include element does" 
-                              + " not have a base URI.", href);    
-                        }
-                        throw new BadHrefAttributeException("Illegal IRI in href attribute", href);
+            Nodes replacements = getReplacements(
+              element, builder, baseURLs, originalDoc, cache);
+              
+            if (parent instanceof Element) {
+                for (int i = 0; i < replacements.size(); i++) {
+                    Node replacement = replacements.get(i);
+                    if (replacement instanceof Attribute) {
+                        ((Element) parent).addAttribute((Attribute) replacement);
                     }
+                    else {
+                        parent.insertChild(replacement, parent.indexOf(element));
+                    }   
                 }
-                
-                String accept = element.getAttributeValue("accept");
-                checkHeader(accept);
-                String acceptLanguage = element.getAttributeValue("accept-language"); 
-                checkHeader(acceptLanguage);
-                
-                if (parse.equals("xml")) {
-                    
-                    String parentLanguage = "";
-                    if (parent instanceof Element) {
-                        parentLanguage = getXMLLangValue((Element) parent);
-                    }
-                    
-                    Nodes replacements;
-                    if (url != null) { 
-                        replacements = downloadXMLDocument(url, 
-                          xpointer, builder, baseURLs, accept, acceptLanguage, parentLanguage);
-                        // Add base URIs. Base URIs added by XInclusion require
-                        // the element to maintain the same base URI as it had  
-                        // in the original document. Since its base URI in the 
-                        // original document does not contain a fragment ID,
-                        // therefore its base URI after inclusion shouldn't, 
-                        // and this special case is unnecessary. Base URI fixup
-                        // should not add the fragment ID. 
-                        for (int i = 0; i < replacements.size(); i++) {
-                            Node child = replacements.get(i);
-                            if (child instanceof Element) {
-                                String noFragment = child.getBaseURI();
-                                if (noFragment.indexOf('#') >= 0) {
-                                    noFragment = noFragment.substring(
-                                      0, noFragment.indexOf('#'));
-                                }
-                                Element baseless = (Element) child;
-                                
-                                // parent is null here; need to get real parent
-                                String parentBase = parent.getBaseURI();
-                                if (parentBase != null && ! "".equals(parentBase)) {
-                                    parentBase = getDirectoryBase(parentBase);
-                                }
-                                
-                                if (noFragment.startsWith(parentBase)) {
-                                    noFragment = noFragment.substring(parentBase.length());
-                                }
-                                Attribute baseAttribute = new Attribute(
-                                  "xml:base", 
-                                  "http://www.w3.org/XML/1998/namespace", 
-                                  noFragment 
-                                );
-                                baseless.addAttribute(baseAttribute);
-                                
-                            }
-                        }  
+                element.detach();
+            }
+            else {  // root element needs special treatment
+                // I am assuming here that it is not possible 
+                // for parent to be null. I think this is true 
+                // in the current version, but it could change 
+                // if I made it possible to directly resolve an
+                // element or a Nodes.
+                Document doc = (Document) parent;
+                int i = 0;
+                // prolog and root
+                while (true) {
+                    Node child = replacements.get(i);
+                    i++;
+                    if (child instanceof Element) {
+                        doc.setRootElement((Element) child);
+                        break;   
                     }
                     else {
-                        Document parentDoc = element.getDocument();
-                        if (parentDoc == null) {
-                            parentDoc = originalDoc;
-                        }
-                        Nodes originals = XPointer.query(parentDoc, xpointer);
-                        replacements = new Nodes(); 
-                        for (int i = 0; i < originals.size(); i++) {
-                            Node original = originals.get(i);
-                            // current implementation of XPointer never returns non-elements
-                            if (contains((Element) original, element)) {
-                                throw new InclusionLoopException(
-                                  "Element tried to include itself"
-                                ); 
-                            }  
-                            Node copy = original.copy();
-                            replacements.append(copy);        
-                        }  
-                        replacements = resolveXPointerSelection(
-                          replacements, builder, baseURLs, parentDoc);  
-                                                 
+                        doc.insertChild(
+                          child, doc.indexOf(element)
+                        ); 
                     }
-                      
-                    // Will fail if we're replacing the root element with 
-                    // a node list containing zero or multiple elements,
-                    // but that should fail. However, I may wish to 
-                    // adjust the type of exception thrown. This is only
-                    // relevant if I add support for the xpointer scheme
-                    // since otherwise you can only point at one element
-                    // or document.
-                    if (parent instanceof Element) {
-                        int position = parent.indexOf(element);
-                        for (int i = 0; i < replacements.size(); i++) {
-                            Node child = replacements.get(i);
-                            parent.insertChild(child, position+i); 
-                        }
-                        element.detach();
-                    }
-                    else {  // root element needs special treatment
-                        // I am assuming here that it is not possible 
-                        // for parent to be null. I think this is true 
-                        // in the current version, but it could change 
-                        // if I made it possible to directly resolve an
-                        // element or a Nodes.
-                        Document doc = (Document) parent;
-                        int i = 0;
-                        // prolog and root
-                        while (true) {
-                            Node child = replacements.get(i);
-                            i++;
-                            if (child instanceof Element) {
-                                doc.setRootElement((Element) child);
-                                break;   
-                            }
-                            else {
-                                doc.insertChild(
-                                  child, doc.indexOf(element)
-                                ); 
-                            }
 
-                        }
-                        // epilog
-                        Element root = doc.getRootElement();
-                        int position = doc.indexOf(root);
-                        for (int j=i; j < replacements.size(); j++) {
-                            doc.insertChild(
-                              replacements.get(j), position+1+j-i
-                            );                             
-                        }
-                    }
                 }
-                else if (parse.equals("text")) {                   
-                    Nodes replacements 
-                      = downloadTextDocument(url, encoding, builder, accept, acceptLanguage);
-                    for (int j = 0; j < replacements.size(); j++) {
-                        Node replacement = replacements.get(j);
-                        if (replacement instanceof Attribute) {
-                            ((Element) parent).addAttribute((Attribute) replacement);
-                        }
-                        else {
-                            parent.insertChild(replacement, parent.indexOf(element));
-                        }   
-                    }                    
-                    parent.removeChild(element);
-                }
-                else {
-                   throw new BadParseAttributeException(
-                     "Bad value for parse attribute: " + parse, 
-                     element.getDocument().getBaseURI());   
+                // epilog
+                Element root = doc.getRootElement();
+                int position = doc.indexOf(root);
+                for (int j=i; j < replacements.size(); j++) {
+                    doc.insertChild(
+                      replacements.get(j), position+1+j-i
+                    );                             
                 }
-            
-            }
-            catch (IOException ex) {
-                processFallback(element, builder, baseURLs, parent, ex);
-            }
-            catch (XPointerSyntaxException ex) {
-                processFallback(element, builder, baseURLs, parent, ex);
             }
-            catch (XPointerResourceException ex) {
-                // Process fallbacks;  I'm not sure this is correct 
-                // behavior. Possibly this should include nothing. See
-                // http://lists.w3.org/Archives/Public/www-xml-xinclude-comments/2003Aug/0000.html
-                // Daniel Veillard thinks this is correct. See
-                // http://lists.w3.org/Archives/Public/www-xml-xinclude-comments/2003Aug/0001.html
-                processFallback(element, builder, baseURLs, parent, ex);
-            }
-            
         }
         else if (isFallbackElement(element)) {
             throw new MisplacedFallbackException(
@@ -532,13 +630,179 @@ public class XIncluder {
         else {
             Elements children = element.getChildElements();
             for (int i = 0; i < children.size(); i++) {
-                resolve(children.get(i), builder, baseURLs);   
+                resolve(children.get(i), builder, baseURLs, cache);   
             } 
         }
         
     }
     
     
+    // Returns the parentless nodes that replace an include element.
+    // Neither the include element nor its parent is modified, except
+    // that a fallback's content is resolved in place and moved out
+    // of the fallback.
+    static Nodes getReplacements(
+      Element element, Builder builder, ArrayList<String> baseURLs, 
+      Document originalDoc, IncludeCache cache)
+      throws IOException, ParsingException, XIncludeException {
+        
+        verifyIncludeElement(element);
+        
+        String parse = element.getAttributeValue("parse");
+        if (parse == null) parse = "xml";
+        String xpointer = element.getAttributeValue("xpointer");
+        String encoding = element.getAttributeValue("encoding");
+        String href = element.getAttributeValue("href");
+        // empty string href is same as no href attribute
+        if ("".equals(href)) href = null;
+        
+        ParentNode parent = element.getParent();
+        String base = element.getBaseURI();
+        URL baseURL = null;
+        try {
+            baseURL = new URL(base);     
+        }
+        catch (MalformedURLException ex) {
+           // don't use base   
+        }
+        URL url = null;
+        try {
+            // xml:base attributes added to maintain the 
+            // base URI should not have fragment IDs
+
+            if (baseURL != null && href != null) {
+                url = absolutize(baseURL, href);
+            }
+            else if (href != null) {
+                try {
+                    testURISyntax(href);
+                    url = new URL(href); 
+                }
+                catch (MalformedURIException ex) {
+                    if (baseURL == null) {
+                        throw new BadHrefAttributeException(
+                          "Could not resolve relative URI " + href
+                          + " because the xi:include element does" 
+                          + " not have a base URI.", href);    
+                    }
+                    throw new BadHrefAttributeException("Illegal IRI in href attribute", href);
+                }
+            }
+            
+            String accept = element.getAttributeValue("accept");
+            checkHeader(accept);
+            String acceptLanguage = element.getAttributeValue("accept-language"); 
+            checkHeader(acceptLanguage);
+            
+            if (parse.equals("xml")) {
+                
+                String parentLanguage = "";
+                if (parent instanceof Element) {
+                    parentLanguage = getXMLLangValue((Element) parent);
+                }
+                
+                Nodes replacements;
+                if (url != null) { 
+                    replacements = downloadXMLDocument(url, 
+                      xpointer, builder, baseURLs, accept, acceptLanguage, 
+                      parentLanguage, cache);
+                    // Add base URIs. Base URIs added by XInclusion require
+                    // the element to maintain the same base URI as it had  
+                    // in the original document. Since its base URI in the 
+                    // original document does not contain a fragment ID,
+                    // therefore its base URI after inclusion shouldn't, 
+                    // and this special case is unnecessary. Base URI fixup
+                    // should not add the fragment ID. 
+                    for (int i = 0; i < replacements.size(); i++) {
+                        Node child = replacements.get(i);
+                        if (child instanceof Element) {
+                            String noFragment = child.getBaseURI();
+                            if (noFragment.indexOf('#') >= 0) {
+                                noFragment = noFragment.substring(
+                                  0, noFragment.indexOf('#'));
+                            }
+                            Element baseless = (Element) child;
+                            
+                            // parent is null here; need to get real parent
+                            String parentBase = parent.getBaseURI();
+                            if (parentBase != null && ! "".equals(parentBase)) {
+                                parentBase = getDirectoryBase(parentBase);
+                            }
+                            
+                            if (noFragment.startsWith(parentBase)) {
+                                noFragment = noFragment.substring(parentBase.length());
+                            }
+                            Attribute baseAttribute = new Attribute(
+                              "xml:base", 
+                              "http://www.w3.org/XML/1998/namespace", 
+                              noFragment 
+                            );
+                            baseless.addAttribute(baseAttribute);
+                            
+                        }
+                    }  
+                }
+                else {
+                    Document parentDoc = element.getDocument();
+                    if (parentDoc == null) {
+                        parentDoc = originalDoc;
+                    }
+                    Nodes originals = XPointer.query(parentDoc, xpointer);
+                    replacements = new Nodes(); 
+                    for (int i = 0; i < originals.size(); i++) {
+                        Node original = originals.get(i);
+                        // current implementation of XPointer never returns non-elements
+                        if (contains((Element) original, element)) {
+                            throw new InclusionLoopException(
+                              "Element tried to include itself"
+                            ); 
+                        }  
+                        Node copy = original.copy();
+                        replacements.append(copy);        
+                    }  
+                    replacements = resolveXPointerSelection(
+                      replacements, builder, baseURLs, parentDoc, cache);  
+                                             
+                }
+                  
+                // Will fail if we're replacing the root element with 
+                // a node list containing zero or multiple elements,
+                // but that should fail. However, I may wish to 
+                // adjust the type of exception thrown. This is only
+                // relevant if I add support for the xpointer scheme
+                // since otherwise you can only point at one element
+                // or document.
+                return replacements;
+            }
+            else if (parse.equals("text")) {                   
+                return downloadTextDocument(url, encoding, builder, 
+                  accept, acceptLanguage, cache);
+            }
+            else {
+               throw new BadParseAttributeException(
+                 "Bad value for parse attribute: " + parse, 
+                 element.getDocument().getBaseURI());   
+            }
+        
+        }
+        catch (IOException ex) {
+            return processFallback(element, builder, baseURLs, ex, cache);
+        }
+        catch (XPointerSyntaxException ex) {
+            return processFallback(element, builder, baseURLs, ex, cache);
+        }
+        catch (XPointerResourceException ex) {
+            // Process fallbacks;  I'm not sure this is correct 
+            // behavior. Possibly this should include nothing. See
+            // http://lists.w3.org/Archives/Public/www-xml-xinclude-comments/2003Aug/0000.html
+            // Daniel Veillard thinks this is correct. See
+            // http://lists.w3.org/Archives/Public/www-xml-xinclude-comments/2003Aug/0001.html
+            return processFallback(element, builder, baseURLs, ex, cache);
+        }
+        
+    }
+    
+    
     private static String getDirectoryBase(String parentBase) {
         if (parentBase.endsWith("/")) return parentBase;
         int lastSlash = parentBase.lastIndexOf('/');
@@ -618,7 +882,7 @@ public class XIncluder {
 
     
     // hack because URIUtil isn't public
-    private static URL absolutize(URL baseURL, String href) 
+    static URL absolutize(URL baseURL, String href) 
       throws MalformedURLException, BadHrefAttributeException {
         
         Element parent = new Element("c");
@@ -643,7 +907,7 @@ public class XIncluder {
     }
 
     
-    private static void testURISyntax(String href) {       
+    static void testURISyntax(String href) {       
         Element e = new Element("e");
         e.setNamespaceURI(href);
     }
@@ -667,11 +931,12 @@ public class XIncluder {
     // This assumes current implementation of XPointer that
     // always selects exactly one element or throws an exception.
     private static Nodes resolveXPointerSelection(Nodes in, 
-      Builder builder, ArrayList<String> baseURLs, Document original) 
+      Builder builder, ArrayList<String> baseURLs, Document original,
+      IncludeCache cache) 
       throws IOException, ParsingException, XIncludeException {
 
         Element preinclude = (Element) in.get(0);
-        return resolveSilently(preinclude, builder, baseURLs, original);
+        return resolveSilently(preinclude, builder, baseURLs, original, cache);
         
     }
     
@@ -690,7 +955,8 @@ public class XIncluder {
 
     
     private static Nodes resolveSilently(
-      Element element, Builder builder, ArrayList<String> baseURLs, Document originalDoc)
+      Element element, Builder builder, ArrayList<String> baseURLs, 
+      Document originalDoc, IncludeCache cache)
       throws IOException, ParsingException, XIncludeException {
         
         // There is no possibility the element passed to this method 
@@ -703,7 +969,7 @@ public class XIncluder {
         
         Elements children = element.getChildElements();
         for (int i = 0; i < children.size(); i++) {
-            resolve(children.get(i), builder, baseURLs, originalDoc);   
+            resolve(children.get(i), builder, baseURLs, originalDoc, cache);   
         } 
         return new Nodes(element);
         
@@ -737,8 +1003,9 @@ public class XIncluder {
     }
 
     
-    private static void processFallback(Element includeElement, 
-      Builder builder, ArrayList<String> baseURLs, ParentNode parent, Exception ex)
+    private static Nodes processFallback(Element includeElement, 
+      Builder builder, ArrayList<String> baseURLs, Exception ex,
+      IncludeCache cache)
         throws XIncludeException, IOException, ParsingException {
         
            Element fallback 
@@ -751,16 +1018,17 @@ public class XIncluder {
                 throw ex2;
            }
              
+           Nodes replacements = new Nodes();
            while (fallback.getChildCount() > 0) {
                 Node child = fallback.getChild(0);
                 if (child instanceof Element) {
-                    resolve((Element) child, builder, baseURLs);
+                    resolve((Element) child, builder, baseURLs, cache);
                 }
                 child = fallback.getChild(0);
                 child.detach();
-                parent.insertChild(child, parent.indexOf(includeElement)); 
+                replacements.append(child); 
            }
-           includeElement.detach();
+           return replacements;
            
     }
 
@@ -768,7 +1036,8 @@ public class XIncluder {
     // I could probably move the xpointer out of this method
     private static Nodes downloadXMLDocument(
       URL source, String xpointer, Builder builder, ArrayList<String> baseURLs,
-      String accept, String acceptLanguage, String parentLanguage) 
+      String accept, String acceptLanguage, String parentLanguage, 
+      IncludeCache cache) 
       throws IOException, ParsingException, XIncludeException, 
         XPointerSyntaxException, XPointerResourceException {
 
@@ -779,18 +1048,31 @@ public class XIncluder {
               " from " + baseURLs.get(baseURLs.size()-1), (String) baseURLs.get(baseURLs.size()-1));
         }      
         
-        URLConnection uc = source.openConnection();
-        setHeaders(uc, accept, acceptLanguage);
-        InputStream in = new BufferedInputStream(uc.getInputStream());
         Document doc;
-        try {
-            doc = builder.build(in, source.toExternalForm());
+        if (cache == null) {
+            URLConnection uc = source.openConnection();
+            setHeaders(uc, accept, acceptLanguage);
+            InputStream in = new BufferedInputStream(uc.getInputStream());
+            try {
+                doc = build(builder, in, base);
+            }
+            finally {
+                in.close();
+            }
         }
-        finally {
-            in.close();
+        else {
+            doc = cache.getDocument(base, accept, acceptLanguage);
+            if (doc == null) {
+                byte[] data = fetch(source, accept, acceptLanguage);
+                doc = build(builder, new ByteArrayInputStream(data), base);
+                // the cache keeps its own copy since doc is about
+                // to be resolved and taken apart
+                cache.putDocument(base, accept, acceptLanguage, 
+                  new Document(doc), data.length);
+            }
         }
           
-        resolveInPlace(doc, builder, baseURLs); 
+        resolveInPlace(doc, builder, baseURLs, cache); 
         Nodes included;
         if (xpointer != null && xpointer.length() != 0) {
             included = XPointer.query(doc, xpointer); 
@@ -839,6 +1121,52 @@ public class XIncluder {
         return included;
         
     }
+    
+    
+    private static Document build(Builder builder, InputStream in, 
+      String base) throws IOException, ParsingException {
+        
+        try {
+            return builder.build(in, base);
+        }
+        catch (ParsingException ex) {
+            // an XIncludeFactory failed to resolve an include element
+            // in the included document
+            if (ex.getCause() instanceof IncludeFailure) {
+                ((IncludeFailure) ex.getCause()).rethrow();
+            }
+            throw ex;
+        }
+        
+    }
+    
+    
+    static byte[] fetch(URL source, String accept, String acceptLanguage) 
+      throws IOException, BadHTTPHeaderException {
+        
+        URLConnection uc = source.openConnection();
+        setHeaders(uc, accept, acceptLanguage);
+        InputStream in = new BufferedInputStream(uc.getInputStream());
+        try {
+            return readFully(in);
+        }
+        finally {
+            in.close();
+        }
+        
+    }
+    
+    
+    private static byte[] readFully(InputStream in) throws IOException {
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+        
+    }
 
 
   /**
@@ -853,6 +1181,7 @@ public class XIncluder {
     *                  ISO-8859-1, etc.
     * @param builder the <code>Builder</code> used to build the
     *     nodes included from other documents
+    * @param cache the cache of previously loaded resources, or null
     * 
     * @return the document retrieved from the source <code>URL</code>
     * 
@@ -861,12 +1190,30 @@ public class XIncluder {
     */    
     private static Nodes downloadTextDocument(
       URL source, String encoding, Builder builder,
-      String accept, String language) 
+      String accept, String language, IncludeCache cache) 
       throws IOException, XIncludeException {
          
         if (encoding == null || encoding.length() == 0) {
             encoding = "UTF-8"; 
         }
+        
+        String url = source.toExternalForm();
+        String text = null;
+        if (cache != null) text = cache.getText(url, encoding, accept, language);
+        if (text == null) {
+            text = loadText(source, encoding, accept, language);
+            if (cache != null) {
+                cache.putText(url, encoding, accept, language, text);
+            }
+        }
+        return makeText(text, builder);
+      
+    }
+    
+    
+    static String loadText(URL source, String encoding, 
+      String accept, String language) 
+      throws IOException, BadHTTPHeaderException {
 
         URLConnection uc = source.openConnection();
         setHeaders(uc, accept, language);
@@ -917,11 +1264,7 @@ public class XIncluder {
               sb.append((char) c);
             }
             
-            NodeFactory factory = builder.getNodeFactory();
-            if (factory != null) {
-                return factory.makeText(sb.toString());
-            }
-            else return new Nodes(new Text(sb.toString()));
+            return sb.toString();
         }
         finally {
             in.close();   
@@ -930,7 +1273,18 @@ public class XIncluder {
     }
     
     
-    private static void setHeaders(URLConnection uc, String accept, 
+    private static Nodes makeText(String text, Builder builder) {
+        
+        NodeFactory factory = builder.getNodeFactory();
+        if (factory != null) {
+            return factory.makeText(text);
+        }
+        else return new Nodes(new Text(text));
+        
+    }
+    
+    
+    static void setHeaders(URLConnection uc, String accept, 
       String language) throws BadHTTPHeaderException {
       
         if (accept != null) {
@@ -945,7 +1299,7 @@ public class XIncluder {
     }
     
     
-    private static void checkHeader(String header) 
+    static void checkHeader(String header) 
       throws BadHTTPHeaderException {
      
         if (header == null) return;
@@ -962,7 +1316,7 @@ public class XIncluder {
     }
     
     
-    private static boolean isIncludeElement(Element element) {
+    static boolean isIncludeElement(Element element) {
      
         return element.getLocalName().equals("include")
           && element.getNamespaceURI().equals(XINCLUDE_NS);
@@ -0,0 +1,197 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.xslt;
+
+import java.lang.ref.WeakReference;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.TransformerFactoryConfigurationError;
+
+/**
+ * <p>
+ *   A compiled stylesheet together with one configured
+ *   <code>Transformer</code> per thread. The <code>Templates</code>
+ *   are shared by every thread and every <code>XSLTransform</code>
+ *   made from this stylesheet. Each thread keeps its transformer
+ *   between transformations, and only copies the parameters into it
+ *   again when a different <code>XSLTransform</code> uses it or the
+ *   parameters have changed.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+final class CompiledStylesheet {
+
+
+    private final Templates templates;
+    private final ThreadLocal<Pooled> pool = new ThreadLocal<Pooled>();
+
+
+    private CompiledStylesheet(Templates templates) {
+        this.templates = templates;
+    }
+
+    
+    // I could use one TransformerFactory field instead of local
+    // variables but then I'd have to synchronize it; and it would
+    // be hard to change the class used to transform
+
+    
+    /**
+     * <p>
+     *  Compiles the stylesheet read from the specified source.
+     * </p>
+     *
+     * @param source TrAX <code>Source</code> object from 
+     *      which the stylesheet is read
+     * 
+     * @throws XSLException when an <code>IOException</code>, 
+     *     format error, or something else prevents the stylesheet 
+     *     from being compiled 
+     */ 
+    static CompiledStylesheet compile(Source source) throws XSLException {
+         
+        TransformerFactory factory;
+        try {
+            factory = TransformerFactory.newInstance();
+        }
+        catch (TransformerFactoryConfigurationError error) {
+            try { // fallback to system default XSLT 1.0 transformer
+                System.setProperty(
+                  "javax.xml.transform.TransformerFactory",
+                  "com.sun.org.apache.xalan.internal.xsltc.trax.TransformerFactoryImpl"
+                );
+                factory = TransformerFactory.newInstance();
+            }
+            catch (TransformerFactoryConfigurationError ignored) {
+                throw new XSLException(
+                        "Could not locate a TrAX TransformerFactory", error
+                      ); 
+            }
+        } 
+
+        factory.setErrorListener(XSLTransform.errorsAreFatal);
+        try {
+            return new CompiledStylesheet(factory.newTemplates(source));
+        }      
+        catch (TransformerConfigurationException ex) {
+            throw new XSLException(
+              "Syntax error in stylesheet", ex
+            );    
+        }
+        
+    }
+
+
+    Templates getTemplates() {
+        return templates;
+    }
+
+
+    /**
+     * <p>
+     *   Returns a transformer holding the parameters of
+     *   <code>owner</code>. The transformer must be handed back to
+     *   <code>release</code> when the transformation is done.
+     *   A transformation that starts another one with the same
+     *   stylesheet on the same thread, for instance from a node
+     *   factory, gets a new transformer that is not pooled.
+     * </p>
+     */
+    Transformer acquire(XSLTransform owner) 
+      throws TransformerConfigurationException {
+
+        Pooled pooled = pool.get();
+        if (pooled == null) {
+            pooled = new Pooled(newTransformer());
+            pool.set(pooled);
+        }
+        else if (pooled.busy) {
+            Transformer transformer = newTransformer();
+            owner.copyParameters(transformer);
+            return transformer;
+        }
+
+        if (pooled.owner.get() != owner 
+          || pooled.version != owner.getParameterVersion()) {
+            pooled.transformer.clearParameters();
+            pooled.version = owner.copyParameters(pooled.transformer);
+            pooled.owner = new WeakReference<XSLTransform>(owner);
+        }
+        pooled.busy = true;
+        return pooled.transformer;
+
+    }
+
+
+    /**
+     * <p>
+     *   Returns a transformer obtained from <code>acquire</code>.
+     *   A transformer whose transformation failed is dropped rather
+     *   than reused, since its state is unknown.
+     * </p>
+     */
+    void release(Transformer transformer, boolean failed) {
+
+        Pooled pooled = pool.get();
+        if (pooled == null || pooled.transformer != transformer) return;
+        if (failed) pool.remove();
+        else pooled.busy = false;
+
+    }
+
+
+    private Transformer newTransformer() 
+      throws TransformerConfigurationException {
+
+        Transformer transformer = templates.newTransformer();
+        // work around Xalan bug
+        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+        // work around a Xalan 2.7.0 bug
+        transformer.setErrorListener(XSLTransform.errorsAreFatal);
+        return transformer;
+
+    }
+
+
+    private static final class Pooled {
+
+        final Transformer transformer;
+        WeakReference<XSLTransform> owner 
+          = new WeakReference<XSLTransform>(null);
+        int version;
+        boolean busy;
+
+        Pooled(Transformer transformer) {
+            this.transformer = transformer;
+        }
+
+    }
+
+
+}
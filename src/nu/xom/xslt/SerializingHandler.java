@@ -0,0 +1,274 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.xslt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import nu.xom.NamespaceConflictException;
+import nu.xom.StreamingSerializer;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+
+/**
+ * <p>
+ *   Writes the output of a transformation through a
+ *   <code>StreamingSerializer</code> as the XSLT processor produces
+ *   it, instead of building a result tree. It works around the same
+ *   processor bugs <code>XSLTHandler</code> does, so the output is
+ *   what serializing the result <code>Nodes</code> would produce.
+ * </p>
+ *
+ * <p>
+ *   Some XSLT processors call <code>startDocument()</code> and
+ *   <code>endDocument()</code> and some don't, so the caller
+ *   starts and ends the document on the serializer instead.
+ *   An <code>IOException</code> from the serializer is
+ *   remembered so it can be rethrown once the processor gives up.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+class SerializingHandler implements ContentHandler, LexicalHandler {
+
+    
+    private final StreamingSerializer out;
+    private final StringBuilder buffer = new StringBuilder();
+    private final List<String> prefixes = new ArrayList<String>();
+    private final List<String> uris = new ArrayList<String>();
+    private int depth = 0;
+    private IOException exception;
+
+    
+    SerializingHandler(StreamingSerializer out) {
+        this.out = out;
+    }
+
+
+    IOException getIOException() {
+        return exception;
+    }
+
+
+    // flushes text the processor reported after the last element
+    void finish() throws IOException {
+        flushText();
+    }
+    
+    
+    public void setDocumentLocator(Locator locator) {}
+    public void startDocument() {}
+    public void endDocument() {}
+    
+    
+    public void startPrefixMapping(String prefix, String uri) {
+        prefixes.add(prefix);
+        uris.add(uri);
+    }
+
+    
+    public void endPrefixMapping(String prefix) {}
+
+    
+    public void startElement(String namespaceURI, String localName, 
+      String qualifiedName, Attributes attributes) throws SAXException {
+        
+        try {
+            flushText();
+            out.startElement(qualifiedName, namespaceURI);
+            depth++;
+            
+            // Some processors report namespace declarations 
+            // as attributes too
+            int length = attributes.getLength();
+            for (int i = 0; i < length; i++) {
+                String name = attributes.getQName(i);
+                if (name.equals("xmlns") || name.startsWith("xmlns:")) {
+                    prefixes.add(name.length() == 5 ? "" : name.substring(6));
+                    uris.add(attributes.getValue(i));
+                    continue;
+                }
+                String uri = attributes.getURI(i);
+                String value = attributes.getValue(i);
+                while (true) {
+                    try {
+                        out.attribute(name, uri, value);
+                        break;
+                    }
+                    catch (NamespaceConflictException ex) {
+                        // According to section 7.1.3 of XSLT spec we 
+                        // need to remap the prefix here; ideally the
+                        // XSLT processor should do this but many don't
+                        name = "p" + name;
+                    }
+                }
+            }
+            
+            int count = prefixes.size();
+            for (int i = 0; i < count; i++) {
+                String prefix = prefixes.get(i);
+                String uri = uris.get(i);
+                if (uri == null) uri = ""; // Work around a Xalan bug
+                try {
+                    out.namespace(prefix, uri);
+                }
+                catch (NamespaceConflictException ex) {
+                    // Work around Bug 27937 in Xalan, which sometimes
+                    // uses the XML namespace where it should use the
+                    // empty string. Other conflicts can only be with
+                    // attribute prefixes remapped above.
+                    if ("".equals(prefix) 
+                      && "http://www.w3.org/XML/1998/namespace".equals(uri)) {
+                        out.namespace("", "");
+                    }
+                }
+            }
+            prefixes.clear();
+            uris.clear();
+        }
+        catch (IOException ex) {
+            throw wrap(ex);
+        }
+        
+    }
+
+    
+    public void endElement(String namespaceURI, String localName, 
+      String qualifiedName) throws SAXException {
+        
+        try {
+            flushText();
+            out.endElement();
+            depth--;
+        }
+        catch (IOException ex) {
+            throw wrap(ex);
+        }
+        
+    }
+
+    
+    public void characters(char[] text, int start, int length) {
+        buffer.append(text, start, length); 
+    }
+    
+    
+    public void ignorableWhitespace(char[] text, int start, int length) {
+        characters(text, start, length);
+    }
+    
+    
+    private void flushText() throws IOException {
+        
+        if (buffer.length() == 0) return;
+        String data = buffer.toString();
+        buffer.setLength(0);
+        // The serializer breaks lines between the children of 
+        // the document itself.
+        if (depth == 0 && data.trim().length() == 0) return;
+        out.text(data);
+        
+    }
+
+    
+    public void processingInstruction(String target, String data) 
+      throws SAXException {
+
+        // See http://saxon.sourceforge.net/saxon6.5.2/extensibility.html#Writing-output-filters
+        // to understand why we need to work around Saxon here
+        if ("saxon:warning".equals(target)) {
+            throw new SAXException("continue");   
+        }
+        else if ("javax.xml.transform.disable-output-escaping".equals(target)
+          || "javax.xml.transform.enable-output-escaping".equals(target)) { 
+            // Xalan workaround
+            return;   
+        }
+        
+        // Xalan fails to split the ?> before passing such data to 
+        // this method, so we have to do it
+        int position = data.indexOf("?>");
+        while (position != -1) {
+            data = data.substring(0, position) + "? >" + data.substring(position+2);
+            position = data.indexOf("?>");
+        }
+        try {
+            flushText();
+            out.processingInstruction(target, data);
+        }
+        catch (IOException ex) {
+            throw wrap(ex);
+        }
+
+    }
+
+    
+    public void skippedEntity(String name) throws SAXException {
+        throw new SAXException("Could not resolve entity " + name);                         
+    }
+    
+    
+    // LexicalHandler events
+    public void startCDATA() {}
+    public void endCDATA() {}
+    public void startDTD(String name, String publicID, String systemID) {}
+    public void endDTD() {}
+    public void startEntity(String name) {}
+    public void endEntity(String name) {}
+
+    
+    public void comment(char[] text, int start, int length) 
+      throws SAXException {
+        
+        String data = new String(text, start, length);
+        // Xalan should add spaces as necessary to split up double hyphens
+        // in comments but it doesn't
+        int position = data.indexOf("--");
+        while (position != -1) {
+            data = data.substring(0, position) + "- -" + data.substring(position+2);
+            position = data.indexOf("--");
+        }
+        if (data.endsWith("-")) data += ' ';
+        try {
+            flushText();
+            out.comment(data);
+        }
+        catch (IOException ex) {
+            throw wrap(ex);
+        }
+        
+    }
+    
+    
+    private SAXException wrap(IOException ex) {
+        exception = ex;
+        return new SAXException(ex);
+    }
+    
+    
+}
@@ -0,0 +1,227 @@
+/* Copyright 2026 Elliotte Rusty Harold
+
+   This library is free software; you can redistribute it and/or modify
+   it under the terms of version 2.1 of the GNU Lesser General Public
+   License as published by the Free Software Foundation.
+
+   This library is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU Lesser General Public License for more details.
+
+   You should have received a copy of the GNU Lesser General Public
+   License along with this library. If not, see
+   <https://www.gnu.org/licenses/>.
+
+   You can contact Elliotte Rusty Harold by sending e-mail to
+   elharo@ibiblio.org. Please include the word "XOM" in the
+   subject line. The XOM home page is located at https://xom.nu/
+*/
+
+package nu.xom.xslt;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.xml.transform.stream.StreamSource;
+
+import nu.xom.Document;
+import nu.xom.NodeFactory;
+
+/**
+ * <p>
+ *   A registry of compiled stylesheets that can be shared by many
+ *   threads. The first request for a stylesheet compiles it, and
+ *   later requests reuse the compiled form, so an application can
+ *   ask for an <code>XSLTransform</code> for every request it
+ *   serves without recompiling the stylesheet each time. All the
+ *   <code>XSLTransform</code> objects made from one stylesheet also
+ *   share the TrAX <code>Transformer</code> each thread keeps.
+ * </p>
+ *
+ * <p>
+ *   Stylesheets are identified either by URL or by the 
+ *   <code>Document</code> object that contains them. Documents are
+ *   compared by identity and held weakly, so a stylesheet is
+ *   forgotten once its document is garbage. The cache does not 
+ *   notice when a stylesheet changes, whether it's a document that
+ *   was modified or the resource a URL points to. Call 
+ *   <code>clear</code> to recompile everything.
+ * </p>
+ *
+ * @author Elliotte Rusty Harold
+ * @version 1.4.7
+ *
+ */
+public final class StylesheetCache {
+
+
+    private final Map<Document, CompiledStylesheet> documents
+      = new WeakHashMap<Document, CompiledStylesheet>();
+    private final Map<String, CompiledStylesheet> urls
+      = new HashMap<String, CompiledStylesheet>();
+
+
+    /**
+     * <p>
+     *   Creates an empty cache.
+     * </p>
+     */
+    public StylesheetCache() {}
+
+
+    /**
+     * <p>
+     *   Returns a new <code>XSLTransform</code> for the stylesheet
+     *   in the supplied document, compiling the stylesheet only if
+     *   this cache has not already compiled this document.
+     * </p>
+     *
+     * @param stylesheet document containing the stylesheet
+     *
+     * @return a transform that applies the stylesheet
+     *
+     * @throws XSLException when the supplied document
+     *      is not syntactically correct XSLT
+     * @throws NullPointerException if <code>stylesheet</code>
+     *      is null
+     */
+    public XSLTransform getTransform(Document stylesheet)
+      throws XSLException {
+        return getTransform(stylesheet, null);
+    }
+
+
+    /**
+     * <p>
+     *   Returns a new <code>XSLTransform</code> for the stylesheet
+     *   in the supplied document, compiling the stylesheet only if
+     *   this cache has not already compiled this document. The
+     *   transform creates the nodes in its result with the
+     *   supplied factory.
+     * </p>
+     *
+     * @param stylesheet document containing the stylesheet
+     * @param factory the factory used to build nodes in the 
+     *     result tree
+     *
+     * @return a transform that applies the stylesheet
+     *
+     * @throws XSLException when the supplied document
+     *      is not syntactically correct XSLT
+     * @throws NullPointerException if <code>stylesheet</code>
+     *      is null
+     */
+    public XSLTransform getTransform(Document stylesheet, 
+      NodeFactory factory) throws XSLException {
+
+        if (stylesheet == null) {
+            throw new NullPointerException("Null stylesheet");
+        }
+        CompiledStylesheet compiled;
+        synchronized (this) {
+            compiled = documents.get(stylesheet);
+        }
+        if (compiled == null) {
+            // Compile without holding the lock so that other 
+            // stylesheets aren't held up. Two threads may compile
+            // the same one at once, and the first one in wins.
+            compiled = CompiledStylesheet.compile(new XOMSource(stylesheet));
+            synchronized (this) {
+                CompiledStylesheet previous = documents.get(stylesheet);
+                if (previous == null) documents.put(stylesheet, compiled);
+                else compiled = previous;
+            }
+        }
+        return new XSLTransform(compiled, factory);
+
+    }
+
+
+    /**
+     * <p>
+     *   Returns a new <code>XSLTransform</code> for the stylesheet
+     *   at the specified URL, loading and compiling the stylesheet 
+     *   only if this cache has not already compiled it.
+     * </p>
+     *
+     * @param url the absolute URL of the stylesheet
+     *
+     * @return a transform that applies the stylesheet
+     *
+     * @throws XSLException when the stylesheet cannot be loaded
+     *      or is not syntactically correct XSLT
+     * @throws NullPointerException if <code>url</code> is null
+     */
+    public XSLTransform getTransform(String url) throws XSLException {
+        return getTransform(url, null);
+    }
+
+
+    /**
+     * <p>
+     *   Returns a new <code>XSLTransform</code> for the stylesheet
+     *   at the specified URL, loading and compiling the stylesheet 
+     *   only if this cache has not already compiled it. The
+     *   transform creates the nodes in its result with the
+     *   supplied factory.
+     * </p>
+     *
+     * @param url the absolute URL of the stylesheet
+     * @param factory the factory used to build nodes in the 
+     *     result tree
+     *
+     * @return a transform that applies the stylesheet
+     *
+     * @throws XSLException when the stylesheet cannot be loaded
+     *      or is not syntactically correct XSLT
+     * @throws NullPointerException if <code>url</code> is null
+     */
+    public XSLTransform getTransform(String url, NodeFactory factory)
+      throws XSLException {
+
+        if (url == null) throw new NullPointerException("Null URL");
+        CompiledStylesheet compiled;
+        synchronized (this) {
+            compiled = urls.get(url);
+        }
+        if (compiled == null) {
+            compiled = CompiledStylesheet.compile(new StreamSource(url));
+            synchronized (this) {
+                CompiledStylesheet previous = urls.get(url);
+                if (previous == null) urls.put(url, compiled);
+                else compiled = previous;
+            }
+        }
+        return new XSLTransform(compiled, factory);
+
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of compiled stylesheets in this cache.
+     * </p>
+     *
+     * @return the number of cached stylesheets
+     */
+    public synchronized int getEntryCount() {
+        return documents.size() + urls.size();
+    }
+
+
+    /**
+     * <p>
+     *   Removes all compiled stylesheets from this cache.
+     *   <code>XSLTransform</code> objects already returned
+     *   continue to work.
+     * </p>
+     */
+    public synchronized void clear() {
+        documents.clear();
+        urls.clear();
+    }
+
+
+}
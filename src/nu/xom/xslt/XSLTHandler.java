@@ -21,14 +21,19 @@
 package nu.xom.xslt;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import nu.xom.Attribute;
+import nu.xom.Comment;
 import nu.xom.Element;
 import nu.xom.NamespaceConflictException;
 import nu.xom.Node;
 import nu.xom.NodeFactory;
 import nu.xom.Nodes;
 import nu.xom.ParentNode;
+import nu.xom.ProcessingInstruction;
+import nu.xom.Text;
 import nu.xom.XMLException;
 
 import org.xml.sax.Attributes;
@@ -48,8 +53,19 @@ import org.xml.sax.helpers.AttributesImpl;
  * of a transform is a document fragment.
  * </p>
  * 
+ * <p>
+ * When the factory is a plain <code>NodeFactory</code>, nodes are
+ * constructed directly rather than wrapped in and unwrapped from
+ * <code>Nodes</code> objects, and elements stay where they were
+ * appended when they end. The constructors still verify every
+ * node, since processors don't check everything XOM does; for
+ * instance, a namespace URI may be relative. However, namespace
+ * URIs are shared so that each distinct URI is parsed once
+ * rather than once per node.
+ * </p>
+ * 
  * @author Elliotte Rusty Harold
- * @version 1.3.1
+ * @version 1.4.7
  *
  */
 class XSLTHandler 
@@ -58,11 +74,21 @@ class XSLTHandler
     private final Nodes       result;
     private final ArrayList<Element>   parents;
     private final NodeFactory factory;
+    private final boolean     defaultFactory;
     private StringBuilder buffer;
     
+    // The processor hands us a new string for each namespace URI 
+    // in each start-tag. Passing the same instance each time lets 
+    // the Verifier recognize URIs it has already checked.
+    private final Map<String, String> uris = new HashMap<String, String>();
+    
     
     XSLTHandler(NodeFactory factory) {
         this.factory = factory; 
+        // XOMReader makes one with a null factory just to 
+        // identify itself to SAXConverter
+        this.defaultFactory = factory != null
+          && factory.getClass().getName().equals("nu.xom.NodeFactory");
         result   = new Nodes();
         parents  = new ArrayList<Element>();
         buffer   = new StringBuilder();
@@ -99,8 +125,14 @@ class XSLTHandler
         }
         attributes = namespaceDeclarations;
         
-        Element element 
-          = factory.startMakingElement(qualifiedName, namespaceURI);
+        namespaceURI = share(namespaceURI);
+        Element element;
+        if (defaultFactory) {
+            element = new Element(qualifiedName, namespaceURI);
+        }
+        else {
+            element = factory.startMakingElement(qualifiedName, namespaceURI);
+        }
         
         if (parents.isEmpty()) {
             // won't append until finishMakingElement()
@@ -121,9 +153,14 @@ class XSLTHandler
               || attributeName.startsWith("xmlns:")) {
                 continue;
             }
-            String namespace = attributes.getURI(i);
+            String namespace = share(attributes.getURI(i));
             String value = attributes.getValue(i);
             
+            if (defaultFactory) {
+                addAttribute(element, new Attribute(attributeName, 
+                  namespace, value, Attribute.Type.UNDECLARED));
+                continue;
+            }
             Nodes nodes = factory.makeAttribute(
               attributeName, 
               namespace, 
@@ -134,24 +171,7 @@ class XSLTHandler
             for (int j=0; j < size; j++) {
                 Node node = nodes.get(j);
                 if (node instanceof Attribute) {
-                    Attribute attribute = (Attribute) node;
-                    while (true) {
-                        try {
-                            element.addAttribute(attribute);
-                            break;
-                        }
-                        catch (NamespaceConflictException ex) {
-                            // According to section 7.1.3 of XSLT spec we 
-                            // need to remap the prefix here; ideally the
-                            // XSLT processor should do this but many don't
-                            // for instance, see 
-                            // http://nagoya.apache.org/bugzilla/show_bug.cgi?id=5389
-                            attribute.setNamespace(
-                              "p"+attribute.getNamespacePrefix(), 
-                              attribute.getNamespaceURI()
-                            );
-                        }
-                    }
+                    addAttribute(element, (Attribute) node);
                 }
                 else {
                     element.appendChild(node);   
@@ -213,6 +233,42 @@ class XSLTHandler
         namespaceDeclarations = new AttributesImpl();
         
     }
+    
+    
+    private static void addAttribute(Element element, Attribute attribute) {
+        
+        while (true) {
+            try {
+                element.addAttribute(attribute);
+                break;
+            }
+            catch (NamespaceConflictException ex) {
+                // According to section 7.1.3 of XSLT spec we 
+                // need to remap the prefix here; ideally the
+                // XSLT processor should do this but many don't
+                // for instance, see 
+                // http://nagoya.apache.org/bugzilla/show_bug.cgi?id=5389
+                attribute.setNamespace(
+                  "p"+attribute.getNamespacePrefix(), 
+                  attribute.getNamespaceURI()
+                );
+            }
+        }
+        
+    }
+    
+    
+    private String share(String uri) {
+        
+        if (uri == null || uri.length() == 0) return uri;
+        String shared = uris.get(uri);
+        if (shared == null) {
+            uris.put(uri, uri);
+            return uri;
+        }
+        return shared;
+        
+    }
   
     
     public void endElement(String namespaceURI, String localName, 
@@ -220,6 +276,13 @@ class XSLTHandler
         
         flushText();
         Element element = (Element) parents.remove(parents.size()-1);
+        if (defaultFactory) {
+            if (parents.isEmpty()) {
+                result.append(current);
+                current = null;
+            }
+            return;
+        }
         if (parents.isEmpty()) {
             Nodes nodes = factory.finishMakingElement(current);
             for (int i = 0; i < nodes.size(); i++) {
@@ -229,6 +292,8 @@ class XSLTHandler
         }
         else {
             Nodes nodes = factory.finishMakingElement(element);
+            // the usual case; the element is already where it belongs
+            if (nodes.size() == 1 && nodes.get(0) == element) return;
             ParentNode parent = element.getParent();
             element.detach();
             for (int i = 0; i < nodes.size(); i++) {
@@ -253,9 +318,13 @@ class XSLTHandler
     // accumulate all text that's in the buffer into a text node
     private void flushText() {
         if (buffer.length() > 0) {
-            Nodes text = factory.makeText(buffer.toString());
-            addToResultTree(text);
-            buffer = new StringBuilder();
+            if (defaultFactory) {
+                addToResultTree(new Text(buffer.toString()));
+            }
+            else {
+                addToResultTree(factory.makeText(buffer.toString()));
+            }
+            buffer.setLength(0);
         } 
     }
   
@@ -287,12 +356,28 @@ class XSLTHandler
             data = data.substring(0, position) + "? >" + data.substring(position+2);
             position = data.indexOf("?>");
         }
-        Nodes nodes = factory.makeProcessingInstruction(target, data);
-        addToResultTree(nodes);
+        if (defaultFactory) {
+            addToResultTree(new ProcessingInstruction(target, data));
+        }
+        else {
+            addToResultTree(factory.makeProcessingInstruction(target, data));
+        }
 
     }
 
     
+    private void addToResultTree(Node node) {
+        
+        if (parents.isEmpty()) {
+            result.append(node);          
+        }
+        else {
+            parents.get(parents.size()-1).appendChild(node);
+        }
+        
+    }
+
+    
     private void addToResultTree(Nodes nodes) {
         
         if (parents.isEmpty()) {
@@ -362,7 +447,8 @@ class XSLTHandler
         }
         if (data.endsWith("-")) data += ' ';
         
-        addToResultTree(factory.makeComment(data));
+        if (defaultFactory) addToResultTree(new Comment(data));
+        else addToResultTree(factory.makeComment(data));
         
     } 
      
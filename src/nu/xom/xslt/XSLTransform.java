@@ -20,19 +20,20 @@
 
 package nu.xom.xslt;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Properties;
 
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Result;
 import javax.xml.transform.Source;
-import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
 
 import org.xml.sax.SAXParseException;
 
@@ -40,6 +41,8 @@ import nu.xom.Document;
 import nu.xom.Element;
 import nu.xom.NodeFactory;
 import nu.xom.Nodes;
+import nu.xom.Serializer;
+import nu.xom.StreamingSerializer;
 import nu.xom.XMLException;
 
 /**
@@ -116,8 +119,21 @@ import nu.xom.XMLException;
  *    </li>
  *    </ol>
  *
+ * <p>
+ *   The stylesheet is compiled once, when the 
+ *   <code>XSLTransform</code> is created, and each thread keeps a
+ *   configured TrAX <code>Transformer</code> from one transformation
+ *   to the next. Several threads may transform with the same 
+ *   <code>XSLTransform</code> at once, provided its node factory
+ *   can be used concurrently and its parameters are not changed
+ *   in the meantime. Applications that would otherwise create
+ *   an <code>XSLTransform</code> per request can get them from a
+ *   {@link StylesheetCache}, which compiles each stylesheet
+ *   only once.
+ * </p>
+ *
  * @author Elliotte Rusty Harold
- * @version 1.3.9
+ * @version 1.4.7
  */
 public final class XSLTransform {
 
@@ -129,10 +145,12 @@ public final class XSLTransform {
      * unlike a <code>Transformer</code> object.
      * </p>
      */
-    private Templates   templates;  
-    private NodeFactory factory;
-    private Map<String, Object> parameters = new HashMap<String, Object>();
-    private static ErrorListener errorsAreFatal = new FatalListener();
+    private final CompiledStylesheet stylesheet;  
+    private final NodeFactory factory;
+    private final Map<String, Object> parameters = new HashMap<String, Object>();
+    // incremented each time the parameters change; guarded by parameters
+    private int parameterVersion = 0;
+    static final ErrorListener errorsAreFatal = new FatalListener();
     
     
     private static class FatalListener implements ErrorListener {
@@ -151,54 +169,11 @@ public final class XSLTransform {
         
     }
     
-    // I could use one TransformerFactory field instead of local
-    // variables but then I'd have to synchronize it; and it would
-    // be hard to change the class used to transform
-
-    
-    /**
-     * <p>
-     *  Creates a new <code>XSLTransform</code> by
-     *  reading the stylesheet from the specified source.
-     * </p>
-     *
-     * @param source TrAX <code>Source</code> object from 
-     *      which the input document is read
-     * 
-     * @throws XSLException when an <code>IOException</code>, 
-     *     format error, or something else prevents the stylesheet 
-     *     from being compiled 
-     */ 
-     private XSLTransform(Source source) throws XSLException {
-         
-        TransformerFactory factory;
-        try {
-            factory = TransformerFactory.newInstance();
-        }
-        catch (TransformerFactoryConfigurationError error) {
-            try { // fallback to system default XSLT 1.0 transformer
-                System.setProperty(
-                  "javax.xml.transform.TransformerFactory",
-                  "com.sun.org.apache.xalan.internal.xsltc.trax.TransformerFactoryImpl"
-                );
-                factory = TransformerFactory.newInstance();
-            }
-            catch (TransformerFactoryConfigurationError ignored) {
-                throw new XSLException(
-                        "Could not locate a TrAX TransformerFactory", error
-                      ); 
-            }
-        } 
-
-        factory.setErrorListener(errorsAreFatal);
-        try {
-            this.templates = factory.newTemplates(source);
-        }      
-        catch (TransformerConfigurationException ex) {
-            throw new XSLException(
-              "Syntax error in stylesheet", ex
-            );    
-        }
+    XSLTransform(CompiledStylesheet stylesheet, NodeFactory factory) {
+        
+        this.stylesheet = stylesheet;
+        if (factory == null) this.factory = new NodeFactory(); 
+        else this.factory = factory;
         
     }
     
@@ -240,9 +215,7 @@ public final class XSLTransform {
     public XSLTransform(Document stylesheet, NodeFactory factory) 
       throws XSLException {
         
-        this(new XOMSource(stylesheet));
-        if (factory == null) this.factory = new NodeFactory(); 
-        else this.factory = factory;
+        this(CompiledStylesheet.compile(new XOMSource(stylesheet)), factory);
         
     }
 
@@ -268,6 +241,105 @@ public final class XSLTransform {
     }
     
     
+    /**
+     * <p>
+     * Applies this object's stylesheet to the input 
+     * <code>Document</code> and writes the result onto the
+     * serializer as the XSLT processor produces it, without
+     * building a result tree. The output is the same as serializing 
+     * the <code>Document</code> that <code>toDocument</code> would
+     * build from the result of <code>transform(in)</code>, using the
+     * serializer's encoding, indenting, and other options. 
+     * Only the open elements are kept in memory. The node factory
+     * is not used. The original <code>Document</code> is not 
+     * changed.
+     * </p>
+     * 
+     * <p>
+     * If the transformation fails part way through, whatever was
+     * written before the failure remains on the serializer's
+     * output stream.
+     * </p>
+     *
+     * @param in document to transform
+     * @param out the serializer the result is written onto
+     * 
+     * @throws XSLException if the transformation fails, normally
+     *     due to an XSLT error, or if the result is not a 
+     *     well-formed document with a single root element
+     * @throws IOException if the underlying output stream
+     *     encounters an I/O error
+     * @throws NullPointerException if <code>out</code> is null
+     */ 
+    public void transform(Document in, Serializer out) 
+      throws XSLException, IOException {
+        
+        StreamingSerializer streamer = new StreamingSerializer(out);
+        SerializingHandler handler = new SerializingHandler(streamer);
+        SAXResult result = new SAXResult(handler);
+        result.setLexicalHandler(handler);
+        
+        streamer.startDocument();
+        try {
+            transform(new XOMSource(in), result);
+        }
+        catch (XSLException ex) {
+            IOException cause = handler.getIOException();
+            if (cause != null) throw cause;
+            throw ex;
+        }
+        
+        try {
+            handler.finish();
+            streamer.endDocument();
+        }
+        catch (XMLException ex) {
+            throw new XSLException(ex.getMessage(), ex);
+        }
+        
+    }
+    
+    
+    /**
+     * <p>
+     * Applies this object's stylesheet to the input 
+     * <code>Document</code> and writes the result onto the
+     * output stream as the XSLT processor produces it, without
+     * building a result tree. The output is written in
+     * the encoding the stylesheet's <code>xsl:output</code> 
+     * element specifies, UTF-8 by default, and indented if
+     * it specifies <code>indent="yes"</code>. Otherwise this
+     * method behaves like <code>transform(Document, Serializer)</code>.
+     * The output stream is flushed but not closed.
+     * </p>
+     *
+     * @param in document to transform
+     * @param out the output stream the result is written onto
+     * 
+     * @throws XSLException if the transformation fails, normally
+     *     due to an XSLT error, or if the result is not a 
+     *     well-formed document with a single root element
+     * @throws IOException if the underlying output stream
+     *     encounters an I/O error, or if the requested encoding
+     *     is not supported
+     * @throws NullPointerException if <code>out</code> is null
+     */ 
+    public void transform(Document in, OutputStream out) 
+      throws XSLException, IOException {
+        
+        Properties properties = stylesheet.getTemplates().getOutputProperties();
+        String encoding = properties.getProperty(OutputKeys.ENCODING);
+        Serializer serializer;
+        if (encoding == null) serializer = new Serializer(out);
+        else serializer = new Serializer(out, encoding);
+        if ("yes".equals(properties.getProperty(OutputKeys.INDENT))) {
+            serializer.setIndent(2);
+        }
+        transform(in, serializer);
+        
+    }
+    
+    
     /**
      * <p>
      * Supply a parameter to transformations performed by this object.
@@ -312,11 +384,37 @@ public final class XSLTransform {
     
     private void _setParameter(String name, Object value) {
 
-        if (value == null) {
-            parameters.remove(name);
+        synchronized (parameters) {
+            if (value == null) {
+                parameters.remove(name);
+            }
+            else {
+                parameters.put(name, value);
+            }
+            parameterVersion++;
         }
-        else {
-            parameters.put(name, value);
+        
+    }
+
+
+    int getParameterVersion() {
+        synchronized (parameters) {
+            return parameterVersion;
+        }
+    }
+
+
+    // Returns the version of the parameters that were copied.
+    int copyParameters(Transformer transformer) {
+        
+        synchronized (parameters) {
+            Iterator<String> iterator = parameters.keySet().iterator();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                Object value = parameters.get(key);
+                transformer.setParameter(key, value);
+            }
+            return parameterVersion;
         }
         
     }
@@ -364,21 +462,21 @@ public final class XSLTransform {
      */ 
     private Nodes transform(Source in) throws XSLException {
         
+        XOMResult out = new XOMResult(factory);
+        transform(in, out);
+        return out.getResult();
+        
+    }
+    
+    
+    private void transform(Source in, Result out) throws XSLException {
+        
+        Transformer transformer = null;
+        boolean failed = true;
         try {
-            XOMResult out = new XOMResult(factory);
-            Transformer transformer = templates.newTransformer();
-            // work around Xalan bug
-            transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-            // work around a Xalan 2.7.0 bug
-            transformer.setErrorListener(errorsAreFatal);
-            Iterator<String> iterator = parameters.keySet().iterator();
-            while (iterator.hasNext()) {
-                String key = iterator.next();
-                Object value = parameters.get(key);
-                transformer.setParameter(key, value);
-            }
+            transformer = stylesheet.acquire(this);
             transformer.transform(in, out);
-            return out.getResult();
+            failed = false;
         }
         catch (Exception ex) {
             // workaround bugs that wrap RuntimeExceptions
@@ -396,6 +494,9 @@ public final class XSLTransform {
             }
             throw new XSLException(ex.getMessage(), cause);
         }  
+        finally {
+            if (transformer != null) stylesheet.release(transformer, failed);
+        }
         
     }
     
@@ -459,7 +560,8 @@ public final class XSLTransform {
      * @return debugging string
      */
     public String toString() {
-        return "[" + getClass().getName() + ": " + templates + "]";   
+        return "[" + getClass().getName() + ": " 
+          + stylesheet.getTemplates() + "]";   
     }
   
     